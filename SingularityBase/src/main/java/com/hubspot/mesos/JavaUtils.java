@@ -19,6 +19,7 @@ import org.apache.commons.lang3.time.DateFormatUtils;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
@@ -162,7 +163,14 @@ public final class JavaUtils {
   }
 
   public static ObjectMapper newObjectMapper() {
-    final ObjectMapper mapper = new ObjectMapper();
+    return configureObjectMapper(new ObjectMapper());
+  }
+
+  public static ObjectMapper newObjectMapper(JsonFactory jsonFactory) {
+    return configureObjectMapper(new ObjectMapper(jsonFactory));
+  }
+
+  private static ObjectMapper configureObjectMapper(ObjectMapper mapper) {
     mapper.setSerializationInclusion(Include.NON_ABSENT);
     mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     mapper.registerModule(new GuavaModule());
@@ -0,0 +1,13 @@
+package com.hubspot.singularity;
+
+public enum OfferScoringStrategy {
+  /**
+   * Score every offer for every due task, fanning each score calculation out to the offer scoring executor
+   */
+  CONCURRENT,
+  /**
+   * Keep offers sorted by their current slave usage score, re-scoring only the slave that accepted the last task
+   * and scanning candidates in order on the calling thread until the first match is found
+   */
+  INDEXED
+}
@@ -2,10 +2,10 @@ package com.hubspot.singularity.executor.task;
 
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
@@ -23,6 +23,7 @@ import com.hubspot.singularity.executor.config.SingularityExecutorConfiguration;
 import com.hubspot.singularity.executor.config.SingularityExecutorModule;
 import com.hubspot.singularity.runner.base.configuration.SingularityRunnerBaseConfiguration;
 import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
+import com.hubspot.singularity.s3.base.ArtifactCacheMetrics;
 import com.hubspot.singularity.s3.base.ArtifactDownloadRequest;
 import com.hubspot.singularity.s3.base.ArtifactManager;
 import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
@@ -42,6 +43,7 @@ public class SingularityExecutorArtifactFetcher {
   private final ObjectMapper objectMapper;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
   private final SingularityRunnerBaseConfiguration runnerBaseConfiguration;
+  private final ArtifactCacheMetrics artifactCacheMetrics;
 
   @Inject
   public SingularityExecutorArtifactFetcher(@Named(SingularityExecutorModule.LOCAL_DOWNLOAD_HTTP_CLIENT) AsyncHttpClient localDownloadHttpClient, SingularityS3Configuration s3Configuration,
@@ -52,12 +54,14 @@ public class SingularityExecutorArtifactFetcher {
     this.objectMapper = objectMapper;
     this.exceptionNotifier = exceptionNotifier;
     this.runnerBaseConfiguration = runnerBaseConfiguration;
+    // the executor has no metrics reporter, cache hits and misses are reported by the local download service
+    this.artifactCacheMetrics = new ArtifactCacheMetrics(new MetricRegistry());
 
     this.localDownloadUri = String.format(LOCAL_DOWNLOAD_STRING_FORMAT, s3Configuration.getLocalDownloadHttpPort(), s3Configuration.getLocalDownloadPath());
   }
 
   public SingularityExecutorTaskArtifactFetcher buildTaskFetcher(ExecutorData executorData, SingularityExecutorTask task) {
-    ArtifactManager artifactManager = new ArtifactManager(runnerBaseConfiguration, s3Configuration, task.getLog(), exceptionNotifier);
+    ArtifactManager artifactManager = new ArtifactManager(runnerBaseConfiguration, s3Configuration, task.getLog(), exceptionNotifier, artifactCacheMetrics);
 
     return new SingularityExecutorTaskArtifactFetcher(artifactManager, task);
   }
@@ -187,12 +191,13 @@ public class SingularityExecutorArtifactFetcher {
     }
 
     private void downloadRemoteArtifact(RemoteArtifact remoteArtifact, ArtifactManager artifactManager, SingularityExecutorTask task) {
-      Path fetched = artifactManager.fetch(remoteArtifact);
+      Path artifactPath = task.getArtifactPath(remoteArtifact, task.getTaskDefinition().getTaskDirectoryPath());
 
-      if (Objects.toString(fetched.getFileName()).endsWith(".tar.gz")) {
-        artifactManager.untar(fetched, task.getArtifactPath(remoteArtifact, task.getTaskDefinition().getTaskDirectoryPath()));
+      if (remoteArtifact.getFilenameForCache().endsWith(".tar.gz")) {
+        artifactManager.fetchAndUntar(remoteArtifact, artifactPath);
       } else {
-        artifactManager.copy(fetched, task.getArtifactPath(remoteArtifact, task.getTaskDefinition().getTaskDirectoryPath()), remoteArtifact.getFilename());
+        Path fetched = artifactManager.fetch(remoteArtifact);
+        artifactManager.copy(fetched, artifactPath, remoteArtifact.getFilename());
       }
     }
 
@@ -1,6 +1,8 @@
 package com.hubspot.mesos.client;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import com.hubspot.mesos.json.MesosMasterMetricsSnapshotObject;
 import com.hubspot.mesos.json.MesosMasterStateObject;
@@ -51,4 +53,22 @@ public interface MesosClient {
 
   public List<MesosTaskMonitorObject> getSlaveResourceUsage(String hostname, boolean useShortTimeout);
 
+  default CompletableFuture<MesosSlaveMetricsSnapshotObject> getSlaveMetricsSnapshotAsync(String hostname, boolean useShortTimeout) {
+    return completeWith(() -> getSlaveMetricsSnapshot(hostname, useShortTimeout));
+  }
+
+  default CompletableFuture<List<MesosTaskMonitorObject>> getSlaveResourceUsageAsync(String hostname, boolean useShortTimeout) {
+    return completeWith(() -> getSlaveResourceUsage(hostname, useShortTimeout));
+  }
+
+  static <T> CompletableFuture<T> completeWith(Supplier<T> supplier) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      future.complete(supplier.get());
+    } catch (Throwable t) {
+      future.completeExceptionally(t);
+    }
+    return future;
+  }
+
 }
@@ -1,6 +1,7 @@
 package com.hubspot.mesos.client;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +10,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.hubspot.horizon.AsyncHttpClient;
+import com.hubspot.horizon.AsyncHttpClient.Callback;
 import com.hubspot.horizon.HttpClient;
 import com.hubspot.horizon.HttpRequest;
 import com.hubspot.horizon.HttpRequest.Options;
@@ -25,6 +28,8 @@ public class SingularityMesosClient implements MesosClient {
 
   public static final String DEFAULT_HTTP_CLIENT_NAME = "mesos.http.client";
   public static final String SHORT_TIMEOUT_HTTP_CLIENT_NAME = "mesos.http.client.short.timeout";
+  public static final String DEFAULT_ASYNC_HTTP_CLIENT_NAME = "mesos.async.http.client";
+  public static final String SHORT_TIMEOUT_ASYNC_HTTP_CLIENT_NAME = "mesos.async.http.client.short.timeout";
 
   private static final Logger LOG = LoggerFactory.getLogger(SingularityMesosClient.class);
 
@@ -38,12 +43,18 @@ public class SingularityMesosClient implements MesosClient {
 
   private final HttpClient httpClient;
   private final HttpClient shortTimeoutHttpClient;
+  private final AsyncHttpClient asyncHttpClient;
+  private final AsyncHttpClient shortTimeoutAsyncHttpClient;
 
   @Inject
   public SingularityMesosClient(@Named(DEFAULT_HTTP_CLIENT_NAME) HttpClient httpClient,
-                                @Named(SHORT_TIMEOUT_HTTP_CLIENT_NAME) HttpClient shortTimeoutHttpClient) {
+                                @Named(SHORT_TIMEOUT_HTTP_CLIENT_NAME) HttpClient shortTimeoutHttpClient,
+                                @Named(DEFAULT_ASYNC_HTTP_CLIENT_NAME) AsyncHttpClient asyncHttpClient,
+                                @Named(SHORT_TIMEOUT_ASYNC_HTTP_CLIENT_NAME) AsyncHttpClient shortTimeoutAsyncHttpClient) {
     this.httpClient = httpClient;
     this.shortTimeoutHttpClient = shortTimeoutHttpClient;
+    this.asyncHttpClient = asyncHttpClient;
+    this.shortTimeoutAsyncHttpClient = shortTimeoutAsyncHttpClient;
   }
 
   @Override
@@ -79,6 +90,40 @@ public class SingularityMesosClient implements MesosClient {
     return response;
   }
 
+  private CompletableFuture<HttpResponse> getFromMesosAsync(String uri, boolean useShortTimeout) {
+    AsyncHttpClient currentHttpClient = useShortTimeout ? shortTimeoutAsyncHttpClient : asyncHttpClient;
+    CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+
+    final long start = System.currentTimeMillis();
+
+    LOG.debug("Fetching {} from mesos", uri);
+
+    try {
+      currentHttpClient.execute(HttpRequest.newBuilder().setUrl(uri).build(), new Options(), new Callback() {
+
+        @Override
+        public void completed(HttpResponse response) {
+          LOG.debug("Response {} - {} after {}", response.getStatusCode(), uri, JavaUtils.duration(start));
+
+          if (response.isSuccess()) {
+            future.complete(response);
+          } else {
+            future.completeExceptionally(new MesosClientException(String.format("Invalid response code from %s : %s", uri, response.getStatusCode())));
+          }
+        }
+
+        @Override
+        public void failed(Exception e) {
+          future.completeExceptionally(new MesosClientException(String.format("Exception fetching %s after %s", uri, JavaUtils.duration(start)), e));
+        }
+      });
+    } catch (Exception e) {
+      future.completeExceptionally(new MesosClientException(String.format("Exception fetching %s after %s", uri, JavaUtils.duration(start)), e));
+    }
+
+    return future;
+  }
+
   private <T> T getFromMesos(String uri, Class<T> clazz) {
     return getFromMesos(uri, clazz, false);
   }
@@ -108,6 +153,19 @@ public class SingularityMesosClient implements MesosClient {
     return getFromMesos(String.format(MESOS_SLAVE_METRICS_SNAPSHOT_URL, hostname), MesosSlaveMetricsSnapshotObject.class, useShortTimeout);
   }
 
+  @Override
+  public CompletableFuture<MesosSlaveMetricsSnapshotObject> getSlaveMetricsSnapshotAsync(String hostname, boolean useShortTimeout) {
+    final String uri = String.format(MESOS_SLAVE_METRICS_SNAPSHOT_URL, hostname);
+
+    return getFromMesosAsync(uri, useShortTimeout).thenApply((response) -> {
+      try {
+        return response.getAs(MesosSlaveMetricsSnapshotObject.class);
+      } catch (Exception e) {
+        throw new MesosClientException(String.format("Couldn't deserialize %s from %s", MesosSlaveMetricsSnapshotObject.class.getSimpleName(), uri), e);
+      }
+    });
+  }
+
   @Override
   public String getSlaveUri(String hostname) {
     return String.format(MESOS_SLAVE_JSON_URL, hostname);
@@ -131,4 +189,17 @@ public class SingularityMesosClient implements MesosClient {
     }
   }
 
+  @Override
+  public CompletableFuture<List<MesosTaskMonitorObject>> getSlaveResourceUsageAsync(String hostname, boolean useShortTimeout) {
+    final String uri = String.format(MESOS_SLAVE_STATISTICS_URL, hostname);
+
+    return getFromMesosAsync(uri, useShortTimeout).thenApply((response) -> {
+      try {
+        return response.getAs(TASK_MONITOR_TYPE_REFERENCE);
+      } catch (Exception e) {
+        throw new MesosClientException(String.format("Unable to deserialize task monitor object from %s", uri), e);
+      }
+    });
+  }
+
 }
@@ -4,9 +4,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.inject.AbstractModule;
 import com.google.inject.Scopes;
 import com.google.inject.name.Names;
+import com.hubspot.horizon.AsyncHttpClient;
 import com.hubspot.horizon.HttpClient;
 import com.hubspot.horizon.HttpConfig;
 import com.hubspot.horizon.HttpConfig.Builder;
+import com.hubspot.horizon.ning.NingAsyncHttpClient;
 import com.hubspot.horizon.ning.NingHttpClient;
 import com.hubspot.mesos.JavaUtils;
 
@@ -14,6 +16,8 @@ public class SingularityMesosClientModule extends AbstractModule {
 
   public static final String MESOS_CLIENT_OBJECT_MAPPER = "singularity.mesos.client.object.mapper";
   private static final int MESOS_CLIENT_HTTP_SHORT_TIMEOUT_SECONDS = 5;
+  private static final int MESOS_CLIENT_ASYNC_CONNECTIONS_PER_HOST = 4;
+  private static final int MESOS_CLIENT_ASYNC_KEEP_ALIVE_SECONDS = 120;
 
   @Override
   protected void configure() {
@@ -27,6 +31,18 @@ public class SingularityMesosClientModule extends AbstractModule {
     bind(HttpClient.class).annotatedWith(Names.named(SingularityMesosClient.SHORT_TIMEOUT_HTTP_CLIENT_NAME))
         .toInstance(new NingHttpClient(httpConfigBuilder.setRequestTimeoutSeconds(MESOS_CLIENT_HTTP_SHORT_TIMEOUT_SECONDS).build()));
 
+    // Agent usage is fetched from every agent on each usage poll, keep connections to them open between polls
+    Builder asyncHttpConfigBuilder = HttpConfig.newBuilder()
+        .setObjectMapper(objectMapper)
+        .setMaxConnectionsPerHost(MESOS_CLIENT_ASYNC_CONNECTIONS_PER_HOST)
+        .setDefaultKeepAliveSeconds(MESOS_CLIENT_ASYNC_KEEP_ALIVE_SECONDS);
+
+    bind(AsyncHttpClient.class).annotatedWith(Names.named(SingularityMesosClient.DEFAULT_ASYNC_HTTP_CLIENT_NAME))
+        .toInstance(new NingAsyncHttpClient(asyncHttpConfigBuilder.build()));
+
+    bind(AsyncHttpClient.class).annotatedWith(Names.named(SingularityMesosClient.SHORT_TIMEOUT_ASYNC_HTTP_CLIENT_NAME))
+        .toInstance(new NingAsyncHttpClient(asyncHttpConfigBuilder.setRequestTimeoutSeconds(MESOS_CLIENT_HTTP_SHORT_TIMEOUT_SECONDS).build()));
+
     bind(MesosClient.class).to(SingularityMesosClient.class).in(Scopes.SINGLETON);
   }
 
@@ -23,12 +23,13 @@ public abstract class AbstractFileMetricsReporter {
   protected final ObjectMapper metricsObjectMapper;
   protected final MetricRegistry registry;
   protected final ScheduledExecutorService fileReporterExecutor;
-
+  protected final ArtifactCacheMetrics artifactCacheMetrics;
 
   public AbstractFileMetricsReporter(MetricRegistry registry, SingularityS3Configuration configuration, ObjectMapper metricsObjectMapper) {
     this.registry = registry;
     this.configuration = configuration;
     this.metricsObjectMapper = metricsObjectMapper;
+    this.artifactCacheMetrics = new ArtifactCacheMetrics(registry);
 
     this.fileReporterExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("metrics-file-reporter").build());
 
@@ -51,4 +52,8 @@ public abstract class AbstractFileMetricsReporter {
     }, 10, 30, TimeUnit.SECONDS);
   }
 
+  public ArtifactCacheMetrics getArtifactCacheMetrics() {
+    return artifactCacheMetrics;
+  }
+
 }
@@ -0,0 +1,185 @@
+package com.hubspot.singularity.s3.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+
+import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+
+/**
+ * Keeps a hidden sidecar next to each cached artifact recording the size, mtime and md5 it had when it was last
+ * verified, so that cache hits don't need to re-hash the artifact. The sidecar's own mtime is bumped on every use
+ * and is what the size budget evicts by. Hidden files (sidecars and in-progress downloads) are never evicted.
+ */
+class ArtifactCacheIndex {
+  private static final String SIDECAR_SUFFIX = ".verified";
+  private static final String SIZE_KEY = "size";
+  private static final String MTIME_KEY = "mtime";
+  private static final String MD5_KEY = "md5";
+
+  private final Path cacheDirectory;
+  private final Optional<Long> maxSizeBytes;
+  private final long evictionGracePeriodMillis;
+  private final ArtifactCacheMetrics metrics;
+  private final Logger log;
+
+  ArtifactCacheIndex(Path cacheDirectory, SingularityS3Configuration configuration, ArtifactCacheMetrics metrics, Logger log) {
+    this.cacheDirectory = cacheDirectory;
+    this.maxSizeBytes = configuration.getArtifactCacheMaxSizeBytes();
+    this.evictionGracePeriodMillis = configuration.getArtifactCacheEvictionGracePeriodMillis();
+    this.metrics = metrics;
+    this.log = log;
+  }
+
+  Optional<String> getVerifiedMd5(Path cachedPath) {
+    Path sidecarPath = getSidecarPath(cachedPath);
+    if (!Files.exists(sidecarPath)) {
+      return Optional.empty();
+    }
+
+    Properties properties = new Properties();
+    try (InputStream inputStream = Files.newInputStream(sidecarPath)) {
+      properties.load(inputStream);
+
+      long size = Long.parseLong(properties.getProperty(SIZE_KEY, "-1"));
+      long mtime = Long.parseLong(properties.getProperty(MTIME_KEY, "-1"));
+
+      if (size != Files.size(cachedPath) || mtime != Files.getLastModifiedTime(cachedPath).toMillis()) {
+        log.debug("Cached {} changed since it was verified", cachedPath);
+        return Optional.empty();
+      }
+
+      return Optional.ofNullable(properties.getProperty(MD5_KEY));
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Couldn't read verified sidecar {}", sidecarPath, e);
+      return Optional.empty();
+    }
+  }
+
+  void recordVerified(Path cachedPath, Optional<String> md5) {
+    Path sidecarPath = getSidecarPath(cachedPath);
+
+    try {
+      Properties properties = new Properties();
+      properties.setProperty(SIZE_KEY, Long.toString(Files.size(cachedPath)));
+      properties.setProperty(MTIME_KEY, Long.toString(Files.getLastModifiedTime(cachedPath).toMillis()));
+      md5.ifPresent((value) -> properties.setProperty(MD5_KEY, value.toLowerCase()));
+
+      Path tempPath = Files.createTempFile(cacheDirectory, sidecarPath.getFileName().toString(), null);
+      try (OutputStream outputStream = Files.newOutputStream(tempPath)) {
+        properties.store(outputStream, null);
+      }
+      Files.move(tempPath, sidecarPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      log.warn("Couldn't record verified sidecar for {}", cachedPath, e);
+    }
+  }
+
+  void markUsed(Path cachedPath) {
+    try {
+      Files.setLastModifiedTime(getSidecarPath(cachedPath), FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (NoSuchFileException nsfe) {
+      // artifacts cached before sidecars existed fall back to their own mtime for eviction
+    } catch (IOException e) {
+      log.warn("Couldn't mark {} as used", cachedPath, e);
+    }
+  }
+
+  void evictIfOverBudget(Path justFetched) {
+    if (!maxSizeBytes.isPresent()) {
+      return;
+    }
+
+    List<CacheEntry> entries = new ArrayList<>();
+    long totalBytes = 0;
+
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(cacheDirectory)) {
+      for (Path path : paths) {
+        if (isHidden(path) || !Files.isRegularFile(path)) {
+          continue;
+        }
+        CacheEntry entry = new CacheEntry(path, Files.size(path), getLastUsedMillis(path));
+        entries.add(entry);
+        totalBytes += entry.size;
+      }
+    } catch (IOException e) {
+      log.warn("Couldn't list artifact cache {}, skipping eviction", cacheDirectory, e);
+      return;
+    }
+
+    if (totalBytes <= maxSizeBytes.get()) {
+      return;
+    }
+
+    entries.sort(Comparator.comparingLong((entry) -> entry.lastUsedMillis));
+
+    final long evictBefore = System.currentTimeMillis() - evictionGracePeriodMillis;
+
+    for (CacheEntry entry : entries) {
+      if (totalBytes <= maxSizeBytes.get()) {
+        break;
+      }
+      if (entry.path.equals(justFetched) || entry.lastUsedMillis > evictBefore) {
+        continue;
+      }
+
+      try {
+        Files.deleteIfExists(entry.path);
+        Files.deleteIfExists(getSidecarPath(entry.path));
+      } catch (IOException e) {
+        log.warn("Couldn't evict {} from artifact cache", entry.path, e);
+        continue;
+      }
+
+      log.info("Evicted {} ({} bytes) from artifact cache", entry.path, entry.size);
+      totalBytes -= entry.size;
+      metrics.getEvictionsMeter().mark();
+      metrics.getEvictedBytesMeter().mark(entry.size);
+    }
+
+    if (totalBytes > maxSizeBytes.get()) {
+      log.warn("Artifact cache {} is still {} bytes (budget {}) after eviction", cacheDirectory, totalBytes, maxSizeBytes.get());
+    }
+  }
+
+  private long getLastUsedMillis(Path path) throws IOException {
+    Path sidecarPath = getSidecarPath(path);
+    if (Files.exists(sidecarPath)) {
+      return Files.getLastModifiedTime(sidecarPath).toMillis();
+    }
+    return Files.getLastModifiedTime(path).toMillis();
+  }
+
+  private static boolean isHidden(Path path) {
+    return path.getFileName().toString().startsWith(".");
+  }
+
+  private static Path getSidecarPath(Path cachedPath) {
+    return cachedPath.resolveSibling("." + cachedPath.getFileName() + SIDECAR_SUFFIX);
+  }
+
+  private static class CacheEntry {
+    private final Path path;
+    private final long size;
+    private final long lastUsedMillis;
+
+    private CacheEntry(Path path, long size, long lastUsedMillis) {
+      this.path = path;
+      this.size = size;
+      this.lastUsedMillis = lastUsedMillis;
+    }
+  }
+}
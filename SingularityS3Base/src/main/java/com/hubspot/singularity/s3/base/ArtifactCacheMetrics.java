@@ -0,0 +1,50 @@
+package com.hubspot.singularity.s3.base;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+public class ArtifactCacheMetrics {
+  private final Meter hits;
+  private final Meter misses;
+  private final Meter evictions;
+  private final Meter evictedBytes;
+  private final Meter peerHits;
+  private final Meter peerMisses;
+
+  public ArtifactCacheMetrics(MetricRegistry registry) {
+    this.hits = registry.meter(name("hits"));
+    this.misses = registry.meter(name("misses"));
+    this.evictions = registry.meter(name("evictions"));
+    this.evictedBytes = registry.meter(name("evictedBytes"));
+    this.peerHits = registry.meter(name("peerHits"));
+    this.peerMisses = registry.meter(name("peerMisses"));
+  }
+
+  public Meter getHitsMeter() {
+    return hits;
+  }
+
+  public Meter getMissesMeter() {
+    return misses;
+  }
+
+  public Meter getEvictionsMeter() {
+    return evictions;
+  }
+
+  public Meter getEvictedBytesMeter() {
+    return evictedBytes;
+  }
+
+  public Meter getPeerHitsMeter() {
+    return peerHits;
+  }
+
+  public Meter getPeerMissesMeter() {
+    return peerMisses;
+  }
+
+  private static String name(String... names) {
+    return MetricRegistry.name(ArtifactCacheMetrics.class, names);
+  }
+}
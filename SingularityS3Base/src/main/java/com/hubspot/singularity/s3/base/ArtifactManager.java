@@ -38,12 +38,21 @@ public class ArtifactManager extends SimpleProcessManager {
   private final Logger log;
   private final S3ArtifactDownloader s3ArtifactDownloader;
   private final Optional<String> useCompressProgram;
+  private final ArtifactCacheIndex cacheIndex;
+  private final ArtifactCacheMetrics cacheMetrics;
+  private final TarGzExtractor tarGzExtractor;
+  private final PeerArtifactDownloader peerArtifactDownloader;
 
-  public ArtifactManager(SingularityRunnerBaseConfiguration runnerBaseConfiguration, SingularityS3Configuration configuration, Logger log, SingularityRunnerExceptionNotifier exceptionNotifier) {
+  public ArtifactManager(SingularityRunnerBaseConfiguration runnerBaseConfiguration, SingularityS3Configuration configuration, Logger log, SingularityRunnerExceptionNotifier exceptionNotifier,
+                         ArtifactCacheMetrics cacheMetrics) {
     super(log);
 
     this.cacheDirectory = Paths.get(configuration.getArtifactCacheDirectory());
     this.log = log;
+    this.cacheMetrics = cacheMetrics;
+    this.cacheIndex = new ArtifactCacheIndex(cacheDirectory, configuration, cacheMetrics, log);
+    this.tarGzExtractor = new TarGzExtractor(log);
+    this.peerArtifactDownloader = new PeerArtifactDownloader(configuration, cacheMetrics, log);
     this.s3ArtifactDownloader = new S3ArtifactDownloader(configuration, log, exceptionNotifier);
     this.useCompressProgram = runnerBaseConfiguration.getUseCompressProgram();
   }
@@ -86,13 +95,50 @@ public class ArtifactManager extends SimpleProcessManager {
 
   private Path createTempPath(String filename) {
     try {
-      return Files.createTempFile(cacheDirectory, filename, null);
+      return Files.createTempFile(cacheDirectory, "." + filename, null);
     } catch (IOException e) {
       throw new RuntimeException(String.format("Couldn't create temporary file for %s", filename), e);
     }
   }
 
-  private void downloadAndCheck(RemoteArtifact artifact, Path downloadTo) {
+  private Path createStagingDirectory(Path destination) {
+    Path parent = destination.toAbsolutePath().getParent();
+    try {
+      // a sibling of the destination, so that moving the extracted files over doesn't have to copy them
+      return Files.createTempDirectory(parent != null ? parent : cacheDirectory, "." + destination.getFileName() + "-untar");
+    } catch (IOException e) {
+      throw new RuntimeException(String.format("Couldn't create staging directory for %s", destination), e);
+    }
+  }
+
+  private void downloadAndCheck(RemoteArtifact artifact, Path downloadTo, Optional<Path> untarTo) {
+    if (!peerArtifactDownloader.download(artifact, downloadTo)) {
+      downloadFromOrigin(artifact, downloadTo);
+    }
+
+    chmodReadOnly(downloadTo);
+    checkFilesize(artifact, downloadTo);
+
+    if (untarTo.isPresent()) {
+      // nothing from the archive reaches the destination until its md5 has been checked
+      Path staging = createStagingDirectory(untarTo.get());
+      try {
+        String md5sum = untarInProcess(downloadTo, staging);
+        if (artifact.getMd5sum().isPresent() && !artifact.getMd5sum().get().equalsIgnoreCase(md5sum)) {
+          throw new RuntimeException(String.format("Md5sum %s (%s) does not match expected (%s)", md5sum, downloadTo, artifact.getMd5sum().get()));
+        }
+        tarGzExtractor.moveInto(staging, untarTo.get());
+      } catch (IOException e) {
+        throw new RuntimeException(String.format("Couldn't move %s into %s", downloadTo, untarTo.get()), e);
+      } finally {
+        tarGzExtractor.delete(staging);
+      }
+    } else {
+      checkMd5(artifact, downloadTo);
+    }
+  }
+
+  private void downloadFromOrigin(RemoteArtifact artifact, Path downloadTo) {
     if (artifact instanceof ExternalArtifact) {
       downloadExternalArtifact((ExternalArtifact) artifact, downloadTo);
     } else if (artifact instanceof S3Artifact) {
@@ -100,10 +146,6 @@ public class ArtifactManager extends SimpleProcessManager {
     } else {
       throw new IllegalArgumentException("Unknown artifact type: " + artifact.getClass());
     }
-
-    chmodReadOnly(downloadTo);
-    checkFilesize(artifact, downloadTo);
-    checkMd5(artifact, downloadTo);
   }
 
   @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "https://github.com/spotbugs/spotbugs/issues/259")
@@ -131,10 +173,10 @@ public class ArtifactManager extends SimpleProcessManager {
     checkMd5(embeddedArtifact, extractTo);
   }
 
-  private Path downloadAndCache(RemoteArtifact artifact, String filename, String cacheMissMessage) {
+  private Path downloadAndCache(RemoteArtifact artifact, String filename, String cacheMissMessage, Optional<Path> untarTo) {
     Path tempFilePath = createTempPath(filename);
 
-    downloadAndCheck(artifact, tempFilePath);
+    downloadAndCheck(artifact, tempFilePath, untarTo);
 
     Path cachedPath = getCachedPath(filename);
 
@@ -144,6 +186,8 @@ public class ArtifactManager extends SimpleProcessManager {
       throw new RuntimeException(String.format("Couldn't move %s to cache at %s (Not cached because %s)", tempFilePath, cachedPath, cacheMissMessage), e);
     }
 
+    cacheIndex.recordVerified(cachedPath, artifact.getMd5sum());
+
     return cachedPath;
   }
 
@@ -164,16 +208,42 @@ public class ArtifactManager extends SimpleProcessManager {
       return new CacheCheck(CacheCheckResult.FILE_SIZE_MISMATCH, message);
     }
 
+    if (artifact.getMd5sum().isPresent() && artifact.getMd5sum().get().equalsIgnoreCase(cacheIndex.getVerifiedMd5(cachedPath).orElse(null))) {
+      log.debug("Cached {} was already verified, skipping md5 check", cachedPath);
+      return new CacheCheck(CacheCheckResult.FOUND, "");
+    }
+
     if (!md5Matches(artifact, cachedPath)) {
       String message = String.format("Cached %s (%s) did not match md5 %s", cachedPath, calculateMd5sum(cachedPath), artifact.getMd5sum().get());
       log.debug(message);
       return new CacheCheck(CacheCheckResult.MD5_MISMATCH, message);
     }
 
+    cacheIndex.recordVerified(cachedPath, artifact.getMd5sum());
+
     return new CacheCheck(CacheCheckResult.FOUND, "");
   }
 
   public Path fetch(RemoteArtifact artifact) {
+    return fetch(artifact, Optional.empty());
+  }
+
+  /**
+   * Fetches a .tar.gz artifact and untars it to destination. On a cache miss the md5 is verified in the same pass
+   * over the downloaded file as the extraction, rather than reading it once to check and again to untar. That pass
+   * extracts into a staging directory, which is only moved into destination once the md5 matches.
+   */
+  public Path fetchAndUntar(RemoteArtifact artifact, Path destination) {
+    if (useCompressProgram.isPresent()) {
+      Path fetched = fetch(artifact);
+      untar(fetched, destination);
+      return fetched;
+    }
+
+    return fetch(artifact, Optional.of(destination));
+  }
+
+  private Path fetch(RemoteArtifact artifact, Optional<Path> untarTo) {
     String filename = artifact.getFilenameForCache();
     Path cachedPath = getCachedPath(filename);
 
@@ -181,14 +251,37 @@ public class ArtifactManager extends SimpleProcessManager {
 
     if (cacheCheck.getCacheCheckResult() != CacheCheckResult.FOUND) {
       log.info(cacheCheck.getMessage());
-      downloadAndCache(artifact, filename, cacheCheck.getMessage());
+      cacheMetrics.getMissesMeter().mark();
+      downloadAndCache(artifact, filename, cacheCheck.getMessage(), untarTo);
+      cacheIndex.evictIfOverBudget(cachedPath);
     } else {
       log.info("Using cached file {}", cachedPath);
+      cacheMetrics.getHitsMeter().mark();
+      cacheIndex.markUsed(cachedPath);
+      untarTo.ifPresent((destination) -> untar(cachedPath, destination));
     }
 
     return cachedPath;
   }
 
+  /**
+   * @return the cached artifact with this cache filename, only if it has been verified against its md5 and hasn't
+   * changed since
+   */
+  public Optional<Path> getVerifiedCachedArtifact(String filenameForCache) {
+    if (filenameForCache.isEmpty() || filenameForCache.startsWith(".") || filenameForCache.contains("/")) {
+      return Optional.empty();
+    }
+
+    Path cachedPath = getCachedPath(filenameForCache);
+    if (!Files.isRegularFile(cachedPath) || !cacheIndex.getVerifiedMd5(cachedPath).isPresent()) {
+      return Optional.empty();
+    }
+
+    cacheIndex.markUsed(cachedPath);
+    return Optional.of(cachedPath);
+  }
+
   private void downloadExternalArtifact(ExternalArtifact externalArtifact, Path downloadTo) {
     downloadUri(externalArtifact.getUrl(), downloadTo);
   }
@@ -229,19 +322,30 @@ public class ArtifactManager extends SimpleProcessManager {
   }
 
   public void untar(Path source, Path destination) {
-    log.info("Untarring {} to {}", source, destination);
+    if (!useCompressProgram.isPresent()) {
+      untarInProcess(source, destination);
+      return;
+    }
+
+    log.info("Untarring {} to {} with {}", source, destination, useCompressProgram.get());
 
     final ImmutableList.Builder<String> commandBuilder = ImmutableList.<String>builder().add("tar", "-oxf", source.toString(), "-C", destination.toString());
 
-    if (useCompressProgram.isPresent()) {
-      commandBuilder.add("--use-compress-program=" + useCompressProgram.get());
-    } else {
-      commandBuilder.add("-z");
-    }
+    commandBuilder.add("--use-compress-program=" + useCompressProgram.get());
 
     runCommandAndThrowRuntimeException(commandBuilder.build());
   }
 
+  private String untarInProcess(Path source, Path destination) {
+    log.info("Untarring {} to {}", source, destination);
+
+    try {
+      return tarGzExtractor.extract(source, destination);
+    } catch (IOException e) {
+      throw new RuntimeException(String.format("Couldn't untar %s to %s", source, destination), e);
+    }
+  }
+
   private void runCommandAndThrowRuntimeException(List<String> command) {
     try {
       super.runCommand(command);
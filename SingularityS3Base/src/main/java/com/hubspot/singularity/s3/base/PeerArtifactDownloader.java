@@ -0,0 +1,152 @@
+package com.hubspot.singularity.s3.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.hubspot.deploy.RemoteArtifact;
+import com.hubspot.mesos.JavaUtils;
+import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+
+/**
+ * Tries to fetch an artifact from the caches of the configured peer agents before it is downloaded from its origin.
+ * Peers only serve artifacts they have verified, but the md5 is still checked here as the bytes arrive, and a peer
+ * that serves a bad or partial file is skipped. An interrupted transfer is resumed with a range request.
+ * Artifacts without an md5 are never fetched from peers, and neither is anything when no artifactPeerToken is set,
+ * since peers refuse requests without one. At most artifactPeerMaxPeersTried peers are tried, and no new peer or
+ * attempt is started once artifactPeerTimeBudgetMillis is spent. Connect and read timeouts never reach past that
+ * budget either, so dead or stalled peers can't hold up the fallback to the origin. A peer that is still sending
+ * data when the budget runs out is allowed to finish.
+ */
+public class PeerArtifactDownloader {
+  public static final String PEER_ARTIFACT_PATH = "/artifacts/";
+  public static final String PEER_TOKEN_HEADER = "X-Singularity-Artifact-Token";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final SingularityS3Configuration configuration;
+  private final ArtifactCacheMetrics metrics;
+  private final Logger log;
+
+  PeerArtifactDownloader(SingularityS3Configuration configuration, ArtifactCacheMetrics metrics, Logger log) {
+    this.configuration = configuration;
+    this.metrics = metrics;
+    this.log = log;
+  }
+
+  boolean download(RemoteArtifact artifact, Path downloadTo) {
+    if (configuration.getArtifactPeerBaseUris().isEmpty() || !artifact.getMd5sum().isPresent()) {
+      return false;
+    }
+    if (!configuration.getArtifactPeerToken().isPresent()) {
+      log.warn("artifactPeerBaseUris is set without an artifactPeerToken, not trying peers for {}", artifact.getFilenameForCache());
+      return false;
+    }
+
+    // spread the load of a large rollout across the peers rather than having every agent hit the first one
+    List<String> peers = new ArrayList<>(configuration.getArtifactPeerBaseUris());
+    Collections.shuffle(peers);
+
+    final long deadline = System.currentTimeMillis() + configuration.getArtifactPeerTimeBudgetMillis();
+
+    for (String peer : peers.subList(0, Math.min(peers.size(), configuration.getArtifactPeerMaxPeersTried()))) {
+      final long start = System.currentTimeMillis();
+
+      if (start >= deadline) {
+        log.info("Ran out of time trying peers for {}", artifact.getFilenameForCache());
+        break;
+      }
+
+      if (downloadFromPeer(peer, artifact, downloadTo, deadline)) {
+        log.info("Downloaded {} from peer {} in {}", artifact.getFilenameForCache(), peer, JavaUtils.duration(start));
+        metrics.getPeerHitsMeter().mark();
+        return true;
+      }
+    }
+
+    log.info("No peer could serve {}, falling back to its origin", artifact.getFilenameForCache());
+    metrics.getPeerMissesMeter().mark();
+    return false;
+  }
+
+  private boolean downloadFromPeer(String peer, RemoteArtifact artifact, Path downloadTo, long deadline) {
+    final String url = peer.replaceAll("/+$", "") + PEER_ARTIFACT_PATH + artifact.getFilenameForCache();
+
+    Hasher hasher = Hashing.md5().newHasher();
+    long written = 0;
+
+    for (int attempt = 0; attempt <= configuration.getS3ChunkRetries(); attempt++) {
+      final long remainingMillis = deadline - System.currentTimeMillis();
+      if (remainingMillis <= 0) {
+        return false;
+      }
+
+      HttpURLConnection connection = null;
+
+      try {
+        connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout((int) Math.min(configuration.getArtifactPeerConnectTimeoutMillis(), remainingMillis));
+        connection.setReadTimeout((int) Math.min(configuration.getS3ChunkDownloadTimeoutMillis(), remainingMillis));
+        connection.setRequestProperty(PEER_TOKEN_HEADER, configuration.getArtifactPeerToken().get());
+        if (written > 0) {
+          connection.setRequestProperty("Range", String.format("bytes=%s-", written));
+        }
+
+        int status = connection.getResponseCode();
+
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+          log.debug("Peer {} doesn't have {}", peer, artifact.getFilenameForCache());
+          return false;
+        }
+        if (status != (written > 0 ? HttpURLConnection.HTTP_PARTIAL : HttpURLConnection.HTTP_OK)) {
+          log.warn("Peer {} responded {} for {}", peer, status, url);
+          return false;
+        }
+
+        try (InputStream inputStream = connection.getInputStream();
+             OutputStream outputStream = Files.newOutputStream(downloadTo, StandardOpenOption.WRITE, written > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+          byte[] buffer = new byte[BUFFER_SIZE];
+          int read;
+          while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+            hasher.putBytes(buffer, 0, read);
+            written += read;
+          }
+        }
+
+        if (artifact.getFilesize().isPresent() && artifact.getFilesize().get() != written) {
+          log.warn("Peer {} served {} bytes of {} (expected {})", peer, written, artifact.getFilenameForCache(), artifact.getFilesize().get());
+          return false;
+        }
+
+        String md5sum = hasher.hash().toString();
+        if (!artifact.getMd5sum().get().equalsIgnoreCase(md5sum)) {
+          log.warn("Peer {} served {} with md5 {} (expected {})", peer, artifact.getFilenameForCache(), md5sum, artifact.getMd5sum().get());
+          return false;
+        }
+
+        return true;
+      } catch (IOException e) {
+        log.warn("Error downloading {} from peer {} (attempt {}) after {} bytes", artifact.getFilenameForCache(), peer, attempt, written, e);
+      } finally {
+        if (connection != null) {
+          connection.disconnect();
+        }
+      }
+    }
+
+    return false;
+  }
+}
@@ -1,119 +1,189 @@
 package com.hubspot.singularity.s3.base;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hubspot.deploy.S3Artifact;
 import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
 import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
 
-public class S3ArtifactChunkDownloader implements Callable<Path> {
+/**
+ * Downloads one byte range of an artifact straight into its offset in the (shared) destination channel. A failed
+ * or timed out attempt is retried from the last byte written rather than from the start of the chunk. A watchdog
+ * aborts the object stream once an attempt runs out of time, so a read that blocks can't outlast the chunk timeout.
+ */
+public class S3ArtifactChunkDownloader implements Callable<Long> {
+  private static final int BUFFER_SIZE = 64 * 1024;
 
   private final SingularityS3Configuration configuration;
   private final AmazonS3 s3;
   private final S3Artifact s3Artifact;
-  private final Path downloadTo;
+  private final FileChannel downloadTo;
   private final int chunk;
-  private final long chunkSize;
-  private final long length;
+  private final long byteRangeStart;
+  private final long byteRangeEnd;
+  private final AtomicBoolean aborted;
+  private final ScheduledExecutorService watchdog;
   private final Logger log;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
+  private final CountDownLatch finished;
 
   private int retryNum;
+  private long position;
+  private volatile boolean started;
+  private volatile S3ObjectInputStream currentStream;
 
-  public S3ArtifactChunkDownloader(SingularityS3Configuration configuration, Logger log, AmazonS3 s3, S3Artifact s3Artifact, Path downloadTo, int chunk, long chunkSize, long length, SingularityRunnerExceptionNotifier exceptionNotifier) {
+  public S3ArtifactChunkDownloader(SingularityS3Configuration configuration, Logger log, AmazonS3 s3, S3Artifact s3Artifact, FileChannel downloadTo, int chunk, long byteRangeStart, long byteRangeEnd,
+                                   AtomicBoolean aborted, ScheduledExecutorService watchdog, SingularityRunnerExceptionNotifier exceptionNotifier) {
     this.configuration = configuration;
     this.log = log;
     this.s3 = s3;
     this.s3Artifact = s3Artifact;
     this.downloadTo = downloadTo;
     this.chunk = chunk;
-    this.chunkSize = chunkSize;
-    this.length = length;
+    this.byteRangeStart = byteRangeStart;
+    this.byteRangeEnd = byteRangeEnd;
+    this.aborted = aborted;
+    this.watchdog = watchdog;
     this.exceptionNotifier = exceptionNotifier;
+    this.finished = new CountDownLatch(1);
+    this.position = byteRangeStart;
+  }
+
+  /**
+   * Aborts the object stream of the attempt in progress, if any, so a read blocked on it fails right away.
+   */
+  public void abortAttempt() {
+    S3ObjectInputStream stream = currentStream;
+    if (stream != null) {
+      stream.abort();
+    }
+  }
+
+  /**
+   * Waits up to the given time for a chunk that has started to finish. A chunk that never started returns right away.
+   */
+  public boolean awaitFinished(long timeoutMillis) throws InterruptedException {
+    return !started || finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
   }
 
   @Override
-  public Path call() throws Exception {
+  public Long call() throws Exception {
+    started = true;
+    try {
+      return downloadChunk();
+    } finally {
+      finished.countDown();
+    }
+  }
+
+  private Long downloadChunk() throws Exception {
     final long start = System.currentTimeMillis();
 
-    final ExecutorService chunkExecutorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3ArtifactDownloaderChunk-" + chunk + "-Thread-%d").build());
+    while (retryNum <= configuration.getS3ChunkRetries()) {
+      if (aborted.get()) {
+        log.info("Not downloading chunk {} (retry {}) for {}, the download was aborted", chunk, retryNum, s3Artifact.getFilename());
+        throw new CancellationException();
+      }
 
-    try {
-      while (retryNum <= configuration.getS3ChunkRetries()) {
-        final long timeout = System.currentTimeMillis();
-
-        final Future<Path> future = chunkExecutorService.submit(createDownloader(retryNum));
-
-        try {
-          return future.get(configuration.getS3ChunkDownloadTimeoutMillis(), TimeUnit.MILLISECONDS);
-        } catch (TimeoutException te) {
-          log.error("Chunk {} (retry {}) for {} timed out after {} - total duration {}", chunk, retryNum, s3Artifact.getFilename(), JavaUtils.duration(timeout), JavaUtils.duration(start));
-          future.cancel(true);
-          if (retryNum == configuration.getS3ChunkRetries()) {
-            exceptionNotifier.notify("Timeout downloading chunk", te, ImmutableMap.of("filename", s3Artifact.getFilename(), "chunk", Integer.toString(chunk), "retry", Integer.toString(retryNum)));
-          }
-        } catch (InterruptedException ie) {
-          log.warn("Chunk {} (retry {}) for {} interrupted", chunk, retryNum, s3Artifact.getFilename());
-          exceptionNotifier.notify("Interrupted during download", ie, ImmutableMap.of("filename", s3Artifact.getFilename(), "chunk", Integer.toString(chunk), "retry", Integer.toString(retryNum)));
-        } catch (Throwable t) {
-          log.error("Error while downloading chunk {} (retry {}) for {}", chunk, retryNum, s3Artifact.getFilename(), t);
-          exceptionNotifier.notify(String.format("Error downloading chunk (%s)", t.getMessage()), t, ImmutableMap.of("filename", s3Artifact.getFilename(), "chunk", Integer.toString(chunk), "retry", Integer.toString(retryNum)));
+      final long attemptStart = System.currentTimeMillis();
+
+      try {
+        downloadRemainingRange(attemptStart);
+        return position - byteRangeStart;
+      } catch (CancellationException ce) {
+        log.warn("Chunk {} (retry {}) for {} aborted", chunk, retryNum, s3Artifact.getFilename());
+        throw ce;
+      } catch (TimeoutException te) {
+        log.error("Chunk {} (retry {}) for {} timed out after {} at byte {} - total duration {}", chunk, retryNum, s3Artifact.getFilename(), JavaUtils.duration(attemptStart), position, JavaUtils.duration(start));
+        if (retryNum == configuration.getS3ChunkRetries()) {
+          exceptionNotifier.notify("Timeout downloading chunk", te, ImmutableMap.of("filename", s3Artifact.getFilename(), "chunk", Integer.toString(chunk), "retry", Integer.toString(retryNum)));
         }
-
-        retryNum++;
+      } catch (Throwable t) {
+        if (aborted.get()) {
+          // most likely the channel was closed after the download gave up on this chunk, not worth a retry or a notification
+          log.warn("Chunk {} (retry {}) for {} failed after the download was aborted", chunk, retryNum, s3Artifact.getFilename(), t);
+          throw new CancellationException();
+        }
+        log.error("Error while downloading chunk {} (retry {}) for {} at byte {}", chunk, retryNum, s3Artifact.getFilename(), position, t);
+        exceptionNotifier.notify(String.format("Error downloading chunk (%s)", t.getMessage()), t, ImmutableMap.of("filename", s3Artifact.getFilename(), "chunk", Integer.toString(chunk), "retry", Integer.toString(retryNum)));
       }
 
-      throw new IllegalStateException(String.format("Chunk %s for %s failed to download after %s tries", chunk, s3Artifact.getFilename(), retryNum + 1));
-    } finally {
-      chunkExecutorService.shutdownNow();
+      retryNum++;
     }
+
+    throw new IllegalStateException(String.format("Chunk %s for %s failed to download after %s tries", chunk, s3Artifact.getFilename(), retryNum));
   }
 
-  private Callable<Path> createDownloader(final int retryNum) {
-    return new Callable<Path>() {
-      public Path call() throws Exception {
-        final Path chunkPath = (chunk == 0) ? downloadTo : Paths.get(downloadTo + "_" + chunk + "_" + retryNum);
-        chunkPath.toFile().deleteOnExit();
+  private void downloadRemainingRange(long attemptStart) throws IOException, TimeoutException {
+    log.info("Downloading {} - chunk {} (retry {}) ({}-{})", s3Artifact.getFilename(), chunk, retryNum, position, byteRangeEnd);
 
-        final long startTime = System.currentTimeMillis();
+    GetObjectRequest getObjectRequest = new GetObjectRequest(s3Artifact.getS3Bucket(), s3Artifact.getS3ObjectKey())
+        .withRange(position, byteRangeEnd);
 
-        final long byteRangeStart = chunk * chunkSize;
-        final long byteRangeEnd = Math.min((chunk + 1) * chunkSize - 1, length);
+    S3Object fetchedObject = s3.getObject(getObjectRequest);
 
-        log.info("Downloading {} - chunk {} (retry {}) ({}-{}) to {}", s3Artifact.getFilename(), chunk, retryNum, byteRangeStart, byteRangeEnd, chunkPath);
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    final AtomicBoolean timedOut = new AtomicBoolean(false);
+    final long remainingMillis = Math.max(configuration.getS3ChunkDownloadTimeoutMillis() - (System.currentTimeMillis() - attemptStart), 0);
 
-        GetObjectRequest getObjectRequest = new GetObjectRequest(s3Artifact.getS3Bucket(), s3Artifact.getS3ObjectKey())
-            .withRange(byteRangeStart, byteRangeEnd);
+    try (S3ObjectInputStream is = fetchedObject.getObjectContent()) {
+      currentStream = is;
+      ScheduledFuture<?> watchdogFuture = watchdog.schedule(() -> {
+        timedOut.set(true);
+        is.abort();
+      }, remainingMillis, TimeUnit.MILLISECONDS);
 
-        S3Object fetchedObject = s3.getObject(getObjectRequest);
+      try {
+        int read;
+        while (position <= byteRangeEnd && (read = is.read(buffer.array())) != -1) {
+          buffer.clear().limit(read);
+          while (buffer.hasRemaining()) {
+            position += downloadTo.write(buffer, position);
+          }
 
-        try (InputStream is = fetchedObject.getObjectContent()) {
-          Files.copy(is, chunkPath, StandardCopyOption.REPLACE_EXISTING);
+          if (aborted.get()) {
+            throw new CancellationException();
+          }
+          if (System.currentTimeMillis() - attemptStart > configuration.getS3ChunkDownloadTimeoutMillis()) {
+            throw new TimeoutException(String.format("Chunk %s timed out with %s bytes remaining", chunk, byteRangeEnd - position + 1));
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // an aborted stream fails the blocked read with an IOException or the sdk's AbortedException
+        if (timedOut.get()) {
+          throw new TimeoutException(String.format("Chunk %s timed out with %s bytes remaining", chunk, byteRangeEnd - position + 1));
         }
+        throw e;
+      } finally {
+        watchdogFuture.cancel(false);
+        currentStream = null;
+      }
+    }
 
-        log.info("Finished downloading chunk {} (retry {}) of {} ({} bytes) in {}", chunk, retryNum, s3Artifact.getFilename(), byteRangeEnd - byteRangeStart, JavaUtils.duration(startTime));
+    if (position <= byteRangeEnd) {
+      throw new IOException(String.format("Chunk %s ended early with %s bytes remaining", chunk, byteRangeEnd - position + 1));
+    }
 
-        return chunkPath;
-      };
-    };
+    log.info("Finished downloading chunk {} (retry {}) of {} ({} bytes) in {}", chunk, retryNum, s3Artifact.getFilename(), byteRangeEnd - byteRangeStart + 1, JavaUtils.duration(attemptStart));
   }
 
 }
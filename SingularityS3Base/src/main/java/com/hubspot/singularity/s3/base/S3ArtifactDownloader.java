@@ -1,7 +1,7 @@
 package com.hubspot.singularity.s3.base;
 
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -10,8 +10,11 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 
@@ -29,10 +32,13 @@ import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
 import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-
 public class S3ArtifactDownloader {
 
+  // shared by every download in the process so that concurrent downloads can't multiply the number of open ranges
+  private static ExecutorService chunkExecutor;
+  // aborts the object stream of a chunk attempt that runs out of time
+  private static ScheduledExecutorService chunkWatchdog;
+
   private final Logger log;
   private final SingularityS3Configuration configuration;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
@@ -68,6 +74,8 @@ public class S3ArtifactDownloader {
   private void downloadThrows(final S3Artifact s3Artifact, final Path downloadTo) throws Exception {
     log.info("Downloading {}", s3Artifact);
 
+    final long deadline = System.currentTimeMillis() + configuration.getS3DownloadTimeoutMillis();
+
     ClientConfiguration clientConfiguration = new ClientConfiguration()
         .withSocketTimeout(configuration.getS3ChunkDownloadTimeoutMillis());
     if (configuration.isS3UseV2Signing()) {
@@ -92,6 +100,11 @@ public class S3ArtifactDownloader {
       length = details.getObjectMetadata().getContentLength();
     }
 
+    if (length == 0) {
+      Files.write(downloadTo, new byte[0]);
+      return;
+    }
+
     int numChunks = (int) (length / configuration.getS3ChunkSize());
 
     if (length % configuration.getS3ChunkSize() > 0) {
@@ -102,54 +115,63 @@ public class S3ArtifactDownloader {
 
     log.info("Downloading {}/{} in {} chunks of {} bytes to {}", s3Artifact.getS3Bucket(), s3Artifact.getS3ObjectKey(), numChunks, chunkSize, downloadTo);
 
-    final ExecutorService chunkExecutorService = Executors.newFixedThreadPool(numChunks, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3ArtifactDownloaderChunkThread-%d").build());
-    final List<Future<Path>> futures = Lists.newArrayListWithCapacity(numChunks);
-
-    for (int chunk = 0; chunk < numChunks; chunk++) {
-      futures.add(chunkExecutorService.submit(new S3ArtifactChunkDownloader(configuration, log, s3Client, s3Artifact, downloadTo, chunk, chunkSize, length, exceptionNotifier)));
-    }
-
-    long remainingMillis = configuration.getS3DownloadTimeoutMillis();
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+    final List<S3ArtifactChunkDownloader> chunkDownloaders = Lists.newArrayListWithCapacity(numChunks);
+    final List<Future<Long>> futures = Lists.newArrayListWithCapacity(numChunks);
     boolean failed = false;
 
-    for (int chunk = 0; chunk < numChunks; chunk++) {
-      final Future<Path> future = futures.get(chunk);
+    try (FileChannel fileChannel = FileChannel.open(downloadTo, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+      // sets the final size up front so that every chunk can write at its own offset
+      fileChannel.write(ByteBuffer.wrap(new byte[1]), length - 1);
 
-      if (failed) {
-        future.cancel(true);
-        continue;
+      for (int chunk = 0; chunk < numChunks; chunk++) {
+        final long byteRangeStart = chunk * chunkSize;
+        final long byteRangeEnd = Math.min((chunk + 1) * chunkSize, length) - 1;
+
+        S3ArtifactChunkDownloader chunkDownloader = new S3ArtifactChunkDownloader(configuration, log, s3Client, s3Artifact, fileChannel, chunk, byteRangeStart, byteRangeEnd, aborted,
+            getChunkWatchdog(), exceptionNotifier);
+        chunkDownloaders.add(chunkDownloader);
+        futures.add(getChunkExecutor(configuration).submit(chunkDownloader));
       }
 
-      final long start = System.currentTimeMillis();
+      for (int chunk = 0; chunk < numChunks && !failed; chunk++) {
+        final long start = System.currentTimeMillis();
 
-      if (!handleChunk(s3Artifact, future, downloadTo, chunk, start, remainingMillis)) {
-        failed = true;
+        if (!handleChunk(s3Artifact, futures.get(chunk), chunk, start, deadline - start)) {
+          failed = true;
+          aborted.set(true);
+        }
       }
 
-      remainingMillis -= (System.currentTimeMillis() - start);
+      if (failed) {
+        // queued chunks never start, running ones have their stream aborted, but the channel stays open for running
+        // chunks until they finish or the download runs out of time, whichever comes first
+        futures.forEach((future) -> future.cancel(false));
+        chunkDownloaders.forEach(S3ArtifactChunkDownloader::abortAttempt);
+
+        for (S3ArtifactChunkDownloader chunkDownloader : chunkDownloaders) {
+          if (!chunkDownloader.awaitFinished(Math.max(deadline - System.currentTimeMillis(), 0))) {
+            log.warn("Closing {} with chunks still running, the download ran out of time", downloadTo);
+            break;
+          }
+        }
+      }
     }
 
-    chunkExecutorService.shutdownNow();
-
     Preconditions.checkState(!failed, "Downloading %s/%s failed", s3Artifact.getS3Bucket(), s3Artifact.getS3ObjectKey());
   }
 
-  private boolean handleChunk(S3Artifact s3Artifact, Future<Path> future, Path downloadTo, int chunk, long start, long remainingMillis) {
+  private boolean handleChunk(S3Artifact s3Artifact, Future<Long> future, int chunk, long start, long remainingMillis) {
     if (remainingMillis <= 0) {
       remainingMillis = 1;
     }
 
     try {
-      Path path = future.get(remainingMillis, TimeUnit.MILLISECONDS);
-
-      if (chunk > 0) {
-        combineChunk(downloadTo, path);
-      }
+      future.get(remainingMillis, TimeUnit.MILLISECONDS);
 
       return true;
     } catch (TimeoutException te) {
       log.error("Chunk {} for {} timed out after {} - had {} remaining", chunk, s3Artifact.getFilename(), JavaUtils.duration(start), JavaUtils.durationFromMillis(remainingMillis));
-      future.cancel(true);
       exceptionNotifier.notify("TimeoutException during download", te, ImmutableMap.of("filename", s3Artifact.getFilename(), "chunk", Integer.toString(chunk)));
     } catch (Throwable t) {
       log.error("Error while handling chunk {} for {}", chunk, s3Artifact.getFilename(), t);
@@ -159,21 +181,20 @@ public class S3ArtifactDownloader {
     return false;
   }
 
-  @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "https://github.com/spotbugs/spotbugs/issues/259")
-  private void combineChunk(Path downloadTo, Path path) throws Exception {
-    final long start = System.currentTimeMillis();
-    long bytes = 0;
-
-    log.info("Writing {} to {}", path, downloadTo);
-
-    try (WritableByteChannel wbs = Files.newByteChannel(downloadTo, EnumSet.of(StandardOpenOption.APPEND, StandardOpenOption.WRITE))) {
-      try (FileChannel readChannel = FileChannel.open(path, EnumSet.of(StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE))) {
-        bytes = readChannel.size();
-        readChannel.transferTo(0, bytes, wbs);
-      }
+  private static synchronized ScheduledExecutorService getChunkWatchdog() {
+    if (chunkWatchdog == null) {
+      ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3ArtifactDownloaderWatchdogThread-%d").build());
+      watchdog.setRemoveOnCancelPolicy(true);
+      chunkWatchdog = watchdog;
     }
+    return chunkWatchdog;
+  }
 
-    log.info("Finished writing {} bytes in {}", bytes, JavaUtils.duration(start));
+  private static synchronized ExecutorService getChunkExecutor(SingularityS3Configuration configuration) {
+    if (chunkExecutor == null) {
+      chunkExecutor = Executors.newFixedThreadPool(configuration.getS3ChunkDownloadThreads(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3ArtifactDownloaderChunkThread-%d").build());
+    }
+    return chunkExecutor;
   }
 
 }
@@ -0,0 +1,281 @@
+package com.hubspot.singularity.s3.base;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.slf4j.Logger;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Extracts a .tar.gz in-process, in a single pass over the archive. A reader thread hashes the compressed bytes
+ * and hands them through a pipe to the calling thread, which inflates and unpacks them, so the md5 check and the
+ * extraction overlap rather than each reading the whole file. Ownership is not preserved (like tar -o), but modes,
+ * mtimes, symlinks and hard links are.
+ */
+class TarGzExtractor {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int PIPE_SIZE = 1024 * 1024;
+
+  private static final ExecutorService READER_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("TarGzExtractorReader-%d").build());
+
+  private static final PosixFilePermission[] PERMISSIONS_BY_BIT = {
+      PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ,
+      PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+      PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ
+  };
+
+  private final Logger log;
+
+  TarGzExtractor(Logger log) {
+    this.log = log;
+  }
+
+  /**
+   * @return the md5 of the compressed archive
+   */
+  String extract(Path source, Path destination) throws IOException {
+    Files.createDirectories(destination);
+    final Path root = destination.toRealPath();
+
+    final PipedInputStream pipeIn = new PipedInputStream(PIPE_SIZE);
+    final PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+
+    CompletableFuture<String> md5Future = CompletableFuture.supplyAsync(() -> readAndHash(source, pipeOut), READER_EXECUTOR);
+
+    try (InputStream pipe = pipeIn) {
+      try (TarArchiveInputStream tarInputStream = new TarArchiveInputStream(new GZIPInputStream(new NonClosingInputStream(pipe), BUFFER_SIZE))) {
+        unpack(tarInputStream, root);
+      }
+      // tar padding and anything after the gzip trailer still has to be hashed
+      ByteStreams.exhaust(pipe);
+    }
+
+    try {
+      return md5Future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(String.format("Interrupted while extracting %s", source), e);
+    } catch (ExecutionException e) {
+      throw new IOException(String.format("Couldn't read %s", source), e.getCause());
+    }
+  }
+
+  /**
+   * Moves everything extracted into staged over to destination, merging into directories that already exist there
+   * (as tar -x would) and replacing anything else. Nothing is followed through a link on either side.
+   */
+  void moveInto(Path staged, Path destination) throws IOException {
+    Files.createDirectories(destination);
+
+    try (DirectoryStream<Path> children = Files.newDirectoryStream(staged)) {
+      for (Path child : children) {
+        Path target = destination.resolve(child.getFileName().toString());
+
+        if (!Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+          Files.move(child, target, StandardCopyOption.REPLACE_EXISTING);
+          continue;
+        }
+
+        // moving a directory, or anything out of it, needs it to be writable, so the archive's mode is put back after
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(child, LinkOption.NOFOLLOW_LINKS);
+        FileTime modified = Files.getLastModifiedTime(child, LinkOption.NOFOLLOW_LINKS);
+        makeWritable(child);
+
+        if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+          moveInto(child, target);
+        } else {
+          Files.move(child, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        view.setPermissions(permissions);
+        view.setTimes(modified, null, null);
+      }
+    }
+  }
+
+  /**
+   * Deletes a staging directory along with whatever is left in it, including directories the archive made read-only.
+   */
+  void delete(Path staged) {
+    try {
+      Files.walkFileTree(staged, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+          makeWritable(directory);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+          Files.delete(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+          Files.delete(directory);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      log.warn("Couldn't delete {}", staged, e);
+    }
+  }
+
+  private void makeWritable(Path directory) throws IOException {
+    Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+    permissions.addAll(Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS));
+    permissions.addAll(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE));
+    Files.setPosixFilePermissions(directory, permissions);
+  }
+
+  private String readAndHash(Path source, PipedOutputStream pipeOut) {
+    Hasher hasher = Hashing.md5().newHasher();
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    try (InputStream inputStream = Files.newInputStream(source); PipedOutputStream out = pipeOut) {
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        hasher.putBytes(buffer, 0, read);
+        out.write(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    return hasher.hash().toString();
+  }
+
+  private void unpack(TarArchiveInputStream tarInputStream, Path root) throws IOException {
+    // directory modes are applied last so that read-only directories can still be populated
+    Map<Path, TarArchiveEntry> directories = new LinkedHashMap<>();
+
+    TarArchiveEntry entry;
+    while ((entry = tarInputStream.getNextEntry()) != null) {
+      Path target = resolve(root, entry.getName());
+
+      if (entry.isDirectory()) {
+        checkExistingAncestor(root, target, entry.getName());
+        Files.createDirectories(target);
+        directories.put(target, entry);
+        continue;
+      }
+
+      checkExistingAncestor(root, target.getParent(), entry.getName());
+      Files.createDirectories(target.getParent());
+
+      if (entry.isSymbolicLink() || entry.isLink()) {
+        // a link swapped in for a directory would redirect everything extracted (or chmod'ed) through it later on
+        if (Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)) {
+          throw new IOException(String.format("Refusing to replace directory %s with a link", entry.getName()));
+        }
+        Files.deleteIfExists(target);
+      }
+
+      if (entry.isSymbolicLink()) {
+        Files.createSymbolicLink(target, Paths.get(entry.getLinkName()));
+      } else if (entry.isLink()) {
+        Path linkTarget = resolve(root, entry.getLinkName());
+        checkExistingAncestor(root, linkTarget.getParent(), entry.getLinkName());
+        Files.createLink(target, linkTarget);
+      } else if (entry.isFile()) {
+        Files.copy(tarInputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        applyModeAndTime(target, entry);
+      } else {
+        log.warn("Skipping {} ({} entries are not supported)", entry.getName(), entry.isCharacterDevice() || entry.isBlockDevice() ? "device" : "fifo");
+      }
+    }
+
+    for (Map.Entry<Path, TarArchiveEntry> directory : directories.entrySet()) {
+      applyModeAndTime(directory.getKey(), directory.getValue());
+    }
+  }
+
+  private Path resolve(Path root, String name) throws IOException {
+    Path target = root.resolve(name).normalize();
+    if (!target.startsWith(root)) {
+      throw new IOException(String.format("Refusing to extract %s outside of %s", name, root));
+    }
+    return target;
+  }
+
+  /**
+   * Paths are only checked as text by resolve, so also make sure the deepest part of the path that already exists
+   * doesn't lead outside of the root through a symlink extracted earlier.
+   */
+  private void checkExistingAncestor(Path root, Path path, String name) throws IOException {
+    Path existing = path;
+    while (existing != null && !Files.exists(existing, LinkOption.NOFOLLOW_LINKS)) {
+      existing = existing.getParent();
+    }
+
+    if (existing == null || !existing.toRealPath().startsWith(root)) {
+      throw new IOException(String.format("Refusing to extract %s outside of %s", name, root));
+    }
+  }
+
+  private void applyModeAndTime(Path target, TarArchiveEntry entry) throws IOException {
+    // a later entry may have replaced this path, never follow it somewhere else
+    BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    if (entry.isDirectory() ? !attributes.isDirectory() : !attributes.isRegularFile()) {
+      log.warn("Not applying mode of {}, it is no longer a {}", entry.getName(), entry.isDirectory() ? "directory" : "file");
+      return;
+    }
+
+    PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+    view.setPermissions(toPermissions(entry.getMode()));
+    view.setTimes(FileTime.fromMillis(entry.getModTime().getTime()), null, null);
+  }
+
+  private static Set<PosixFilePermission> toPermissions(int mode) {
+    Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+    for (int bit = 0; bit < PERMISSIONS_BY_BIT.length; bit++) {
+      if ((mode & (1 << bit)) != 0) {
+        permissions.add(PERMISSIONS_BY_BIT[bit]);
+      }
+    }
+    return permissions;
+  }
+
+  private static class NonClosingInputStream extends FilterInputStream {
+    private NonClosingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public void close() {
+      // the pipe is drained and closed by extract
+    }
+  }
+}
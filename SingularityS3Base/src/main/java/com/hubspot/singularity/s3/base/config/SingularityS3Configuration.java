@@ -1,6 +1,8 @@
 package com.hubspot.singularity.s3.base.config;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -23,6 +25,13 @@ public class SingularityS3Configuration extends BaseRunnerConfiguration {
   @JsonProperty
   private String artifactCacheDirectory;
 
+  @JsonProperty
+  private Optional<Long> artifactCacheMaxSizeBytes = Optional.empty();
+
+  @Min(0)
+  @JsonProperty
+  private long artifactCacheEvictionGracePeriodMillis = TimeUnit.MINUTES.toMillis(10);
+
   @Obfuscate
   @JsonProperty
   private Optional<String> s3AccessKey = Optional.empty();
@@ -47,6 +56,10 @@ public class SingularityS3Configuration extends BaseRunnerConfiguration {
   @JsonProperty
   private long s3ChunkRetries = 3;
 
+  @Min(1)
+  @JsonProperty
+  private int s3ChunkDownloadThreads = 20;
+
   @Min(0)
   @JsonProperty
   private int localDownloadHttpPort = 7070;
@@ -69,6 +82,25 @@ public class SingularityS3Configuration extends BaseRunnerConfiguration {
   @JsonProperty
   private Optional<String> metricsFilePath = Optional.empty();
 
+  @NotNull
+  @JsonProperty
+  private List<String> artifactPeerBaseUris = new ArrayList<>();
+
+  @Min(1)
+  @JsonProperty
+  private int artifactPeerConnectTimeoutMillis = (int) TimeUnit.SECONDS.toMillis(1);
+
+  @JsonProperty
+  private Optional<String> artifactPeerToken = Optional.empty();
+
+  @Min(1)
+  @JsonProperty
+  private int artifactPeerMaxPeersTried = 3;
+
+  @Min(1)
+  @JsonProperty
+  private long artifactPeerTimeBudgetMillis = TimeUnit.SECONDS.toMillis(30);
+
   public SingularityS3Configuration() {
     super(Optional.<String>empty());
   }
@@ -81,6 +113,22 @@ public class SingularityS3Configuration extends BaseRunnerConfiguration {
     this.artifactCacheDirectory = artifactCacheDirectory;
   }
 
+  public Optional<Long> getArtifactCacheMaxSizeBytes() {
+    return artifactCacheMaxSizeBytes;
+  }
+
+  public void setArtifactCacheMaxSizeBytes(Optional<Long> artifactCacheMaxSizeBytes) {
+    this.artifactCacheMaxSizeBytes = artifactCacheMaxSizeBytes;
+  }
+
+  public long getArtifactCacheEvictionGracePeriodMillis() {
+    return artifactCacheEvictionGracePeriodMillis;
+  }
+
+  public void setArtifactCacheEvictionGracePeriodMillis(long artifactCacheEvictionGracePeriodMillis) {
+    this.artifactCacheEvictionGracePeriodMillis = artifactCacheEvictionGracePeriodMillis;
+  }
+
   public Optional<String> getS3AccessKey() {
     return s3AccessKey;
   }
@@ -105,6 +153,14 @@ public class SingularityS3Configuration extends BaseRunnerConfiguration {
     this.s3ChunkRetries = s3ChunkRetries;
   }
 
+  public int getS3ChunkDownloadThreads() {
+    return s3ChunkDownloadThreads;
+  }
+
+  public void setS3ChunkDownloadThreads(int s3ChunkDownloadThreads) {
+    this.s3ChunkDownloadThreads = s3ChunkDownloadThreads;
+  }
+
   public long getS3ChunkSize() {
     return s3ChunkSize;
   }
@@ -177,19 +233,66 @@ public class SingularityS3Configuration extends BaseRunnerConfiguration {
     this.metricsFilePath = metricsFilePath;
   }
 
+  public List<String> getArtifactPeerBaseUris() {
+    return artifactPeerBaseUris;
+  }
+
+  public void setArtifactPeerBaseUris(List<String> artifactPeerBaseUris) {
+    this.artifactPeerBaseUris = artifactPeerBaseUris;
+  }
+
+  public int getArtifactPeerConnectTimeoutMillis() {
+    return artifactPeerConnectTimeoutMillis;
+  }
+
+  public void setArtifactPeerConnectTimeoutMillis(int artifactPeerConnectTimeoutMillis) {
+    this.artifactPeerConnectTimeoutMillis = artifactPeerConnectTimeoutMillis;
+  }
+
+  public Optional<String> getArtifactPeerToken() {
+    return artifactPeerToken;
+  }
+
+  public void setArtifactPeerToken(Optional<String> artifactPeerToken) {
+    this.artifactPeerToken = artifactPeerToken;
+  }
+
+  public int getArtifactPeerMaxPeersTried() {
+    return artifactPeerMaxPeersTried;
+  }
+
+  public void setArtifactPeerMaxPeersTried(int artifactPeerMaxPeersTried) {
+    this.artifactPeerMaxPeersTried = artifactPeerMaxPeersTried;
+  }
+
+  public long getArtifactPeerTimeBudgetMillis() {
+    return artifactPeerTimeBudgetMillis;
+  }
+
+  public void setArtifactPeerTimeBudgetMillis(long artifactPeerTimeBudgetMillis) {
+    this.artifactPeerTimeBudgetMillis = artifactPeerTimeBudgetMillis;
+  }
+
   @Override
   public String toString() {
     return "SingularityS3Configuration{" +
         "artifactCacheDirectory='" + artifactCacheDirectory + '\'' +
+        ", artifactCacheMaxSizeBytes=" + artifactCacheMaxSizeBytes +
+        ", artifactCacheEvictionGracePeriodMillis=" + artifactCacheEvictionGracePeriodMillis +
         ", s3AccessKey=" + s3AccessKey +
         ", s3SecretKey=" + s3SecretKey +
         ", s3ChunkSize=" + s3ChunkSize +
         ", s3DownloadTimeoutMillis=" + s3DownloadTimeoutMillis +
         ", s3ChunkDownloadTimeoutMillis=" + s3ChunkDownloadTimeoutMillis +
         ", s3ChunkRetries=" + s3ChunkRetries +
+        ", s3ChunkDownloadThreads=" + s3ChunkDownloadThreads +
         ", localDownloadHttpPort=" + localDownloadHttpPort +
         ", localDownloadPath='" + localDownloadPath + '\'' +
         ", s3BucketCredentials=" + s3BucketCredentials +
+        ", artifactPeerBaseUris=" + artifactPeerBaseUris +
+        ", artifactPeerConnectTimeoutMillis=" + artifactPeerConnectTimeoutMillis +
+        ", artifactPeerMaxPeersTried=" + artifactPeerMaxPeersTried +
+        ", artifactPeerTimeBudgetMillis=" + artifactPeerTimeBudgetMillis +
         "} " + super.toString();
   }
 }
@@ -5,26 +5,47 @@ import static org.assertj.core.api.Assertions.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Throwables;
+import com.google.common.hash.Hashing;
+import com.hubspot.deploy.ExternalArtifact;
+import com.hubspot.deploy.S3Artifact;
 import com.hubspot.singularity.runner.base.configuration.SingularityRunnerBaseConfiguration;
 import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
 import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+import com.sun.net.httpserver.HttpServer;
 
 public class ArtifactManagerTest {
 
   private ArtifactManager artifactManager;
+  private ArtifactCacheMetrics cacheMetrics;
 
   private File cacheDir = com.google.common.io.Files.createTempDir();
 
@@ -34,11 +55,13 @@ public class ArtifactManagerTest {
     SingularityS3Configuration s3Config = new SingularityS3Configuration();
 
     s3Config.setArtifactCacheDirectory(cacheDir.toString());
+    cacheMetrics = new ArtifactCacheMetrics(new MetricRegistry());
     artifactManager = new ArtifactManager(
         baseConfig,
         s3Config,
         LoggerFactory.getLogger(ArtifactManagerTest.class),
-        new SingularityRunnerExceptionNotifier(baseConfig)
+        new SingularityRunnerExceptionNotifier(baseConfig),
+        cacheMetrics
     );
   }
 
@@ -72,6 +95,321 @@ public class ArtifactManagerTest {
 
   }
 
+  @Test
+  public void itTrustsVerifiedSidecarsInsteadOfRehashingCachedArtifacts() throws IOException {
+    List<String> lines = Arrays.asList("Testing", "1", "2", "3");
+    String md5 = Hashing.md5().hashBytes(String.join("\n", lines).concat("\n").getBytes("UTF-8")).toString();
+    ExternalArtifact artifact = new ExternalArtifact("artifact", "artifact.txt", Optional.of(md5), "http://localhost/artifact.txt", Optional.empty(), Optional.empty(), Optional.empty());
+
+    Path cachedPath = write(artifact.getFilenameForCache(), lines);
+    assertThat(artifactManager.fetch(artifact)).isEqualTo(cachedPath);
+    assertThat(cacheDir.toPath().resolve("." + artifact.getFilenameForCache() + ".verified")).exists();
+
+    // Same size and mtime, different content: only a full re-hash would notice
+    FileTime mtime = Files.getLastModifiedTime(cachedPath);
+    write(artifact.getFilenameForCache(), Arrays.asList("Testing", "a", "b", "c"));
+    Files.setLastModifiedTime(cachedPath, mtime);
+
+    assertThat(artifactManager.fetch(artifact)).isEqualTo(cachedPath);
+    assertThat(cacheMetrics.getHitsMeter().getCount()).isEqualTo(2);
+    assertThat(cacheMetrics.getMissesMeter().getCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void itEvictsLeastRecentlyUsedArtifactsOverTheSizeBudget() throws IOException {
+    SingularityS3Configuration s3Config = new SingularityS3Configuration();
+    s3Config.setArtifactCacheDirectory(cacheDir.toString());
+    s3Config.setArtifactCacheMaxSizeBytes(Optional.of(25L));
+    s3Config.setArtifactCacheEvictionGracePeriodMillis(0);
+    ArtifactCacheIndex cacheIndex = new ArtifactCacheIndex(cacheDir.toPath(), s3Config, cacheMetrics, LoggerFactory.getLogger(ArtifactManagerTest.class));
+
+    long now = System.currentTimeMillis();
+    Path oldest = write("oldest.txt", Arrays.asList("0123456789"));
+    Path older = write("older.txt", Arrays.asList("0123456789"));
+    Path newest = write("newest.txt", Arrays.asList("0123456789"));
+    Files.setLastModifiedTime(oldest, FileTime.fromMillis(now - 30000));
+    Files.setLastModifiedTime(older, FileTime.fromMillis(now - 20000));
+    cacheIndex.recordVerified(oldest, Optional.empty());
+    cacheIndex.markUsed(oldest);
+
+    cacheIndex.evictIfOverBudget(newest);
+
+    assertThat(older).doesNotExist();
+    assertThat(oldest).exists();
+    assertThat(newest).exists();
+    assertThat(cacheMetrics.getEvictionsMeter().getCount()).isEqualTo(1);
+    assertThat(cacheMetrics.getEvictedBytesMeter().getCount()).isEqualTo(11);
+  }
+
+  @Test
+  public void itUntarsInProcessAndReturnsTheArchiveMd5() throws IOException {
+    Path archive = cacheDir.toPath().resolve("archive.tar.gz");
+    try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(archive)))) {
+      TarArchiveEntry directory = new TarArchiveEntry("bin/");
+      tarOutputStream.putArchiveEntry(directory);
+      tarOutputStream.closeArchiveEntry();
+
+      byte[] script = "#!/bin/sh\necho hi\n".getBytes("UTF-8");
+      TarArchiveEntry file = new TarArchiveEntry("bin/run.sh");
+      file.setMode(0755);
+      file.setSize(script.length);
+      tarOutputStream.putArchiveEntry(file);
+      tarOutputStream.write(script);
+      tarOutputStream.closeArchiveEntry();
+
+      TarArchiveEntry link = new TarArchiveEntry("run", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName("bin/run.sh");
+      tarOutputStream.putArchiveEntry(link);
+      tarOutputStream.closeArchiveEntry();
+    }
+
+    Path destination = cacheDir.toPath().resolve("extracted");
+    String md5 = new TarGzExtractor(LoggerFactory.getLogger(ArtifactManagerTest.class)).extract(archive, destination);
+
+    assertThat(md5).isEqualTo(com.google.common.io.Files.asByteSource(archive.toFile()).hash(Hashing.md5()).toString());
+    assertThat(destination.resolve("bin/run.sh").toFile()).hasContent("#!/bin/sh\necho hi");
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(destination.resolve("bin/run.sh")))).isEqualTo("rwxr-xr-x");
+    assertThat(Files.readSymbolicLink(destination.resolve("run"))).isEqualTo(Paths.get("bin/run.sh"));
+  }
+
+  @Test
+  public void itRefusesToUntarOutsideTheDestination() throws IOException {
+    Path archive = cacheDir.toPath().resolve("escape.tar.gz");
+    try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(archive)))) {
+      TarArchiveEntry file = new TarArchiveEntry("../escaped.txt");
+      tarOutputStream.putArchiveEntry(file);
+      tarOutputStream.closeArchiveEntry();
+    }
+
+    try {
+      artifactManager.untar(archive, cacheDir.toPath().resolve("extracted"));
+      fail("Expected untar to refuse entries outside of the destination");
+    } catch (RuntimeException e) {
+      assertThat(cacheDir.toPath().resolve("escaped.txt")).doesNotExist();
+    }
+  }
+
+  @Test
+  public void itOnlyUntarsIntoTheDestinationOnceTheMd5Matches() throws IOException {
+    Path archive = cacheDir.toPath().resolve("served.tar.gz");
+    try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(archive)))) {
+      byte[] content = "hi\n".getBytes("UTF-8");
+      TarArchiveEntry file = new TarArchiveEntry("bin/run.sh");
+      file.setMode(0755);
+      file.setSize(content.length);
+      tarOutputStream.putArchiveEntry(file);
+      tarOutputStream.write(content);
+      tarOutputStream.closeArchiveEntry();
+    }
+    String md5 = com.google.common.io.Files.asByteSource(archive.toFile()).hash(Hashing.md5()).toString();
+
+    HttpServer origin = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    origin.createContext("/", (exchange) -> {
+      exchange.sendResponseHeaders(200, Files.size(archive));
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        Files.copy(archive, outputStream);
+      }
+    });
+    origin.start();
+
+    Path taskDirectory = Files.createDirectories(cacheDir.toPath().resolve("tasks/task"));
+    Path existing = Files.createDirectories(taskDirectory.resolve("bin")).resolve("existing.txt");
+    Files.write(existing, Collections.singletonList("existing"));
+
+    try {
+      String url = String.format("http://localhost:%s/served.tar.gz", origin.getAddress().getPort());
+
+      try {
+        artifactManager.fetchAndUntar(new ExternalArtifact("bad", "bad.tar.gz", Optional.of("0123456789abcdef0123456789abcdef"), url, Optional.empty(), Optional.empty(), Optional.empty()), taskDirectory);
+        fail("Expected an md5 mismatch");
+      } catch (RuntimeException e) {
+        assertThat(taskDirectory.resolve("bin/run.sh")).doesNotExist();
+      }
+
+      artifactManager.fetchAndUntar(new ExternalArtifact("good", "good.tar.gz", Optional.of(md5), url, Optional.empty(), Optional.empty(), Optional.empty()), taskDirectory);
+
+      assertThat(taskDirectory.resolve("bin/run.sh").toFile()).hasContent("hi");
+      assertThat(existing).exists();
+    } finally {
+      origin.stop(0);
+    }
+
+    // staging directories are cleaned up whether or not the md5 matched
+    try (Stream<Path> siblings = Files.list(taskDirectory.getParent())) {
+      assertThat(siblings).containsExactly(taskDirectory);
+    }
+  }
+
+  @Test
+  public void itRefusesToReplaceAnExtractedDirectoryWithASymlink() throws IOException {
+    Path outside = Files.createDirectory(cacheDir.toPath().resolve("outside"));
+    Files.setPosixFilePermissions(outside, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+    Path archive = cacheDir.toPath().resolve("swap.tar.gz");
+    try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(archive)))) {
+      TarArchiveEntry directory = new TarArchiveEntry("a/");
+      directory.setMode(040777);
+      tarOutputStream.putArchiveEntry(directory);
+      tarOutputStream.closeArchiveEntry();
+
+      TarArchiveEntry link = new TarArchiveEntry("a", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName(outside.toString());
+      tarOutputStream.putArchiveEntry(link);
+      tarOutputStream.closeArchiveEntry();
+    }
+
+    try {
+      artifactManager.untar(archive, cacheDir.toPath().resolve("extracted"));
+      fail("Expected untar to refuse replacing a directory with a symlink");
+    } catch (RuntimeException e) {
+      assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(outside))).isEqualTo("rwxr-xr-x");
+    }
+  }
+
+  @Test
+  public void itRefusesToUntarThroughAnExtractedSymlink() throws IOException {
+    Path outside = Files.createDirectory(cacheDir.toPath().resolve("outside"));
+
+    Path archive = cacheDir.toPath().resolve("through.tar.gz");
+    try (TarArchiveOutputStream tarOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(archive)))) {
+      TarArchiveEntry link = new TarArchiveEntry("a", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName(outside.toString());
+      tarOutputStream.putArchiveEntry(link);
+      tarOutputStream.closeArchiveEntry();
+
+      TarArchiveEntry file = new TarArchiveEntry("a/escaped.txt");
+      tarOutputStream.putArchiveEntry(file);
+      tarOutputStream.closeArchiveEntry();
+    }
+
+    try {
+      artifactManager.untar(archive, cacheDir.toPath().resolve("extracted"));
+      fail("Expected untar to refuse entries behind a symlink out of the destination");
+    } catch (RuntimeException e) {
+      assertThat(outside.resolve("escaped.txt")).doesNotExist();
+    }
+  }
+
+  @Test
+  public void itFetchesVerifiedArtifactsFromPeersBeforeS3() throws IOException {
+    List<String> lines = Arrays.asList("Testing", "1", "2", "3");
+    byte[] content = String.join("\n", lines).concat("\n").getBytes("UTF-8");
+    String md5 = Hashing.md5().hashBytes(content).toString();
+    S3Artifact artifact = new S3Artifact("artifact", "artifact.txt", Optional.of(md5), Optional.of((long) content.length), "bucket", "key", Optional.empty(), Optional.empty());
+
+    // this agent has already downloaded and verified the artifact
+    write(artifact.getFilenameForCache(), lines);
+    artifactManager.fetch(artifact);
+
+    HttpServer peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    peer.createContext(PeerArtifactDownloader.PEER_ARTIFACT_PATH, (exchange) -> {
+      if (!"token".equals(exchange.getRequestHeaders().getFirst(PeerArtifactDownloader.PEER_TOKEN_HEADER))) {
+        exchange.sendResponseHeaders(403, -1);
+        exchange.close();
+        return;
+      }
+      Optional<Path> cached = artifactManager.getVerifiedCachedArtifact(exchange.getRequestURI().getPath().substring(PeerArtifactDownloader.PEER_ARTIFACT_PATH.length()));
+      if (!cached.isPresent()) {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+        return;
+      }
+      exchange.sendResponseHeaders(200, Files.size(cached.get()));
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        Files.copy(cached.get(), outputStream);
+      }
+    });
+    peer.start();
+
+    try {
+      File otherCacheDir = com.google.common.io.Files.createTempDir();
+      SingularityRunnerBaseConfiguration baseConfig = new SingularityRunnerBaseConfiguration();
+      SingularityS3Configuration s3Config = new SingularityS3Configuration();
+      s3Config.setArtifactCacheDirectory(otherCacheDir.toString());
+      s3Config.setArtifactPeerBaseUris(Collections.singletonList(String.format("http://localhost:%s/", peer.getAddress().getPort())));
+      s3Config.setArtifactPeerToken(Optional.of("token"));
+      ArtifactCacheMetrics otherCacheMetrics = new ArtifactCacheMetrics(new MetricRegistry());
+      ArtifactManager otherArtifactManager = new ArtifactManager(baseConfig, s3Config, LoggerFactory.getLogger(ArtifactManagerTest.class), new SingularityRunnerExceptionNotifier(baseConfig), otherCacheMetrics);
+
+      // no s3 credentials are configured, so this can only succeed through the peer
+      Path fetched = otherArtifactManager.fetch(artifact);
+
+      assertThat(fetched).hasBinaryContent(content);
+      assertThat(otherCacheMetrics.getPeerHitsMeter().getCount()).isEqualTo(1);
+      assertThat(artifactManager.getVerifiedCachedArtifact("../" + artifact.getFilenameForCache())).isEmpty();
+    } finally {
+      peer.stop(0);
+    }
+  }
+
+  @Test
+  public void itLimitsHowManyPeersAreTriedAndForHowLong() throws Exception {
+    S3Artifact artifact = new S3Artifact("artifact", "artifact.txt", Optional.of("0123456789abcdef0123456789abcdef"), Optional.of(10L), "bucket", "key", Optional.empty(), Optional.empty());
+
+    AtomicInteger failingRequests = new AtomicInteger();
+    AtomicInteger stalledRequests = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    HttpServer peers = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    peers.setExecutor(Executors.newCachedThreadPool());
+    peers.createContext("/failing/", (exchange) -> {
+      failingRequests.incrementAndGet();
+      exchange.sendResponseHeaders(500, -1);
+      exchange.close();
+    });
+    peers.createContext("/stalled/", (exchange) -> {
+      stalledRequests.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      exchange.close();
+    });
+    peers.start();
+
+    try {
+      String base = String.format("http://localhost:%s/", peers.getAddress().getPort());
+      List<String> failing = new ArrayList<>();
+      List<String> stalled = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        failing.add(base + "failing/" + i);
+        stalled.add(base + "stalled/" + i);
+      }
+
+      // only the first few peers are tried, each failing once
+      fetchWithPeers(artifact, failing, 3, 60000);
+      assertThat(failingRequests.get()).isEqualTo(3);
+
+      // a stalled peer uses up the whole budget, so no other peer is tried
+      fetchWithPeers(artifact, stalled, 5, 300);
+      assertThat(stalledRequests.get()).isEqualTo(1);
+    } finally {
+      release.countDown();
+      peers.stop(0);
+    }
+  }
+
+  private void fetchWithPeers(S3Artifact artifact, List<String> peers, int maxPeersTried, long timeBudgetMillis) {
+    SingularityRunnerBaseConfiguration baseConfig = new SingularityRunnerBaseConfiguration();
+    SingularityS3Configuration s3Config = new SingularityS3Configuration();
+    s3Config.setArtifactCacheDirectory(com.google.common.io.Files.createTempDir().toString());
+    s3Config.setArtifactPeerBaseUris(peers);
+    s3Config.setArtifactPeerToken(Optional.of("token"));
+    s3Config.setArtifactPeerMaxPeersTried(maxPeersTried);
+    s3Config.setArtifactPeerTimeBudgetMillis(timeBudgetMillis);
+    s3Config.setS3ChunkRetries(0);
+    ArtifactManager otherArtifactManager = new ArtifactManager(baseConfig, s3Config, LoggerFactory.getLogger(ArtifactManagerTest.class), new SingularityRunnerExceptionNotifier(baseConfig),
+        new ArtifactCacheMetrics(new MetricRegistry()));
+
+    try {
+      // no s3 credentials are configured, so falling back to the origin fails
+      otherArtifactManager.fetch(artifact);
+      fail("Expected the fetch to fail");
+    } catch (RuntimeException e) {
+      // expected
+    }
+  }
+
   public Path write(String fileName, List<String> lines) {
     try {
       File file = cacheDir.toPath().resolve(fileName).toFile();
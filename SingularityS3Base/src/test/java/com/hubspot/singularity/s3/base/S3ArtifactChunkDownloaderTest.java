@@ -0,0 +1,187 @@
+package com.hubspot.singularity.s3.base;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.hubspot.deploy.S3Artifact;
+import com.hubspot.singularity.runner.base.configuration.SingularityRunnerBaseConfiguration;
+import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
+import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+
+public class S3ArtifactChunkDownloaderTest {
+  private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+
+  @AfterEach
+  public void shutdownWatchdog() {
+    watchdog.shutdownNow();
+  }
+
+  @Test
+  public void itResumesAFailedRangeFromTheLastByteWritten() throws Exception {
+    byte[] content = "0123456789abcdefghij".getBytes("UTF-8");
+    List<long[]> requestedRanges = new ArrayList<>();
+
+    AmazonS3 s3 = mock(AmazonS3.class);
+    when(s3.getObject(any(GetObjectRequest.class))).thenAnswer((invocation) -> {
+      long[] range = ((GetObjectRequest) invocation.getArgument(0)).getRange();
+      requestedRanges.add(range);
+
+      InputStream rangeContent = new ByteArrayInputStream(Arrays.copyOfRange(content, (int) range[0], (int) range[1] + 1));
+      S3Object s3Object = new S3Object();
+      // the first attempt fails after a few bytes, later attempts succeed
+      s3Object.setObjectContent(requestedRanges.size() == 1 ? new FailingInputStream(rangeContent, 3) : rangeContent);
+      return s3Object;
+    });
+
+    SingularityS3Configuration s3Configuration = new SingularityS3Configuration();
+    S3Artifact s3Artifact = new S3Artifact("artifact", "artifact.txt", Optional.empty(), Optional.of((long) content.length), "bucket", "key", Optional.empty(), Optional.empty());
+
+    Path downloadTo = Files.createTempFile("chunk", null);
+    try (FileChannel fileChannel = FileChannel.open(downloadTo, StandardOpenOption.WRITE)) {
+      S3ArtifactChunkDownloader chunkDownloader = new S3ArtifactChunkDownloader(s3Configuration, LoggerFactory.getLogger(S3ArtifactChunkDownloaderTest.class), s3, s3Artifact, fileChannel, 1,
+          10, 19, new AtomicBoolean(false), watchdog, new SingularityRunnerExceptionNotifier(new SingularityRunnerBaseConfiguration()));
+
+      assertThat(chunkDownloader.call()).isEqualTo(10L);
+    }
+
+    assertThat(requestedRanges).containsExactly(new long[] {10, 19}, new long[] {13, 19});
+    assertThat(Arrays.copyOfRange(Files.readAllBytes(downloadTo), 10, 20)).isEqualTo(Arrays.copyOfRange(content, 10, 20));
+  }
+
+  @Test
+  public void itGivesUpWithoutRetryingOnceTheDownloadIsAborted() throws Exception {
+    AtomicBoolean aborted = new AtomicBoolean(false);
+    List<long[]> requestedRanges = new ArrayList<>();
+
+    AmazonS3 s3 = mock(AmazonS3.class);
+    when(s3.getObject(any(GetObjectRequest.class))).thenAnswer((invocation) -> {
+      requestedRanges.add(((GetObjectRequest) invocation.getArgument(0)).getRange());
+      // another chunk fails while this one is reading, and the channel is closed under it
+      aborted.set(true);
+      S3Object s3Object = new S3Object();
+      s3Object.setObjectContent(new FailingInputStream(new ByteArrayInputStream(new byte[10]), 0));
+      return s3Object;
+    });
+
+    SingularityS3Configuration s3Configuration = new SingularityS3Configuration();
+    S3Artifact s3Artifact = new S3Artifact("artifact", "artifact.txt", Optional.empty(), Optional.of(10L), "bucket", "key", Optional.empty(), Optional.empty());
+
+    Path downloadTo = Files.createTempFile("chunk", null);
+    try (FileChannel fileChannel = FileChannel.open(downloadTo, StandardOpenOption.WRITE)) {
+      S3ArtifactChunkDownloader chunkDownloader = new S3ArtifactChunkDownloader(s3Configuration, LoggerFactory.getLogger(S3ArtifactChunkDownloaderTest.class), s3, s3Artifact, fileChannel, 0,
+          0, 9, aborted, watchdog, new SingularityRunnerExceptionNotifier(new SingularityRunnerBaseConfiguration()));
+
+      assertThatThrownBy(chunkDownloader::call).isInstanceOf(CancellationException.class);
+      // and a chunk that only starts after the abort never requests anything
+      assertThatThrownBy(chunkDownloader::call).isInstanceOf(CancellationException.class);
+    }
+
+    assertThat(requestedRanges).hasSize(1);
+  }
+
+  @Test
+  public void itTimesOutAReadThatBlocks() throws Exception {
+    List<long[]> requestedRanges = new ArrayList<>();
+
+    AmazonS3 s3 = mock(AmazonS3.class);
+    when(s3.getObject(any(GetObjectRequest.class))).thenAnswer((invocation) -> {
+      requestedRanges.add(((GetObjectRequest) invocation.getArgument(0)).getRange());
+      S3Object s3Object = new S3Object();
+      s3Object.setObjectContent(new BlockingInputStream());
+      return s3Object;
+    });
+
+    SingularityS3Configuration s3Configuration = new SingularityS3Configuration();
+    s3Configuration.setS3ChunkDownloadTimeoutMillis(100);
+    s3Configuration.setS3ChunkRetries(1);
+    S3Artifact s3Artifact = new S3Artifact("artifact", "artifact.txt", Optional.empty(), Optional.of(10L), "bucket", "key", Optional.empty(), Optional.empty());
+
+    Path downloadTo = Files.createTempFile("chunk", null);
+    try (FileChannel fileChannel = FileChannel.open(downloadTo, StandardOpenOption.WRITE)) {
+      S3ArtifactChunkDownloader chunkDownloader = new S3ArtifactChunkDownloader(s3Configuration, LoggerFactory.getLogger(S3ArtifactChunkDownloaderTest.class), s3, s3Artifact, fileChannel, 0,
+          0, 9, new AtomicBoolean(false), watchdog, new SingularityRunnerExceptionNotifier(new SingularityRunnerBaseConfiguration()));
+
+      // without the watchdog the first read would never return
+      assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThatThrownBy(chunkDownloader::call).isInstanceOf(IllegalStateException.class));
+      assertThat(chunkDownloader.awaitFinished(0)).isTrue();
+    }
+
+    assertThat(requestedRanges).hasSize(2);
+  }
+
+  private static class BlockingInputStream extends InputStream {
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    @Override
+    public int read() throws IOException {
+      try {
+        closed.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new IOException("Stream closed");
+    }
+
+    @Override
+    public void close() {
+      closed.countDown();
+    }
+  }
+
+  private static class FailingInputStream extends InputStream {
+    private final InputStream delegate;
+    private int remaining;
+
+    private FailingInputStream(InputStream delegate, int failAfter) {
+      this.delegate = delegate;
+      this.remaining = failAfter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining-- <= 0) {
+        throw new IOException("Connection reset");
+      }
+      return delegate.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (remaining <= 0) {
+        throw new IOException("Connection reset");
+      }
+      int read = delegate.read(b, off, Math.min(len, remaining));
+      remaining -= read;
+      return read;
+    }
+  }
+}
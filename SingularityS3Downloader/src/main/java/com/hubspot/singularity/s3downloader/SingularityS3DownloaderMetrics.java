@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
@@ -27,10 +28,15 @@ public class SingularityS3DownloaderMetrics extends AbstractFileMetricsReporter
   private final MetricRegistry registry;
 
   private final Timer downloadTimer;
+  private final Histogram downloadQueueWait;
+  private final Histogram deliveryQueueWait;
+  private final Meter coalescedDownloads;
 
   private final Meter clientErrors;
   private final Meter serverErrors;
   private final Meter requests;
+  private final Meter peerRequests;
+  private final Meter peerBytesServed;
 
   @Inject
   public SingularityS3DownloaderMetrics(MetricRegistry registry,
@@ -43,10 +49,15 @@ public class SingularityS3DownloaderMetrics extends AbstractFileMetricsReporter
     this.registry = registry;
 
     this.downloadTimer = registry.timer(name("downloads", "timer"));
+    this.downloadQueueWait = registry.histogram(name("downloads", "queueWaitMillis"));
+    this.deliveryQueueWait = registry.histogram(name("deliveries", "queueWaitMillis"));
+    this.coalescedDownloads = registry.meter(name("downloads", "coalesced"));
 
     this.clientErrors = registry.meter(name("server", "clientErrors"));
     this.serverErrors = registry.meter(name("server", "serverErrors"));
     this.requests = registry.meter(name("server", "requests"));
+    this.peerRequests = registry.meter(name("peer", "requests"));
+    this.peerBytesServed = registry.meter(name("peer", "bytesServed"));
 
     registry.register(name("downloads", "active"), new Gauge<Integer>() {
       @Override
@@ -55,6 +66,13 @@ public class SingularityS3DownloaderMetrics extends AbstractFileMetricsReporter
       }
     });
 
+    registry.register(name("downloads", "queued"), new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return asyncDownloadService.getQueue().size();
+      }
+    });
+
     startJmxReporter();
   }
 
@@ -70,10 +88,30 @@ public class SingularityS3DownloaderMetrics extends AbstractFileMetricsReporter
     return requests;
   }
 
+  public Meter getPeerRequestsMeter() {
+    return peerRequests;
+  }
+
+  public Meter getPeerBytesServedMeter() {
+    return peerBytesServed;
+  }
+
   public Timer getDownloadTimer() {
     return downloadTimer;
   }
 
+  public Histogram getDownloadQueueWaitHistogram() {
+    return downloadQueueWait;
+  }
+
+  public Histogram getDeliveryQueueWaitHistogram() {
+    return deliveryQueueWait;
+  }
+
+  public Meter getCoalescedDownloadsMeter() {
+    return coalescedDownloads;
+  }
+
   private String name(String... names) {
     return MetricRegistry.name(SingularityS3DownloaderMetrics.class, names);
   }
@@ -9,6 +9,7 @@ import com.hubspot.singularity.runner.base.configuration.SingularityRunnerBaseCo
 import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
 import com.hubspot.singularity.s3.base.ArtifactManager;
 import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+import com.hubspot.singularity.s3downloader.SingularityS3DownloaderMetrics;
 
 public class ArtifactManagerProvider implements Provider<ArtifactManager> {
 
@@ -16,18 +17,21 @@ public class ArtifactManagerProvider implements Provider<ArtifactManager> {
   private final SingularityRunnerBaseConfiguration runnerBaseConfiguration;
   private final SingularityS3Configuration s3Configuration;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
+  private final SingularityS3DownloaderMetrics metrics;
 
   @Inject
-  public ArtifactManagerProvider(SingularityRunnerBaseConfiguration runnerBaseConfiguration, SingularityS3Configuration s3Configuration, SingularityRunnerExceptionNotifier exceptionNotifier) {
+  public ArtifactManagerProvider(SingularityRunnerBaseConfiguration runnerBaseConfiguration, SingularityS3Configuration s3Configuration, SingularityRunnerExceptionNotifier exceptionNotifier,
+                                 SingularityS3DownloaderMetrics metrics) {
     this.log = LoggerFactory.getLogger(ArtifactManager.class);
     this.runnerBaseConfiguration = runnerBaseConfiguration;
     this.s3Configuration = s3Configuration;
     this.exceptionNotifier = exceptionNotifier;
+    this.metrics = metrics;
   }
 
   @Override
   public ArtifactManager get() {
-    return new ArtifactManager(runnerBaseConfiguration, s3Configuration, log, exceptionNotifier);
+    return new ArtifactManager(runnerBaseConfiguration, s3Configuration, log, exceptionNotifier, metrics.getArtifactCacheMetrics());
   }
 
 }
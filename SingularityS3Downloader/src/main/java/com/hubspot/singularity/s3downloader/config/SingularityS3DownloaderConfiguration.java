@@ -17,36 +17,22 @@ public class SingularityS3DownloaderConfiguration extends BaseRunnerConfiguratio
 
   @Min(1)
   @JsonProperty
-  private int numEnqueueThreads = 10;
+  private int numDownloaderThreads = 5;
 
   @Min(1)
   @JsonProperty
-  private long millisToWaitForReEnqueue = TimeUnit.SECONDS.toMillis(5);
+  private long expectedDownloadBytesPerSecond = 100L * 1024 * 1024;
 
-  @Min(1)
   @JsonProperty
-  private int numDownloaderThreads = 5;
+  private Optional<Integer> peerArtifactHttpPort = Optional.empty();
+
+  @JsonProperty
+  private Optional<String> peerArtifactHttpHost = Optional.empty();
 
   public SingularityS3DownloaderConfiguration() {
     super(Optional.of("singularity-s3downloader.log"));
   }
 
-  public int getNumEnqueueThreads() {
-    return numEnqueueThreads;
-  }
-
-  public void setNumEnqueueThreads(int numEnqueueThreads) {
-    this.numEnqueueThreads = numEnqueueThreads;
-  }
-
-  public long getMillisToWaitForReEnqueue() {
-    return millisToWaitForReEnqueue;
-  }
-
-  public void setMillisToWaitForReEnqueue(long millisToWaitForReEnqueue) {
-    this.millisToWaitForReEnqueue = millisToWaitForReEnqueue;
-  }
-
   public long getHttpServerTimeout() {
     return httpServerTimeout;
   }
@@ -63,9 +49,34 @@ public class SingularityS3DownloaderConfiguration extends BaseRunnerConfiguratio
     this.numDownloaderThreads = numDownloaderThreads;
   }
 
+  public long getExpectedDownloadBytesPerSecond() {
+    return expectedDownloadBytesPerSecond;
+  }
+
+  public void setExpectedDownloadBytesPerSecond(long expectedDownloadBytesPerSecond) {
+    this.expectedDownloadBytesPerSecond = expectedDownloadBytesPerSecond;
+  }
+
+  public Optional<Integer> getPeerArtifactHttpPort() {
+    return peerArtifactHttpPort;
+  }
+
+  public void setPeerArtifactHttpPort(Optional<Integer> peerArtifactHttpPort) {
+    this.peerArtifactHttpPort = peerArtifactHttpPort;
+  }
+
+  public Optional<String> getPeerArtifactHttpHost() {
+    return peerArtifactHttpHost;
+  }
+
+  public void setPeerArtifactHttpHost(Optional<String> peerArtifactHttpHost) {
+    this.peerArtifactHttpHost = peerArtifactHttpHost;
+  }
+
   @Override
   public String toString() {
-    return "SingularityS3DownloaderConfiguration [httpServerTimeout=" + httpServerTimeout + ", numEnqueueThreads=" + numEnqueueThreads + ", millisToWaitForReEnqueue=" + millisToWaitForReEnqueue
-        + ", numDownloaderThreads=" + numDownloaderThreads + "]";
+    return "SingularityS3DownloaderConfiguration [httpServerTimeout=" + httpServerTimeout + ", numDownloaderThreads=" + numDownloaderThreads
+        + ", expectedDownloadBytesPerSecond=" + expectedDownloadBytesPerSecond + ", peerArtifactHttpPort=" + peerArtifactHttpPort
+        + ", peerArtifactHttpHost=" + peerArtifactHttpHost + "]";
   }
 }
@@ -1,8 +1,8 @@
 package com.hubspot.singularity.s3downloader.config;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.AbstractModule;
@@ -17,7 +17,6 @@ import com.hubspot.singularity.s3downloader.server.SingularityS3DownloaderServer
 public class SingularityS3DownloaderModule extends AbstractModule {
 
   public static final String DOWNLOAD_EXECUTOR_SERVICE = "singularity.s3downloader.download.executor.service";
-  public static final String ENQUEUE_EXECUTOR_SERVICE = "singularity.s3downloader.enqueue.executor.service";
 
   @Override
   protected void configure() {
@@ -31,13 +30,8 @@ public class SingularityS3DownloaderModule extends AbstractModule {
   @Singleton
   @Named(DOWNLOAD_EXECUTOR_SERVICE)
   public ThreadPoolExecutor getDownloadService(SingularityS3DownloaderConfiguration configuration) {
-    return (ThreadPoolExecutor) Executors.newFixedThreadPool(configuration.getNumDownloaderThreads(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3AsyncDownloaderMainThread-%d").build());
-  }
-
-  @Provides
-  @Singleton
-  @Named(ENQUEUE_EXECUTOR_SERVICE)
-  public ScheduledThreadPoolExecutor getEnqueueService(SingularityS3DownloaderConfiguration configuration) {
-    return (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(configuration.getNumEnqueueThreads(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("EnqueueDownloadThread-%d").build());
+    // work is ordered by SingularityS3DownloaderCoordinator, so it must be queued with execute() rather than submit()
+    return new ThreadPoolExecutor(configuration.getNumDownloaderThreads(), configuration.getNumDownloaderThreads(), 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("S3AsyncDownloaderMainThread-%d").build());
   }
 }
@@ -0,0 +1,51 @@
+package com.hubspot.singularity.s3downloader.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Work for the download service's priority queue. Delivering an already fetched artifact to its target always runs
+ * ahead of starting a new download, since it is what unblocks a waiting task. Downloads are ordered by their
+ * priority key (see {@link SingularityS3DownloaderCoordinator}), then by arrival.
+ */
+abstract class PrioritizedWork implements Runnable, Comparable<PrioritizedWork> {
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private final boolean delivery;
+  private final long sequence;
+  private final long enqueuedAt;
+
+  private volatile long priorityKey;
+
+  PrioritizedWork(boolean delivery, long priorityKey) {
+    this.delivery = delivery;
+    this.priorityKey = priorityKey;
+    this.sequence = SEQUENCE.getAndIncrement();
+    this.enqueuedAt = System.currentTimeMillis();
+  }
+
+  long getPriorityKey() {
+    return priorityKey;
+  }
+
+  /**
+   * Only safe to call while this work is not in the queue.
+   */
+  void setPriorityKey(long priorityKey) {
+    this.priorityKey = priorityKey;
+  }
+
+  long getEnqueuedAt() {
+    return enqueuedAt;
+  }
+
+  @Override
+  public int compareTo(PrioritizedWork other) {
+    if (delivery != other.delivery) {
+      return delivery ? -1 : 1;
+    }
+    if (priorityKey != other.priorityKey) {
+      return Long.compare(priorityKey, other.priorityKey);
+    }
+    return Long.compare(sequence, other.sequence);
+  }
+}
@@ -3,6 +3,8 @@ package com.hubspot.singularity.s3downloader.server;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -10,7 +12,6 @@ import org.eclipse.jetty.continuation.Continuation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.codahale.metrics.Timer.Context;
 import com.google.common.collect.ImmutableMap;
 import com.hubspot.deploy.S3Artifact;
 import com.hubspot.mesos.JavaUtils;
@@ -19,56 +20,57 @@ import com.hubspot.singularity.s3.base.ArtifactDownloadRequest;
 import com.hubspot.singularity.s3.base.ArtifactManager;
 import com.hubspot.singularity.s3downloader.SingularityS3DownloaderMetrics;
 
-public class SingularityS3DownloaderAsyncHandler implements Runnable {
+/**
+ * Delivers one request's artifact to its target directory once the (possibly shared) download has finished, and
+ * completes the request's continuation.
+ */
+public class SingularityS3DownloaderAsyncHandler extends PrioritizedWork {
 
   private static final Logger LOG = LoggerFactory.getLogger(SingularityS3DownloaderAsyncHandler.class);
 
   private final ArtifactDownloadRequest artifactDownloadRequest;
   private final Continuation continuation;
   private final ArtifactManager artifactManager;
+  private final CompletableFuture<Path> fetched;
   private final long start;
   private final SingularityS3DownloaderMetrics metrics;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
-  private final DownloadListener downloadListener;
 
-  public SingularityS3DownloaderAsyncHandler(ArtifactManager artifactManager, ArtifactDownloadRequest artifactDownloadRequest, Continuation continuation, SingularityS3DownloaderMetrics metrics,
-      SingularityRunnerExceptionNotifier exceptionNotifier, DownloadListener downloadListener) {
+  public SingularityS3DownloaderAsyncHandler(ArtifactManager artifactManager, ArtifactDownloadRequest artifactDownloadRequest, Continuation continuation, CompletableFuture<Path> fetched,
+      long start, SingularityS3DownloaderMetrics metrics, SingularityRunnerExceptionNotifier exceptionNotifier) {
+    super(true, start);
     this.artifactManager = artifactManager;
     this.artifactDownloadRequest = artifactDownloadRequest;
     this.continuation = continuation;
+    this.fetched = fetched;
+    this.start = start;
     this.metrics = metrics;
-    this.start = System.currentTimeMillis();
     this.exceptionNotifier = exceptionNotifier;
-    this.downloadListener = downloadListener;
   }
 
   public S3Artifact getS3Artifact() {
     return artifactDownloadRequest.getS3Artifact();
   }
 
-  private boolean download() throws Exception {
-    LOG.info("Beginning download {} after {}", artifactDownloadRequest, JavaUtils.duration(start));
-
+  private boolean deliver() throws Exception {
     if (continuation.isExpired()) {
-      LOG.info("Continuation expired for {}, aborting...", artifactDownloadRequest.getTargetDirectory());
+      LOG.info("Continuation expired for {} after download, aborting...", artifactDownloadRequest.getTargetDirectory());
       return false;
     }
 
-    final Path fetched = artifactManager.fetch(artifactDownloadRequest.getS3Artifact());
-
-    downloadListener.notifyDownloadFinished(this);
+    final Path fetchedPath;
+    try {
+      fetchedPath = fetched.get();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(String.format("Couldn't download %s", artifactDownloadRequest.getS3Artifact()), e.getCause());
+    }
 
     final Path targetDirectory = Paths.get(artifactDownloadRequest.getTargetDirectory());
 
-    if (continuation.isExpired()) {
-      LOG.info("Continuation expired for {} after download, aborting...", artifactDownloadRequest.getTargetDirectory());
-      return false;
-    }
-
-    if (Objects.toString(fetched.getFileName()).endsWith(".tar.gz")) {
-      artifactManager.untar(fetched, targetDirectory);
+    if (Objects.toString(fetchedPath.getFileName()).endsWith(".tar.gz")) {
+      artifactManager.untar(fetchedPath, targetDirectory);
     } else {
-      artifactManager.copy(fetched, targetDirectory, artifactDownloadRequest.getS3Artifact().getFilename());
+      artifactManager.copy(fetchedPath, targetDirectory, artifactDownloadRequest.getS3Artifact().getFilename());
     }
 
     LOG.info("Finishing request {} after {}", artifactDownloadRequest.getTargetDirectory(), JavaUtils.duration(start));
@@ -84,10 +86,10 @@ public class SingularityS3DownloaderAsyncHandler implements Runnable {
 
   @Override
   public void run() {
-    boolean success = false;
-    try (final Context context = metrics.getDownloadTimer().time()) {
-      success = download();
-      if (!success) {
+    metrics.getDeliveryQueueWaitHistogram().update(System.currentTimeMillis() - getEnqueuedAt());
+
+    try {
+      if (!deliver()) {
         metrics.getServerErrorsMeter().mark();
         getResponse().sendError(500, "Hit client timeout");
       }
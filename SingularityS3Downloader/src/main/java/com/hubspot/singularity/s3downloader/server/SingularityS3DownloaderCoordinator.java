@@ -1,24 +1,18 @@
 package com.hubspot.singularity.s3downloader.server;
 
-import java.io.IOException;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
-import javax.servlet.http.HttpServletResponse;
-
 import org.eclipse.jetty.continuation.Continuation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer.Context;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.name.Named;
@@ -31,135 +25,124 @@ import com.hubspot.singularity.s3downloader.SingularityS3DownloaderMetrics;
 import com.hubspot.singularity.s3downloader.config.SingularityS3DownloaderConfiguration;
 import com.hubspot.singularity.s3downloader.config.SingularityS3DownloaderModule;
 
-public class SingularityS3DownloaderCoordinator implements DownloadListener {
+/**
+ * Requests for the same artifact share a single download, which fans out to every waiting request's target once it
+ * finishes. Downloads are prioritized by their deadline (the earliest timeout of any request waiting on them) plus
+ * the time they're expected to take at expectedDownloadBytesPerSecond, so small artifacts and tasks that are about to
+ * time out go ahead of large artifacts that arrived first.
+ */
+public class SingularityS3DownloaderCoordinator {
 
   private static final Logger LOG = LoggerFactory.getLogger(SingularityS3DownloaderCoordinator.class);
 
   private final SingularityS3DownloaderConfiguration configuration;
   private final SingularityS3DownloaderMetrics metrics;
   private final Provider<ArtifactManager> artifactManagerProvider;
-  private final ConcurrentMap<S3Artifact, SingularityS3DownloaderAsyncHandler> downloadRequestToHandler;
-  private final ScheduledThreadPoolExecutor downloadJoinerService;
+  private final Map<S3Artifact, ArtifactDownload> downloads;
   private final ThreadPoolExecutor downloadService;
-  private final ListeningExecutorService listeningDownloadWrapper;
-  private final ExecutorService listeningResponseExecutorService;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
 
   @Inject
   public SingularityS3DownloaderCoordinator(SingularityS3DownloaderConfiguration configuration, SingularityS3DownloaderMetrics metrics, Provider<ArtifactManager> artifactManagerProvider,
-      @Named(SingularityS3DownloaderModule.ENQUEUE_EXECUTOR_SERVICE) ScheduledThreadPoolExecutor downloadJoinerService,
       @Named(SingularityS3DownloaderModule.DOWNLOAD_EXECUTOR_SERVICE) ThreadPoolExecutor downloadService, SingularityRunnerExceptionNotifier exceptionNotifier) {
     this.configuration = configuration;
     this.metrics = metrics;
     this.artifactManagerProvider = artifactManagerProvider;
-    this.downloadJoinerService = downloadJoinerService;
     this.downloadService = downloadService;
-    this.downloadRequestToHandler = Maps.newConcurrentMap();
-    this.listeningDownloadWrapper = MoreExecutors.listeningDecorator(downloadService);
-    this.listeningResponseExecutorService = Executors.newCachedThreadPool();
+    this.downloads = Maps.newHashMap();
     this.exceptionNotifier = exceptionNotifier;
   }
 
   public void register(final Continuation continuation, final ArtifactDownloadRequest artifactDownloadRequest) {
-    final DownloadJoiner downloadJoiner = new DownloadJoiner(continuation, artifactDownloadRequest);
+    final long start = System.currentTimeMillis();
+    final long deadline = start + artifactDownloadRequest.getTimeoutMillis().orElse(configuration.getHttpServerTimeout());
+    final S3Artifact s3Artifact = artifactDownloadRequest.getS3Artifact();
 
-    downloadJoinerService.submit(downloadJoiner);
-  }
+    final ArtifactDownload download;
 
-  @Override
-  public void notifyDownloadFinished(SingularityS3DownloaderAsyncHandler handler) {
-    boolean removed = downloadRequestToHandler.remove(handler.getS3Artifact(), handler);
-    LOG.debug("Handler for artifact {} finished download - removed {}", handler.getS3Artifact(), removed);
-  }
+    synchronized (downloads) {
+      ArtifactDownload existing = downloads.get(s3Artifact);
 
-  private class DownloadJoiner implements Runnable {
+      if (existing != null) {
+        download = existing;
+        metrics.getCoalescedDownloadsMeter().mark();
+        LOG.info("Joining in-flight download of {} for {}", s3Artifact.getFilename(), artifactDownloadRequest.getTargetDirectory());
+        reprioritize(existing, getPriorityKey(s3Artifact, deadline));
+      } else {
+        download = new ArtifactDownload(s3Artifact, getPriorityKey(s3Artifact, deadline));
+        downloads.put(s3Artifact, download);
 
-    private final long start;
-    private final Continuation continuation;
-    private final ArtifactDownloadRequest artifactDownloadRequest;
+        LOG.info("Queueing new download of {} for {} ({} downloads, {} active threads, {} queue size, {} max)", s3Artifact.getFilename(), artifactDownloadRequest.getTargetDirectory(),
+            downloads.size(), downloadService.getActiveCount(), downloadService.getQueue().size(), configuration.getNumDownloaderThreads());
 
-    private DownloadJoiner(Continuation continuation, ArtifactDownloadRequest artifactDownloadRequest) {
-      this.continuation = continuation;
-      this.artifactDownloadRequest = artifactDownloadRequest;
-      this.start = System.currentTimeMillis();
+        downloadService.execute(download);
+      }
     }
 
-    private void reEnqueue() {
-      LOG.debug("Re-enqueueing request for {}, waiting {}, ({} active, {} queue, {} max), total time {}", artifactDownloadRequest.getTargetDirectory(),
-          JavaUtils.durationFromMillis(configuration.getMillisToWaitForReEnqueue()),
-          downloadJoinerService.getActiveCount(),
-          downloadJoinerService.getQueue().size(),
-          configuration.getNumEnqueueThreads(),
-          JavaUtils.duration(start));
+    final SingularityS3DownloaderAsyncHandler handler = new SingularityS3DownloaderAsyncHandler(artifactManagerProvider.get(), artifactDownloadRequest, continuation, download.getFetched(),
+        start, metrics, exceptionNotifier);
 
-      downloadJoinerService.schedule(this, configuration.getMillisToWaitForReEnqueue(), TimeUnit.MILLISECONDS);
-    }
+    download.getFetched().whenComplete((path, t) -> downloadService.execute(handler));
+  }
 
-    private boolean addDownloadRequest() {
-      SingularityS3DownloaderAsyncHandler existingHandler = downloadRequestToHandler.get(artifactDownloadRequest.getS3Artifact());
+  private long getPriorityKey(S3Artifact s3Artifact, long deadline) {
+    long expectedDownloadMillis = TimeUnit.SECONDS.toMillis(s3Artifact.getFilesize().orElse(0L)) / configuration.getExpectedDownloadBytesPerSecond();
+    return deadline + expectedDownloadMillis;
+  }
 
-      if (existingHandler != null) {
-        return false;
-      }
+  private void reprioritize(ArtifactDownload download, long priorityKey) {
+    if (priorityKey >= download.getPriorityKey()) {
+      return;
+    }
 
-      final SingularityS3DownloaderAsyncHandler newHandler = new SingularityS3DownloaderAsyncHandler(artifactManagerProvider.get(), artifactDownloadRequest, continuation, metrics, exceptionNotifier,
-          SingularityS3DownloaderCoordinator.this);
+    // the queue's ordering can't change under an element, so move it rather than updating it in place
+    if (downloadService.getQueue().remove(download)) {
+      download.setPriorityKey(priorityKey);
+      downloadService.getQueue().add(download);
+    }
+  }
 
-      existingHandler = downloadRequestToHandler.putIfAbsent(artifactDownloadRequest.getS3Artifact(), newHandler);
+  private class ArtifactDownload extends PrioritizedWork {
+    private final S3Artifact s3Artifact;
+    private final CompletableFuture<Path> fetched;
 
-      if (existingHandler != null) {
-        return false;
-      }
+    private ArtifactDownload(S3Artifact s3Artifact, long priorityKey) {
+      super(false, priorityKey);
+      this.s3Artifact = s3Artifact;
+      this.fetched = new CompletableFuture<>();
+    }
 
-      LOG.info("Queing new downloader for {} ({} handlers, {} active threads, {} queue size, {} max) after {}", artifactDownloadRequest, downloadRequestToHandler.size(),
-          downloadService.getActiveCount(), downloadService.getQueue().size(), configuration.getNumDownloaderThreads(), JavaUtils.duration(start));
+    private CompletableFuture<Path> getFetched() {
+      return fetched;
+    }
 
-      ListenableFuture<?> future = listeningDownloadWrapper.submit(newHandler);
+    @Override
+    public void run() {
+      final long start = System.currentTimeMillis();
+      metrics.getDownloadQueueWaitHistogram().update(start - getEnqueuedAt());
 
-      future.addListener(new Runnable() {
-        @Override
-        public void run() {
-          notifyDownloadFinished(newHandler);
-        }
-      }, listeningResponseExecutorService);
+      LOG.info("Beginning download of {} after {} in queue", s3Artifact, JavaUtils.durationFromMillis(start - getEnqueuedAt()));
 
-      return true;
-    }
+      try (final Context context = metrics.getDownloadTimer().time()) {
+        Path path = artifactManagerProvider.get().fetch(s3Artifact);
 
-    private void handleContinuationExpired() {
-      try {
-        LOG.info("Continuation expired for {} after {} - returning 500", artifactDownloadRequest, JavaUtils.duration(start));
-        ((HttpServletResponse) continuation.getServletResponse()).sendError(500, "Hit client timeout");
+        finish();
+        fetched.complete(path);
       } catch (Throwable t) {
-        LOG.warn("{} while sending error after continuation for {}", t.getClass().getSimpleName(), artifactDownloadRequest.getTargetDirectory());
-      } finally {
-        continuation.complete();
+        LOG.error("While downloading {}", s3Artifact, t);
+        exceptionNotifier.notify(String.format("Error downloading artifact (%s)", t.getMessage()), t, ImmutableMap.of("s3Bucket", s3Artifact.getS3Bucket(), "s3Key", s3Artifact.getS3ObjectKey()));
+
+        finish();
+        fetched.completeExceptionally(t);
       }
     }
 
-    @Override
-    public void run() {
-      try {
-        if (!addDownloadRequest()) {
-          if (continuation.isExpired()) {
-            handleContinuationExpired();
-            return;
-          }
-          reEnqueue();
-        }
-      } catch (Throwable t) {
-        LOG.error("While trying to enqueue {}", artifactDownloadRequest.getTargetDirectory(), t);
-        exceptionNotifier.notify(String.format("Error enqueuing download (%s)", t.getMessage()), t, ImmutableMap.of("targetDirectory", artifactDownloadRequest.getTargetDirectory()));
-        try {
-          ((HttpServletResponse) continuation.getServletResponse()).sendError(500);
-        } catch (IOException e) {
-          LOG.error("Couldn't send error for {}", artifactDownloadRequest.getTargetDirectory(), e);
-        } finally {
-          continuation.complete();
-        }
+    // requests that arrive after this point start a new download, which will be a cache hit if this one succeeded
+    private void finish() {
+      synchronized (downloads) {
+        downloads.remove(s3Artifact, this);
       }
     }
-
   }
 
 }
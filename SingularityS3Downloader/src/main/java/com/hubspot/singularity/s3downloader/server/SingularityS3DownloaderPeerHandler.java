@@ -0,0 +1,142 @@
+package com.hubspot.singularity.s3downloader.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.hubspot.singularity.s3.base.ArtifactManager;
+import com.hubspot.singularity.s3.base.PeerArtifactDownloader;
+import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+import com.hubspot.singularity.s3downloader.SingularityS3DownloaderMetrics;
+import com.hubspot.singularity.s3downloader.config.SingularityS3DownloaderConfiguration;
+
+/**
+ * Serves verified artifacts from the local cache to peer agents (see {@link PeerArtifactDownloader}). Handles every
+ * request that arrives on the peer port so that the local download endpoint is never reachable from other hosts.
+ * Requests that don't carry artifactPeerToken are refused, and everything is refused if no token is configured.
+ */
+public class SingularityS3DownloaderPeerHandler extends AbstractHandler {
+  private static final Logger LOG = LoggerFactory.getLogger(SingularityS3DownloaderPeerHandler.class);
+
+  private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
+
+  private final SingularityS3DownloaderConfiguration configuration;
+  private final SingularityS3Configuration s3Configuration;
+  private final Provider<ArtifactManager> artifactManagerProvider;
+  private final SingularityS3DownloaderMetrics metrics;
+
+  @Inject
+  public SingularityS3DownloaderPeerHandler(SingularityS3DownloaderConfiguration configuration, SingularityS3Configuration s3Configuration, Provider<ArtifactManager> artifactManagerProvider,
+                                            SingularityS3DownloaderMetrics metrics) {
+    this.configuration = configuration;
+    this.s3Configuration = s3Configuration;
+    this.artifactManagerProvider = artifactManagerProvider;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+    if (!configuration.getPeerArtifactHttpPort().isPresent() || baseRequest.getLocalPort() != configuration.getPeerArtifactHttpPort().get()) {
+      return;
+    }
+
+    baseRequest.setHandled(true);
+    metrics.getPeerRequestsMeter().mark();
+
+    if (!hasPeerToken(request)) {
+      LOG.warn("Refusing request for {} from {} without a valid peer token", target, request.getRemoteAddr());
+      response.sendError(403);
+      return;
+    }
+
+    if (!request.getMethod().equalsIgnoreCase(HttpMethod.GET.name())) {
+      response.sendError(405);
+      return;
+    }
+
+    if (!target.startsWith(PeerArtifactDownloader.PEER_ARTIFACT_PATH)) {
+      response.sendError(404);
+      return;
+    }
+
+    Optional<Path> artifact = artifactManagerProvider.get().getVerifiedCachedArtifact(target.substring(PeerArtifactDownloader.PEER_ARTIFACT_PATH.length()));
+
+    if (!artifact.isPresent()) {
+      response.sendError(404);
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(artifact.get(), StandardOpenOption.READ)) {
+      final long size = channel.size();
+      long start = 0;
+      long end = size - 1;
+
+      String range = request.getHeader(HttpHeader.RANGE.asString());
+      if (range != null) {
+        Matcher matcher = RANGE_PATTERN.matcher(range);
+        if (!matcher.matches() || Long.parseLong(matcher.group(1)) >= size) {
+          response.setHeader(HttpHeader.CONTENT_RANGE.asString(), String.format("bytes */%s", size));
+          response.sendError(416);
+          return;
+        }
+
+        start = Long.parseLong(matcher.group(1));
+        if (!matcher.group(2).isEmpty()) {
+          end = Math.min(Long.parseLong(matcher.group(2)), size - 1);
+        }
+
+        response.setStatus(206);
+        response.setHeader(HttpHeader.CONTENT_RANGE.asString(), String.format("bytes %s-%s/%s", start, end, size));
+      } else {
+        response.setStatus(200);
+      }
+
+      LOG.info("Serving {} ({}-{}) to peer {}", artifact.get(), start, end, request.getRemoteAddr());
+
+      response.setContentType("application/octet-stream");
+      response.setContentLengthLong(end - start + 1);
+      response.setHeader(HttpHeader.ACCEPT_RANGES.asString(), "bytes");
+
+      channel.position(start);
+      try (InputStream inputStream = ByteStreams.limit(Channels.newInputStream(channel), end - start + 1)) {
+        OutputStream outputStream = response.getOutputStream();
+        metrics.getPeerBytesServedMeter().mark(ByteStreams.copy(inputStream, outputStream));
+      }
+    }
+  }
+
+  private boolean hasPeerToken(HttpServletRequest request) {
+    if (!s3Configuration.getArtifactPeerToken().isPresent()) {
+      // the server won't start like this, but never serve unauthenticated requests either way
+      return false;
+    }
+
+    String token = request.getHeader(PeerArtifactDownloader.PEER_TOKEN_HEADER);
+
+    // constant time, so the token can't be guessed a byte at a time
+    return token != null && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), s3Configuration.getArtifactPeerToken().get().getBytes(StandardCharsets.UTF_8));
+  }
+}
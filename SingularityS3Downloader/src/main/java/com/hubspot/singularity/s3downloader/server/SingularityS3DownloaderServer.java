@@ -1,9 +1,12 @@
 package com.hubspot.singularity.s3downloader.server;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.util.Optional;
 
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.HandlerList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,13 +23,16 @@ public class SingularityS3DownloaderServer implements SingularityDriver {
   private final SingularityS3DownloaderConfiguration configuration;
   private final SingularityS3Configuration s3Configuration;
   private final SingularityS3DownloaderHandler handler;
+  private final SingularityS3DownloaderPeerHandler peerHandler;
   private Optional<Server> server;
 
   @Inject
-  public SingularityS3DownloaderServer(SingularityS3DownloaderConfiguration configuration, SingularityS3Configuration s3Configuration, SingularityS3DownloaderHandler handler) {
+  public SingularityS3DownloaderServer(SingularityS3DownloaderConfiguration configuration, SingularityS3Configuration s3Configuration, SingularityS3DownloaderHandler handler,
+                                       SingularityS3DownloaderPeerHandler peerHandler) {
     this.configuration = configuration;
     this.s3Configuration = s3Configuration;
     this.handler = handler;
+    this.peerHandler = peerHandler;
     this.server = Optional.empty();
   }
 
@@ -47,6 +53,8 @@ public class SingularityS3DownloaderServer implements SingularityDriver {
 
     Preconditions.checkState(s3Configuration.getS3AccessKey().isPresent(), "s3AccessKey not set!");
     Preconditions.checkState(s3Configuration.getS3SecretKey().isPresent(), "s3SecretKey not set!");
+    Preconditions.checkState(!configuration.getPeerArtifactHttpPort().isPresent() || s3Configuration.getArtifactPeerToken().isPresent(),
+        "artifactPeerToken must be set when peerArtifactHttpPort is set!");
 
     Server server = new Server();
 
@@ -56,7 +64,21 @@ public class SingularityS3DownloaderServer implements SingularityDriver {
     http.setIdleTimeout(configuration.getHttpServerTimeout());
     server.addConnector(http);
 
-    server.setHandler(handler);
+    if (configuration.getPeerArtifactHttpPort().isPresent()) {
+      // unlike the local download endpoint, peers need to reach this from other hosts, but only on the one address they use
+      ServerConnector peerHttp = new ServerConnector(server);
+      peerHttp.setHost(configuration.getPeerArtifactHttpHost().orElseGet(SingularityS3DownloaderServer::getDefaultPeerArtifactHttpHost));
+      peerHttp.setPort(configuration.getPeerArtifactHttpPort().get());
+      peerHttp.setIdleTimeout(configuration.getHttpServerTimeout());
+      server.addConnector(peerHttp);
+
+      HandlerList handlers = new HandlerList();
+      handlers.addHandler(peerHandler);
+      handlers.addHandler(handler);
+      server.setHandler(handlers);
+    } else {
+      server.setHandler(handler);
+    }
 
     try {
       LOG.info("Starting server on {} (configuration: {})", s3Configuration.getLocalDownloadHttpPort(), configuration);
@@ -71,5 +93,12 @@ public class SingularityS3DownloaderServer implements SingularityDriver {
     }
   }
 
+  private static String getDefaultPeerArtifactHttpHost() {
+    try {
+      return InetAddress.getLocalHost().getHostAddress();
+    } catch (UnknownHostException e) {
+      throw new IllegalStateException("Couldn't resolve the local host address, set peerArtifactHttpHost", e);
+    }
+  }
 
 }
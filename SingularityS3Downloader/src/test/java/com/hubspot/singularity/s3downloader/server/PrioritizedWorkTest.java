@@ -0,0 +1,65 @@
+package com.hubspot.singularity.s3downloader.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import org.junit.jupiter.api.Test;
+
+public class PrioritizedWorkTest {
+
+  @Test
+  public void itRunsDeliveriesFirstThenByPriorityKeyThenByArrival() {
+    TestWork lateDownload = new TestWork("lateDownload", false, 300);
+    TestWork firstEarlyDownload = new TestWork("firstEarlyDownload", false, 100);
+    TestWork secondEarlyDownload = new TestWork("secondEarlyDownload", false, 100);
+    TestWork delivery = new TestWork("delivery", true, 500);
+
+    PriorityBlockingQueue<PrioritizedWork> queue = new PriorityBlockingQueue<>();
+    queue.add(lateDownload);
+    queue.add(secondEarlyDownload);
+    queue.add(delivery);
+    queue.add(firstEarlyDownload);
+
+    assertThat(drain(queue)).containsExactly("delivery", "firstEarlyDownload", "secondEarlyDownload", "lateDownload");
+  }
+
+  @Test
+  public void itUsesAnUpdatedPriorityKeyOnceRequeued() {
+    TestWork first = new TestWork("first", false, 100);
+    TestWork second = new TestWork("second", false, 200);
+
+    PriorityBlockingQueue<PrioritizedWork> queue = new PriorityBlockingQueue<>();
+    queue.add(first);
+    queue.add(second);
+
+    assertThat(queue.remove(second)).isTrue();
+    second.setPriorityKey(50);
+    queue.add(second);
+
+    assertThat(drain(queue)).containsExactly("second", "first");
+  }
+
+  private static List<String> drain(PriorityBlockingQueue<PrioritizedWork> queue) {
+    List<String> names = new ArrayList<>();
+    PrioritizedWork work;
+    while ((work = queue.poll()) != null) {
+      names.add(((TestWork) work).name);
+    }
+    return names;
+  }
+
+  private static class TestWork extends PrioritizedWork {
+    private final String name;
+
+    private TestWork(String name, boolean delivery, long priorityKey) {
+      super(delivery, priorityKey);
+      this.name = name;
+    }
+
+    @Override
+    public void run() {}
+  }
+}
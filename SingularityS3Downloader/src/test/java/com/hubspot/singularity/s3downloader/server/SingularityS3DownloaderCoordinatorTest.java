@@ -0,0 +1,210 @@
+package com.hubspot.singularity.s3downloader.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.continuation.Continuation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.deploy.S3Artifact;
+import com.hubspot.singularity.runner.base.configuration.SingularityRunnerBaseConfiguration;
+import com.hubspot.singularity.runner.base.sentry.SingularityRunnerExceptionNotifier;
+import com.hubspot.singularity.s3.base.ArtifactDownloadRequest;
+import com.hubspot.singularity.s3.base.ArtifactManager;
+import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+import com.hubspot.singularity.s3downloader.SingularityS3DownloaderMetrics;
+import com.hubspot.singularity.s3downloader.config.SingularityS3DownloaderConfiguration;
+
+public class SingularityS3DownloaderCoordinatorTest {
+  private static final long LONG_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+  private static final long SHORT_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
+
+  private final List<String> fetched = Collections.synchronizedList(new ArrayList<>());
+  private final CountDownLatch blockerStarted = new CountDownLatch(1);
+  private final CountDownLatch releaseBlocker = new CountDownLatch(1);
+
+  private ArtifactManager artifactManager;
+  private ThreadPoolExecutor downloadService;
+  private SingularityS3DownloaderMetrics metrics;
+  private SingularityS3DownloaderCoordinator coordinator;
+
+  @BeforeEach
+  public void setup() {
+    artifactManager = mock(ArtifactManager.class);
+    when(artifactManager.fetch(any())).thenAnswer((invocation) -> {
+      S3Artifact artifact = invocation.getArgument(0);
+      if (artifact.getName().equals("blocker")) {
+        blockerStarted.countDown();
+        releaseBlocker.await();
+        // delivered with untar, so it doesn't show up in the copies the tests check
+        return Paths.get("/cache", "blocker.tar.gz");
+      } else if (artifact.getName().equals("broken")) {
+        fetched.add(artifact.getName());
+        throw new IllegalStateException("S3 is down");
+      }
+      fetched.add(artifact.getName());
+      return Paths.get("/cache", artifact.getFilename());
+    });
+
+    // a single thread, so that everything queued while the blocker runs is ordered by the queue alone
+    SingularityS3DownloaderConfiguration configuration = new SingularityS3DownloaderConfiguration();
+    downloadService = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+
+    SingularityS3Configuration s3Configuration = new SingularityS3Configuration();
+    metrics = new SingularityS3DownloaderMetrics(new MetricRegistry(), new ObjectMapper(), downloadService, s3Configuration);
+    coordinator = new SingularityS3DownloaderCoordinator(configuration, metrics, () -> artifactManager, downloadService,
+        new SingularityRunnerExceptionNotifier(new SingularityRunnerBaseConfiguration()));
+  }
+
+  @AfterEach
+  public void shutdown() {
+    releaseBlocker.countDown();
+    downloadService.shutdownNow();
+  }
+
+  @Test
+  public void itSharesOneDownloadBetweenRequestsForTheSameArtifact() throws Exception {
+    blockQueue();
+
+    TestContinuation first = register("shared", "/tasks/first", LONG_TIMEOUT);
+    TestContinuation second = register("shared", "/tasks/second", LONG_TIMEOUT);
+    releaseBlocker.countDown();
+
+    first.awaitComplete();
+    second.awaitComplete();
+
+    assertThat(fetched).containsExactly("shared");
+    assertThat(metrics.getCoalescedDownloadsMeter().getCount()).isEqualTo(1);
+    verify(artifactManager).copy(Paths.get("/cache", "shared.txt"), Paths.get("/tasks/first"), "shared.txt");
+    verify(artifactManager).copy(Paths.get("/cache", "shared.txt"), Paths.get("/tasks/second"), "shared.txt");
+    verify(first.response, never()).sendError(anyInt());
+    verify(second.response, never()).sendError(anyInt());
+  }
+
+  @Test
+  public void itStartsDownloadsThatAreDueSoonerFirst() throws Exception {
+    blockQueue();
+
+    TestContinuation relaxed = register("relaxed", "/tasks/relaxed", LONG_TIMEOUT);
+    TestContinuation urgent = register("urgent", "/tasks/urgent", SHORT_TIMEOUT);
+    releaseBlocker.countDown();
+
+    relaxed.awaitComplete();
+    urgent.awaitComplete();
+
+    assertThat(fetched).containsExactly("urgent", "relaxed");
+  }
+
+  @Test
+  public void itMovesQueuedDownloadsUpWhenAnUrgentRequestJoins() throws Exception {
+    blockQueue();
+
+    TestContinuation relaxed = register("relaxed", "/tasks/relaxed", LONG_TIMEOUT);
+    TestContinuation middle = register("middle", "/tasks/middle", LONG_TIMEOUT / 2);
+    TestContinuation urgent = register("relaxed", "/tasks/urgent", SHORT_TIMEOUT);
+    releaseBlocker.countDown();
+
+    relaxed.awaitComplete();
+    middle.awaitComplete();
+    urgent.awaitComplete();
+
+    assertThat(fetched).containsExactly("relaxed", "middle");
+  }
+
+  @Test
+  public void itFailsEveryWaitingRequestWhenTheDownloadFails() throws Exception {
+    blockQueue();
+
+    TestContinuation first = register("broken", "/tasks/first", LONG_TIMEOUT);
+    TestContinuation second = register("broken", "/tasks/second", LONG_TIMEOUT);
+    releaseBlocker.countDown();
+
+    first.awaitComplete();
+    second.awaitComplete();
+
+    verify(first.response).sendError(500);
+    verify(second.response).sendError(500);
+    verify(artifactManager, never()).copy(any(), any(), anyString());
+
+    // the failed download isn't shared with requests that arrive after it
+    register("broken", "/tasks/third", LONG_TIMEOUT).awaitComplete();
+    assertThat(fetched).containsExactly("broken", "broken");
+  }
+
+  @Test
+  public void itDoesNotDeliverToARequestThatTimedOut() throws Exception {
+    blockQueue();
+
+    TestContinuation expired = register("artifact", "/tasks/expired", SHORT_TIMEOUT);
+    expired.expired = true;
+    releaseBlocker.countDown();
+
+    expired.awaitComplete();
+
+    assertThat(fetched).containsExactly("artifact");
+    verify(expired.response).sendError(500, "Hit client timeout");
+    verify(artifactManager, never()).copy(any(), any(), anyString());
+    verify(expired.response, never()).getOutputStream();
+  }
+
+  private void blockQueue() throws InterruptedException {
+    register("blocker", "/tasks/blocker", LONG_TIMEOUT);
+    assertThat(blockerStarted.await(10, TimeUnit.SECONDS)).isTrue();
+  }
+
+  private TestContinuation register(String name, String targetDirectory, long timeoutMillis) {
+    S3Artifact artifact = new S3Artifact(name, name + ".txt", Optional.empty(), Optional.of(10L), "bucket", name, Optional.empty(), Optional.empty());
+    TestContinuation continuation = new TestContinuation();
+    coordinator.register(continuation.continuation, new ArtifactDownloadRequest(targetDirectory, artifact, Optional.of(timeoutMillis)));
+    return continuation;
+  }
+
+  private static class TestContinuation {
+    private final Continuation continuation = mock(Continuation.class);
+    private final HttpServletResponse response = mock(HttpServletResponse.class);
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private volatile boolean expired = false;
+
+    private TestContinuation() {
+      try {
+        when(response.getOutputStream()).thenReturn(mock(ServletOutputStream.class));
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+      when(continuation.getServletResponse()).thenReturn(response);
+      when(continuation.isExpired()).thenAnswer((invocation) -> expired);
+      doAnswer((invocation) -> {
+        completed.countDown();
+        return null;
+      }).when(continuation).complete();
+    }
+
+    private void awaitComplete() throws InterruptedException {
+      assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package com.hubspot.singularity.s3uploader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Closeables;
+
+/**
+ * Watches the directories of the regular uploaders (and their subdirectories, for uploaders that check them) and
+ * hands each uploader the files that changed under it, so that an upload cycle only looks at those instead of
+ * walking every directory. Unlike {@link com.hubspot.singularity.runner.base.shared.WatchServiceHelper}, which blocks
+ * on a single directory, events are drained without blocking at the start of each cycle. An overflow, or a watched
+ * directory going away, sends the affected uploaders back to a full walk.
+ */
+class LogDirectoryWatcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(LogDirectoryWatcher.class);
+
+  private final WatchService watchService;
+  private final SingularityS3UploaderMetrics metrics;
+  private final Map<WatchKey, Path> keyToDirectory;
+  private final Map<Path, Set<SingularityUploader>> directoryToUploaders;
+  private final Map<SingularityUploader, Set<Path>> uploaderToDirectories;
+
+  LogDirectoryWatcher(SingularityS3UploaderMetrics metrics) {
+    this.metrics = metrics;
+    this.keyToDirectory = new HashMap<>();
+    this.directoryToUploaders = new HashMap<>();
+    this.uploaderToDirectories = new HashMap<>();
+
+    try {
+      this.watchService = FileSystems.getDefault().newWatchService();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  boolean isWatching(SingularityUploader uploader) {
+    return uploaderToDirectories.containsKey(uploader);
+  }
+
+  /**
+   * Registers the uploader's directory, and its subdirectories if the uploader checks them. This has to happen before
+   * the uploader's next full walk so that nothing written in between is missed.
+   *
+   * @return false if the directory couldn't be watched (e.g. it doesn't exist yet)
+   */
+  boolean watch(SingularityUploader uploader) {
+    final Path directory = Paths.get(uploader.getUploadMetadata().getDirectory());
+
+    try {
+      register(directory, uploader);
+
+      if (uploader.getUploadMetadata().isCheckSubdirectories()) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+          paths.filter((path) -> !path.equals(directory) && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)).forEach((path) -> {
+            try {
+              register(path, uploader);
+            } catch (IOException ioe) {
+              throw new RuntimeException(ioe);
+            }
+          });
+        }
+      }
+
+      return true;
+    } catch (Exception e) {
+      LOG.debug("Couldn't watch {} for {}", directory, uploader, e);
+      unwatch(uploader);
+      return false;
+    }
+  }
+
+  void unwatch(SingularityUploader uploader) {
+    Set<Path> directories = uploaderToDirectories.remove(uploader);
+
+    if (directories == null) {
+      return;
+    }
+
+    for (Path directory : directories) {
+      Set<SingularityUploader> uploaders = directoryToUploaders.get(directory);
+      if (uploaders != null) {
+        uploaders.remove(uploader);
+        if (uploaders.isEmpty()) {
+          cancel(directory);
+        }
+      }
+    }
+  }
+
+  /**
+   * Hands every event queued since the last call to the uploaders watching its directory.
+   */
+  void processEvents() {
+    WatchKey key;
+
+    while ((key = watchService.poll()) != null) {
+      final Path directory = keyToDirectory.get(key);
+
+      if (directory == null) {
+        key.cancel();
+        continue;
+      }
+
+      final List<SingularityUploader> uploaders = new ArrayList<>(directoryToUploaders.getOrDefault(directory, new HashSet<>()));
+
+      for (WatchEvent<?> event : key.pollEvents()) {
+        metrics.getFilesystemEventsMeter().mark();
+
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          LOG.info("Missed events for {}, walking it on the next check", directory);
+          uploaders.forEach(SingularityUploader::markFullScanNeeded);
+          continue;
+        }
+
+        final Path path = directory.resolve((Path) event.context());
+
+        for (SingularityUploader uploader : uploaders) {
+          if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            uploader.markRemoved(path);
+            continue;
+          }
+
+          if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && uploader.getUploadMetadata().isCheckSubdirectories() && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+              register(path, uploader);
+            } catch (IOException e) {
+              LOG.warn("Couldn't watch new directory {} for {}", path, uploader, e);
+              uploader.markFullScanNeeded();
+            }
+          }
+
+          uploader.markChanged(path);
+        }
+      }
+
+      if (!key.reset()) {
+        LOG.debug("Directory {} is no longer watched", directory);
+        cancel(directory);
+
+        for (SingularityUploader uploader : uploaders) {
+          if (directory.equals(Paths.get(uploader.getUploadMetadata().getDirectory()))) {
+            unwatch(uploader);
+            uploader.markFullScanNeeded();
+          }
+        }
+      }
+    }
+  }
+
+  private void register(Path directory, SingularityUploader uploader) throws IOException {
+    if (!directoryToUploaders.containsKey(directory)) {
+      WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+      keyToDirectory.put(key, directory);
+      directoryToUploaders.put(directory, new HashSet<>());
+    }
+
+    directoryToUploaders.get(directory).add(uploader);
+    uploaderToDirectories.computeIfAbsent(uploader, (u) -> new HashSet<>()).add(directory);
+  }
+
+  private void cancel(Path directory) {
+    directoryToUploaders.remove(directory);
+
+    keyToDirectory.entrySet().removeIf((entry) -> {
+      if (entry.getValue().equals(directory)) {
+        entry.getKey().cancel();
+        return true;
+      }
+      return false;
+    });
+  }
+
+  @Override
+  public void close() {
+    try {
+      Closeables.close(watchService, true);
+    } catch (IOException ioe) {
+      // impossible!
+    }
+  }
+}
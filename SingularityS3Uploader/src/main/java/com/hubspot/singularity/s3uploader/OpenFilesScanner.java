@@ -0,0 +1,96 @@
+package com.hubspot.singularity.s3uploader;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.hubspot.mesos.JavaUtils;
+
+/**
+ * Collects every file held open by any process on the host in one pass over /proc/[pid]/fd, so that a whole upload
+ * cycle can be checked against a single snapshot instead of forking lsof or fuser once per candidate file. Like lsof
+ * and fuser, files are matched by device and inode rather than by path, since the path a containerized process sees
+ * isn't the one on the host. If any process's fds can't be read the snapshot is inconclusive and isn't used.
+ */
+class OpenFilesScanner {
+  private static final Logger LOG = LoggerFactory.getLogger(OpenFilesScanner.class);
+
+  private static final Path PROC = Paths.get("/proc");
+
+  private OpenFilesScanner() {}
+
+  /**
+   * @return the file keys (device and inode) of all open files, or empty if /proc couldn't be fully read and callers
+   * should fall back to lsof/fuser
+   */
+  static Optional<Set<Object>> scan() {
+    return scan(PROC);
+  }
+
+  @VisibleForTesting
+  static Optional<Set<Object>> scan(Path proc) {
+    if (!Files.isDirectory(proc)) {
+      return Optional.empty();
+    }
+
+    final long start = System.currentTimeMillis();
+    final Set<Object> openFiles = new HashSet<>();
+    int processes = 0;
+
+    try (DirectoryStream<Path> pids = Files.newDirectoryStream(proc, (path) -> CharMatcher.digit().matchesAllOf(path.getFileName().toString()))) {
+      for (Path pid : pids) {
+        try (DirectoryStream<Path> fds = Files.newDirectoryStream(pid.resolve("fd"))) {
+          for (Path fd : fds) {
+            try {
+              // follows the fd to the open file itself, wherever it is mounted
+              Object fileKey = Files.readAttributes(fd, BasicFileAttributes.class).fileKey();
+              if (fileKey == null) {
+                LOG.warn("No file key for {}, falling back to checking each file", fd);
+                return Optional.empty();
+              }
+              openFiles.add(fileKey);
+            } catch (NoSuchFileException e) {
+              // the fd was closed after it was listed
+            }
+          }
+          processes++;
+        } catch (NoSuchFileException e) {
+          // the process exited after it was listed
+        } catch (DirectoryIteratorException e) {
+          if (!(e.getCause() instanceof NoSuchFileException)) {
+            throw e.getCause();
+          }
+        }
+      }
+    } catch (IOException | DirectoryIteratorException e) {
+      LOG.warn("Couldn't read all open files in {}, falling back to checking each file", proc, e);
+      return Optional.empty();
+    }
+
+    LOG.debug("Found {} open file(s) across {} process(es) in {}", openFiles.size(), processes, JavaUtils.duration(start));
+
+    return Optional.of(openFiles);
+  }
+
+  static boolean isOpen(Set<Object> openFiles, Path file) {
+    try {
+      return openFiles.contains(Files.readAttributes(file, BasicFileAttributes.class).fileKey());
+    } catch (IOException e) {
+      LOG.error("Could not determine if file {} was in use, skipping", file, e);
+      return true;
+    }
+  }
+}
@@ -76,6 +76,7 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
   private final ProcessUtils processUtils;
   private final String hostname;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
+  private final LogDirectoryWatcher logDirectoryWatcher;
 
   private final Map<S3UploadMetadata, SingularityUploader> metadataToImmediateUploader;
   private final Map<S3UploadMetadata, CompletableFuture<Integer>> immediateUploadersFutures;
@@ -114,6 +115,8 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
 
     this.immediateUploadersFutures = new ConcurrentHashMap<>();
     this.metadataToImmediateUploader = new ConcurrentHashMap<>();
+
+    this.logDirectoryWatcher = new LogDirectoryWatcher(metrics);
   }
 
   @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "https://github.com/spotbugs/spotbugs/issues/259")
@@ -215,6 +218,8 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
     scheduler.shutdown();
     executorService.shutdown();
 
+    logDirectoryWatcher.close();
+
     LOG.info("Shut down in {}", JavaUtils.duration(start));
   }
 
@@ -294,12 +299,21 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
     final Map<SingularityUploader, CompletableFuture<Integer>> futures = Maps.newHashMapWithExpectedSize(initialExpectedSize);
     final Map<SingularityUploader, Boolean> finishing = Maps.newHashMapWithExpectedSize(initialExpectedSize);
 
+    logDirectoryWatcher.processEvents();
+
+    final Optional<Set<Object>> openFiles = configuration.isCheckForOpenFiles() && configuration.isCheckOpenFilesViaProc() && !metadataToUploader.isEmpty() ? OpenFilesScanner.scan() : Optional.empty();
+
     for (final SingularityUploader uploader : metadataToUploader.values()) {
       final boolean isFinished = isFinished(uploader);
       // do this here so we run at least once with isFinished = true
       finishing.put(uploader, isFinished);
 
-      futures.put(uploader, CompletableFuture.supplyAsync(performUploadSupplier(uploader, isFinished, false), executorService));
+      if (!logDirectoryWatcher.isWatching(uploader) && !logDirectoryWatcher.watch(uploader)) {
+        // keep walking the directory on every check until it can be watched
+        uploader.markFullScanNeeded();
+      }
+
+      futures.put(uploader, CompletableFuture.supplyAsync(performUploadSupplier(uploader, isFinished, openFiles), executorService));
     }
 
     LOG.info("Waiting on {} future(s)", futures.size());
@@ -336,6 +350,7 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
       metadataToUploader.remove(expiredUploader.getUploadMetadata());
       uploaderLastHadFilesAt.remove(expiredUploader);
       expiring.remove(expiredUploader);
+      logDirectoryWatcher.unwatch(expiredUploader);
 
       try {
         LOG.debug("Deleting expired uploader {}", expiredUploader.getMetadataPath());
@@ -351,7 +366,21 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
     return totesUploads;
   }
 
-  private Supplier<Integer> performUploadSupplier(final SingularityUploader uploader, final boolean finished, final boolean immediate) {
+  private Supplier<Integer> performUploadSupplier(final SingularityUploader uploader, final boolean finished, final Optional<Set<Object>> openFiles) {
+    return () -> {
+      Integer returnValue = 0;
+      try {
+        returnValue = uploader.uploadChanged(finished, openFiles);
+      } catch (Throwable t) {
+        metrics.error();
+        LOG.error("Error while processing uploader {}", uploader, t);
+        exceptionNotifier.notify(String.format("Error processing uploader (%s)", t.getMessage()), t, ImmutableMap.of("metadataPath", uploader.getMetadataPath().toString()));
+      }
+      return returnValue;
+    };
+  }
+
+  private Supplier<Integer> performImmediateUploadSupplier(final SingularityUploader uploader, final boolean finished) {
     return () -> {
       Integer returnValue = 0;
       try {
@@ -360,9 +389,7 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
         metrics.error();
         LOG.error("Error while processing uploader {}", uploader, t);
         exceptionNotifier.notify(String.format("Error processing uploader (%s)", t.getMessage()), t, ImmutableMap.of("metadataPath", uploader.getMetadataPath().toString()));
-        if (immediate) {
-          return -1;
-        }
+        return -1;
       }
       return returnValue;
     };
@@ -375,7 +402,7 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
     } else {
       immediateUploadersFutures.put(
           uploader.getUploadMetadata(),
-          CompletableFuture.supplyAsync(performUploadSupplier(uploader, finished, true), executorService)
+          CompletableFuture.supplyAsync(performImmediateUploadSupplier(uploader, finished), executorService)
       );
     }
   }
@@ -443,6 +470,7 @@ public class SingularityS3UploaderDriver extends WatchServiceHelper implements S
           metadataToImmediateUploader.put(metadata, existingUploader);
           metadataToUploader.remove(existingUploader.getUploadMetadata());
           uploaderLastHadFilesAt.remove(existingUploader);
+          logDirectoryWatcher.unwatch(existingUploader);
           performImmediateUpload(existingUploader);
           return true;
         } else {
@@ -11,10 +11,14 @@ import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.stream.Stream;
@@ -55,6 +59,10 @@ public abstract class SingularityUploader {
   final SingularityS3UploaderConfiguration configuration;
   private final SingularityRunnerExceptionNotifier exceptionNotifier;
   private final Lock checkFileOpenLock;
+  private final Set<Path> changedFiles;
+  private final AtomicBoolean fullScanNeeded;
+
+  private volatile boolean scannedAsFinished;
 
   SingularityUploader(S3UploadMetadata uploadMetadata,
                       FileSystem fileSystem,
@@ -83,11 +91,13 @@ public abstract class SingularityUploader {
     this.exceptionNotifier = exceptionNotifier;
 
     this.checkFileOpenLock = checkFileOpenLock;
+    this.changedFiles = ConcurrentHashMap.newKeySet();
+    this.fullScanNeeded = new AtomicBoolean(true);
   }
 
   protected abstract void uploadSingle(int sequence, Path file) throws Exception;
 
-  int uploadBatch(List<Path> toUpload) {
+  int uploadBatch(List<Path> toUpload, Optional<Set<Object>> openFiles) {
     final long start = System.currentTimeMillis();
     LOG.info("{} Uploading {} item(s)", logIdentifier, toUpload.size());
 
@@ -96,7 +106,7 @@ public abstract class SingularityUploader {
     for (int i = 0; i < toUpload.size(); i++) {
       final Context context = metrics.getUploadTimer().time();
       final Path file = toUpload.get(i);
-      if (!configuration.isCheckForOpenFiles() || uploadMetadata.isImmediate() || !isFileOpen(file, configuration.isCheckOpenFilesViaFuser())) {
+      if (!configuration.isCheckForOpenFiles() || uploadMetadata.isImmediate() || !isFileOpen(file, openFiles)) {
         try {
           uploadSingle(i, file);
           metrics.upload();
@@ -131,7 +141,66 @@ public abstract class SingularityUploader {
   }
 
   int upload(boolean isFinished) throws IOException {
-    return uploadBatch(filesToUpload(isFinished));
+    return uploadBatch(filesToUpload(isFinished), Optional.empty());
+  }
+
+  /**
+   * Uploads only the files that changed since the last call (as reported by a {@link LogDirectoryWatcher}) plus any
+   * left behind by it, falling back to walking the directory when a full scan was requested or the uploader has
+   * just finished, since the finish glob may match files that were skipped until now.
+   */
+  int uploadChanged(boolean isFinished, Optional<Set<Object>> openFiles) throws IOException {
+    final List<Path> toUpload;
+
+    if (fullScanNeeded.getAndSet(false) || (isFinished && !scannedAsFinished)) {
+      changedFiles.clear();
+      scannedAsFinished = isFinished;
+      toUpload = filesToUpload(isFinished);
+    } else {
+      toUpload = changedFilesToUpload(isFinished);
+    }
+
+    try {
+      return uploadBatch(toUpload, openFiles);
+    } finally {
+      // files that were open or failed to upload have to be looked at again on the next check
+      for (Path file : toUpload) {
+        if (Files.exists(file)) {
+          changedFiles.add(file);
+        }
+      }
+    }
+  }
+
+  void markChanged(Path file) {
+    changedFiles.add(file);
+  }
+
+  void markRemoved(Path file) {
+    changedFiles.remove(file);
+  }
+
+  void markFullScanNeeded() {
+    fullScanNeeded.set(true);
+  }
+
+  private List<Path> changedFilesToUpload(boolean isFinished) throws IOException {
+    final List<Path> changed = new ArrayList<>(changedFiles);
+    changedFiles.removeAll(changed);
+
+    final Set<Path> toUpload = new LinkedHashSet<>();
+
+    for (Path file : changed) {
+      if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+        continue;
+      }
+
+      final List<Path> found = Lists.newArrayList();
+      handleFile(file, isFinished, found);
+      toUpload.addAll(found);
+    }
+
+    return new ArrayList<>(toUpload);
   }
 
   @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "https://github.com/spotbugs/spotbugs/issues/259")
@@ -206,6 +275,14 @@ public abstract class SingularityUploader {
     return found;
   }
 
+  private boolean isFileOpen(Path path, Optional<Set<Object>> openFiles) {
+    if (openFiles.isPresent()) {
+      return OpenFilesScanner.isOpen(openFiles.get(), path);
+    }
+
+    return isFileOpen(path, configuration.isCheckOpenFilesViaFuser());
+  }
+
   private boolean isFileOpen(Path path, boolean useFuser) {
     try {
       checkFileOpenLock.lock();
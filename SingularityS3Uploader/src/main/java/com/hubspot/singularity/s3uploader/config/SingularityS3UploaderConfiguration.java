@@ -67,6 +67,9 @@ public class SingularityS3UploaderConfiguration extends BaseRunnerConfiguration
   @JsonProperty
   private boolean checkOpenFilesViaFuser = false;
 
+  @JsonProperty
+  private boolean checkOpenFilesViaProc = true;
+
   @NotNull
   @JsonProperty
   private Map<String, SingularityS3Credentials> s3BucketCredentials = new HashMap<>();
@@ -176,6 +179,14 @@ public class SingularityS3UploaderConfiguration extends BaseRunnerConfiguration
     this.checkOpenFilesViaFuser = checkOpenFilesViaFuser;
   }
 
+  public boolean isCheckOpenFilesViaProc() {
+    return checkOpenFilesViaProc;
+  }
+
+  public void setCheckOpenFilesViaProc(boolean checkOpenFilesViaProc) {
+    this.checkOpenFilesViaProc = checkOpenFilesViaProc;
+  }
+
   public Map<String, SingularityS3Credentials> getS3BucketCredentials() {
     return s3BucketCredentials;
   }
@@ -207,6 +218,7 @@ public class SingularityS3UploaderConfiguration extends BaseRunnerConfiguration
         ", retryCount=" + retryCount +
         ", checkForOpenFiles=" + checkForOpenFiles +
         ", checkOpenFilesViaFuser=" + checkOpenFilesViaFuser +
+        ", checkOpenFilesViaProc=" + checkOpenFilesViaProc +
         ", s3BucketCredentials=" + s3BucketCredentials +
         ", s3ContentHeaders=" + s3ContentHeaders +
         "} " + super.toString();
@@ -0,0 +1,168 @@
+package com.hubspot.singularity.s3uploader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.hubspot.singularity.runner.base.shared.S3UploadMetadata;
+import com.hubspot.singularity.s3.base.config.SingularityS3Configuration;
+
+public class LogDirectoryWatcherTest {
+  private Path directory;
+  private LogDirectoryWatcher watcher;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("logs");
+    watcher = new LogDirectoryWatcher(new SingularityS3UploaderMetrics(new MetricRegistry(), new ObjectMapper(), new SingularityS3Configuration()));
+  }
+
+  @AfterEach
+  public void cleanup() throws IOException {
+    watcher.close();
+    if (Files.exists(directory)) {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  @Test
+  public void itReportsCreatedModifiedAndDeletedFiles() throws Exception {
+    SingularityUploader uploader = mockUploader(directory, false);
+    assertThat(watcher.watch(uploader)).isTrue();
+    assertThat(watcher.isWatching(uploader)).isTrue();
+
+    Path file = directory.resolve("service.log");
+    Files.write(file, Collections.singletonList("started"), StandardCharsets.UTF_8);
+    awaitEvents(() -> verify(uploader, atLeast(1)).markChanged(file));
+
+    Files.write(file, Collections.singletonList("still running"), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    awaitEvents(() -> verify(uploader, atLeast(2)).markChanged(file));
+
+    Files.delete(file);
+    awaitEvents(() -> verify(uploader).markRemoved(file));
+
+    verify(uploader, never()).markFullScanNeeded();
+  }
+
+  @Test
+  public void itWatchesNewSubdirectoriesOnlyWhenCheckingThem() throws Exception {
+    Path other = Files.createTempDirectory("other");
+    try {
+      SingularityUploader checksSubdirectories = mockUploader(directory, true);
+      SingularityUploader topLevelOnly = mockUploader(other, false);
+      watcher.watch(checksSubdirectories);
+      watcher.watch(topLevelOnly);
+
+      Path subdirectory = Files.createDirectory(directory.resolve("rotated"));
+      Path otherSubdirectory = Files.createDirectory(other.resolve("rotated"));
+      awaitEvents(() -> {
+        verify(checksSubdirectories).markChanged(subdirectory);
+        verify(topLevelOnly).markChanged(otherSubdirectory);
+      });
+
+      Path nested = Files.createFile(subdirectory.resolve("service.log.1"));
+      Path otherNested = Files.createFile(otherSubdirectory.resolve("service.log.1"));
+      awaitEvents(() -> verify(checksSubdirectories).markChanged(nested));
+
+      verify(topLevelOnly, never()).markChanged(otherNested);
+    } finally {
+      MoreFiles.deleteRecursively(other, RecursiveDeleteOption.ALLOW_INSECURE);
+    }
+  }
+
+  @Test
+  public void itFallsBackToAFullScanWhenEventsAreMissed() throws Exception {
+    SingularityUploader uploader = mockUploader(directory, false);
+    watcher.watch(uploader);
+
+    // far more events than a watch key holds before it overflows
+    for (int i = 0; i < 2000; i++) {
+      Files.createFile(directory.resolve("service.log." + i));
+    }
+
+    awaitEvents(() -> verify(uploader).markFullScanNeeded());
+  }
+
+  @Test
+  public void itFallsBackToAFullScanWhenTheDirectoryGoesAway() throws Exception {
+    SingularityUploader uploader = mockUploader(directory, false);
+    watcher.watch(uploader);
+
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+
+    awaitEvents(() -> verify(uploader).markFullScanNeeded());
+    assertThat(watcher.isWatching(uploader)).isFalse();
+  }
+
+  @Test
+  public void itDoesNotWatchMissingDirectories() {
+    SingularityUploader uploader = mockUploader(directory.resolve("missing"), true);
+
+    assertThat(watcher.watch(uploader)).isFalse();
+    assertThat(watcher.isWatching(uploader)).isFalse();
+  }
+
+  @Test
+  public void itStopsReportingOnceUnwatched() throws Exception {
+    SingularityUploader unwatched = mockUploader(directory, false);
+    SingularityUploader watched = mockUploader(directory, false);
+    watcher.watch(unwatched);
+    watcher.watch(watched);
+
+    watcher.unwatch(unwatched);
+    assertThat(watcher.isWatching(unwatched)).isFalse();
+
+    Path file = Files.createFile(directory.resolve("service.log"));
+    awaitEvents(() -> verify(watched).markChanged(file));
+
+    verify(unwatched, never()).markChanged(file);
+  }
+
+  private void awaitEvents(Runnable assertion) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+
+    while (true) {
+      watcher.processEvents();
+
+      try {
+        assertion.run();
+        return;
+      } catch (AssertionError e) {
+        if (System.currentTimeMillis() > deadline) {
+          throw e;
+        }
+      }
+
+      Thread.sleep(50);
+    }
+  }
+
+  private static SingularityUploader mockUploader(Path directory, boolean checkSubdirectories) {
+    S3UploadMetadata uploadMetadata = mock(S3UploadMetadata.class);
+    when(uploadMetadata.getDirectory()).thenReturn(directory.toString());
+    when(uploadMetadata.isCheckSubdirectories()).thenReturn(checkSubdirectories);
+
+    SingularityUploader uploader = mock(SingularityUploader.class);
+    when(uploader.getUploadMetadata()).thenReturn(uploadMetadata);
+    return uploader;
+  }
+}
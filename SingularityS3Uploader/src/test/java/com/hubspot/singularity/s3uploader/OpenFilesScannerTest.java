@@ -0,0 +1,107 @@
+package com.hubspot.singularity.s3uploader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+
+public class OpenFilesScannerTest {
+  private Path root;
+  private Path proc;
+  private Path logs;
+
+  @BeforeEach
+  public void setup() throws IOException {
+    root = Files.createTempDirectory("open-files");
+    proc = Files.createDirectory(root.resolve("proc"));
+    logs = Files.createDirectory(root.resolve("logs"));
+  }
+
+  @AfterEach
+  public void cleanup() throws IOException {
+    MoreFiles.deleteRecursively(root, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Test
+  public void itFindsFilesThatAreStillOpen() throws Exception {
+    Path open = Files.createFile(logs.resolve("service.log"));
+    Path closed = Files.createFile(logs.resolve("service.log.1"));
+    Path fd = openFd(100, 3, open);
+    // not a pid, so not a process
+    Files.createSymbolicLink(Files.createDirectories(proc.resolve("self").resolve("fd")).resolve("4"), closed);
+
+    Optional<Set<Object>> openFiles = OpenFilesScanner.scan(proc);
+    assertThat(openFiles).isPresent();
+    assertThat(OpenFilesScanner.isOpen(openFiles.get(), open)).isTrue();
+    assertThat(OpenFilesScanner.isOpen(openFiles.get(), closed)).isFalse();
+
+    // a hard link is the same file under another path, like a file seen from inside a container
+    Path linked = Files.createLink(logs.resolve("linked.log"), open);
+    assertThat(OpenFilesScanner.isOpen(openFiles.get(), linked)).isTrue();
+
+    Files.delete(fd);
+    openFiles = OpenFilesScanner.scan(proc);
+    assertThat(openFiles).isPresent();
+    assertThat(OpenFilesScanner.isOpen(openFiles.get(), open)).isFalse();
+  }
+
+  @Test
+  public void itSkipsProcessesAndFdsThatGoAwayDuringTheScan() throws Exception {
+    Path open = Files.createFile(logs.resolve("service.log"));
+    openFd(100, 3, open);
+    // exited: listed, but without an fd directory any more
+    Files.createDirectory(proc.resolve("200"));
+    // closed: the fd points at nothing
+    Files.createSymbolicLink(Files.createDirectories(proc.resolve("300").resolve("fd")).resolve("5"), logs.resolve("deleted.log"));
+
+    Optional<Set<Object>> openFiles = OpenFilesScanner.scan(proc);
+    assertThat(openFiles).isPresent();
+    assertThat(OpenFilesScanner.isOpen(openFiles.get(), open)).isTrue();
+  }
+
+  @Test
+  public void itIsInconclusiveWhenAProcessCannotBeRead() throws Exception {
+    openFd(100, 3, Files.createFile(logs.resolve("service.log")));
+    Files.createDirectory(proc.resolve("200"));
+    Files.createFile(proc.resolve("200").resolve("fd"));
+
+    assertThat(OpenFilesScanner.scan(proc)).isEmpty();
+    assertThat(OpenFilesScanner.scan(root.resolve("missing"))).isEmpty();
+  }
+
+  @Test
+  public void itTreatsFilesItCannotCheckAsOpen() {
+    assertThat(OpenFilesScanner.isOpen(Collections.emptySet(), logs.resolve("missing.log"))).isTrue();
+  }
+
+  @Test
+  public void itFindsFilesOpenInThisProcess() throws Exception {
+    Path file = Files.createFile(logs.resolve("service.log"));
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+      Optional<Set<Object>> openFiles = OpenFilesScanner.scan();
+      // some hosts hide other users' fds, and the uploader falls back to lsof/fuser there
+      assumeTrue(openFiles.isPresent());
+
+      assertThat(OpenFilesScanner.isOpen(openFiles.get(), file)).isTrue();
+    }
+  }
+
+  private Path openFd(int pid, int fd, Path target) throws IOException {
+    return Files.createSymbolicLink(Files.createDirectories(proc.resolve(Integer.toString(pid)).resolve("fd")).resolve(Integer.toString(fd)), target);
+  }
+}
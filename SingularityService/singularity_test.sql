@@ -36,3 +36,24 @@ CREATE TABLE taskHistory (
   purged BOOLEAN NOT NULL DEFAULT false,
   PRIMARY KEY (taskId),
 );
+
+CREATE TABLE taskUsage (
+  requestId VARCHAR(100) NOT NULL,
+  taskId VARCHAR(200) NOT NULL,
+  memoryTotalBytes BIGINT NOT NULL,
+  cpuSeconds DOUBLE NOT NULL,
+  cpusThrottledTimeSecs DOUBLE NOT NULL,
+  diskTotalBytes BIGINT NOT NULL,
+  timestamp BIGINT NOT NULL,
+  cpusNrPeriods BIGINT NOT NULL,
+  cpusNrThrottled BIGINT NOT NULL,
+  PRIMARY KEY (taskId, timestamp),
+);
+
+CREATE TABLE taskUsageBlocks (
+  requestId VARCHAR(100) NOT NULL,
+  taskId VARCHAR(200) NOT NULL,
+  blockStart BIGINT NOT NULL,
+  bytes BLOB NOT NULL,
+  PRIMARY KEY (taskId, blockStart),
+);
@@ -53,16 +53,20 @@ import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.config.SingularityTaskMetadataConfiguration;
 import com.hubspot.singularity.config.UIConfiguration;
 import com.hubspot.singularity.config.ZooKeeperConfiguration;
+import com.hubspot.singularity.data.SingularityWebCacheWatcher;
 import com.hubspot.singularity.guice.DropwizardMetricRegistryProvider;
 import com.hubspot.singularity.helpers.SingularityS3Service;
+import com.hubspot.singularity.helpers.SingularityS3LogFetcher;
 import com.hubspot.singularity.helpers.SingularityS3Services;
 import com.hubspot.singularity.hooks.AbstractWebhookChecker;
 import com.hubspot.singularity.hooks.LoadBalancerClient;
 import com.hubspot.singularity.hooks.LoadBalancerClientImpl;
+import com.hubspot.singularity.hooks.SingularityOutboxWebhookSender;
 import com.hubspot.singularity.hooks.SingularityWebhookPoller;
 import com.hubspot.singularity.hooks.SingularityWebhookSender;
 import com.hubspot.singularity.hooks.SnsWebhookManager;
 import com.hubspot.singularity.hooks.SnsWebhookRetryer;
+import com.hubspot.singularity.hooks.WebhookOutbox;
 import com.hubspot.singularity.hooks.WebhookQueueType;
 import com.hubspot.singularity.managed.SingularityLifecycleManaged;
 import com.hubspot.singularity.mesos.OfferCache;
@@ -83,6 +87,7 @@ import com.hubspot.singularity.smtp.SingularityMailer;
 import com.hubspot.singularity.smtp.SingularitySmtpSender;
 import com.hubspot.singularity.smtp.SmtpMailer;
 import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClientConfig;
 
 import de.neuland.jade4j.JadeConfiguration;
 import de.neuland.jade4j.template.ClasspathTemplateLoader;
@@ -116,6 +121,7 @@ public class SingularityMainModule implements Module {
   public static final String STATUS_UPDATE_DELTA_30S_AVERAGE = "singularity.status.update.delta.minute.average";
   public static final String STATUS_UPDATE_DELTAS = "singularity.status.update.deltas";
   public static final String LAST_MESOS_MASTER_HEARTBEAT_TIME = "singularity.last.mesos.master.heartbeat.time";
+  public static final String LEADER_PROXY_HTTP_CLIENT = "singularity.leader.proxy.http.client";
 
   private final SingularityConfiguration configuration;
 
@@ -135,6 +141,7 @@ public class SingularityMainModule implements Module {
 
     Multibinder<LeaderLatchListener> leaderLatchListeners = Multibinder.newSetBinder(binder, LeaderLatchListener.class);
     leaderLatchListeners.addBinding().to(SingularityLeaderController.class).in(Scopes.SINGLETON);
+    leaderLatchListeners.addBinding().to(SingularityWebCacheWatcher.class).in(Scopes.SINGLETON);
 
     binder.bind(SingularityLeaderController.class).in(Scopes.SINGLETON);
     if (configuration.getSmtpConfigurationOptional().isPresent()) {
@@ -155,11 +162,15 @@ public class SingularityMainModule implements Module {
     if (configuration.getWebhookQueueConfiguration().getQueueType() == WebhookQueueType.SNS) {
       binder.bind(SnsWebhookManager.class).in(Scopes.SINGLETON);
       binder.bind(AbstractWebhookChecker.class).to(SnsWebhookRetryer.class).in(Scopes.SINGLETON);
+    } else if (configuration.getWebhookQueueConfiguration().getQueueType() == WebhookQueueType.OUTBOX) {
+      binder.bind(WebhookOutbox.class).in(Scopes.SINGLETON);
+      binder.bind(AbstractWebhookChecker.class).to(SingularityOutboxWebhookSender.class).in(Scopes.SINGLETON);
     } else {
       binder.bind(AbstractWebhookChecker.class).to(SingularityWebhookSender.class).in(Scopes.SINGLETON);
     }
 
     binder.bind(SingularityUsageHelper.class).in(Scopes.SINGLETON);
+    binder.bind(SingularityS3LogFetcher.class).in(Scopes.SINGLETON);
 
     binder.bind(NotifyingExceptionMapper.class).in(Scopes.SINGLETON);
 
@@ -393,6 +404,18 @@ public class SingularityMainModule implements Module {
     return registry.meter("com.hubspot.singularity.lostTasks");
   }
 
+  @Provides
+  @Singleton
+  @Named(LEADER_PROXY_HTTP_CLIENT)
+  public AsyncHttpClient provideLeaderProxyHttpClient(SingularityConfiguration configuration) {
+    return new SingularityAsyncHttpClient(new AsyncHttpClientConfig.Builder()
+        .setAllowPoolingConnections(true)
+        .setMaxConnections(configuration.getLeaderProxyMaxConnections())
+        .setMaxConnectionsPerHost(configuration.getLeaderProxyMaxConnections())
+        .setRequestTimeout((int) configuration.getLeaderProxyTimeoutMillis())
+        .build());
+  }
+
   @Provides
   @Singleton
   @Named(STATUS_UPDATE_DELTA_30S_AVERAGE)
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -33,6 +35,19 @@ public class SingularityManagedCachedThreadPoolFactory {
     return service;
   }
 
+  /**
+   * Like {@link #get(String)}, but never runs more than maxThreads tasks at once, queueing the rest. Idle threads still
+   * time out, so the pool costs nothing while unused.
+   */
+  public synchronized ExecutorService get(String name, int maxThreads) {
+    checkState(!stopped.get(), "already stopped");
+    ThreadPoolExecutor service = new ThreadPoolExecutor(maxThreads, maxThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder().setNameFormat(name + "-%d").build());
+    service.allowCoreThreadTimeOut(true);
+    executorPools.add(service);
+    return service;
+  }
+
   public void stop() throws Exception {
     if (!stopped.getAndSet(true)) {
       if (timeoutInMillis == 0) {
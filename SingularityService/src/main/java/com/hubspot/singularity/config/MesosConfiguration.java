@@ -6,6 +6,7 @@ import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.hubspot.singularity.MachineLoadMetric;
+import com.hubspot.singularity.OfferScoringStrategy;
 
 @JsonIgnoreProperties( ignoreUnknown = true )
 public class MesosConfiguration {
@@ -55,7 +56,9 @@ public class MesosConfiguration {
   private long rxEventBufferSize = 10000;
   private int statusUpdateConcurrencyLimit = 500;
   private int maxStatusUpdateQueueSize = 5000;
+  private int statusUpdateLanes = 0;
   private int offersConcurrencyLimit = 100;
+  private OfferScoringStrategy offerScoringStrategy = OfferScoringStrategy.CONCURRENT;
   private MachineLoadMetric scoreUsingSystemLoad = MachineLoadMetric.LOAD_5;
   private double allocatedResourceWeight = 0.5;
   private double inUseResourceWeight = 0.5;
@@ -274,6 +277,14 @@ public class MesosConfiguration {
     this.maxStatusUpdateQueueSize = maxStatusUpdateQueueSize;
   }
 
+  public int getStatusUpdateLanes() {
+    return statusUpdateLanes;
+  }
+
+  public void setStatusUpdateLanes(int statusUpdateLanes) {
+    this.statusUpdateLanes = statusUpdateLanes;
+  }
+
   public int getOffersConcurrencyLimit() {
     return offersConcurrencyLimit;
   }
@@ -282,6 +293,14 @@ public class MesosConfiguration {
     this.offersConcurrencyLimit = offersConcurrencyLimit;
   }
 
+  public OfferScoringStrategy getOfferScoringStrategy() {
+    return offerScoringStrategy;
+  }
+
+  public void setOfferScoringStrategy(OfferScoringStrategy offerScoringStrategy) {
+    this.offerScoringStrategy = offerScoringStrategy;
+  }
+
   public MachineLoadMetric getScoreUsingSystemLoad() {
     return scoreUsingSystemLoad;
   }
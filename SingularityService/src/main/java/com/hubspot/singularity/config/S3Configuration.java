@@ -13,8 +13,9 @@ import com.hubspot.singularity.SingularityS3UploaderFile;
 
 public class S3Configuration {
 
+  // Shared by all s3 log list calls
   @NotNull
-  private int maxS3Threads = 3;
+  private int maxS3Threads = 10;
 
   @NotNull
   private int waitForS3ListSeconds = 5;
@@ -22,6 +23,9 @@ public class S3Configuration {
   @NotNull
   private int waitForS3LinksSeconds = 1;
 
+  @NotNull
+  private int s3LogMetadataCacheSize = 10000;
+
   @NotNull
   private long missingTaskDefaultS3SearchPeriodMillis = TimeUnit.DAYS.toMillis(3);
 
@@ -85,6 +89,14 @@ public class S3Configuration {
     return waitForS3LinksSeconds;
   }
 
+  public int getS3LogMetadataCacheSize() {
+    return s3LogMetadataCacheSize;
+  }
+
+  public void setS3LogMetadataCacheSize(int s3LogMetadataCacheSize) {
+    this.s3LogMetadataCacheSize = s3LogMetadataCacheSize;
+  }
+
   public long getMissingTaskDefaultS3SearchPeriodMillis() {
     return missingTaskDefaultS3SearchPeriodMillis;
   }
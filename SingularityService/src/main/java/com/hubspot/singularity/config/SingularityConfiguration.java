@@ -42,6 +42,16 @@ public class SingularityConfiguration extends Configuration {
 
   private long cacheForWebForMillis = TimeUnit.SECONDS.toMillis(30);
 
+  private long checkStateConsistencyEveryMillis = TimeUnit.MINUTES.toMillis(5);
+
+  private boolean watchZkForWebCache = false;
+
+  private int leaderProxyMaxConnections = 20;
+
+  private long leaderProxyTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+  private boolean deferLeaderCacheHistoryAndUsageLoad = false;
+
   private int cacheTasksMaxSize = 5000;
 
   private int cacheTasksInitialSize = 100;
@@ -85,6 +95,8 @@ public class SingularityConfiguration extends Configuration {
 
   private int maxConcurrentUsageCollections = 15;
 
+  private long slaveUsageCollectionTimeoutMillis = TimeUnit.SECONDS.toMillis(15);
+
   private boolean shuffleTasksForOverloadedSlaves = false; // recommended 'true' when oversubscribing resources for larger clusters
 
   private double shuffleTasksWhenSlaveMemoryUtilizationPercentageExceeds = 0.82;
@@ -101,6 +113,10 @@ public class SingularityConfiguration extends Configuration {
 
   private int numUsageToKeep = 15;
 
+  private long checkpointTaskUsageEveryMillis = 0;
+
+  private int keepHourlyTaskUsageForDays = 0;
+
   private long cleanupEverySeconds = 5;
 
   private long checkQueuedMailsEveryMillis = TimeUnit.SECONDS.toMillis(15);
@@ -117,6 +133,8 @@ public class SingularityConfiguration extends Configuration {
 
   private boolean compressLargeDataObjects = true;
 
+  private boolean binaryZkDataFormat = false;
+
   private long considerTaskHealthyAfterRunningForSeconds = 5;
 
   private int fastFailureCooldownCount = 3;
@@ -232,6 +250,8 @@ public class SingularityConfiguration extends Configuration {
 
   private int logFetchMaxThreads = 15;
 
+  private int requestDataMaxThreads = 20;
+
   private int maxDeployIdSize = 50;
 
   private int maxHealthcheckResponseBodyBytes = 8192;
@@ -268,6 +288,10 @@ public class SingularityConfiguration extends Configuration {
 
   private long persistHistoryEverySeconds = TimeUnit.MINUTES.toSeconds(2);
 
+  private int taskHistoryPersisterBatchSize = 100;
+
+  private int taskHistoryPersisterParallelism = 4;
+
   private int maxPendingImmediatePersists = 200;
 
   private long reconcileSlavesEveryMinutes = TimeUnit.HOURS.toMinutes(1);
@@ -498,6 +522,46 @@ public class SingularityConfiguration extends Configuration {
     this.cacheForWebForMillis = cacheForWebForMillis;
   }
 
+  public long getCheckStateConsistencyEveryMillis() {
+    return checkStateConsistencyEveryMillis;
+  }
+
+  public void setCheckStateConsistencyEveryMillis(long checkStateConsistencyEveryMillis) {
+    this.checkStateConsistencyEveryMillis = checkStateConsistencyEveryMillis;
+  }
+
+  public boolean isWatchZkForWebCache() {
+    return watchZkForWebCache;
+  }
+
+  public void setWatchZkForWebCache(boolean watchZkForWebCache) {
+    this.watchZkForWebCache = watchZkForWebCache;
+  }
+
+  public int getLeaderProxyMaxConnections() {
+    return leaderProxyMaxConnections;
+  }
+
+  public void setLeaderProxyMaxConnections(int leaderProxyMaxConnections) {
+    this.leaderProxyMaxConnections = leaderProxyMaxConnections;
+  }
+
+  public long getLeaderProxyTimeoutMillis() {
+    return leaderProxyTimeoutMillis;
+  }
+
+  public void setLeaderProxyTimeoutMillis(long leaderProxyTimeoutMillis) {
+    this.leaderProxyTimeoutMillis = leaderProxyTimeoutMillis;
+  }
+
+  public boolean isDeferLeaderCacheHistoryAndUsageLoad() {
+    return deferLeaderCacheHistoryAndUsageLoad;
+  }
+
+  public void setDeferLeaderCacheHistoryAndUsageLoad(boolean deferLeaderCacheHistoryAndUsageLoad) {
+    this.deferLeaderCacheHistoryAndUsageLoad = deferLeaderCacheHistoryAndUsageLoad;
+  }
+
   public void setPendingDeployHoldTaskDuringDecommissionMillis(long pendingDeployHoldTaskDuringDecommissionMillis) {
     this.pendingDeployHoldTaskDuringDecommissionMillis = pendingDeployHoldTaskDuringDecommissionMillis;
   }
@@ -794,6 +858,14 @@ public class SingularityConfiguration extends Configuration {
     return logFetchMaxThreads;
   }
 
+  public int getRequestDataMaxThreads() {
+    return requestDataMaxThreads;
+  }
+
+  public void setRequestDataMaxThreads(int requestDataMaxThreads) {
+    this.requestDataMaxThreads = requestDataMaxThreads;
+  }
+
   public int getMaxDeployIdSize() {
     return maxDeployIdSize;
   }
@@ -937,6 +1009,10 @@ public class SingularityConfiguration extends Configuration {
     return compressLargeDataObjects;
   }
 
+  public boolean isBinaryZkDataFormat() {
+    return binaryZkDataFormat;
+  }
+
   public boolean isCreateDeployIds() {
     return createDeployIds;
   }
@@ -1022,6 +1098,10 @@ public class SingularityConfiguration extends Configuration {
     this.compressLargeDataObjects = compressLargeDataObjects;
   }
 
+  public void setBinaryZkDataFormat(boolean binaryZkDataFormat) {
+    this.binaryZkDataFormat = binaryZkDataFormat;
+  }
+
   public void setConsiderTaskHealthyAfterRunningForSeconds(long considerTaskHealthyAfterRunningForSeconds) {
     this.considerTaskHealthyAfterRunningForSeconds = considerTaskHealthyAfterRunningForSeconds;
   }
@@ -1204,6 +1284,22 @@ public class SingularityConfiguration extends Configuration {
     this.persistHistoryEverySeconds = persistHistoryEverySeconds;
   }
 
+  public int getTaskHistoryPersisterBatchSize() {
+    return taskHistoryPersisterBatchSize;
+  }
+
+  public void setTaskHistoryPersisterBatchSize(int taskHistoryPersisterBatchSize) {
+    this.taskHistoryPersisterBatchSize = taskHistoryPersisterBatchSize;
+  }
+
+  public int getTaskHistoryPersisterParallelism() {
+    return taskHistoryPersisterParallelism;
+  }
+
+  public void setTaskHistoryPersisterParallelism(int taskHistoryPersisterParallelism) {
+    this.taskHistoryPersisterParallelism = taskHistoryPersisterParallelism;
+  }
+
   public int getMaxPendingImmediatePersists() {
     return maxPendingImmediatePersists;
   }
@@ -1539,6 +1635,14 @@ public class SingularityConfiguration extends Configuration {
     this.maxConcurrentUsageCollections = maxConcurrentUsageCollections;
   }
 
+  public long getSlaveUsageCollectionTimeoutMillis() {
+    return slaveUsageCollectionTimeoutMillis;
+  }
+
+  public void setSlaveUsageCollectionTimeoutMillis(long slaveUsageCollectionTimeoutMillis) {
+    this.slaveUsageCollectionTimeoutMillis = slaveUsageCollectionTimeoutMillis;
+  }
+
   public int getMaxTasksToShufflePerHost() {
     return maxTasksToShufflePerHost;
   }
@@ -1603,6 +1707,22 @@ public class SingularityConfiguration extends Configuration {
     this.numUsageToKeep = numUsageToKeep;
   }
 
+  public long getCheckpointTaskUsageEveryMillis() {
+    return checkpointTaskUsageEveryMillis;
+  }
+
+  public void setCheckpointTaskUsageEveryMillis(long checkpointTaskUsageEveryMillis) {
+    this.checkpointTaskUsageEveryMillis = checkpointTaskUsageEveryMillis;
+  }
+
+  public int getKeepHourlyTaskUsageForDays() {
+    return keepHourlyTaskUsageForDays;
+  }
+
+  public void setKeepHourlyTaskUsageForDays(int keepHourlyTaskUsageForDays) {
+    this.keepHourlyTaskUsageForDays = keepHourlyTaskUsageForDays;
+  }
+
   public long getCacheOffersForMillis() {
     return cacheOffersForMillis;
   }
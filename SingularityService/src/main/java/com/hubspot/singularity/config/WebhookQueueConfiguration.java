@@ -39,6 +39,14 @@ public class WebhookQueueConfiguration {
   // Protection for zookeeper so large list children calls will not take it down
   private int maxZkQueuedWebhooksPerParentNode = 3000;
 
+  // Settings for the OUTBOX queue type, which keeps queued updates in a local segmented log. Only
+  // supported when a single scheduler instance runs, which is checked at startup
+  private String outboxDirectory = "/var/lib/singularity/webhook-outbox";
+
+  private long outboxSegmentSizeBytes = 64L * 1024 * 1024;
+
+  private int outboxBatchSize = 100;
+
   public WebhookQueueType getQueueType() {
     return queueType;
   }
@@ -118,4 +126,28 @@ public class WebhookQueueConfiguration {
   public void setMaxZkQueuedWebhooksPerParentNode(int maxZkQueuedWebhooksPerParentNode) {
     this.maxZkQueuedWebhooksPerParentNode = maxZkQueuedWebhooksPerParentNode;
   }
+
+  public String getOutboxDirectory() {
+    return outboxDirectory;
+  }
+
+  public void setOutboxDirectory(String outboxDirectory) {
+    this.outboxDirectory = outboxDirectory;
+  }
+
+  public long getOutboxSegmentSizeBytes() {
+    return outboxSegmentSizeBytes;
+  }
+
+  public void setOutboxSegmentSizeBytes(long outboxSegmentSizeBytes) {
+    this.outboxSegmentSizeBytes = outboxSegmentSizeBytes;
+  }
+
+  public int getOutboxBatchSize() {
+    return outboxBatchSize;
+  }
+
+  public void setOutboxBatchSize(int outboxBatchSize) {
+    this.outboxBatchSize = outboxBatchSize;
+  }
 }
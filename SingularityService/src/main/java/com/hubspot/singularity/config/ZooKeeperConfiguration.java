@@ -17,6 +17,14 @@ public class ZooKeeperConfiguration {
   @NotNull
   private String zkNamespace;
 
+  private boolean batchTaskWrites = false;
+
+  private int batchWriteMaxOperations = 200;
+
+  private int batchWriteMaxBytes = 512 * 1024;
+
+  private long batchWriteMaxDelayMillis = 5;
+
   public String getQuorum() {
     return quorum;
   }
@@ -65,4 +73,36 @@ public class ZooKeeperConfiguration {
     this.zkNamespace = zkNamespace;
   }
 
+  public boolean isBatchTaskWrites() {
+    return batchTaskWrites;
+  }
+
+  public void setBatchTaskWrites(boolean batchTaskWrites) {
+    this.batchTaskWrites = batchTaskWrites;
+  }
+
+  public int getBatchWriteMaxOperations() {
+    return batchWriteMaxOperations;
+  }
+
+  public void setBatchWriteMaxOperations(int batchWriteMaxOperations) {
+    this.batchWriteMaxOperations = batchWriteMaxOperations;
+  }
+
+  public int getBatchWriteMaxBytes() {
+    return batchWriteMaxBytes;
+  }
+
+  public void setBatchWriteMaxBytes(int batchWriteMaxBytes) {
+    this.batchWriteMaxBytes = batchWriteMaxBytes;
+  }
+
+  public long getBatchWriteMaxDelayMillis() {
+    return batchWriteMaxDelayMillis;
+  }
+
+  public void setBatchWriteMaxDelayMillis(long batchWriteMaxDelayMillis) {
+    this.batchWriteMaxDelayMillis = batchWriteMaxDelayMillis;
+  }
+
 }
@@ -12,6 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.BackgroundCallback;
@@ -305,6 +306,16 @@ public abstract class CuratorAsyncManager extends CuratorManager {
   }
 
   protected <T, Q> Map<T, List<Q>> getAsyncNestedChildDataAsMapThrows(final String pathNameForLogs, final Map<String, T> parentPathsMap, final String subpath, final Transcoder<Q> transcoder) throws Exception {
+    final ConcurrentHashMap<T, List<Q>> resultsMap = new ConcurrentHashMap<>();
+    getAsyncNestedChildDataThrows(pathNameForLogs, parentPathsMap, subpath, transcoder, (parent, object) -> resultsMap.computeIfAbsent(parent, (p) -> new ArrayList<>()).add(object));
+    return resultsMap;
+  }
+
+  /**
+   * Hands each decoded child to the consumer as it arrives instead of collecting them. The consumer is called from curator's
+   * event thread and returns once all children have been read.
+   */
+  protected <T, Q> void getAsyncNestedChildDataThrows(final String pathNameForLogs, final Map<String, T> parentPathsMap, final String subpath, final Transcoder<Q> transcoder, final BiConsumer<T, Q> consumer) throws Exception {
     final Map<String, T> allPathsMap = Maps.newHashMap();
     for (Map.Entry<String, T> entry : parentPathsMap.entrySet()) {
       for (String child : getChildren(ZKPaths.makePath(entry.getKey(), subpath))) {
@@ -312,7 +323,6 @@ public abstract class CuratorAsyncManager extends CuratorManager {
       }
     }
 
-    final ConcurrentHashMap<T, List<Q>> resultsMap = new ConcurrentHashMap<>();
     final CountDownLatch latch = new CountDownLatch(allPathsMap.size());
     final AtomicInteger bytes = new AtomicInteger();
     final BackgroundCallback callback = new BackgroundCallback() {
@@ -329,8 +339,7 @@ public abstract class CuratorAsyncManager extends CuratorManager {
           final Q object = transcoder.fromBytes(event.getData());
 
           if (allPathsMap.get(event.getPath()) != null) {
-            resultsMap.putIfAbsent(allPathsMap.get(event.getPath()), new ArrayList<Q>());
-            resultsMap.get(allPathsMap.get(event.getPath())).add(object);
+            consumer.accept(allPathsMap.get(event.getPath()), object);
           }
         } finally {
           latch.countDown();
@@ -338,7 +347,15 @@ public abstract class CuratorAsyncManager extends CuratorManager {
       }
     };
 
-    return queryAndReturnResultsThrows(resultsMap, allPathsMap.keySet(), callback, latch, pathNameForLogs, bytes, CuratorQueryMethod.GET_DATA);
+    queryAndReturnResultsThrows(null, allPathsMap.keySet(), callback, latch, pathNameForLogs, bytes, CuratorQueryMethod.GET_DATA);
+  }
+
+  protected <T, Q> void getAsyncNestedChildData(final String pathNameForLogs, final Map<String, T> parentPathsMap, final String subpath, final Transcoder<Q> transcoder, final BiConsumer<T, Q> consumer) {
+    try {
+      getAsyncNestedChildDataThrows(pathNameForLogs, parentPathsMap, subpath, transcoder, consumer);
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
   }
 
   protected <T, Q> Map<T, List<Q>> getAsyncNestedChildDataAsMap(final String pathNameForLogs, final Map<String, T> parentPathsMap, final String subpath, final Transcoder<Q> transcoder) {
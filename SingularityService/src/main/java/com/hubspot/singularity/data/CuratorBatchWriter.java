@@ -0,0 +1,240 @@
+package com.hubspot.singularity.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorOp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.SingularityManagedScheduledExecutorServiceFactory;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.config.ZooKeeperConfiguration;
+
+/**
+ * Coalesces independent groups of zk writes from many callers into multi-op transactions. Each group is applied
+ * atomically and in submission order, so writes to the same path keep their ordering. A batch is flushed once it
+ * reaches the configured number of operations or bytes, or once its oldest group has waited batchWriteMaxDelayMillis.
+ *
+ * Multi-ops do not create parents, so callers should fall back to their regular write path when a group fails.
+ */
+@Singleton
+public class CuratorBatchWriter extends CuratorManager {
+  private static final Logger LOG = LoggerFactory.getLogger(CuratorBatchWriter.class);
+
+  private final ZooKeeperConfiguration zooKeeperConfiguration;
+  private final ScheduledExecutorService flushExecutor;
+
+  private final ConcurrentLinkedQueue<PendingGroup> pendingGroups = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingOperations = new AtomicInteger();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+  @Inject
+  public CuratorBatchWriter(CuratorFramework curator,
+                            SingularityConfiguration configuration,
+                            MetricRegistry metricRegistry,
+                            SingularityManagedScheduledExecutorServiceFactory executorServiceFactory) {
+    super(curator, configuration, metricRegistry);
+    this.zooKeeperConfiguration = configuration.getZooKeeperConfiguration();
+    this.flushExecutor = executorServiceFactory.get("zk-batch-writer", 1);
+  }
+
+  public boolean isEnabled() {
+    return zooKeeperConfiguration.isBatchTaskWrites();
+  }
+
+  /**
+   * Blocks until the batch containing these operations has been written.
+   *
+   * @return true if the operations were written atomically, false if the group failed and nothing was written
+   */
+  public boolean write(List<BatchOperation> operations) {
+    CompletableFuture<Void> result = submit(operations);
+    try {
+      result.get();
+      return true;
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException ee) {
+      LOG.debug("Batched write of {} failed ({})", operations, ee.getCause().getMessage());
+      return false;
+    }
+  }
+
+  public CompletableFuture<Void> submit(List<BatchOperation> operations) {
+    PendingGroup group = new PendingGroup(operations);
+    pendingGroups.add(group);
+
+    if (pendingOperations.addAndGet(operations.size()) >= zooKeeperConfiguration.getBatchWriteMaxOperations()) {
+      scheduleFlush(0);
+    } else {
+      scheduleFlush(zooKeeperConfiguration.getBatchWriteMaxDelayMillis());
+    }
+
+    return group.result;
+  }
+
+  private void scheduleFlush(long delayMillis) {
+    if (delayMillis > 0 && !flushScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    if (delayMillis == 0) {
+      flushScheduled.set(true);
+    }
+
+    try {
+      flushExecutor.schedule(this::flush, delayMillis, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException ree) {
+      // Shutting down, write whatever is left from the calling thread
+      flush();
+    }
+  }
+
+  private synchronized void flush() {
+    flushScheduled.set(false);
+
+    while (!pendingGroups.isEmpty()) {
+      List<PendingGroup> batch = new ArrayList<>();
+      int operations = 0;
+      int bytes = 0;
+
+      PendingGroup next;
+      while ((next = pendingGroups.peek()) != null) {
+        if (!batch.isEmpty()
+            && (operations + next.operations.size() > zooKeeperConfiguration.getBatchWriteMaxOperations()
+            || bytes + next.bytes > zooKeeperConfiguration.getBatchWriteMaxBytes())) {
+          break;
+        }
+        pendingGroups.poll();
+        batch.add(next);
+        operations += next.operations.size();
+        bytes += next.bytes;
+      }
+
+      pendingOperations.addAndGet(-operations);
+      writeBatch(batch, operations, bytes);
+    }
+  }
+
+  private void writeBatch(List<PendingGroup> batch, int operations, int bytes) {
+    final long start = System.currentTimeMillis();
+
+    try {
+      List<CuratorOp> curatorOps = new ArrayList<>(operations);
+      for (PendingGroup group : batch) {
+        curatorOps.addAll(group.toCuratorOps());
+      }
+      curator.transaction().forOperations(curatorOps);
+      batch.forEach((group) -> group.result.complete(null));
+      return;
+    } catch (Throwable t) {
+      if (batch.size() == 1) {
+        batch.get(0).result.completeExceptionally(t);
+        return;
+      }
+      LOG.debug("Batch of {} groups failed ({}), retrying each group on its own", batch.size(), t.getMessage());
+    } finally {
+      log(OperationType.WRITE_BATCH, Optional.of(operations), Optional.of(bytes), start, String.format("batch of %s groups", batch.size()));
+    }
+
+    // One failed group fails the whole multi-op, so isolate it and let the rest through in their original order
+    for (PendingGroup group : batch) {
+      final long groupStart = System.currentTimeMillis();
+      try {
+        curator.transaction().forOperations(group.toCuratorOps());
+        group.result.complete(null);
+      } catch (Throwable t) {
+        group.result.completeExceptionally(t);
+      } finally {
+        log(OperationType.WRITE_BATCH, Optional.of(group.operations.size()), Optional.of(group.bytes), groupStart, "batch of 1 group");
+      }
+    }
+  }
+
+  private class PendingGroup {
+    private final List<BatchOperation> operations;
+    private final int bytes;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    PendingGroup(List<BatchOperation> operations) {
+      this.operations = operations;
+      this.bytes = operations.stream().mapToInt((operation) -> operation.data.length).sum();
+    }
+
+    List<CuratorOp> toCuratorOps() throws Exception {
+      List<CuratorOp> curatorOps = new ArrayList<>(operations.size());
+      for (BatchOperation operation : operations) {
+        switch (operation.type) {
+          case CREATE:
+            curatorOps.add(curator.transactionOp().create().forPath(operation.path, operation.data));
+            break;
+          case SET:
+            curatorOps.add(curator.transactionOp().setData().forPath(operation.path, operation.data));
+            break;
+          case DELETE:
+            curatorOps.add(curator.transactionOp().delete().forPath(operation.path));
+            break;
+          default:
+            throw new IllegalStateException(String.format("Unknown batch operation type %s", operation.type));
+        }
+      }
+      return curatorOps;
+    }
+  }
+
+  public enum BatchOperationType {
+    CREATE, SET, DELETE;
+  }
+
+  public static class BatchOperation {
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private final BatchOperationType type;
+    private final String path;
+    private final byte[] data;
+
+    private BatchOperation(BatchOperationType type, String path, byte[] data) {
+      this.type = type;
+      this.path = path;
+      this.data = data;
+    }
+
+    public static BatchOperation create(String path) {
+      return new BatchOperation(BatchOperationType.CREATE, path, EMPTY_BYTES);
+    }
+
+    public static BatchOperation create(String path, byte[] data) {
+      return new BatchOperation(BatchOperationType.CREATE, path, data);
+    }
+
+    public static BatchOperation set(String path, byte[] data) {
+      return new BatchOperation(BatchOperationType.SET, path, data);
+    }
+
+    public static BatchOperation delete(String path) {
+      return new BatchOperation(BatchOperationType.DELETE, path, EMPTY_BYTES);
+    }
+
+    @Override
+    public String toString() {
+      return "BatchOperation{" +
+          "type=" + type +
+          ", path='" + path + '\'' +
+          '}';
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.api.GetDataBuilder;
@@ -31,6 +32,7 @@ public abstract class CuratorManager {
 
   private static final Logger LOG = LoggerFactory.getLogger(CuratorManager.class);
   private static final byte[] EMPTY_BYTES = new byte[0];
+  private static final ThreadLocal<AtomicLong> BYTES_READ = new ThreadLocal<>();
 
   protected final SingularityConfiguration configuration;
   protected final CuratorFramework curator;
@@ -47,11 +49,22 @@ public abstract class CuratorManager {
         .put(OperationType.CHECK_EXISTS, new Metrics(metricRegistry, OperationType.CHECK_EXISTS))
         .put(OperationType.GET_CHILDREN, new Metrics(metricRegistry, OperationType.GET_CHILDREN))
         .put(OperationType.DELETE, new Metrics(metricRegistry, OperationType.DELETE))
-        .put(OperationType.WRITE, new Metrics(metricRegistry, OperationType.WRITE)).build();
+        .put(OperationType.WRITE, new Metrics(metricRegistry, OperationType.WRITE))
+        .put(OperationType.WRITE_BATCH, new Metrics(metricRegistry, OperationType.WRITE_BATCH)).build();
   }
 
   public enum OperationType {
-    GET_MULTI, GET, CHECK_EXISTS, GET_CHILDREN, DELETE, WRITE;
+    GET_MULTI(true), GET(true), CHECK_EXISTS(true), GET_CHILDREN(true), DELETE(false), WRITE(false), WRITE_BATCH(false);
+
+    private final boolean read;
+
+    OperationType(boolean read) {
+      this.read = read;
+    }
+
+    public boolean isRead() {
+      return read;
+    }
   }
 
   private static class Metrics {
@@ -67,6 +80,21 @@ public abstract class CuratorManager {
     }
   }
 
+  /**
+   * Runs the action and returns the number of bytes it read from zk. Only reads made on the calling thread are counted.
+   */
+  public static long countBytesRead(Runnable action) {
+    AtomicLong previous = BYTES_READ.get();
+    AtomicLong counter = new AtomicLong();
+    BYTES_READ.set(counter);
+    try {
+      action.run();
+      return counter.get();
+    } finally {
+      BYTES_READ.set(previous);
+    }
+  }
+
   protected void log(OperationType type, Optional<Integer> numItems, Optional<Integer> bytes, long start, String path) {
     final String message = String.format("%s (items: %s) (bytes: %s) in %s (%s)", type.name(), numItems.orElse(1), bytes.orElse(0), JavaUtils.duration(start), path);
 
@@ -83,6 +111,11 @@ public abstract class CuratorManager {
 
     if (bytes.isPresent()) {
       metrics.bytesMeter.mark(bytes.get());
+
+      AtomicLong bytesRead = BYTES_READ.get();
+      if (bytesRead != null && type.isRead()) {
+        bytesRead.addAndGet(bytes.get());
+      }
     }
 
     metrics.itemsMeter.mark(numItems.orElse(1));
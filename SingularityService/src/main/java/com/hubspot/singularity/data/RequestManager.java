@@ -62,7 +62,7 @@ public class RequestManager extends CuratorAsyncManager {
 
   private static final String REQUEST_ROOT = "/requests";
 
-  private static final String NORMAL_PATH_ROOT = REQUEST_ROOT + "/all";
+  static final String NORMAL_PATH_ROOT = REQUEST_ROOT + "/all";
   private static final String PENDING_PATH_ROOT = REQUEST_ROOT + "/pending";
   private static final String CLEANUP_PATH_ROOT = REQUEST_ROOT + "/cleanup";
   private static final String HISTORY_PATH_ROOT = REQUEST_ROOT + "/history";
@@ -169,11 +169,20 @@ public class RequestManager extends CuratorAsyncManager {
   }
 
   public SingularityDeleteResult deleteHistoryParent(String requestId) {
-    return delete(getHistoryParentPath(requestId));
+    // Only invalidated once the nodes are gone, a load reading zk before that could otherwise cache them again
+    SingularityDeleteResult result = delete(getHistoryParentPath(requestId));
+    if (leaderCache.active()) {
+      leaderCache.deleteRequestHistories(requestId);
+    }
+    return result;
   }
 
   public SingularityDeleteResult deleteHistoryItem(SingularityRequestHistory history) {
-    return delete(getHistoryPath(history));
+    SingularityDeleteResult result = delete(getHistoryPath(history));
+    if (leaderCache.active()) {
+      leaderCache.deleteRequestHistory(history);
+    }
+    return result;
   }
 
   public boolean cleanupRequestExists(String requestId) {
@@ -213,6 +222,18 @@ public class RequestManager extends CuratorAsyncManager {
     return getAsyncChildren(getHistoryParentPath(requestId), requestHistoryTranscoder);
   }
 
+  public Optional<SingularityRequestHistory> getMostRecentRequestHistory(String requestId) {
+    if (leaderCache.active()) {
+      return leaderCache.getMostRecentRequestHistory(requestId, this::fetchMostRecentRequestHistory);
+    }
+    return fetchMostRecentRequestHistory(requestId);
+  }
+
+  private Optional<SingularityRequestHistory> fetchMostRecentRequestHistory(String requestId) {
+    // Most recent history is stored in zk, don't need to check the database. Histories sort newest first
+    return getRequestHistory(requestId).stream().sorted().findFirst();
+  }
+
   public SingularityCreateResult createCleanupRequest(SingularityRequestCleanup cleanupRequest) {
     return create(getCleanupPath(cleanupRequest.getRequestId(), cleanupRequest.getCleanupType()), cleanupRequest, requestCleanupTranscoder);
   }
@@ -270,7 +291,11 @@ public class RequestManager extends CuratorAsyncManager {
   private SingularityCreateResult saveHistoryToZk(SingularityRequestHistory history) {
     final String path = getHistoryPath(history);
     singularityEventListener.requestHistoryEvent(history);
-    return save(path, history, requestHistoryTranscoder);
+    SingularityCreateResult result = save(path, history, requestHistoryTranscoder);
+    if (leaderCache.active()) {
+      leaderCache.putRequestHistory(history);
+    }
+    return result;
   }
 
   public SingularityCreateResult unpause(SingularityRequest request, long timestamp, Optional<String> user, Optional<String> message) {
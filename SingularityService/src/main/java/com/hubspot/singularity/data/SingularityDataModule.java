@@ -42,7 +42,9 @@ public class SingularityDataModule extends AbstractModule {
     bind(NotificationsManager.class).in(Scopes.SINGLETON);
 
     bind(SingularityWebCache.class).in(Scopes.SINGLETON);
+    bind(SingularityWebCacheWatcher.class).in(Scopes.SINGLETON);
 
+    bind(CuratorBatchWriter.class).in(Scopes.SINGLETON);
     bind(ExecutorIdGenerator.class).asEagerSingleton();
     bind(WebhookManager.class).in(Scopes.SINGLETON);
     bind(DisasterManager.class).in(Scopes.SINGLETON);
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
@@ -41,6 +42,10 @@ public class SingularityWebCache {
   private volatile Map<String, RequestUtilization> cachedRequestUtilizations;
   private volatile long lastRequestUtilizationCache;
 
+  private final WatchedCollection<SingularityPendingTaskId, SingularityPendingTask> watchedPendingTasks = new WatchedCollection<>();
+  private final WatchedCollection<SingularityTaskId, SingularityTask> watchedActiveTasks = new WatchedCollection<>();
+  private final WatchedCollection<String, SingularityRequestWithState> watchedRequests = new WatchedCollection<>();
+
   private final long cacheForMillis;
 
   private final Meter cleanupHitMeter;
@@ -85,7 +90,7 @@ public class SingularityWebCache {
   }
 
   public boolean useCachedPendingTasks() {
-    return useCache(lastPendingTaskCache);
+    return watchedPendingTasks.isLive() || useCache(lastPendingTaskCache);
   }
 
   public boolean useCachedCleanupTasks() {
@@ -93,11 +98,11 @@ public class SingularityWebCache {
   }
 
   public boolean useCachedActiveTasks() {
-    return useCache(lastActiveTaskCache);
+    return watchedActiveTasks.isLive() || useCache(lastActiveTaskCache);
   }
 
   public boolean useCachedRequests() {
-    return useCache(lastRequestsCache);
+    return watchedRequests.isLive() || useCache(lastRequestsCache);
   }
 
   public boolean useCachedRequestGroups() {
@@ -114,12 +119,12 @@ public class SingularityWebCache {
 
   public List<SingularityPendingTask> getPendingTasks() {
     pendingHitMeter.mark();
-    return new ArrayList<>(cachedPendingTasks.values());
+    return new ArrayList<>(pendingTasks().values());
   }
 
   public List<SingularityPendingTaskId> getPendingTaskIds() {
     pendingHitMeter.mark();
-    return new ArrayList<>(cachedPendingTasks.keySet());
+    return new ArrayList<>(pendingTasks().keySet());
   }
 
   public List<SingularityTaskCleanup> getCleanupTasks() {
@@ -129,17 +134,17 @@ public class SingularityWebCache {
 
   public List<SingularityTaskId> getActiveTaskIds() {
     activeHitMeter.mark();
-    return new ArrayList<>(cachedActiveTasks.keySet());
+    return new ArrayList<>(activeTasks().keySet());
   }
 
   public List<SingularityTask> getActiveTasks() {
     activeHitMeter.mark();
-    return new ArrayList<>(cachedActiveTasks.values());
+    return new ArrayList<>(activeTasks().values());
   }
 
   public List<SingularityRequestWithState> getRequests() {
     requestsHitMeter.mark();
-    return new ArrayList<>(cachedRequests.values());
+    return new ArrayList<>(requests().values());
   }
 
   public Map<String, RequestUtilization> getRequestUtilizations() {
@@ -148,7 +153,7 @@ public class SingularityWebCache {
   }
 
   public Optional<SingularityRequestWithState> getRequest(String requestId) {
-    return Optional.ofNullable(cachedRequests.get(requestId));
+    return Optional.ofNullable(requests().get(requestId));
   }
 
   public List<SingularityRequestGroup> getRequestGroups() {
@@ -204,4 +209,63 @@ public class SingularityWebCache {
     lastRequestUtilizationCache = System.currentTimeMillis();
   }
 
+  private Map<SingularityPendingTaskId, SingularityPendingTask> pendingTasks() {
+    return watchedPendingTasks.isLive() ? watchedPendingTasks.getItems() : cachedPendingTasks;
+  }
+
+  private Map<SingularityTaskId, SingularityTask> activeTasks() {
+    return watchedActiveTasks.isLive() ? watchedActiveTasks.getItems() : cachedActiveTasks;
+  }
+
+  private Map<String, SingularityRequestWithState> requests() {
+    return watchedRequests.isLive() ? watchedRequests.getItems() : cachedRequests;
+  }
+
+  WatchedCollection<SingularityPendingTaskId, SingularityPendingTask> getWatchedPendingTasks() {
+    return watchedPendingTasks;
+  }
+
+  WatchedCollection<SingularityTaskId, SingularityTask> getWatchedActiveTasks() {
+    return watchedActiveTasks;
+  }
+
+  WatchedCollection<String, SingularityRequestWithState> getWatchedRequests() {
+    return watchedRequests;
+  }
+
+  /**
+   * Kept up to date by {@link SingularityWebCacheWatcher}. Readers only use it while it is live, and fall back to the timed cache otherwise
+   */
+  static class WatchedCollection<K, V> {
+    private final Map<K, V> items = new ConcurrentHashMap<>();
+    private volatile boolean live = false;
+
+    boolean isLive() {
+      return live;
+    }
+
+    void setLive(boolean live) {
+      this.live = live;
+    }
+
+    Map<K, V> getItems() {
+      return items;
+    }
+
+    boolean contains(K key) {
+      return items.containsKey(key);
+    }
+
+    void put(K key, V value) {
+      items.put(key, value);
+    }
+
+    void remove(K key) {
+      items.remove(key);
+    }
+
+    void clear() {
+      items.clear();
+    }
+  }
 }
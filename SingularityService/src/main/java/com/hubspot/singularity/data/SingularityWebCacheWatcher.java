@@ -0,0 +1,222 @@
+package com.hubspot.singularity.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.TreeCache;
+import org.apache.curator.framework.recipes.cache.TreeCacheEvent;
+import org.apache.curator.framework.recipes.cache.TreeCacheListener;
+import org.apache.curator.framework.recipes.leader.LeaderLatchListener;
+import org.apache.curator.utils.ZKPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.SingularityPendingTask;
+import com.hubspot.singularity.SingularityPendingTaskId;
+import com.hubspot.singularity.SingularityRequestWithState;
+import com.hubspot.singularity.SingularityTask;
+import com.hubspot.singularity.SingularityTaskId;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.SingularityWebCache.WatchedCollection;
+import com.hubspot.singularity.data.transcoders.Transcoder;
+
+/**
+ * Keeps the request, pending task and active task collections of the {@link SingularityWebCache} up to date from zookeeper
+ * watches so that non-leaders do not have to re-read the full collections every time the cache expires. While a watch is not
+ * initialized or is disconnected the web cache falls back to its timed reloads. The leader never reads the web cache, so
+ * the watches are only kept while this instance is not the leader.
+ */
+@Singleton
+public class SingularityWebCacheWatcher implements LeaderLatchListener {
+  private static final Logger LOG = LoggerFactory.getLogger(SingularityWebCacheWatcher.class);
+
+  private final CuratorFramework curator;
+  private final SingularityConfiguration configuration;
+  private final SingularityWebCache webCache;
+  private final TaskManager taskManager;
+  private final Transcoder<SingularityRequestWithState> requestTranscoder;
+  private final Transcoder<SingularityPendingTask> pendingTaskTranscoder;
+
+  private final List<TreeCache> treeCaches = new ArrayList<>();
+  private ExecutorService activeTaskLoader;
+
+  private boolean leader;
+
+  @Inject
+  public SingularityWebCacheWatcher(CuratorFramework curator,
+                                    SingularityConfiguration configuration,
+                                    SingularityWebCache webCache,
+                                    TaskManager taskManager,
+                                    Transcoder<SingularityRequestWithState> requestTranscoder,
+                                    Transcoder<SingularityPendingTask> pendingTaskTranscoder) {
+    this.curator = curator;
+    this.configuration = configuration;
+    this.webCache = webCache;
+    this.taskManager = taskManager;
+    this.requestTranscoder = requestTranscoder;
+    this.pendingTaskTranscoder = pendingTaskTranscoder;
+  }
+
+  @Override
+  public synchronized void isLeader() {
+    leader = true;
+    if (!treeCaches.isEmpty()) {
+      LOG.info("Stopping web cache watches, the leader does not read the web cache");
+      stop();
+    }
+  }
+
+  @Override
+  public synchronized void notLeader() {
+    leader = false;
+    try {
+      start();
+    } catch (Exception e) {
+      LOG.error("Could not start web cache watches, falling back to timed reloads", e);
+    }
+  }
+
+  public synchronized void start() throws Exception {
+    if (!configuration.isWatchZkForWebCache() || leader || !treeCaches.isEmpty()) {
+      return;
+    }
+
+    WatchedCollection<String, SingularityRequestWithState> requests = webCache.getWatchedRequests();
+    watch(RequestManager.NORMAL_PATH_ROOT, 1, requests, MoreExecutors.directExecutor(), (data) -> {
+      SingularityRequestWithState request = requestTranscoder.fromBytes(data.getData());
+      requests.put(request.getRequest().getId(), request);
+    }, (node) -> requests.remove(node));
+
+    WatchedCollection<SingularityPendingTaskId, SingularityPendingTask> pendingTasks = webCache.getWatchedPendingTasks();
+    watch(TaskManager.PENDING_PATH_ROOT, 2, pendingTasks, MoreExecutors.directExecutor(), (data) -> {
+      SingularityPendingTask pendingTask = pendingTaskTranscoder.fromBytes(data.getData());
+      pendingTasks.put(pendingTask.getPendingTaskId(), pendingTask);
+    }, (node) -> pendingTasks.remove(SingularityPendingTaskId.valueOf(node)));
+
+    // The status nodes don't hold the task, so it is read from zk. That happens on a thread of its own rather than the
+    // watch's event thread, and every event for the collection goes through it so a removal can't be undone by a late read
+    activeTaskLoader = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("web-cache-active-task-loader-%d").setDaemon(true).build());
+    WatchedCollection<SingularityTaskId, SingularityTask> activeTasks = webCache.getWatchedActiveTasks();
+    watch(TaskManager.LAST_ACTIVE_TASK_STATUSES_PATH_ROOT, 2, activeTasks, activeTaskLoader, (data) -> {
+      SingularityTaskId taskId = SingularityTaskId.valueOf(ZKPaths.getNodeFromPath(data.getPath()));
+      // Status node updates do not change the task itself
+      if (!activeTasks.contains(taskId)) {
+        Optional<SingularityTask> task = taskManager.getTask(taskId);
+        if (task.isPresent()) {
+          activeTasks.put(taskId, task.get());
+        } else {
+          LOG.warn("No task data found for active task {}", taskId);
+        }
+      }
+    }, (node) -> activeTasks.remove(SingularityTaskId.valueOf(node)));
+  }
+
+  public synchronized void stop() {
+    for (TreeCache treeCache : treeCaches) {
+      try {
+        treeCache.close();
+      } catch (Throwable t) {
+        LOG.warn("Could not close web cache watch ({})", t.getMessage());
+      }
+    }
+    treeCaches.clear();
+    if (activeTaskLoader != null) {
+      activeTaskLoader.shutdownNow();
+      try {
+        if (!activeTaskLoader.awaitTermination(5, TimeUnit.SECONDS)) {
+          LOG.warn("Web cache active task loader did not stop in time");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      activeTaskLoader = null;
+    }
+
+    // Nothing removes items while unwatched, so they have to be loaded again once watches restart
+    for (WatchedCollection<?, ?> collection : Arrays.asList(webCache.getWatchedRequests(), webCache.getWatchedPendingTasks(), webCache.getWatchedActiveTasks())) {
+      collection.setLive(false);
+      collection.clear();
+    }
+  }
+
+  private void watch(String root, int itemDepth, WatchedCollection<?, ?> collection, Executor executor, ItemUpdater onUpdate, ItemRemover onRemove) throws Exception {
+    final int rootDepth = ZKPaths.split(root).size();
+    final String threadName = String.format("web-cache-watcher%s-%%d", root.replace('/', '-'));
+
+    TreeCache treeCache = TreeCache.newBuilder(curator, root)
+        .setMaxDepth(itemDepth)
+        .setCacheData(false)
+        .setExecutor(new ThreadFactoryBuilder().setNameFormat(threadName).setDaemon(true).build())
+        .build();
+
+    treeCache.getListenable().addListener(new TreeCacheListener() {
+
+      @Override
+      public void childEvent(CuratorFramework client, TreeCacheEvent event) {
+        try {
+          executor.execute(() -> apply(event));
+        } catch (RejectedExecutionException e) {
+          LOG.debug("Web cache watch on {} is stopping, ignoring {}", root, event.getType());
+        }
+      }
+
+      private void apply(TreeCacheEvent event) {
+        switch (event.getType()) {
+          case INITIALIZED:
+          case CONNECTION_RECONNECTED:
+            LOG.info("Web cache watch on {} is live ({})", root, event.getType());
+            collection.setLive(true);
+            return;
+          case CONNECTION_SUSPENDED:
+          case CONNECTION_LOST:
+            LOG.info("Web cache watch on {} is no longer live ({}), falling back to timed reloads", root, event.getType());
+            collection.setLive(false);
+            return;
+          default:
+            break;
+        }
+
+        ChildData data = event.getData();
+        if (data == null || ZKPaths.split(data.getPath()).size() - rootDepth != itemDepth) {
+          return;
+        }
+
+        try {
+          if (event.getType() == TreeCacheEvent.Type.NODE_REMOVED) {
+            onRemove.remove(ZKPaths.getNodeFromPath(data.getPath()));
+          } else if (data.getData() != null) {
+            onUpdate.update(data);
+          }
+        } catch (Throwable t) {
+          LOG.error("Could not apply {} for {} to web cache", event.getType(), data.getPath(), t);
+        }
+      }
+    });
+
+    treeCache.start();
+    treeCaches.add(treeCache);
+  }
+
+  @FunctionalInterface
+  private interface ItemUpdater {
+    void update(ChildData data) throws Exception;
+  }
+
+  @FunctionalInterface
+  private interface ItemRemover {
+    void remove(String node);
+  }
+}
@@ -1,6 +1,8 @@
 package com.hubspot.singularity.data;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -19,11 +21,14 @@ import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.hubspot.mesos.CounterMap;
+import com.hubspot.singularity.MachineState;
+import com.hubspot.singularity.RequestState;
 import com.hubspot.singularity.RequestType;
 import com.hubspot.singularity.SingularityCreateResult;
 import com.hubspot.singularity.SingularityDeployMarker;
@@ -31,18 +36,17 @@ import com.hubspot.singularity.SingularityHostState;
 import com.hubspot.singularity.SingularityMainModule;
 import com.hubspot.singularity.SingularityPendingDeploy;
 import com.hubspot.singularity.SingularityPendingTaskId;
-import com.hubspot.singularity.SingularityRack;
 import com.hubspot.singularity.SingularityRequest;
 import com.hubspot.singularity.SingularityRequestDeployState;
 import com.hubspot.singularity.SingularityRequestWithState;
 import com.hubspot.singularity.SingularityScheduledTasksInfo;
-import com.hubspot.singularity.SingularitySlave;
 import com.hubspot.singularity.SingularityState;
 import com.hubspot.singularity.SingularityTaskId;
 import com.hubspot.singularity.SingularityTaskReconciliationStatistics;
 import com.hubspot.singularity.auth.datastore.SingularityAuthDatastore;
 import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.data.transcoders.Transcoder;
+import com.hubspot.singularity.scheduler.SingularityLeaderCache;
 
 @Singleton
 public class StateManager extends CuratorManager {
@@ -66,6 +70,10 @@ public class StateManager extends CuratorManager {
   private final PriorityManager priorityManager;
   private final AtomicLong statusUpdateDeltaAvg;
   private final AtomicLong lastHeartbeatTime;
+  private final SingularityLeaderCache leaderCache;
+  private final Meter stateConsistencyMismatchMeter;
+
+  private long lastConsistencyCheck = System.currentTimeMillis();
 
   @Inject
   public StateManager(CuratorFramework curatorFramework,
@@ -83,7 +91,8 @@ public class StateManager extends CuratorManager {
                       PriorityManager priorityManager,
                       Transcoder<SingularityTaskReconciliationStatistics> taskReconciliationStatisticsTranscoder,
                       @Named(SingularityMainModule.STATUS_UPDATE_DELTA_30S_AVERAGE) AtomicLong statusUpdateDeltaAvg,
-                      @Named(SingularityMainModule.LAST_MESOS_MASTER_HEARTBEAT_TIME) AtomicLong lastHeartbeatTime) {
+                      @Named(SingularityMainModule.LAST_MESOS_MASTER_HEARTBEAT_TIME) AtomicLong lastHeartbeatTime,
+                      SingularityLeaderCache leaderCache) {
     super(curatorFramework, configuration, metricRegistry);
 
     this.requestManager = requestManager;
@@ -99,6 +108,8 @@ public class StateManager extends CuratorManager {
     this.taskReconciliationStatisticsTranscoder = taskReconciliationStatisticsTranscoder;
     this.statusUpdateDeltaAvg = statusUpdateDeltaAvg;
     this.lastHeartbeatTime = lastHeartbeatTime;
+    this.leaderCache = leaderCache;
+    this.stateConsistencyMismatchMeter = metricRegistry.meter("state.consistency.mismatches");
   }
 
   public SingularityCreateResult saveTaskReconciliationStatistics(SingularityTaskReconciliationStatistics taskReconciliationStatistics) {
@@ -135,18 +146,64 @@ public class StateManager extends CuratorManager {
   }
 
   public void saveNewState() {
-    save(STATE_PATH, generateState(true), stateTranscoder);
+    SingularityState state = generateState(true);
+
+    if (leaderCache.active() && System.currentTimeMillis() - lastConsistencyCheck > singularityConfiguration.getCheckStateConsistencyEveryMillis()) {
+      lastConsistencyCheck = System.currentTimeMillis();
+      SingularityState fullState = generateFullState(true);
+      if (!countsMatch(state, fullState)) {
+        LOG.warn("Leader cache state counts have drifted from a full recount, recounting ({} vs {})", state, fullState);
+        stateConsistencyMismatchMeter.mark();
+        leaderCache.recountState();
+        state = fullState;
+      }
+    }
+
+    save(STATE_PATH, state, stateTranscoder);
+  }
+
+  private static boolean countsMatch(SingularityState state, SingularityState fullState) {
+    return state.getLaunchingTasks() == fullState.getLaunchingTasks()
+        && state.getActiveRequests() == fullState.getActiveRequests()
+        && state.getPausedRequests() == fullState.getPausedRequests()
+        && state.getCooldownRequests() == fullState.getCooldownRequests()
+        && state.getFinishedRequests() == fullState.getFinishedRequests()
+        && state.getActiveSlaves() == fullState.getActiveSlaves()
+        && state.getDeadSlaves() == fullState.getDeadSlaves()
+        && state.getDecommissioningSlaves() == fullState.getDecommissioningSlaves()
+        && state.getUnknownSlaves() == fullState.getUnknownSlaves()
+        && state.getActiveRacks() == fullState.getActiveRacks()
+        && state.getDeadRacks() == fullState.getDeadRacks()
+        && state.getDecommissioningRacks() == fullState.getDecommissioningRacks()
+        && state.getUnknownRacks() == fullState.getUnknownRacks()
+        && state.getOverProvisionedRequests() == fullState.getOverProvisionedRequests()
+        && state.getUnderProvisionedRequests() == fullState.getUnderProvisionedRequests()
+        && state.getLateTasks() == fullState.getLateTasks()
+        && state.getOnDemandLateTasks() == fullState.getOnDemandLateTasks();
   }
 
+  /**
+   * On the leader the request, slave and rack counts, launching tasks, late tasks and over/under provisioned requests
+   * are read from counts the leader cache keeps up to date as it changes. Elsewhere they are counted with a full scan
+   */
   public SingularityState generateState(boolean includeRequestIds) {
-    final int launchingTasks = taskManager.getNumLaunchingTasks();
-    final int activeTasks = taskManager.getNumActiveTasks() - launchingTasks;
-    final int scheduledTasks = taskManager.getNumScheduledTasks();
-    final int cleaningTasks = taskManager.getNumCleanupTasks();
-    final int lbCleanupTasks = taskManager.getNumLbCleanupTasks();
-    final int lbCleanupRequests = requestManager.getNumLbCleanupRequests();
+    if (leaderCache.active()) {
+      final List<String> possiblyUnderProvisionedRequestIds = leaderCache.getPossiblyUnderProvisionedRequestIds();
+      filterForPendingRequests(possiblyUnderProvisionedRequestIds);
+      final int launchingTasks = leaderCache.historyUpdatesActive() ? leaderCache.getNumLaunchingTasks() : taskManager.getNumLaunchingTasks();
 
-    final SingularityScheduledTasksInfo scheduledTasksInfo = getScheduledTasksInfo();
+      return buildState(includeRequestIds, launchingTasks, leaderCache.getRequestCountsByState(), leaderCache.getOverProvisionedRequestIds(), possiblyUnderProvisionedRequestIds,
+          leaderCache.getSlaveCountsByState(), leaderCache.getRackCountsByState(), getScheduledTasksInfo(leaderCache.getPendingTaskIdsDueBefore(getLateTaskCutoff()), taskManager.getNumScheduledTasks()));
+    }
+
+    return generateFullState(includeRequestIds);
+  }
+
+  /**
+   * Counts everything in SingularityState by scanning requests, tasks, slaves and racks
+   */
+  public SingularityState generateFullState(boolean includeRequestIds) {
+    final int launchingTasks = taskManager.getNumLaunchingTasks();
 
     final List<String> overProvisionedRequestIds = new ArrayList<>();
     final Set<String> possiblyUnderProvisionedRequestIds = new HashSet<>();
@@ -155,97 +212,77 @@ public class StateManager extends CuratorManager {
 
     final Map<String, Long> numInstances = getNumTasks(requests);
 
-    int numActiveRequests = 0;
-    int numPausedRequests = 0;
-    int cooldownRequests = 0;
-    int numFinishedRequests = 0;
-
+    final Map<RequestState, Integer> requestCounts = new EnumMap<>(RequestState.class);
     for (SingularityRequestWithState requestWithState : requests) {
-      switch (requestWithState.getState()) {
-        case DEPLOYING_TO_UNPAUSE:
-        case ACTIVE:
-          numActiveRequests++;
-          break;
-        case FINISHED:
-          numFinishedRequests++;
-          break;
-        case PAUSED:
-          numPausedRequests++;
-          break;
-        case SYSTEM_COOLDOWN:
-          cooldownRequests++;
-          break;
-        case DELETED:
-          break;
-      }
-
+      requestCounts.merge(requestWithState.getState(), 1, Integer::sum);
       updatePossiblyUnderProvisionedAndOverProvisionedIds(requestWithState, numInstances, overProvisionedRequestIds, possiblyUnderProvisionedRequestIds);
     }
 
     filterForPendingRequests(possiblyUnderProvisionedRequestIds);
     final List<String> underProvisionedRequestIds = getUnderProvisionedRequestIds(possiblyUnderProvisionedRequestIds);
 
-    final int pendingRequests = requestManager.getSizeOfPendingQueue();
-    final int cleaningRequests = requestManager.getSizeOfCleanupQueue();
+    final Map<MachineState, Integer> slaveCounts = new EnumMap<>(MachineState.class);
+    slaveManager.getObjects().forEach((slave) -> slaveCounts.merge(slave.getCurrentState().getState(), 1, Integer::sum));
 
-    List<SingularityRack> racks = rackManager.getObjects();
+    final Map<MachineState, Integer> rackCounts = new EnumMap<>(MachineState.class);
+    rackManager.getObjects().forEach((rack) -> rackCounts.merge(rack.getCurrentState().getState(), 1, Integer::sum));
 
-    int activeRacks = 0;
-    int deadRacks = 0;
-    int decommissioningRacks = 0;
-    int unknownRacks = 0;
+    final long lateTaskCutoff = getLateTaskCutoff();
+    final List<SingularityPendingTaskId> allPendingTaskIds = taskManager.getPendingTaskIds();
+    final List<SingularityPendingTaskId> lateTasks = allPendingTaskIds.stream()
+        .filter((p) -> p.getNextRunAt() < lateTaskCutoff)
+        .collect(Collectors.toList());
 
-    for (SingularityRack rack : racks) {
-      switch (rack.getCurrentState().getState()) {
-        case ACTIVE:
-          activeRacks++;
-          break;
-        case DEAD:
-          deadRacks++;
-          break;
-        case MISSING_ON_STARTUP:
-          unknownRacks++;
-          break;
-        case DECOMMISSIONED:
-        case STARTING_DECOMMISSION:
-        case DECOMMISSIONING:
-          decommissioningRacks++;
-          break;
-        default:
-          unknownRacks++;
-          break;
-      }
-    }
+    return buildState(includeRequestIds, launchingTasks, requestCounts, overProvisionedRequestIds, underProvisionedRequestIds, slaveCounts, rackCounts,
+        getScheduledTasksInfo(lateTasks, allPendingTaskIds.size()));
+  }
 
-    List<SingularitySlave> slaves = slaveManager.getObjects();
+  private SingularityState buildState(boolean includeRequestIds,
+                                      int launchingTasks,
+                                      Map<RequestState, Integer> requestCounts,
+                                      List<String> overProvisionedRequestIds,
+                                      Collection<String> underProvisionedRequestIds,
+                                      Map<MachineState, Integer> slaveCounts,
+                                      Map<MachineState, Integer> rackCounts,
+                                      SingularityScheduledTasksInfo scheduledTasksInfo) {
+    final int activeTasks = taskManager.getNumActiveTasks() - launchingTasks;
+    final int scheduledTasks = taskManager.getNumScheduledTasks();
+    final int cleaningTasks = taskManager.getNumCleanupTasks();
+    final int lbCleanupTasks = taskManager.getNumLbCleanupTasks();
+    final int lbCleanupRequests = requestManager.getNumLbCleanupRequests();
 
-    int activeSlaves = 0;
-    int deadSlaves = 0;
-    int decommissioningSlaves = 0;
-    int unknownSlaves = 0;
+    int numActiveRequests = 0;
+    int numPausedRequests = 0;
+    int cooldownRequests = 0;
+    int numFinishedRequests = 0;
 
-    for (SingularitySlave slave : slaves) {
-      switch (slave.getCurrentState().getState()) {
+    for (Map.Entry<RequestState, Integer> requestCount : requestCounts.entrySet()) {
+      switch (requestCount.getKey()) {
+        case DEPLOYING_TO_UNPAUSE:
         case ACTIVE:
-          activeSlaves++;
+          numActiveRequests += requestCount.getValue();
           break;
-        case DEAD:
-          deadSlaves++;
+        case FINISHED:
+          numFinishedRequests += requestCount.getValue();
           break;
-        case MISSING_ON_STARTUP:
-          unknownSlaves++;
+        case PAUSED:
+          numPausedRequests += requestCount.getValue();
           break;
-        case DECOMMISSIONED:
-        case STARTING_DECOMMISSION:
-        case DECOMMISSIONING:
-          decommissioningSlaves++;
+        case SYSTEM_COOLDOWN:
+          cooldownRequests += requestCount.getValue();
           break;
+        case DELETED:
         default:
-          unknownSlaves++;
           break;
       }
     }
 
+    final int pendingRequests = requestManager.getSizeOfPendingQueue();
+    final int cleaningRequests = requestManager.getSizeOfCleanupQueue();
+
+    final MachineCounts racks = new MachineCounts(rackCounts);
+    final MachineCounts slaves = new MachineCounts(slaveCounts);
+
     final List<SingularityHostState> states = getHostStates();
 
     int numDeploys = 0;
@@ -273,20 +310,53 @@ public class StateManager extends CuratorManager {
 
     final Optional<Double> minimumPriorityLevel = getMinimumPriorityLevel();
 
-    return new SingularityState(activeTasks, launchingTasks, numActiveRequests, cooldownRequests, numPausedRequests, scheduledTasks, pendingRequests, lbCleanupTasks, lbCleanupRequests, cleaningRequests, activeSlaves,
-        deadSlaves, decommissioningSlaves, activeRacks, deadRacks, decommissioningRacks, cleaningTasks, states, oldestDeploy, numDeploys, oldestDeployStep, activeDeploys, scheduledTasksInfo.getLateTasks().size(),
+    final List<String> underProvisionedRequestIdList = new ArrayList<>(underProvisionedRequestIds);
+
+    return new SingularityState(activeTasks, launchingTasks, numActiveRequests, cooldownRequests, numPausedRequests, scheduledTasks, pendingRequests, lbCleanupTasks, lbCleanupRequests, cleaningRequests, slaves.active,
+        slaves.dead, slaves.decommissioning, racks.active, racks.dead, racks.decommissioning, cleaningTasks, states, oldestDeploy, numDeploys, oldestDeployStep, activeDeploys, scheduledTasksInfo.getLateTasks().size(),
         scheduledTasksInfo.getLateTasks(), scheduledTasksInfo.getOnDemandLateTasks().size(), scheduledTasksInfo.getOnDemandLateTasks(),
         scheduledTasksInfo.getNumFutureTasks(), scheduledTasksInfo.getMaxTaskLag(), System.currentTimeMillis(), includeRequestIds ? overProvisionedRequestIds : null,
-        includeRequestIds ? underProvisionedRequestIds : null, overProvisionedRequestIds.size(), underProvisionedRequestIds.size(), numFinishedRequests, unknownRacks, unknownSlaves, authDatastoreHealthy, minimumPriorityLevel,
+        includeRequestIds ? underProvisionedRequestIdList : null, overProvisionedRequestIds.size(), underProvisionedRequestIdList.size(), numFinishedRequests, racks.unknown, slaves.unknown, authDatastoreHealthy, minimumPriorityLevel,
         statusUpdateDeltaAvg.get(), lastHeartbeatTime.get());
   }
 
-  private SingularityScheduledTasksInfo getScheduledTasksInfo() {
+  private static class MachineCounts {
+    private int active;
+    private int dead;
+    private int decommissioning;
+    private int unknown;
+
+    MachineCounts(Map<MachineState, Integer> counts) {
+      for (Map.Entry<MachineState, Integer> count : counts.entrySet()) {
+        switch (count.getKey()) {
+          case ACTIVE:
+            active += count.getValue();
+            break;
+          case DEAD:
+            dead += count.getValue();
+            break;
+          case MISSING_ON_STARTUP:
+            unknown += count.getValue();
+            break;
+          case DECOMMISSIONED:
+          case STARTING_DECOMMISSION:
+          case DECOMMISSIONING:
+            decommissioning += count.getValue();
+            break;
+          default:
+            unknown += count.getValue();
+            break;
+        }
+      }
+    }
+  }
+
+  private long getLateTaskCutoff() {
+    return System.currentTimeMillis() - singularityConfiguration.getDeltaAfterWhichTasksAreLateMillis();
+  }
+
+  private SingularityScheduledTasksInfo getScheduledTasksInfo(List<SingularityPendingTaskId> lateTasks, int numPendingTasks) {
     long now = System.currentTimeMillis();
-    List<SingularityPendingTaskId> allPendingTaskIds = taskManager.getPendingTaskIds();
-    List<SingularityPendingTaskId> lateTasks = allPendingTaskIds.stream()
-        .filter((p) -> now - p.getNextRunAt() > singularityConfiguration.getDeltaAfterWhichTasksAreLateMillis())
-        .collect(Collectors.toList());
 
     Map<Boolean, List<SingularityPendingTaskId>> lateTasksPartitionedByOnDemand = lateTasks.stream()
         .collect(Collectors.partitioningBy(this::requestTypeIsOnDemand));
@@ -308,7 +378,7 @@ public class StateManager extends CuratorManager {
     return new SingularityScheduledTasksInfo(
         generalLateTasks,
         onDemandLateTasks,
-        allPendingTaskIds.size() - generalLateTasks.size() - onDemandLateTasks.size(),
+        numPendingTasks - generalLateTasks.size() - onDemandLateTasks.size(),
         maxTaskLag,
         now
       );
@@ -375,7 +445,7 @@ public class StateManager extends CuratorManager {
     }
   }
 
-  private void filterForPendingRequests(Set<String> possiblyUnderProvisionedRequestIds) {
+  private void filterForPendingRequests(Collection<String> possiblyUnderProvisionedRequestIds) {
     if (possiblyUnderProvisionedRequestIds.size() == 0) {
       return;
     }
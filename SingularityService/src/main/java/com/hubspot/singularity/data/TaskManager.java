@@ -3,11 +3,15 @@ package com.hubspot.singularity.data;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import org.apache.curator.framework.CuratorFramework;
@@ -56,6 +60,7 @@ import com.hubspot.singularity.SingularityTaskShellCommandUpdate;
 import com.hubspot.singularity.SingularityTaskStatusHolder;
 import com.hubspot.singularity.SingularityTaskWebhook;
 import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.CuratorBatchWriter.BatchOperation;
 import com.hubspot.singularity.data.transcoders.IdTranscoder;
 import com.hubspot.singularity.data.transcoders.StringTranscoder;
 import com.hubspot.singularity.data.transcoders.Transcoder;
@@ -69,8 +74,8 @@ public class TaskManager extends CuratorAsyncManager {
 
   private static final String TASKS_ROOT = "/tasks";
 
-  private static final String LAST_ACTIVE_TASK_STATUSES_PATH_ROOT = TASKS_ROOT + "/statuses";
-  private static final String PENDING_PATH_ROOT = TASKS_ROOT + "/scheduled";
+  static final String LAST_ACTIVE_TASK_STATUSES_PATH_ROOT = TASKS_ROOT + "/statuses";
+  static final String PENDING_PATH_ROOT = TASKS_ROOT + "/scheduled";
   private static final String CLEANUP_PATH_ROOT = TASKS_ROOT + "/cleanup";
   private static final String LB_CLEANUP_PATH_ROOT = TASKS_ROOT + "/lbcleanup";
   private static final String DRIVER_KILLED_PATH_ROOT = TASKS_ROOT + "/killed";
@@ -118,6 +123,7 @@ public class TaskManager extends CuratorAsyncManager {
   private final ZkCache<SingularityTask> taskCache;
   private final SingularityWebCache webCache;
   private final SingularityLeaderCache leaderCache;
+  private final CuratorBatchWriter batchWriter;
 
   private final SingularityEventListener singularityEventListener;
   private final String serverId;
@@ -129,7 +135,7 @@ public class TaskManager extends CuratorAsyncManager {
       Transcoder<SingularityTaskCleanup> taskCleanupTranscoder, Transcoder<SingularityTaskHistoryUpdate> taskHistoryUpdateTranscoder, Transcoder<SingularityPendingTask> pendingTaskTranscoder,
       Transcoder<SingularityKilledTaskIdRecord> killedTaskIdRecordTranscoder, Transcoder<SingularityTaskShellCommandRequest> taskShellCommandRequestTranscoder,
       Transcoder<SingularityTaskShellCommandUpdate> taskShellCommandUpdateTranscoder,  Transcoder<SingularityTaskMetadata> taskMetadataTranscoder,
-      ZkCache<SingularityTask> taskCache, SingularityWebCache webCache, SingularityLeaderCache leaderCache,
+      ZkCache<SingularityTask> taskCache, SingularityWebCache webCache, SingularityLeaderCache leaderCache, CuratorBatchWriter batchWriter,
       @Named(SingularityMainModule.SERVER_ID_PROPERTY) String serverId) {
     super(curator, configuration, metricRegistry);
 
@@ -151,6 +157,7 @@ public class TaskManager extends CuratorAsyncManager {
 
     this.webCache = webCache;
     this.leaderCache = leaderCache;
+    this.batchWriter = batchWriter;
     this.serverId = serverId;
   }
 
@@ -407,6 +414,16 @@ public class TaskManager extends CuratorAsyncManager {
     return getAsyncNestedChildIdsAsList(LAST_ACTIVE_TASK_STATUSES_PATH_ROOT, LAST_ACTIVE_TASK_STATUSES_PATH_ROOT, taskIdTranscoder);
   }
 
+  public List<SingularityTaskId> getActiveTaskIdsForHost(String sanitizedHost) {
+    if (leaderCache.active()) {
+      return leaderCache.getActiveTaskIdsForHost(sanitizedHost);
+    }
+
+    return getActiveTaskIds().stream()
+        .filter((t) -> t.getSanitizedHost().equals(sanitizedHost))
+        .collect(Collectors.toList());
+  }
+
   public List<SingularityTaskId> getCleanupTaskIds() {
     if (leaderCache.active()) {
       return leaderCache.getCleanupTaskIds();
@@ -508,7 +525,7 @@ public class TaskManager extends CuratorAsyncManager {
   }
 
   public List<SingularityTaskHistoryUpdate> getTaskHistoryUpdates(SingularityTaskId taskId) {
-    if (leaderCache.active()) {
+    if (leaderCache.historyUpdatesActive()) {
       return leaderCache.getTaskHistoryUpdates(taskId);
     }
     List<SingularityTaskHistoryUpdate> updates = getAsyncChildren(getUpdatesPath(taskId), taskHistoryUpdateTranscoder);
@@ -517,11 +534,14 @@ public class TaskManager extends CuratorAsyncManager {
   }
 
   public Optional<SingularityTaskHistoryUpdate> getTaskHistoryUpdate(SingularityTaskId taskId, ExtendedTaskState taskState) {
+    if (leaderCache.historyUpdatesActive()) {
+      return leaderCache.getTaskHistoryUpdate(taskId, taskState);
+    }
     return getData(getUpdatePath(taskId, taskState), taskHistoryUpdateTranscoder);
   }
 
   public Map<SingularityTaskId, List<SingularityTaskHistoryUpdate>> getTaskHistoryUpdates(Collection<SingularityTaskId> taskIds) {
-    if (leaderCache.active()) {
+    if (leaderCache.historyUpdatesActive()) {
       return leaderCache.getTaskHistoryUpdates(taskIds);
     }
     Map<String, SingularityTaskId> pathsMap = Maps.newHashMap();
@@ -611,7 +631,11 @@ public class TaskManager extends CuratorAsyncManager {
       if (leaderCache.active()) {
         leaderCache.saveTaskHistoryUpdate(taskHistoryUpdate, overwriteExisting);
       }
-      return create(getUpdatePath(taskHistoryUpdate.getTaskId(), taskHistoryUpdate.getTaskState()), taskHistoryUpdate, taskHistoryUpdateTranscoder);
+      final String path = getUpdatePath(taskHistoryUpdate.getTaskId(), taskHistoryUpdate.getTaskState());
+      if (batchWriter.isEnabled() && batchWriter.write(Collections.singletonList(BatchOperation.create(path, taskHistoryUpdateTranscoder.toBytes(taskHistoryUpdate))))) {
+        return SingularityCreateResult.CREATED;
+      }
+      return create(path, taskHistoryUpdate, taskHistoryUpdateTranscoder);
     }
   }
 
@@ -873,13 +897,32 @@ public class TaskManager extends CuratorAsyncManager {
     return checkExists(getTaskPath(taskId)).isPresent();
   }
 
-  public void activateLeaderCache() {
+  public void cachePendingTasks() {
     leaderCache.cachePendingTasks(fetchPendingTasks());
     leaderCache.cachePendingTasksToDelete(getPendingTasksMarkedForDeletion());
+  }
+
+  public void cacheActiveTaskIds() {
     leaderCache.cacheActiveTaskIds(getActiveTaskIds(false));
+  }
+
+  public void cacheCleanupAndKilledTasks() {
     leaderCache.cacheCleanupTasks(fetchCleanupTasks());
     leaderCache.cacheKilledTasks(fetchKilledTaskIdRecords());
-    leaderCache.cacheTaskHistoryUpdates(getAllTaskHistoryUpdates());
+  }
+
+  /**
+   * Streams every history update into the leader cache, which must have been prepared with startLoadingTaskHistoryUpdates. Nothing is
+   * loaded if the cache was stopped after the given generation was read
+   */
+  public void loadTaskHistoryUpdatesIntoLeaderCache(long generation) {
+    Map<String, SingularityTaskId> pathsMap = Maps.newHashMap();
+    for (SingularityTaskId taskId : getAllTaskIds()) {
+      pathsMap.put(getHistoryPath(taskId), taskId);
+    }
+
+    getAsyncNestedChildData("loadTaskHistoryUpdates", pathsMap, UPDATES_PATH, taskHistoryUpdateTranscoder, (taskId, update) -> leaderCache.loadTaskHistoryUpdate(generation, update));
+    leaderCache.finishLoadingTaskHistoryUpdates(generation);
   }
 
   private List<SingularityPendingTask> fetchPendingTasks() {
@@ -956,6 +999,74 @@ public class TaskManager extends CuratorAsyncManager {
     }
   }
 
+  /**
+   * With batched writes enabled, only queues the writes for the task so that the launches of one offer cycle share a
+   * batch, and updates the leader cache right away. The task must not be launched before {@link #awaitTaskCreated}
+   * has returned for the result. Otherwise this is the same as {@link #createTaskAndDeletePendingTask}.
+   */
+  public QueuedTaskCreation createTaskAndDeletePendingTaskAsync(SingularityTask task) {
+    final SingularityTaskHistoryUpdate launchedUpdate = getLaunchedUpdate(task);
+
+    if (!batchWriter.isEnabled()) {
+      try {
+        createTaskAndDeletePendingTaskUnbatched(task, launchedUpdate);
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+      return new QueuedTaskCreation(task, launchedUpdate, CompletableFuture.completedFuture(true));
+    }
+
+    final SingularityTaskId taskId = task.getTaskId();
+    final String path = getTaskPath(taskId);
+
+    CompletableFuture<Boolean> written = batchWriter.submit(getCreateTaskOperations(task, launchedUpdate, getLaunchedStatus(task, launchedUpdate)))
+        .handle((ignored, t) -> t == null);
+
+    leaderCache.deletePendingTask(task.getTaskRequest().getPendingTask().getPendingTaskId());
+    if (leaderCache.active()) {
+      leaderCache.saveTaskHistoryUpdate(launchedUpdate, false);
+    }
+    leaderCache.putActiveTask(taskId);
+    taskCache.set(path, task);
+
+    return new QueuedTaskCreation(task, launchedUpdate, written);
+  }
+
+  /**
+   * Waits for the writes queued by {@link #createTaskAndDeletePendingTaskAsync}, writing the task the regular way if
+   * its batch failed (e.g. because it is the first task of a request and the parent nodes don't exist yet)
+   */
+  public void awaitTaskCreated(QueuedTaskCreation queued) {
+    if (queued.written.join()) {
+      if (batchWriter.isEnabled()) {
+        delete(getPendingTasksToDeletePath(queued.task.getTaskRequest().getPendingTask().getPendingTaskId()));
+      }
+      return;
+    }
+
+    try {
+      createTaskAndDeletePendingTaskUnbatched(queued.task, queued.launchedUpdate);
+    } catch (Throwable t) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  public static class QueuedTaskCreation {
+    private final SingularityTask task;
+    private final SingularityTaskHistoryUpdate launchedUpdate;
+    private final CompletableFuture<Boolean> written;
+
+    QueuedTaskCreation(SingularityTask task, SingularityTaskHistoryUpdate launchedUpdate, CompletableFuture<Boolean> written) {
+      this.task = task;
+      this.launchedUpdate = launchedUpdate;
+      this.written = written;
+    }
+
+    public SingularityTask getTask() {
+      return task;
+    }
+  }
+
   public Map<SingularityTaskId, SingularityTask> getTasks(Iterable<SingularityTaskId> taskIds) {
     final List<String> paths = Lists.newArrayList();
 
@@ -967,11 +1078,16 @@ public class TaskManager extends CuratorAsyncManager {
   }
 
   private void createTaskAndDeletePendingTaskPrivate(SingularityTask task) throws Exception {
-    // TODO: Should more of the below be done within a transaction?
-    deletePendingTask(task.getTaskRequest().getPendingTask().getPendingTaskId());
+    SingularityTaskHistoryUpdate launchedUpdate = getLaunchedUpdate(task);
+
+    if (batchWriter.isEnabled() && createTaskAndDeletePendingTaskInBatch(task, launchedUpdate, getLaunchedStatus(task, launchedUpdate))) {
+      return;
+    }
 
-    final long now = System.currentTimeMillis();
+    createTaskAndDeletePendingTaskUnbatched(task, launchedUpdate);
+  }
 
+  private SingularityTaskHistoryUpdate getLaunchedUpdate(SingularityTask task) {
     String msg = String.format("Task launched because of %s", task.getTaskRequest().getPendingTask().getPendingTaskId().getPendingType().name());
 
     if (task.getTaskRequest().getPendingTask().getUser().isPresent()) {
@@ -982,9 +1098,20 @@ public class TaskManager extends CuratorAsyncManager {
       msg = String.format("%s (%s)", msg, task.getTaskRequest().getPendingTask().getMessage().get());
     }
 
-    saveTaskHistoryUpdate(new SingularityTaskHistoryUpdate(task.getTaskId(), now, ExtendedTaskState.TASK_LAUNCHED, Optional.of(msg), Optional.empty()));
+    return new SingularityTaskHistoryUpdate(task.getTaskId(), System.currentTimeMillis(), ExtendedTaskState.TASK_LAUNCHED, Optional.of(msg), Optional.empty());
+  }
+
+  private SingularityTaskStatusHolder getLaunchedStatus(SingularityTask task, SingularityTaskHistoryUpdate launchedUpdate) {
+    return new SingularityTaskStatusHolder(task.getTaskId(), Optional.empty(), launchedUpdate.getTimestamp(), serverId, Optional.of(task.getAgentId().getValue()));
+  }
+
+  private void createTaskAndDeletePendingTaskUnbatched(SingularityTask task, SingularityTaskHistoryUpdate launchedUpdate) throws Exception {
+    SingularityTaskStatusHolder taskStatusHolder = getLaunchedStatus(task, launchedUpdate);
 
-    SingularityTaskStatusHolder taskStatusHolder = new SingularityTaskStatusHolder(task.getTaskId(), Optional.empty(), now, serverId, Optional.of(task.getAgentId().getValue()));
+    // TODO: Should more of the below be done within a transaction?
+    deletePendingTask(task.getTaskRequest().getPendingTask().getPendingTaskId());
+
+    saveTaskHistoryUpdate(launchedUpdate);
 
     String taskStatusParent = getLastActiveTaskParent(task.getTaskId().getRequestId());
     if (!exists(taskStatusParent)) {
@@ -1013,6 +1140,43 @@ public class TaskManager extends CuratorAsyncManager {
     }
   }
 
+  /**
+   * Writes the pending task delete, task, launched update and active status as one group of a batched multi-op.
+   * The history and status parents for the request must already exist, otherwise nothing is written and this returns false
+   */
+  private boolean createTaskAndDeletePendingTaskInBatch(SingularityTask task, SingularityTaskHistoryUpdate launchedUpdate, SingularityTaskStatusHolder taskStatusHolder) {
+    final SingularityTaskId taskId = task.getTaskId();
+    final SingularityPendingTaskId pendingTaskId = task.getTaskRequest().getPendingTask().getPendingTaskId();
+    final String path = getTaskPath(taskId);
+
+    boolean written = batchWriter.write(getCreateTaskOperations(task, launchedUpdate, taskStatusHolder));
+
+    if (!written) {
+      return false;
+    }
+
+    leaderCache.deletePendingTask(pendingTaskId);
+    delete(getPendingTasksToDeletePath(pendingTaskId));
+    if (leaderCache.active()) {
+      leaderCache.saveTaskHistoryUpdate(launchedUpdate, false);
+    }
+    leaderCache.putActiveTask(taskId);
+    taskCache.set(path, task);
+    return true;
+  }
+
+  private List<BatchOperation> getCreateTaskOperations(SingularityTask task, SingularityTaskHistoryUpdate launchedUpdate, SingularityTaskStatusHolder taskStatusHolder) {
+    final SingularityTaskId taskId = task.getTaskId();
+    return Arrays.asList(
+        BatchOperation.delete(getPendingPath(task.getTaskRequest().getPendingTask().getPendingTaskId())),
+        BatchOperation.create(getHistoryPath(taskId)),
+        BatchOperation.create(getTaskPath(taskId), taskTranscoder.toBytes(task)),
+        BatchOperation.create(getUpdatesPath(taskId)),
+        BatchOperation.create(getUpdatePath(taskId, launchedUpdate.getTaskState()), taskHistoryUpdateTranscoder.toBytes(launchedUpdate)),
+        BatchOperation.create(getLastActiveTaskStatusPath(taskId), taskStatusTranscoder.toBytes(taskStatusHolder))
+    );
+  }
+
   public List<SingularityTaskId> getLBCleanupTasks() {
     return getChildrenAsIds(LB_CLEANUP_PATH_ROOT, taskIdTranscoder);
   }
@@ -1185,6 +1349,47 @@ public class TaskManager extends CuratorAsyncManager {
     return delete(getHistoryPath(taskId));
   }
 
+  /**
+   * Deletes the history of each task. With batched writes enabled, the nodes under each task's history path are deleted
+   * as one group of the zk batch writer so the histories of many tasks share multi-ops. A task whose group fails is
+   * deleted recursively instead.
+   */
+  public void deleteTaskHistories(Collection<SingularityTaskId> taskIds) {
+    if (!batchWriter.isEnabled()) {
+      taskIds.forEach(this::deleteTaskHistory);
+      return;
+    }
+
+    Map<SingularityTaskId, CompletableFuture<Void>> results = new HashMap<>(taskIds.size());
+    for (SingularityTaskId taskId : taskIds) {
+      taskCache.delete(getTaskPath(taskId));
+      if (leaderCache.active()) {
+        leaderCache.deleteTaskHistory(taskId);
+      }
+
+      List<BatchOperation> deletes = new ArrayList<>();
+      addDeletesForSubtree(getHistoryPath(taskId), deletes);
+      results.put(taskId, batchWriter.submit(deletes));
+    }
+
+    results.forEach((taskId, result) -> {
+      try {
+        result.join();
+      } catch (CompletionException ce) {
+        LOG.debug("Batched delete of history for {} failed ({}), deleting it recursively", taskId, ce.getCause().getMessage());
+        delete(getHistoryPath(taskId));
+      }
+    });
+  }
+
+  private void addDeletesForSubtree(String path, List<BatchOperation> deletes) {
+    // Children have to be deleted before their parent
+    for (String child : getChildren(path)) {
+      addDeletesForSubtree(ZKPaths.makePath(path, child), deletes);
+    }
+    deletes.add(BatchOperation.delete(path));
+  }
+
   public void purgeStaleRequests(List<String> activeRequestIds, long deleteBeforeTime) {
     final List<String> requestIds = getChildren(HISTORY_PATH_ROOT);
     for (String requestId : requestIds) {
@@ -2,6 +2,7 @@ package com.hubspot.singularity.data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -25,6 +26,7 @@ import com.hubspot.singularity.SingularityWebhook;
 import com.hubspot.singularity.SingularityWebhookSummary;
 import com.hubspot.singularity.WebhookType;
 import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.transcoders.StringTranscoder;
 import com.hubspot.singularity.data.transcoders.Transcoder;
 
 @Singleton
@@ -40,6 +42,8 @@ public class WebhookManager extends CuratorAsyncManager {
   private static final String SNS_REQUEST_RETRY = SNS_RETRY_ROOT + "/request";
   private static final String SNS_DEPLOY_RETRY = SNS_RETRY_ROOT + "/deploy";
 
+  private static final String OUTBOX_OWNER_PATH = ROOT_PATH + "/outbox-owner";
+
   private final Transcoder<SingularityWebhook> webhookTranscoder;
   private final Transcoder<SingularityRequestHistory> requestHistoryTranscoder;
   private final Transcoder<SingularityTaskHistoryUpdate> taskHistoryUpdateTranscoder;
@@ -204,7 +208,7 @@ public class WebhookManager extends CuratorAsyncManager {
     }
   }
 
-  // Methods for use with sns poller
+  // Methods for use with sns poller, also used to hand updates from non-leaders to the leader's outbox
   public void saveTaskUpdateForRetry(SingularityTaskHistoryUpdate taskHistoryUpdate) {
     String parentPath = ZKPaths.makePath(SNS_TASK_RETRY_ROOT, taskHistoryUpdate.getTaskId().getRequestId());
     if (!isChildNodeCountSafe(parentPath)) {
@@ -276,4 +280,12 @@ public class WebhookManager extends CuratorAsyncManager {
     childNodeCountCache.put(path, count);
     return count < maxChildNodes;
   }
+
+  public Optional<String> getOutboxOwner() {
+    return getData(OUTBOX_OWNER_PATH, StringTranscoder.INSTANCE);
+  }
+
+  public void setOutboxOwner(String outboxId) {
+    save(OUTBOX_OWNER_PATH, outboxId, StringTranscoder.INSTANCE);
+  }
 }
@@ -24,6 +24,11 @@ public interface HistoryJDBI extends SqlObject {
   void insertTaskHistory(String requestId, String taskId, SingularityTaskHistory taskHistory, Date updatedAt,
                          String lastTaskStatus, String runId, String deployId, String host, Date startedAt);
 
+  void insertTaskHistories(List<String> requestIds, List<String> taskIds, List<SingularityTaskHistory> taskHistories, List<Date> updatedAts,
+                           List<String> lastTaskStatuses, List<String> runIds, List<String> deployIds, List<String> hosts, List<Date> startedAts);
+
+  List<String> getPersistedTaskIds(List<String> taskIds);
+
   SingularityTaskHistory getTaskHistoryForTask(String taskId);
 
   SingularityTaskHistory getTaskHistoryForTaskByRunId(String requestId, String runId);
@@ -18,6 +18,11 @@ public interface HistoryManager {
 
   void saveTaskHistory(SingularityTaskHistory taskHistory);
 
+  /**
+   * Saves the task histories that are not already persisted in a single batch
+   */
+  void saveTaskHistories(List<SingularityTaskHistory> taskHistories);
+
   void saveDeployHistory(SingularityDeployHistory deployHistory);
 
   Optional<SingularityDeployHistory> getDeployHistory(String requestId, String deployId);
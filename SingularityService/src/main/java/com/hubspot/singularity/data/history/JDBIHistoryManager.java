@@ -1,11 +1,15 @@
 package com.hubspot.singularity.data.history;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -212,6 +216,59 @@ public class JDBIHistoryManager implements HistoryManager {
         new Date(taskIdHistory.getTaskId().getStartedAt()));
   }
 
+  @Override
+  public void saveTaskHistories(List<SingularityTaskHistory> taskHistories) {
+    if (taskHistories.isEmpty()) {
+      return;
+    }
+
+    Set<String> persistedTaskIds = new HashSet<>(history.getPersistedTaskIds(taskHistories.stream()
+        .map((taskHistory) -> taskHistory.getTask().getTaskId().getId())
+        .collect(Collectors.toList())));
+
+    int size = taskHistories.size() - persistedTaskIds.size();
+    List<String> requestIds = new ArrayList<>(size);
+    List<String> taskIds = new ArrayList<>(size);
+    List<SingularityTaskHistory> toInsert = new ArrayList<>(size);
+    List<Date> updatedAts = new ArrayList<>(size);
+    List<String> lastTaskStatuses = new ArrayList<>(size);
+    List<String> runIds = new ArrayList<>(size);
+    List<String> deployIds = new ArrayList<>(size);
+    List<String> hosts = new ArrayList<>(size);
+    List<Date> startedAts = new ArrayList<>(size);
+
+    for (SingularityTaskHistory taskHistory : taskHistories) {
+      if (!persistedTaskIds.add(taskHistory.getTask().getTaskId().getId())) {
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("saveTaskHistories -- existing taskHistory {}", taskHistory);
+        }
+        continue;
+      }
+
+      SingularityTaskIdHistory taskIdHistory = SingularityTaskIdHistory.fromTaskIdAndTaskAndUpdates(taskHistory.getTask().getTaskId(), taskHistory.getTask(), taskHistory.getTaskUpdates());
+
+      requestIds.add(taskIdHistory.getTaskId().getRequestId());
+      taskIds.add(taskIdHistory.getTaskId().getId());
+      toInsert.add(taskHistory);
+      updatedAts.add(new Date(taskIdHistory.getUpdatedAt()));
+      lastTaskStatuses.add(taskIdHistory.getLastTaskState().map(Enum::name).orElse(null));
+      runIds.add(taskHistory.getTask().getTaskRequest().getPendingTask().getRunId().orElse(null));
+      deployIds.add(taskIdHistory.getTaskId().getDeployId());
+      hosts.add(taskIdHistory.getTaskId().getHost());
+      startedAts.add(new Date(taskIdHistory.getTaskId().getStartedAt()));
+    }
+
+    if (toInsert.isEmpty()) {
+      return;
+    }
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("saveTaskHistories -- will insert {} taskHistories", toInsert.size());
+    }
+
+    history.insertTaskHistories(requestIds, taskIds, toInsert, updatedAts, lastTaskStatuses, runIds, deployIds, hosts, startedAts);
+  }
+
   @Override
   public Optional<SingularityTaskHistory> getTaskHistory(String taskId) {
     Optional<SingularityTaskHistory> maybeTaskHistory = Optional.ofNullable(history.getTaskHistoryForTask(taskId));
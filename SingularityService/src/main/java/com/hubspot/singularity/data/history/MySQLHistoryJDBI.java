@@ -6,7 +6,9 @@ import java.util.List;
 import org.jdbi.v3.json.Json;
 import org.jdbi.v3.sqlobject.SingleValue;
 import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindList;
 import org.jdbi.v3.sqlobject.customizer.Define;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
@@ -31,6 +33,14 @@ public interface MySQLHistoryJDBI extends AbstractHistoryJDBI {
                          @Bind("lastTaskStatus") String lastTaskStatus, @Bind("runId") String runId, @Bind("deployId") String deployId, @Bind("host") String host,
                          @Bind("startedAt") Date startedAt);
 
+  @SqlBatch("INSERT INTO taskHistory (requestId, taskId, json, updatedAt, lastTaskStatus, runId, deployId, host, startedAt, purged) VALUES (:requestId, :taskId, :json, :updatedAt, :lastTaskStatus, :runId, :deployId, :host, :startedAt, false)")
+  void insertTaskHistories(@Bind("requestId") List<String> requestIds, @Bind("taskId") List<String> taskIds, @Bind("json") @Json List<SingularityTaskHistory> taskHistories, @Bind("updatedAt") List<Date> updatedAts,
+                           @Bind("lastTaskStatus") List<String> lastTaskStatuses, @Bind("runId") List<String> runIds, @Bind("deployId") List<String> deployIds, @Bind("host") List<String> hosts,
+                           @Bind("startedAt") List<Date> startedAts);
+
+  @SqlQuery("SELECT taskId FROM taskHistory WHERE taskId IN (<taskIds>)")
+  List<String> getPersistedTaskIds(@BindList("taskIds") List<String> taskIds);
+
   @SingleValue
   @SqlQuery("SELECT json FROM taskHistory WHERE taskId = :taskId")
   @Json
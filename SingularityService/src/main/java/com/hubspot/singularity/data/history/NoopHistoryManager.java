@@ -33,6 +33,11 @@ public class NoopHistoryManager implements HistoryManager {
     throw new UnsupportedOperationException("NoopHistoryManager can not save");
   }
 
+  @Override
+  public void saveTaskHistories(List<SingularityTaskHistory> taskHistories) {
+    throw new UnsupportedOperationException("NoopHistoryManager can not save");
+  }
+
   @Override
   public void saveDeployHistory(SingularityDeployHistory deployHistory) {
     throw new UnsupportedOperationException("NoopHistoryManager can not save");
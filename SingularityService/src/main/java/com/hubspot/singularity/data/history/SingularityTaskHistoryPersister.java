@@ -1,11 +1,17 @@
 package com.hubspot.singularity.data.history;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import javax.inject.Singleton;
 
@@ -13,12 +19,16 @@ import org.apache.mesos.v1.Protos.TaskStatus.Reason;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.ExtendedTaskState;
 import com.hubspot.singularity.SingularityDeleteResult;
+import com.hubspot.singularity.SingularityManagedCachedThreadPoolFactory;
 import com.hubspot.singularity.SingularityPendingDeploy;
 import com.hubspot.singularity.SingularityTaskHistory;
 import com.hubspot.singularity.SingularityTaskHistoryUpdate;
@@ -40,11 +50,14 @@ public class SingularityTaskHistoryPersister extends SingularityHistoryPersister
   private final RequestManager requestManager;
   private final SingularitySchedulerLock lock;
   private final int agentReregisterTimeoutSeconds;
+  private final Meter persistedMeter;
+  private final ExecutorService fetchExecutor;
 
   @Inject
   public SingularityTaskHistoryPersister(SingularityConfiguration configuration, TaskManager taskManager,
                                          DeployManager deployManager, HistoryManager historyManager, @Named(SingularityHistoryModule.PERSISTER_LOCK) ReentrantLock persisterLock,
-                                         RequestManager requestManager, SingularitySchedulerLock lock) {
+                                         RequestManager requestManager, SingularitySchedulerLock lock, MetricRegistry metricRegistry,
+                                         SingularityManagedCachedThreadPoolFactory threadPoolFactory) {
     super(configuration, persisterLock);
 
     this.taskManager = taskManager;
@@ -53,6 +66,8 @@ public class SingularityTaskHistoryPersister extends SingularityHistoryPersister
     this.requestManager = requestManager;
     this.lock = lock;
     this.agentReregisterTimeoutSeconds = configuration.getMesosConfiguration().getAgentReregisterTimeoutSeconds();
+    this.persistedMeter = metricRegistry.meter("history.persister.tasks");
+    this.fetchExecutor = threadPoolFactory.get("task-history-persister");
   }
 
   @Override
@@ -75,28 +90,91 @@ public class SingularityTaskHistoryPersister extends SingularityHistoryPersister
           Set<SingularityTaskId> lbCleaningTaskIds = Sets.newHashSet(taskManager.getLBCleanupTasks());
           List<SingularityPendingDeploy> pendingDeploys = deployManager.getPendingDeploys();
 
-          AtomicInteger transferred = new AtomicInteger();
-          allTaskIds.stream()
+          List<SingularityTaskId> inactiveForRequest = allTaskIds.stream()
               .filter((t) -> t.getRequestId().equals(requestId))
               .filter((t) -> !(activeForRequest.contains(t) || lbCleaningTaskIds.contains(t) || isPartOfPendingDeploy(pendingDeploys, t) || couldReturnWithRecoveredAgent(t)))
-              .forEach((t) -> {
-                if (moveToHistoryOrCheckForPurge(t, transferred.getAndIncrement())) {
-                  numTransferred.getAndIncrement();
-                }
-
-                numTotal.getAndIncrement();
-              });
-
-
+              .collect(Collectors.toList());
+
+          numTotal.getAndAdd(inactiveForRequest.size());
+
+          if (persistsHistoryInsteadOfPurging()) {
+            numTransferred.getAndAdd(persistInBatches(inactiveForRequest));
+          } else {
+            for (int i = 0; i < inactiveForRequest.size(); i++) {
+              if (moveToHistoryOrCheckForPurge(inactiveForRequest.get(i), i)) {
+                numTransferred.getAndIncrement();
+              }
+            }
+          }
         }, requestId, "task history persister");
       }
 
-      LOG.info("Transferred {} out of {} inactive task ids (total {}) in {}", numTransferred, numTotal, allTaskIds.size(), JavaUtils.duration(start));
+      final long duration = Math.max(System.currentTimeMillis() - start, 1);
+      LOG.info("Transferred {} out of {} inactive task ids (total {}) in {} ({} tasks/s)", numTransferred, numTotal, allTaskIds.size(), JavaUtils.duration(start),
+          numTransferred.get() * 1000L / duration);
     } finally {
       persisterLock.unlock();
     }
   }
 
+  /**
+   * Reads each batch of task histories from zk on up to taskHistoryPersisterParallelism threads, inserts the batch in
+   * one transaction and then deletes the batch from zk. If the batch insert fails, the tasks are saved one at a time so
+   * a single bad row does not hold back the rest.
+   */
+  private int persistInBatches(List<SingularityTaskId> taskIds) {
+    int persisted = 0;
+    for (List<SingularityTaskId> batch : Lists.partition(taskIds, Math.max(configuration.getTaskHistoryPersisterBatchSize(), 1))) {
+      final long start = System.currentTimeMillis();
+      Map<SingularityTaskId, Optional<SingularityTaskHistory>> taskHistories = fetchTaskHistories(batch);
+
+      List<SingularityTaskId> toDelete = new ArrayList<>(batch.size());
+      try {
+        historyManager.saveTaskHistories(taskHistories.values().stream()
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toList()));
+        toDelete.addAll(batch);
+      } catch (Throwable t) {
+        LOG.warn("Failed to persist a batch of {} tasks into History, persisting them one at a time", batch.size(), t);
+        taskHistories.forEach((taskId, taskHistory) -> {
+          if (saveTaskHistory(taskId, taskHistory)) {
+            toDelete.add(taskId);
+          }
+        });
+      }
+
+      taskHistories.forEach((taskId, taskHistory) -> {
+        if (!taskHistory.isPresent()) {
+          LOG.warn("Inactive task {} did not have a task to persist", taskId);
+        }
+      });
+
+      taskManager.deleteTaskHistories(toDelete);
+      persistedMeter.mark(toDelete.size());
+      persisted += toDelete.size();
+      LOG.debug("Persisted {} of {} tasks in {}", toDelete.size(), batch.size(), JavaUtils.duration(start));
+    }
+    return persisted;
+  }
+
+  private Map<SingularityTaskId, Optional<SingularityTaskHistory>> fetchTaskHistories(List<SingularityTaskId> batch) {
+    int parallelism = Math.max(configuration.getTaskHistoryPersisterParallelism(), 1);
+    int sliceSize = (batch.size() + parallelism - 1) / parallelism;
+
+    List<CompletableFuture<Map<SingularityTaskId, Optional<SingularityTaskHistory>>>> slices = Lists.partition(batch, sliceSize).stream()
+        .map((slice) -> CompletableFuture.supplyAsync(() -> {
+          Map<SingularityTaskId, Optional<SingularityTaskHistory>> taskHistories = new LinkedHashMap<>(slice.size());
+          slice.forEach((taskId) -> taskHistories.put(taskId, taskManager.getTaskHistory(taskId)));
+          return taskHistories;
+        }, fetchExecutor))
+        .collect(Collectors.toList());
+
+    Map<SingularityTaskId, Optional<SingularityTaskHistory>> taskHistories = new LinkedHashMap<>(batch.size());
+    slices.forEach((slice) -> taskHistories.putAll(slice.join()));
+    return taskHistories;
+  }
+
   private boolean isPartOfPendingDeploy(List<SingularityPendingDeploy> pendingDeploys, SingularityTaskId taskId) {
     for (SingularityPendingDeploy pendingDeploy : pendingDeploys) {
       if (pendingDeploy.getDeployMarker().getDeployId().equals(taskId.getDeployId()) && pendingDeploy.getDeployMarker().getRequestId().equals(taskId.getRequestId())) {
@@ -148,16 +226,22 @@ public class SingularityTaskHistoryPersister extends SingularityHistoryPersister
   protected boolean moveToHistory(SingularityTaskId object) {
     final Optional<SingularityTaskHistory> taskHistory = taskManager.getTaskHistory(object);
 
+    if (!taskHistory.isPresent()) {
+      LOG.warn("Inactive task {} did not have a task to persist", object);
+    }
+
+    return saveTaskHistory(object, taskHistory);
+  }
+
+  private boolean saveTaskHistory(SingularityTaskId taskId, Optional<SingularityTaskHistory> taskHistory) {
     if (taskHistory.isPresent()) {
-      LOG.debug("Moving {} to history", object);
+      LOG.debug("Moving {} to history", taskId);
       try {
         historyManager.saveTaskHistory(taskHistory.get());
       } catch (Throwable t) {
-        LOG.warn("Failed to persist task into History for task {}", object, t);
+        LOG.warn("Failed to persist task into History for task {}", taskId, t);
         return false;
       }
-    } else {
-      LOG.warn("Inactive task {} did not have a task to persist", object);
     }
 
     return true;
@@ -0,0 +1,95 @@
+package com.hubspot.singularity.data.transcoders;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import org.iq80.snappy.CorruptionException;
+import org.iq80.snappy.Snappy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.singularity.config.SingularityConfiguration;
+
+/**
+ * Writes objects as CBOR, snappy compressed when compressLargeDataObjects is set, behind a two byte header
+ * ({@link #HEADER_MARKER}, format). Neither JSON nor snappy output can start with a 0 byte, so anything without the header
+ * is handed to the regular compressed JSON transcoder. That keeps existing nodes readable, and lets binaryZkDataFormat be
+ * turned back off without losing the ability to read nodes that were already written as CBOR.
+ */
+public class CompressingBinaryTranscoder<T> implements Transcoder<T> {
+  static final byte HEADER_MARKER = 0;
+  static final byte FORMAT_CBOR = 1;
+  static final byte FORMAT_CBOR_SNAPPY = 2;
+
+  private static final int HEADER_LENGTH = 2;
+  private static final byte[] EMPTY_BYTES = new byte[0];
+
+  private final CompressingJsonTranscoder<T> jsonTranscoder;
+  private final ObjectMapper binaryObjectMapper;
+  private final Class<T> clazz;
+  private final boolean writeBinary;
+  private final boolean compressLargeDataObjects;
+
+  CompressingBinaryTranscoder(final SingularityConfiguration configuration, final ObjectMapper objectMapper, final ObjectMapper binaryObjectMapper, final Class<T> clazz) {
+    checkNotNull(configuration, "configuration is null");
+    this.jsonTranscoder = new CompressingJsonTranscoder<>(configuration, objectMapper, clazz);
+    this.binaryObjectMapper = checkNotNull(binaryObjectMapper, "binaryObjectMapper is null");
+    this.clazz = checkNotNull(clazz, "clazz is null");
+    this.writeBinary = configuration.isBinaryZkDataFormat();
+    this.compressLargeDataObjects = configuration.isCompressLargeDataObjects();
+  }
+
+  public static boolean isBinaryFormat(@Nullable byte[] data) {
+    return data != null && data.length >= HEADER_LENGTH && data[0] == HEADER_MARKER;
+  }
+
+  @Override
+  public T fromBytes(@Nullable byte[] data) throws SingularityTranscoderException {
+    if (data == null || data.length == 0) {
+      return null;
+    }
+
+    if (!isBinaryFormat(data)) {
+      return jsonTranscoder.fromBytes(data);
+    }
+
+    try {
+      switch (data[1]) {
+        case FORMAT_CBOR:
+          return binaryObjectMapper.readValue(data, HEADER_LENGTH, data.length - HEADER_LENGTH, clazz);
+        case FORMAT_CBOR_SNAPPY:
+          return binaryObjectMapper.readValue(Snappy.uncompress(data, HEADER_LENGTH, data.length - HEADER_LENGTH), clazz);
+        default:
+          throw new SingularityTranscoderException("Unknown data format %s for %s", data[1], clazz.getSimpleName());
+      }
+    } catch (IOException | CorruptionException e) {
+      throw new SingularityTranscoderException(e);
+    }
+  }
+
+  @Override
+  public byte[] toBytes(@Nullable T object) throws SingularityTranscoderException {
+    if (!writeBinary) {
+      return jsonTranscoder.toBytes(object);
+    }
+
+    if (object == null) {
+      return EMPTY_BYTES;
+    }
+
+    try {
+      byte[] cbor = binaryObjectMapper.writeValueAsBytes(object);
+      byte[] body = compressLargeDataObjects ? Snappy.compress(cbor) : cbor;
+
+      byte[] data = new byte[body.length + HEADER_LENGTH];
+      data[0] = HEADER_MARKER;
+      data[1] = compressLargeDataObjects ? FORMAT_CBOR_SNAPPY : FORMAT_CBOR;
+      System.arraycopy(body, 0, data, HEADER_LENGTH, body.length);
+      return data;
+    } catch (IOException e) {
+      throw new SingularityTranscoderException(e);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.google.common.reflect.TypeParameter;
 import com.google.common.reflect.TypeToken;
 import com.google.inject.Binder;
@@ -11,6 +12,7 @@ import com.google.inject.Inject;
 import com.google.inject.Key;
 import com.google.inject.Provider;
 import com.google.inject.Scopes;
+import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.Singularity;
 import com.hubspot.singularity.SingularityId;
 import com.hubspot.singularity.config.SingularityConfiguration;
@@ -42,6 +44,13 @@ public final class SingularityJsonTranscoderBinder {
     binder.bind(key).toProvider(new CompressingJsonTranscoderProvider<T>(clazz)).in(Scopes.SINGLETON);
   }
 
+  public <T> void asCompressedBinary(Class<T> clazz) {
+    TypeToken<Transcoder<T>> typeToken = new TypeToken<Transcoder<T>>() {}.where(new TypeParameter<T>() {}, clazz);
+    @SuppressWarnings("unchecked")
+    Key<Transcoder<T>> key = (Key<Transcoder<T>>) Key.get(typeToken.getType());
+    binder.bind(key).toProvider(new CompressingBinaryTranscoderProvider<T>(clazz)).in(Scopes.SINGLETON);
+  }
+
   public <T extends SingularityId> void asSingularityId(Class<T> clazz) {
     TypeToken<IdTranscoder<T>> typeToken = new TypeToken<IdTranscoder<T>>() {}.where(new TypeParameter<T>() {}, clazz);
     @SuppressWarnings("unchecked")
@@ -94,4 +103,30 @@ public final class SingularityJsonTranscoderBinder {
     }
   }
 
+  static class CompressingBinaryTranscoderProvider<T> implements Provider<CompressingBinaryTranscoder<T>> {
+    private static final ObjectMapper BINARY_OBJECT_MAPPER = JavaUtils.newObjectMapper(new CBORFactory());
+
+    private final Class<T> clazz;
+    private ObjectMapper objectMapper;
+    private SingularityConfiguration singularityConfiguration;
+
+    CompressingBinaryTranscoderProvider(Class<T> clazz) {
+      this.clazz = clazz;
+    }
+
+    @Inject
+    void inject(@Singularity ObjectMapper objectMapper, SingularityConfiguration singularityConfiguration) {
+      this.objectMapper = checkNotNull(objectMapper, "objectMapper is null");
+      this.singularityConfiguration = checkNotNull(singularityConfiguration, "singularityConfiguration is null");
+    }
+
+    @Override
+    public CompressingBinaryTranscoder<T> get() {
+      checkState(objectMapper != null, "objectMapper was never injected!");
+      checkState(singularityConfiguration != null, "singularityConfiguration was never injected!");
+
+      return new CompressingBinaryTranscoder<T>(singularityConfiguration, objectMapper, BINARY_OBJECT_MAPPER, clazz);
+    }
+  }
+
 }
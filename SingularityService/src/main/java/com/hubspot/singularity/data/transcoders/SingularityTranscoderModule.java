@@ -107,14 +107,14 @@ public class SingularityTranscoderModule implements Module {
     bindTranscoder(binder).asJson(RequestUtilization.class);
 
     bindTranscoder(binder).asCompressedJson(SingularityDeployHistory.class);
-    bindTranscoder(binder).asCompressedJson(SingularityDeploy.class);
+    bindTranscoder(binder).asCompressedBinary(SingularityDeploy.class);
     bindTranscoder(binder).asCompressedJson(SingularityDeployUpdate.class);
     bindTranscoder(binder).asCompressedJson(SingularityRequestHistory.class);
     bindTranscoder(binder).asCompressedJson(SingularityState.class);
     bindTranscoder(binder).asCompressedJson(SingularityTaskHealthcheckResult.class);
     bindTranscoder(binder).asCompressedJson(SingularityTaskHistory.class);
     bindTranscoder(binder).asCompressedJson(SingularityTaskStatusHolder.class);
-    bindTranscoder(binder).asCompressedJson(SingularityTask.class);
+    bindTranscoder(binder).asCompressedBinary(SingularityTask.class);
     bindTranscoder(binder).asCompressedJson(SingularityTaskMetadata.class);
 
     bindTranscoder(binder).asJson(SingularityPriorityFreezeParent.class);
@@ -0,0 +1,124 @@
+package com.hubspot.singularity.data.transcoders;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+import com.hubspot.singularity.SingularityTaskUsage;
+
+/**
+ * Packs a run of task usage samples, sorted oldest first, into columns of zig-zag varint encoded deltas.
+ * Timestamps and the cumulative cpu counters only move forward between samples so most deltas fit in one
+ * or two bytes. Fractional seconds are kept to the microsecond.
+ */
+public class TaskUsageBlockTranscoder implements Transcoder<List<SingularityTaskUsage>> {
+
+  public static final TaskUsageBlockTranscoder INSTANCE = new TaskUsageBlockTranscoder();
+
+  private static final byte VERSION = 1;
+  private static final double MICROS_PER_SECOND = 1_000_000d;
+
+  private static final List<ToLongFunction<SingularityTaskUsage>> COLUMNS = ImmutableList.of(
+      SingularityTaskUsage::getTimestamp,
+      SingularityTaskUsage::getMemoryTotalBytes,
+      (usage) -> toMicros(usage.getCpuSeconds()),
+      SingularityTaskUsage::getDiskTotalBytes,
+      SingularityTaskUsage::getCpusNrPeriods,
+      SingularityTaskUsage::getCpusNrThrottled,
+      (usage) -> toMicros(usage.getCpusThrottledTimeSecs())
+  );
+
+  @Override
+  public List<SingularityTaskUsage> fromBytes(@Nullable byte[] data) throws SingularityTranscoderException {
+    if (data == null || data.length == 0) {
+      return new ArrayList<>();
+    }
+
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      byte version = buffer.get();
+      if (version != VERSION) {
+        throw new SingularityTranscoderException("Unknown task usage block version %s", version);
+      }
+
+      int count = (int) readVarLong(buffer);
+      long[][] columns = new long[COLUMNS.size()][count];
+      for (long[] column : columns) {
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+          previous += zigZagDecode(readVarLong(buffer));
+          column[i] = previous;
+        }
+      }
+
+      List<SingularityTaskUsage> usages = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        usages.add(new SingularityTaskUsage(columns[1][i], columns[0][i], fromMicros(columns[2][i]), columns[3][i], columns[4][i], columns[5][i], fromMicros(columns[6][i])));
+      }
+      return usages;
+    } catch (BufferUnderflowException e) {
+      throw new SingularityTranscoderException(e, "Truncated task usage block of %s bytes", data.length);
+    }
+  }
+
+  @Override
+  public byte[] toBytes(@Nullable List<SingularityTaskUsage> usages) throws SingularityTranscoderException {
+    List<SingularityTaskUsage> safeUsages = usages == null ? Collections.emptyList() : usages;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(8 + safeUsages.size() * COLUMNS.size() * 2);
+    out.write(VERSION);
+    writeVarLong(out, safeUsages.size());
+    for (ToLongFunction<SingularityTaskUsage> column : COLUMNS) {
+      long previous = 0;
+      for (SingularityTaskUsage usage : safeUsages) {
+        long value = column.applyAsLong(usage);
+        writeVarLong(out, zigZagEncode(value - previous));
+        previous = value;
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static long toMicros(double seconds) {
+    return Math.round(seconds * MICROS_PER_SECOND);
+  }
+
+  private static double fromMicros(long micros) {
+    return micros / MICROS_PER_SECOND;
+  }
+
+  private static long zigZagEncode(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long zigZagDecode(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new SingularityTranscoderException("Malformed varint in task usage block");
+  }
+}
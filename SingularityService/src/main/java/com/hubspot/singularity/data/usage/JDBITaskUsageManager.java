@@ -1,19 +1,33 @@
 package com.hubspot.singularity.data.usage;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.inject.Inject;
 import com.hubspot.singularity.InvalidSingularityTaskIdException;
 import com.hubspot.singularity.SingularityTaskId;
 import com.hubspot.singularity.SingularityTaskUsage;
 import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.transcoders.SingularityTranscoderException;
+import com.hubspot.singularity.data.transcoders.TaskUsageBlockTranscoder;
 
 public class JDBITaskUsageManager implements TaskUsageManager {
   private static final Logger LOG = LoggerFactory.getLogger(JDBITaskUsageManager.class);
 
+  private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+  private static final long BLOCK_MILLIS = TimeUnit.DAYS.toMillis(1);
+
   private final TaskUsageJDBI taskUsageJDBI;
   private final SingularityConfiguration configuration;
 
@@ -36,25 +50,67 @@ public class JDBITaskUsageManager implements TaskUsageManager {
     taskUsageJDBI.saveSpecificTaskUsage(taskId.getRequestId(), taskId.getId(), usage.getMemoryTotalBytes(), usage.getTimestamp(), usage.getCpuSeconds(), usage.getDiskTotalBytes(), usage.getCpusNrPeriods(), usage.getCpusNrThrottled(), usage.getCpusThrottledTimeSecs());
   }
 
+  public void saveTaskUsages(Map<SingularityTaskId, SingularityTaskUsage> usages) {
+    if (usages.isEmpty()) {
+      return;
+    }
+    List<String> requestIds = new ArrayList<>(usages.size());
+    List<String> taskIds = new ArrayList<>(usages.size());
+    List<SingularityTaskUsage> taskUsages = new ArrayList<>(usages.size());
+    usages.forEach((taskId, usage) -> {
+      requestIds.add(taskId.getRequestId());
+      taskIds.add(taskId.getId());
+      taskUsages.add(usage);
+    });
+    taskUsageJDBI.saveTaskUsages(requestIds, taskIds, taskUsages);
+  }
+
   public List<SingularityTaskUsage> getTaskUsage(SingularityTaskId taskId) {
     return taskUsageJDBI.getTaskUsage(taskId.getId());
   }
 
+  public List<SingularityTaskUsage> getHourlyTaskUsage(SingularityTaskId taskId, long startTimestamp, long endTimestamp) {
+    return taskUsageJDBI.getTaskUsageBlocks(taskId.getId(), getBlockStart(startTimestamp), getBlockStart(endTimestamp)).stream()
+        .flatMap((bytes) -> TaskUsageBlockTranscoder.INSTANCE.fromBytes(bytes).stream())
+        .filter((usage) -> usage.getTimestamp() >= startTimestamp && usage.getTimestamp() <= endTimestamp)
+        .collect(Collectors.toList());
+  }
+
   public int countTasksWithUsage() {
     return taskUsageJDBI.countTasksWithUsage();
   }
 
   public void cleanOldUsages(List<SingularityTaskId> activeTaskIds) {
+    Set<SingularityTaskId> activeTaskIdSet = new HashSet<>(activeTaskIds);
+    boolean keepHourlyUsage = configuration.getKeepHourlyTaskUsageForDays() > 0;
+
     for (String taskIdString : taskUsageJDBI.getUniqueTaskIds()) {
       try {
         SingularityTaskId taskId = SingularityTaskId.valueOf(taskIdString);
-        if (activeTaskIds.contains(taskId)) {
-          taskUsageJDBI.getUsageTimestampsForTask(taskIdString).stream()
-              .sorted((t1, t2) -> Long.compare(t2, t1))
-              .skip(configuration.getNumUsageToKeep())
-              .forEach((timestamp) -> deleteSpecificTaskUsage(taskId, timestamp));
+        if (activeTaskIdSet.contains(taskId)) {
+          if (keepHourlyUsage) {
+            List<SingularityTaskUsage> expiredUsages = taskUsageJDBI.getTaskUsage(taskIdString).stream()
+                .sorted(Comparator.comparingLong(SingularityTaskUsage::getTimestamp).reversed())
+                .skip(configuration.getNumUsageToKeep())
+                .collect(Collectors.toList());
+            if (!expiredUsages.isEmpty()) {
+              saveHourlyTaskUsage(taskId, expiredUsages);
+              taskUsageJDBI.deleteSpecificTaskUsages(taskIdString, expiredUsages.stream().map(SingularityTaskUsage::getTimestamp).collect(Collectors.toList()));
+            }
+          } else {
+            List<Long> expiredTimestamps = taskUsageJDBI.getUsageTimestampsForTask(taskIdString).stream()
+                .sorted((t1, t2) -> Long.compare(t2, t1))
+                .skip(configuration.getNumUsageToKeep())
+                .collect(Collectors.toList());
+            if (!expiredTimestamps.isEmpty()) {
+              taskUsageJDBI.deleteSpecificTaskUsages(taskIdString, expiredTimestamps);
+            }
+          }
           continue;
         }
+        if (keepHourlyUsage) {
+          saveHourlyTaskUsage(taskId, taskUsageJDBI.getTaskUsage(taskIdString));
+        }
       } catch (InvalidSingularityTaskIdException e) {
         LOG.warn("{} is not a valid task id, will remove task usage from zookeeper", taskIdString);
       }
@@ -62,5 +118,59 @@ public class JDBITaskUsageManager implements TaskUsageManager {
 
       LOG.debug("Deleted obsolete task usage {}", taskIdString);
     }
+
+    if (keepHourlyUsage) {
+      long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(configuration.getKeepHourlyTaskUsageForDays());
+      int deleted = taskUsageJDBI.deleteTaskUsageBlocksBefore(getBlockStart(cutoff));
+      LOG.debug("Deleted {} hourly task usage blocks from before {}", deleted, cutoff);
+    }
+  }
+
+  /**
+   * Hourly usage is stored as one encoded block of up to 24 samples per task per day. Merging new samples into a
+   * block is idempotent, so samples which were already rolled up can safely be seen again.
+   */
+  private void saveHourlyTaskUsage(SingularityTaskId taskId, List<SingularityTaskUsage> usages) {
+    Map<Long, List<SingularityTaskUsage>> usagesPerBlock = usages.stream()
+        .collect(Collectors.groupingBy((usage) -> getBlockStart(usage.getTimestamp())));
+
+    usagesPerBlock.forEach((blockStart, blockUsages) -> {
+      List<SingularityTaskUsage> merged = new ArrayList<>(blockUsages);
+      for (byte[] existing : taskUsageJDBI.getTaskUsageBlock(taskId.getId(), blockStart)) {
+        try {
+          merged.addAll(TaskUsageBlockTranscoder.INSTANCE.fromBytes(existing));
+        } catch (SingularityTranscoderException e) {
+          LOG.warn("Replacing unreadable hourly usage block {} for {}", blockStart, taskId, e);
+        }
+      }
+      taskUsageJDBI.replaceTaskUsageBlock(taskId.getRequestId(), taskId.getId(), blockStart, TaskUsageBlockTranscoder.INSTANCE.toBytes(downsampleHourly(merged)));
+    });
+  }
+
+  /**
+   * Collapses samples into one per hour, oldest first. Each hourly sample keeps the peak memory and disk seen in that
+   * hour along with the cumulative cpu counters of the latest sample, so rates between hourly samples stay exact.
+   */
+  @VisibleForTesting
+  static List<SingularityTaskUsage> downsampleHourly(List<SingularityTaskUsage> usages) {
+    Map<Long, SingularityTaskUsage> hourly = new TreeMap<>();
+    for (SingularityTaskUsage usage : usages) {
+      hourly.merge(usage.getTimestamp() / HOUR_MILLIS, usage, (a, b) -> {
+        SingularityTaskUsage latest = a.getTimestamp() >= b.getTimestamp() ? a : b;
+        return new SingularityTaskUsage(
+            Math.max(a.getMemoryTotalBytes(), b.getMemoryTotalBytes()),
+            latest.getTimestamp(),
+            latest.getCpuSeconds(),
+            Math.max(a.getDiskTotalBytes(), b.getDiskTotalBytes()),
+            latest.getCpusNrPeriods(),
+            latest.getCpusNrThrottled(),
+            latest.getCpusThrottledTimeSecs());
+      });
+    }
+    return new ArrayList<>(hourly.values());
+  }
+
+  private static long getBlockStart(long timestamp) {
+    return timestamp - Math.floorMod(timestamp, BLOCK_MILLIS);
   }
 }
@@ -3,6 +3,8 @@ package com.hubspot.singularity.data.usage;
 import java.util.List;
 
 import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
 
@@ -15,11 +17,17 @@ public interface MySQLTaskUsageJDBI extends TaskUsageJDBI {
   @SqlUpdate("DELETE FROM taskUsage WHERE taskId = :taskId AND timestamp = :timestamp")
   void deleteSpecificTaskUsage(@Bind("taskId") String taskId, @Bind("timestamp") long timestamp);
 
+  @SqlBatch("DELETE FROM taskUsage WHERE taskId = :taskId AND timestamp = :timestamp")
+  void deleteSpecificTaskUsages(@Bind("taskId") String taskId, @Bind("timestamp") List<Long> timestamps);
+
   @SqlUpdate("INSERT INTO taskUsage (" + FIELDS + ") VALUES (" + FIELD_VALUES + ")")
   void saveSpecificTaskUsage(@Bind("requestId") String requestId, @Bind("taskId") String taskId, @Bind("memoryTotalBytes") long memoryTotalBytes,
                                              @Bind("timestamp") long timestamp, @Bind("cpuSeconds") double cpuSeconds, @Bind("diskTotalBytes") long diskTotalBytes, @Bind("cpusNrPeriods") long cpusNrPeriods,
                                              @Bind("cpusNrThrottled") long cpusNrThrottled, @Bind("cpusThrottledTimeSecs") double cpusThrottledTimeSecs);
 
+  @SqlBatch("INSERT INTO taskUsage (" + FIELDS + ") VALUES (" + FIELD_VALUES + ")")
+  void saveTaskUsages(@Bind("requestId") List<String> requestIds, @Bind("taskId") List<String> taskIds, @BindBean List<SingularityTaskUsage> usages);
+
   @SqlQuery("SELECT " + FIELDS + " FROM taskUsage WHERE taskId = :taskId")
   List<SingularityTaskUsage> getTaskUsage(@Bind("taskId") String taskId);
 
@@ -31,4 +39,19 @@ public interface MySQLTaskUsageJDBI extends TaskUsageJDBI {
 
   @SqlQuery("SELECT COUNT(DISTINCT taskId) FROM taskUsage")
   int countTasksWithUsage();
+
+  @SqlQuery("SELECT bytes FROM taskUsageBlocks WHERE taskId = :taskId AND blockStart = :blockStart")
+  List<byte[]> getTaskUsageBlock(@Bind("taskId") String taskId, @Bind("blockStart") long blockStart);
+
+  @SqlQuery("SELECT bytes FROM taskUsageBlocks WHERE taskId = :taskId AND blockStart BETWEEN :minBlockStart AND :maxBlockStart ORDER BY blockStart ASC")
+  List<byte[]> getTaskUsageBlocks(@Bind("taskId") String taskId, @Bind("minBlockStart") long minBlockStart, @Bind("maxBlockStart") long maxBlockStart);
+
+  @SqlUpdate("INSERT INTO taskUsageBlocks (requestId, taskId, blockStart, bytes) VALUES (:requestId, :taskId, :blockStart, :bytes)")
+  void insertTaskUsageBlock(@Bind("requestId") String requestId, @Bind("taskId") String taskId, @Bind("blockStart") long blockStart, @Bind("bytes") byte[] bytes);
+
+  @SqlUpdate("DELETE FROM taskUsageBlocks WHERE taskId = :taskId AND blockStart = :blockStart")
+  void deleteTaskUsageBlock(@Bind("taskId") String taskId, @Bind("blockStart") long blockStart);
+
+  @SqlUpdate("DELETE FROM taskUsageBlocks WHERE blockStart < :blockStart")
+  int deleteTaskUsageBlocksBefore(@Bind("blockStart") long blockStart);
 }
@@ -2,6 +2,8 @@ package com.hubspot.singularity.data.usage;
 
 import java.util.List;
 
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+
 import com.hubspot.singularity.SingularityTaskUsage;
 
 public interface TaskUsageJDBI {
@@ -12,9 +14,13 @@ public interface TaskUsageJDBI {
 
   void deleteSpecificTaskUsage(String taskId, long timestamp);
 
+  void deleteSpecificTaskUsages(String taskId, List<Long> timestamps);
+
   void saveSpecificTaskUsage(String requestId, String taskId, long memoryTotalBytes, long timestamp, double cpuSeconds, long diskTotalBytes, long cpusNrPeriods, long cpusNrThrottled,
                                              double cpusThrottledTimeSecs);
 
+  void saveTaskUsages(List<String> requestIds, List<String> taskIds, List<SingularityTaskUsage> usages);
+
   List<SingularityTaskUsage> getTaskUsage(String taskId);
 
   List<String> getUniqueTaskIds();
@@ -22,4 +28,20 @@ public interface TaskUsageJDBI {
   List<Long> getUsageTimestampsForTask(String taskId);
 
   int countTasksWithUsage();
+
+  List<byte[]> getTaskUsageBlock(String taskId, long blockStart);
+
+  List<byte[]> getTaskUsageBlocks(String taskId, long minBlockStart, long maxBlockStart);
+
+  void insertTaskUsageBlock(String requestId, String taskId, long blockStart, byte[] bytes);
+
+  void deleteTaskUsageBlock(String taskId, long blockStart);
+
+  int deleteTaskUsageBlocksBefore(long blockStart);
+
+  @Transaction
+  default void replaceTaskUsageBlock(String requestId, String taskId, long blockStart, byte[] bytes) {
+    deleteTaskUsageBlock(taskId, blockStart);
+    insertTaskUsageBlock(requestId, taskId, blockStart, bytes);
+  }
 }
@@ -2,6 +2,7 @@ package com.hubspot.singularity.data.usage;
 
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import com.hubspot.singularity.SingularityTaskId;
 import com.hubspot.singularity.SingularityTaskUsage;
@@ -15,8 +16,12 @@ public interface TaskUsageManager {
 
   void saveSpecificTaskUsage(SingularityTaskId taskId, SingularityTaskUsage usage);
 
+  void saveTaskUsages(Map<SingularityTaskId, SingularityTaskUsage> usages);
+
   List<SingularityTaskUsage> getTaskUsage(SingularityTaskId taskId);
 
+  List<SingularityTaskUsage> getHourlyTaskUsage(SingularityTaskId taskId, long startTimestamp, long endTimestamp);
+
   int countTasksWithUsage();
 
   void cleanOldUsages(List<SingularityTaskId> activeTaskIds);
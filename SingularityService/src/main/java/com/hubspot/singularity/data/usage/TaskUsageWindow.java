@@ -0,0 +1,89 @@
+package com.hubspot.singularity.data.usage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.hubspot.singularity.SingularityTaskUsage;
+
+/**
+ * The most recent usage samples for a single task, kept by the leader in a fixed size ring buffer
+ * of primitive columns so that usage collection does not need to re-read history from the store
+ */
+public class TaskUsageWindow {
+  private final long[] memoryTotalBytes;
+  private final long[] timestamps;
+  private final double[] cpuSeconds;
+  private final long[] diskTotalBytes;
+  private final long[] cpusNrPeriods;
+  private final long[] cpusNrThrottled;
+  private final double[] cpusThrottledTimeSecs;
+
+  private int next;
+  private int size;
+  private long lastCheckpointAt;
+
+  public TaskUsageWindow(int capacity) {
+    int safeCapacity = Math.max(capacity, 1);
+    this.memoryTotalBytes = new long[safeCapacity];
+    this.timestamps = new long[safeCapacity];
+    this.cpuSeconds = new double[safeCapacity];
+    this.diskTotalBytes = new long[safeCapacity];
+    this.cpusNrPeriods = new long[safeCapacity];
+    this.cpusNrThrottled = new long[safeCapacity];
+    this.cpusThrottledTimeSecs = new double[safeCapacity];
+  }
+
+  /**
+   * Seeds the window with samples read from the store, which must be sorted oldest first
+   */
+  public synchronized void addAll(Collection<SingularityTaskUsage> usages) {
+    usages.forEach(this::add);
+  }
+
+  public synchronized void add(SingularityTaskUsage usage) {
+    memoryTotalBytes[next] = usage.getMemoryTotalBytes();
+    timestamps[next] = usage.getTimestamp();
+    cpuSeconds[next] = usage.getCpuSeconds();
+    diskTotalBytes[next] = usage.getDiskTotalBytes();
+    cpusNrPeriods[next] = usage.getCpusNrPeriods();
+    cpusNrThrottled[next] = usage.getCpusNrThrottled();
+    cpusThrottledTimeSecs[next] = usage.getCpusThrottledTimeSecs();
+
+    next = (next + 1) % timestamps.length;
+    size = Math.min(size + 1, timestamps.length);
+  }
+
+  /**
+   * @return the samples in the window, oldest first
+   */
+  public synchronized List<SingularityTaskUsage> getUsages() {
+    List<SingularityTaskUsage> usages = new ArrayList<>(size);
+    int start = (next - size + timestamps.length) % timestamps.length;
+    for (int i = 0; i < size; i++) {
+      int index = (start + i) % timestamps.length;
+      usages.add(new SingularityTaskUsage(memoryTotalBytes[index], timestamps[index], cpuSeconds[index], diskTotalBytes[index],
+          cpusNrPeriods[index], cpusNrThrottled[index], cpusThrottledTimeSecs[index]));
+    }
+    return usages;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  public synchronized void markCheckpointed(long timestamp) {
+    lastCheckpointAt = timestamp;
+  }
+
+  /**
+   * @return true if a sample taken at {@code now} should be written to the store, marking the window as checkpointed if so
+   */
+  public synchronized boolean checkpointIfDue(long now, long checkpointIntervalMillis) {
+    if (now - lastCheckpointAt < checkpointIntervalMillis) {
+      return false;
+    }
+    lastCheckpointAt = now;
+    return true;
+  }
+}
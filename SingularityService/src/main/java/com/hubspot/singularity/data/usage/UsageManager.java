@@ -60,9 +60,14 @@ public class UsageManager extends CuratorAsyncManager implements TaskUsageManage
     this.requestUtilizationTranscoder = requestUtilizationTranscoder;
   }
 
-  public void activateLeaderCache() {
-    leaderCache.cacheRequestUtilizations(getRequestUtilizations(false));
-    leaderCache.cacheSlaveUsages(getAllCurrentSlaveUsage());
+  /**
+   * Loads usages into the leader cache, which must have been prepared with startLoadingUsages. Nothing is
+   * loaded if the cache was stopped after the given generation was read
+   */
+  public void loadUsagesIntoLeaderCache(long generation) {
+    getAsyncChildren(REQUESTS_PATH, requestUtilizationTranscoder).forEach((utilization) -> leaderCache.loadRequestUtilization(generation, utilization));
+    getAsyncChildren(SLAVE_PATH, slaveUsageTranscoder).forEach((usage) -> leaderCache.loadSlaveUsage(generation, usage));
+    leaderCache.finishLoadingUsages(generation);
   }
 
   public SingularityCreateResult saveClusterUtilization(SingularityClusterUtilization utilization) {
@@ -83,7 +88,7 @@ public class UsageManager extends CuratorAsyncManager implements TaskUsageManage
   }
 
   public Map<String, RequestUtilization> getRequestUtilizations(boolean useWebCache) {
-    if (leaderCache.active()) {
+    if (leaderCache.usagesActive()) {
       return leaderCache.getRequestUtilizations();
     }
 
@@ -102,7 +107,7 @@ public class UsageManager extends CuratorAsyncManager implements TaskUsageManage
   }
 
   public Optional<RequestUtilization> getRequestUtilization(String requestId, boolean useWebCache) {
-    if (leaderCache.active()) {
+    if (leaderCache.usagesActive()) {
       return Optional.ofNullable(leaderCache.getRequestUtilizations().get(requestId));
     }
 
@@ -139,14 +144,14 @@ public class UsageManager extends CuratorAsyncManager implements TaskUsageManage
   }
 
   public Optional<SingularitySlaveUsageWithId> getSlaveUsage(String slaveId) {
-    if (leaderCache.active()) {
+    if (leaderCache.usagesActive()) {
       return leaderCache.getSlaveUsage(slaveId);
     }
     return getData(getSlaveUsagePath(slaveId), slaveUsageTranscoder);
   }
 
   public Map<String, SingularitySlaveUsageWithId> getAllCurrentSlaveUsage() {
-    if (leaderCache.active()) {
+    if (leaderCache.usagesActive()) {
       return leaderCache.getSlaveUsages();
     }
     return getAsyncChildren(SLAVE_PATH, slaveUsageTranscoder).stream()
@@ -176,10 +181,18 @@ public class UsageManager extends CuratorAsyncManager implements TaskUsageManage
     taskUsageManager.saveSpecificTaskUsage(taskId, usage);
   }
 
+  public void saveTaskUsages(Map<SingularityTaskId, SingularityTaskUsage> usages) {
+    taskUsageManager.saveTaskUsages(usages);
+  }
+
   public List<SingularityTaskUsage> getTaskUsage(SingularityTaskId taskId) {
     return taskUsageManager.getTaskUsage(taskId);
   }
 
+  public List<SingularityTaskUsage> getHourlyTaskUsage(SingularityTaskId taskId, long startTimestamp, long endTimestamp) {
+    return taskUsageManager.getHourlyTaskUsage(taskId, startTimestamp, endTimestamp);
+  }
+
   public int countTasksWithUsage() {
     return taskUsageManager.countTasksWithUsage();
   }
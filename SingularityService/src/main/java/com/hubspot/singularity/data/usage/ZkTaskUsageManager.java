@@ -1,6 +1,8 @@
 package com.hubspot.singularity.data.usage;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.apache.curator.framework.CuratorFramework;
@@ -66,12 +68,21 @@ public class ZkTaskUsageManager extends CuratorAsyncManager implements TaskUsage
     save(getSpecificTaskUsagePath(taskId, usage.getTimestamp()), usage, taskUsageTranscoder);
   }
 
+  public void saveTaskUsages(Map<SingularityTaskId, SingularityTaskUsage> usages) {
+    usages.forEach(this::saveSpecificTaskUsage);
+  }
+
   public List<SingularityTaskUsage> getTaskUsage(SingularityTaskId taskId) {
     List<SingularityTaskUsage> children = getAsyncChildren(getTaskUsageHistoryPath(taskId), taskUsageTranscoder);
     children.sort(TASK_USAGE_COMPARATOR_TIMESTAMP_ASC);
     return children;
   }
 
+  public List<SingularityTaskUsage> getHourlyTaskUsage(SingularityTaskId taskId, long startTimestamp, long endTimestamp) {
+    // Hourly usage history is only kept when a database is configured
+    return new ArrayList<>();
+  }
+
   @VisibleForTesting
   public int countTasksWithUsage() {
     return getChildren(TASK_PATH).stream()
@@ -0,0 +1,121 @@
+package com.hubspot.singularity.data.zkmigrations;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.apache.zookeeper.KeeperException.NoNodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.SingularityDeploy;
+import com.hubspot.singularity.SingularityTask;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.MetadataManager;
+import com.hubspot.singularity.data.transcoders.CompressingBinaryTranscoder;
+import com.hubspot.singularity.data.transcoders.Transcoder;
+
+/**
+ * Rewrites the task data of active tasks and all deploy data in the binary format the first time a leader starts with
+ * binaryZkDataFormat enabled. Unlike a {@link ZkDataMigration} this is not recorded in the zk data version, a marker in
+ * {@link MetadataManager} is set once the rewrite finished and cleared whenever a leader starts with the flag off, so
+ * turning the flag back on rewrites the json written in the meantime. Nodes are still readable in either format.
+ */
+@Singleton
+public class BinaryZkDataFormatRewriter {
+  private static final Logger LOG = LoggerFactory.getLogger(BinaryZkDataFormatRewriter.class);
+
+  private static final String ACTIVE_STATUSES_ROOT = "/tasks/statuses";
+  private static final String TASK_HISTORY_ROOT = "/tasks/history";
+  private static final String TASK_KEY = "TASK";
+
+  private static final String DEPLOYS_BY_REQUEST_ROOT = "/deploys/requests";
+  private static final String DEPLOY_LIST_KEY = "ids";
+  private static final String DEPLOY_DATA_KEY = "DEPLOY";
+
+  private final CuratorFramework curator;
+  private final MetadataManager metadataManager;
+  private final SingularityConfiguration configuration;
+  private final Transcoder<SingularityTask> taskTranscoder;
+  private final Transcoder<SingularityDeploy> deployTranscoder;
+
+  @Inject
+  public BinaryZkDataFormatRewriter(CuratorFramework curator,
+                                    MetadataManager metadataManager,
+                                    SingularityConfiguration configuration,
+                                    Transcoder<SingularityTask> taskTranscoder,
+                                    Transcoder<SingularityDeploy> deployTranscoder) {
+    this.curator = curator;
+    this.metadataManager = metadataManager;
+    this.configuration = configuration;
+    this.taskTranscoder = taskTranscoder;
+    this.deployTranscoder = deployTranscoder;
+  }
+
+  public void checkDataFormat() {
+    if (!configuration.isBinaryZkDataFormat()) {
+      if (metadataManager.isBinaryZkDataFormatRewritten()) {
+        LOG.info("binaryZkDataFormat is no longer enabled, task and deploy data will be rewritten if it is turned back on");
+        metadataManager.clearBinaryZkDataFormatRewritten();
+      }
+      return;
+    }
+
+    if (metadataManager.isBinaryZkDataFormatRewritten()) {
+      return;
+    }
+
+    try {
+      int tasks = 0;
+      for (String requestId : getChildren(ACTIVE_STATUSES_ROOT)) {
+        for (String taskId : getChildren(ZKPaths.makePath(ACTIVE_STATUSES_ROOT, requestId))) {
+          if (rewrite(ZKPaths.makePath(TASK_HISTORY_ROOT, requestId, taskId, TASK_KEY), taskTranscoder)) {
+            tasks++;
+          }
+        }
+      }
+
+      int deploys = 0;
+      for (String requestId : getChildren(DEPLOYS_BY_REQUEST_ROOT)) {
+        String deployListPath = ZKPaths.makePath(DEPLOYS_BY_REQUEST_ROOT, requestId, DEPLOY_LIST_KEY);
+        for (String deployKey : getChildren(deployListPath)) {
+          if (rewrite(ZKPaths.makePath(deployListPath, deployKey, DEPLOY_DATA_KEY), deployTranscoder)) {
+            deploys++;
+          }
+        }
+      }
+
+      metadataManager.setBinaryZkDataFormatRewritten();
+      LOG.info("Rewrote {} tasks and {} deploys in the binary format", tasks, deploys);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private List<String> getChildren(String path) throws Exception {
+    try {
+      return curator.getChildren().forPath(path);
+    } catch (NoNodeException nee) {
+      return Collections.emptyList();
+    }
+  }
+
+  private <T> boolean rewrite(String path, Transcoder<T> transcoder) throws Exception {
+    byte[] data;
+    try {
+      data = curator.getData().forPath(path);
+    } catch (NoNodeException nee) {
+      return false;
+    }
+
+    if (data == null || data.length == 0 || CompressingBinaryTranscoder.isBinaryFormat(data)) {
+      return false;
+    }
+
+    curator.setData().forPath(path, transcoder.toBytes(transcoder.fromBytes(data)));
+    return true;
+  }
+}
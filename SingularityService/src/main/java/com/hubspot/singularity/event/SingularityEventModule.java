@@ -9,6 +9,7 @@ import com.google.inject.Scopes;
 import com.google.inject.multibindings.Multibinder;
 import com.hubspot.singularity.config.WebhookQueueConfiguration;
 import com.hubspot.singularity.data.ZkWebhookQueue;
+import com.hubspot.singularity.hooks.OutboxWebhookQueue;
 import com.hubspot.singularity.hooks.SnsWebhookQueue;
 import com.hubspot.singularity.hooks.WebhookQueueType;
 
@@ -27,6 +28,9 @@ public class SingularityEventModule implements Module {
     if (webhookQueueConfiguration.getQueueType() == WebhookQueueType.SNS) {
       LOG.info("Binding sns webhook managed");
       eventListeners.addBinding().to(SnsWebhookQueue.class).in(Scopes.SINGLETON);
+    } else if (webhookQueueConfiguration.getQueueType() == WebhookQueueType.OUTBOX) {
+      LOG.info("Binding local outbox webhook manager");
+      eventListeners.addBinding().to(OutboxWebhookQueue.class).in(Scopes.SINGLETON);
     } else {
       LOG.info("Binding zookeeper webhook manager");
       eventListeners.addBinding().to(ZkWebhookQueue.class).in(Scopes.SINGLETON);
@@ -14,21 +14,32 @@ import org.joda.time.format.DateTimeFormatter;
 
 public class RFC5545Schedule {
   public static final int MAX_ITERATIONS = 1000000;
+  private static final Pattern DTSTART_PATTERN = Pattern.compile("DTSTART=([0-9]{8}T[0-9]{6})");
+
   private final RecurrenceRule recurrenceRule;
   private final org.joda.time.DateTime dtStart;
+  private final boolean hasDtStart;
+
+  // With an explicit DTSTART the iterator is kept between calls, so a later call continues from the last occurrence
+  // instead of iterating from DTSTART again
+  private RecurrenceRuleIterator timeIterator;
+  private int count;
+  private long lastNow;
+  private Long lastNextRunAtTimestamp;
 
   public RFC5545Schedule(String schedule) throws InvalidRecurrenceRuleException {
     // DTSTART is RFC5545 but NOT in the recur string, but its a nice to have? :)
-    Pattern pattern = Pattern.compile("DTSTART=([0-9]{8}T[0-9]{6})");
-    Matcher matcher = pattern.matcher(schedule);
+    Matcher matcher = DTSTART_PATTERN.matcher(schedule);
 
     if (matcher.find()) {
       DateTimeFormatter formatter = DateTimeFormat.forPattern("yyyyMMdd'T'HHmmss");
       this.dtStart = formatter.parseDateTime(matcher.group(1));
       this.recurrenceRule = new RecurrenceRule(matcher.replaceAll("").replace("RRULE:", ""));
+      this.hasDtStart = true;
     } else {
       this.recurrenceRule = new RecurrenceRule(schedule);
       this.dtStart = org.joda.time.DateTime.now().withSecondOfMinute(0);
+      this.hasDtStart = false;
     }
   }
 
@@ -37,12 +48,42 @@ public class RFC5545Schedule {
   }
 
   public Date getNextValidTime() {
-    final long now = System.currentTimeMillis();
-    DateTime startDateTime = new DateTime(dtStart.getYear(), (dtStart.getMonthOfYear() - 1), dtStart.getDayOfMonth(),
-      dtStart.getHourOfDay(), dtStart.getMinuteOfHour(), dtStart.getSecondOfMinute());
-    RecurrenceRuleIterator timeIterator = recurrenceRule.iterator(startDateTime);
+    return getNextValidTime(System.currentTimeMillis());
+  }
+
+  public synchronized Date getNextValidTime(long now) {
+    if (!hasDtStart) {
+      // Without a DTSTART the schedule starts from the current minute each time it is evaluated
+      count = 0;
+      return nextValidTime(newIterator(new org.joda.time.DateTime(now).withSecondOfMinute(0)), now);
+    }
+
+    if (timeIterator != null && now >= lastNow) {
+      if (lastNextRunAtTimestamp == null) {
+        return null;
+      }
+      if (lastNextRunAtTimestamp >= now) {
+        lastNow = now;
+        return new Date(lastNextRunAtTimestamp);
+      }
+    } else {
+      timeIterator = newIterator(dtStart);
+      count = 0;
+    }
+
+    lastNow = now;
+    Date nextValidTime = nextValidTime(timeIterator, now);
+    lastNextRunAtTimestamp = nextValidTime == null ? null : nextValidTime.getTime();
+    return nextValidTime;
+  }
+
+  private RecurrenceRuleIterator newIterator(org.joda.time.DateTime start) {
+    DateTime startDateTime = new DateTime(start.getYear(), (start.getMonthOfYear() - 1), start.getDayOfMonth(),
+      start.getHourOfDay(), start.getMinuteOfHour(), start.getSecondOfMinute());
+    return recurrenceRule.iterator(startDateTime);
+  }
 
-    int count = 0;
+  private Date nextValidTime(RecurrenceRuleIterator timeIterator, long now) {
     while (timeIterator.hasNext() && (count < MAX_ITERATIONS || (recurrenceRule.hasPart(Part.COUNT) && count < recurrenceRule.getCount()))) {
       count ++;
       long nextRunAtTimestamp = timeIterator.nextMillis();
@@ -2,11 +2,15 @@ package com.hubspot.singularity.helpers;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -14,13 +18,12 @@ import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.RequestCleanupType;
 import com.hubspot.singularity.RequestState;
 import com.hubspot.singularity.RequestType;
 import com.hubspot.singularity.SingularityCreateResult;
+import com.hubspot.singularity.SingularityManagedCachedThreadPoolFactory;
 import com.hubspot.singularity.SingularityDeploy;
-import com.hubspot.singularity.SingularityPendingDeploy;
 import com.hubspot.singularity.SingularityPendingRequest;
 import com.hubspot.singularity.SingularityPendingRequest.PendingType;
 import com.hubspot.singularity.SingularityPendingTaskId;
@@ -36,6 +39,8 @@ import com.hubspot.singularity.SingularityTaskIdsByStatus;
 import com.hubspot.singularity.SingularityUser;
 import com.hubspot.singularity.SingularityUserSettings;
 import com.hubspot.singularity.api.SingularityBounceRequest;
+import com.hubspot.singularity.api.SingularityExpiringRequestParent;
+import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.data.DeployManager;
 import com.hubspot.singularity.data.RequestManager;
 import com.hubspot.singularity.data.SingularityValidator;
@@ -44,9 +49,11 @@ import com.hubspot.singularity.data.UserManager;
 import com.hubspot.singularity.data.history.TaskHistoryHelper;
 import com.hubspot.singularity.expiring.SingularityExpiringBounce;
 import com.hubspot.singularity.expiring.SingularityExpiringPause;
+import com.hubspot.singularity.expiring.SingularityExpiringRequestActionParent;
 import com.hubspot.singularity.expiring.SingularityExpiringScale;
 import com.hubspot.singularity.expiring.SingularityExpiringSkipHealthchecks;
 import com.hubspot.singularity.scheduler.SingularityDeployHealthHelper;
+import com.hubspot.singularity.scheduler.SingularityLeaderCache;
 import com.hubspot.singularity.smtp.SingularityMailer;
 
 @Singleton
@@ -61,6 +68,8 @@ public class RequestHelper {
   private final TaskManager taskManager;
   private final SingularityDeployHealthHelper deployHealthHelper;
   private final TaskHistoryHelper taskHistoryHelper;
+  private final SingularityLeaderCache leaderCache;
+  private final ExecutorService requestDataExecutor;
 
   @Inject
   public RequestHelper(RequestManager requestManager,
@@ -70,7 +79,10 @@ public class RequestHelper {
                        UserManager userManager,
                        TaskManager taskManager,
                        SingularityDeployHealthHelper deployHealthHelper,
-                       TaskHistoryHelper taskHistoryHelper) {
+                       TaskHistoryHelper taskHistoryHelper,
+                       SingularityLeaderCache leaderCache,
+                       SingularityManagedCachedThreadPoolFactory threadPoolFactory,
+                       SingularityConfiguration configuration) {
     this.requestManager = requestManager;
     this.mailer = mailer;
     this.deployManager = deployManager;
@@ -79,6 +91,8 @@ public class RequestHelper {
     this.taskManager = taskManager;
     this.deployHealthHelper = deployHealthHelper;
     this.taskHistoryHelper = taskHistoryHelper;
+    this.leaderCache = leaderCache;
+    this.requestDataExecutor = threadPoolFactory.get("request-data", configuration.getRequestDataMaxThreads());
   }
 
   public long unpause(SingularityRequest request, Optional<String> user, Optional<String> message, Optional<Boolean> skipHealthchecks) {
@@ -194,22 +208,40 @@ public class RequestHelper {
                                                                      boolean includeFullRequestData,
                                                                      Optional<Integer> limit,
                                                                      List<RequestType> requestTypeFilters) {
+    return fillDataForRequestsAndFilter(requests, user, filterRelevantForUser, includeFullRequestData, limit, Optional.empty(), requestTypeFilters);
+  }
+
+  /**
+   * Per request reads fan out over the bounded request-data executor rather than the common pool. On the leader the
+   * most recent request histories and active and pending task ids come from the leader cache, but a history that isn't
+   * cached yet, deploys and health checks are still read from zk, so those reads are fanned out there too. Per request
+   * data other than the most recent history is only fetched for the requested page.
+   */
+  public List<SingularityRequestParent> fillDataForRequestsAndFilter(List<SingularityRequestWithState> requests,
+                                                                     SingularityUser user,
+                                                                     boolean filterRelevantForUser,
+                                                                     boolean includeFullRequestData,
+                                                                     Optional<Integer> limit,
+                                                                     Optional<Integer> page,
+                                                                     List<RequestType> requestTypeFilters) {
     final Map<String, SingularityRequestDeployState> deployStates = deployManager.getRequestDeployStatesByRequestIds(requests.stream().map((r) -> r.getRequest().getId()).collect(Collectors.toList()));
     final Map<String, Optional<SingularityRequestHistory>> requestIdToLastHistory;
 
     if (includeFullRequestData) {
-      requestIdToLastHistory = requests.parallelStream()
+      Map<String, CompletableFuture<Optional<SingularityRequestHistory>>> lastHistoryFutures = requests.stream()
           .collect(Collectors.toMap(
               (r) -> r.getRequest().getId(),
-              (r) -> getMostRecentHistoryFromZk(r.getRequest().getId())
+              (r) -> supply(() -> requestManager.getMostRecentRequestHistory(r.getRequest().getId()))
           ));
+      requestIdToLastHistory = new HashMap<>(lastHistoryFutures.size());
+      lastHistoryFutures.forEach((requestId, lastHistory) -> requestIdToLastHistory.put(requestId, lastHistory.join()));
     } else {
       requestIdToLastHistory = Collections.emptyMap();
     }
 
     Optional<SingularityUserSettings> maybeUserSettings = userManager.getUserSettings(user.getId());
 
-    return requests.parallelStream()
+    List<SingularityRequestWithState> requestsToFill = requests.stream()
         .filter((request) -> {
           if (!requestTypeFilters.isEmpty() && !requestTypeFilters.contains(request.getRequest().getRequestType())) {
             return false;
@@ -260,34 +292,58 @@ public class RequestHelper {
           return new RequestParentWithLastActionTime(request, lastActionTime, maybeUserSettings.isPresent() && maybeUserSettings.get().getStarredRequestIds().contains(request.getRequest().getId()));
         })
         .sorted() // Sorted by last action time descending, with starred requests coming first
+        .skip(limit.isPresent() && page.isPresent() ? (long) limit.get() * (page.get() - 1) : 0)
         .limit(limit.orElse(requests.size()))
-        .map((parentWithActionTime) -> {
-          SingularityRequestWithState requestWithState = parentWithActionTime.getRequestWithState();
-          if (includeFullRequestData) {
-            CompletableFuture<Optional<SingularityTaskIdsByStatus>> maybeTaskIdsByStatus = CompletableFuture.supplyAsync(() -> getTaskIdsByStatusForRequest(requestWithState)).exceptionally((throwable) -> Optional.empty());
-            CompletableFuture<Optional<SingularityExpiringBounce>> maybeExpiringBounce = CompletableFuture.supplyAsync(() -> requestManager.getExpiringBounce(requestWithState.getRequest().getId())).exceptionally((throwable) -> Optional.empty());
-            CompletableFuture<Optional<SingularityExpiringPause>> maybeExpiringPause = CompletableFuture.supplyAsync(() -> requestManager.getExpiringPause(requestWithState.getRequest().getId())).exceptionally((throwable) -> Optional.empty());
-            CompletableFuture<Optional<SingularityExpiringScale>> maybeExpiringScale = CompletableFuture.supplyAsync(() -> requestManager.getExpiringScale(requestWithState.getRequest().getId())).exceptionally((throwable) -> Optional.empty());
-            CompletableFuture<Optional<SingularityExpiringSkipHealthchecks>> maybeExpiringSkipHealthchecks = CompletableFuture.supplyAsync(() -> requestManager.getExpiringSkipHealthchecks(requestWithState.getRequest().getId())).exceptionally((throwable) -> Optional.empty());
-            return new SingularityRequestParent(
-                requestWithState.getRequest(), requestWithState.getState(),
-                Optional.ofNullable(deployStates.get(requestWithState.getRequest().getId())),
-                Optional.empty(), Optional.empty(), Optional.empty(), // full deploy data not provided
-                maybeExpiringBounce.join(), maybeExpiringPause.join(), maybeExpiringScale.join(), maybeExpiringSkipHealthchecks.join(),
-                maybeTaskIdsByStatus.join());
-          } else {
-            return new SingularityRequestParent(
-                requestWithState.getRequest(), requestWithState.getState(), Optional.ofNullable(deployStates.get(requestWithState.getRequest().getId())),
-                Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty());
-          }
+        .map(RequestParentWithLastActionTime::getRequestWithState)
+        .collect(Collectors.toList());
+
+    if (!includeFullRequestData) {
+      return requestsToFill.stream()
+          .map((requestWithState) -> new SingularityRequestParent(
+              requestWithState.getRequest(), requestWithState.getState(), Optional.ofNullable(deployStates.get(requestWithState.getRequest().getId())),
+              Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()))
+          .collect(Collectors.toList());
+    }
+
+    // Expiring actions and cleaning tasks are read once for the whole page rather than once per request
+    Map<String, SingularityExpiringBounce> expiringBounces = getExpiringObjectsByRequestId(SingularityExpiringBounce.class);
+    Map<String, SingularityExpiringPause> expiringPauses = getExpiringObjectsByRequestId(SingularityExpiringPause.class);
+    Map<String, SingularityExpiringScale> expiringScales = getExpiringObjectsByRequestId(SingularityExpiringScale.class);
+    Map<String, SingularityExpiringSkipHealthchecks> expiringSkipHealthchecks = getExpiringObjectsByRequestId(SingularityExpiringSkipHealthchecks.class);
+    Map<String, List<SingularityTaskId>> cleaningTaskIds = taskManager.getCleanupTaskIds().stream().collect(Collectors.groupingBy(SingularityTaskId::getRequestId));
+
+    List<CompletableFuture<SingularityRequestParent>> requestParents = requestsToFill.stream()
+        .map((requestWithState) -> {
+          String requestId = requestWithState.getRequest().getId();
+          CompletableFuture<Optional<SingularityTaskIdsByStatus>> maybeTaskIdsByStatus = supply(() -> getTaskIdsByStatusForRequest(requestWithState, pendingDeployId(deployStates.get(requestId)), cleaningTaskIds.getOrDefault(requestId, Collections.emptyList())))
+              .exceptionally((throwable) -> Optional.empty());
+          return maybeTaskIdsByStatus.thenApply((taskIdsByStatus) -> new SingularityRequestParent(
+              requestWithState.getRequest(), requestWithState.getState(),
+              Optional.ofNullable(deployStates.get(requestId)),
+              Optional.empty(), Optional.empty(), Optional.empty(), // full deploy data not provided
+              Optional.ofNullable(expiringBounces.get(requestId)), Optional.ofNullable(expiringPauses.get(requestId)),
+              Optional.ofNullable(expiringScales.get(requestId)), Optional.ofNullable(expiringSkipHealthchecks.get(requestId)),
+              taskIdsByStatus));
         })
         .collect(Collectors.toList());
+
+    return requestParents.stream()
+        .map(CompletableFuture::join)
+        .collect(Collectors.toList());
   }
 
-  public Optional<SingularityRequestHistory> getMostRecentHistoryFromZk(String requestId) {
-    // Most recent history is stored in zk, don't need to check mysql
-    List<SingularityRequestHistory> requestHistory = requestManager.getRequestHistory(requestId);
-    return JavaUtils.getFirst(requestHistory);
+  private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+    return CompletableFuture.supplyAsync(supplier, requestDataExecutor);
+  }
+
+  private <T extends SingularityExpiringRequestActionParent<? extends SingularityExpiringRequestParent>> Map<String, T> getExpiringObjectsByRequestId(Class<T> clazz) {
+    try {
+      return requestManager.getExpiringObjects(clazz).stream()
+          .collect(Collectors.toMap(SingularityExpiringRequestActionParent::getRequestId, Function.identity(), (first, second) -> first));
+    } catch (Throwable t) {
+      LOG.warn("Could not read expiring {} objects", clazz.getSimpleName(), t);
+      return Collections.emptyMap();
+    }
   }
 
   public Optional<SingularityTaskIdsByStatus> getTaskIdsByStatusForRequest(String requestId) {
@@ -296,14 +352,22 @@ public class RequestHelper {
       return Optional.empty();
     }
 
-    return getTaskIdsByStatusForRequest(requestWithState.get());
+    List<SingularityTaskId> cleaningTaskIds = taskManager.getCleanupTaskIds().stream().filter((t) -> t.getRequestId().equals(requestId)).collect(Collectors.toList());
+    Optional<String> pendingDeployId = deployManager.getPendingDeploy(requestId).map((pendingDeploy) -> pendingDeploy.getDeployMarker().getDeployId());
+    return getTaskIdsByStatusForRequest(requestWithState.get(), pendingDeployId, cleaningTaskIds);
+  }
+
+  // When listing requests the pending deploy is taken from the deploy state that was already read, rather than read per request
+  private Optional<String> pendingDeployId(SingularityRequestDeployState deployState) {
+    if (deployState == null || !deployState.getPendingDeploy().isPresent()) {
+      return Optional.empty();
+    }
+    return Optional.of(deployState.getPendingDeploy().get().getDeployId());
   }
 
-  private Optional<SingularityTaskIdsByStatus> getTaskIdsByStatusForRequest(SingularityRequestWithState requestWithState) {
+  private Optional<SingularityTaskIdsByStatus> getTaskIdsByStatusForRequest(SingularityRequestWithState requestWithState, Optional<String> pendingDeployId, List<SingularityTaskId> cleaningTaskIds) {
     String requestId = requestWithState.getRequest().getId();
-    Optional<SingularityPendingDeploy> pendingDeploy = deployManager.getPendingDeploy(requestId);
 
-    List<SingularityTaskId> cleaningTaskIds = taskManager.getCleanupTaskIds().stream().filter((t) -> t.getRequestId().equals(requestId)).collect(Collectors.toList());
     List<SingularityPendingTaskId> pendingTaskIds = taskManager.getPendingTaskIdsForRequest(requestId);
     List<SingularityTaskId> activeTaskIds = taskManager.getActiveTaskIdsForRequest(requestId);
     activeTaskIds.removeAll(cleaningTaskIds);
@@ -317,7 +381,7 @@ public class RequestHelper {
           requestWithState.getRequest(),
           deploy,
           entry.getValue(),
-          pendingDeploy.isPresent() && pendingDeploy.get().getDeployMarker().getDeployId().equals(entry.getKey()));
+          pendingDeployId.isPresent() && pendingDeployId.get().equals(entry.getKey()));
       for (SingularityTaskId taskId : entry.getValue()) {
         if (healthyTasksIdsForDeploy.contains(taskId)) {
           healthyTaskIds.add(taskId);
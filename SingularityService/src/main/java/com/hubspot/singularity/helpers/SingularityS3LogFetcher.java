@@ -0,0 +1,84 @@
+package com.hubspot.singularity.helpers;
+
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.SingularityManagedScheduledExecutorServiceFactory;
+import com.hubspot.singularity.SingularityS3LogMetadata;
+import com.hubspot.singularity.config.S3Configuration;
+
+/**
+ * State shared by all s3 log searches: a single bounded executor for list and metadata
+ * calls, and an LRU cache of object metadata keyed by bucket, key and etag.
+ */
+@Singleton
+public class SingularityS3LogFetcher {
+  private static final String METADATA_CACHE_KEY_FORMAT = "%s/%s@%s";
+
+  private final ListeningExecutorService executorService;
+  private final Cache<String, SingularityS3LogMetadata> metadataCache;
+
+  private final Timer prefixListTimer;
+  private final Timer prefixTotalTimer;
+  private final Meter metadataCacheHits;
+  private final Meter metadataCacheMisses;
+
+  @Inject
+  public SingularityS3LogFetcher(Optional<S3Configuration> configuration,
+                                 SingularityManagedScheduledExecutorServiceFactory executorServiceFactory,
+                                 MetricRegistry metricRegistry) {
+    this.executorService = MoreExecutors.listeningDecorator(executorServiceFactory.get("s3-log-fetcher", configuration.map(S3Configuration::getMaxS3Threads).orElse(1)));
+    this.metadataCache = CacheBuilder.newBuilder()
+        .maximumSize(configuration.map(S3Configuration::getS3LogMetadataCacheSize).orElse(0))
+        .build();
+
+    this.prefixListTimer = metricRegistry.timer("s3.logs.prefix.list");
+    this.prefixTotalTimer = metricRegistry.timer("s3.logs.prefix.total");
+    this.metadataCacheHits = metricRegistry.meter("s3.logs.metadata.cache.hits");
+    this.metadataCacheMisses = metricRegistry.meter("s3.logs.metadata.cache.misses");
+  }
+
+  public ListeningExecutorService getExecutorService() {
+    return executorService;
+  }
+
+  public Timer getPrefixListTimer() {
+    return prefixListTimer;
+  }
+
+  public Timer getPrefixTotalTimer() {
+    return prefixTotalTimer;
+  }
+
+  /**
+   * Objects are immutable for a given etag, so metadata read with a HEAD request can be reused
+   * until the object is overwritten.
+   */
+  public SingularityS3LogMetadata getMetadata(S3ObjectSummary objectSummary, Callable<SingularityS3LogMetadata> loader) throws Exception {
+    String key = String.format(METADATA_CACHE_KEY_FORMAT, objectSummary.getBucketName(), objectSummary.getKey(), objectSummary.getETag());
+    SingularityS3LogMetadata cached = metadataCache.getIfPresent(key);
+    if (cached != null) {
+      metadataCacheHits.mark();
+      return cached;
+    }
+
+    metadataCacheMisses.mark();
+    try {
+      return metadataCache.get(key, loader);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+}
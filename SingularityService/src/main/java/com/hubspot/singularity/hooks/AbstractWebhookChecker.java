@@ -1,5 +1,27 @@
 package com.hubspot.singularity.hooks;
 
+import com.hubspot.singularity.SingularityDeployUpdate;
+import com.hubspot.singularity.SingularityRequestHistory;
+import com.hubspot.singularity.SingularityTaskHistoryUpdate;
+
 public abstract class AbstractWebhookChecker {
   abstract void checkWebhooks();
+
+  protected String applyPlaceholders(String uri, SingularityRequestHistory requestHistory) {
+    return uri
+        .replaceAll("\\$REQUEST_ID", requestHistory.getRequest().getId());
+  }
+
+  protected String applyPlaceholders(String uri, SingularityDeployUpdate deployUpdate) {
+    return uri
+        .replaceAll("\\$REQUEST_ID", deployUpdate.getDeployMarker().getRequestId())
+        .replaceAll("\\$DEPLOY_ID", deployUpdate.getDeployMarker().getDeployId());
+  }
+
+  protected String applyPlaceholders(String uri, SingularityTaskHistoryUpdate taskUpdate) {
+    return uri
+        .replaceAll("\\$REQUEST_ID", taskUpdate.getTaskId().getRequestId())
+        .replaceAll("\\$DEPLOY_ID", taskUpdate.getTaskId().getDeployId())
+        .replaceAll("\\$TASK_ID", taskUpdate.getTaskId().getId());
+  }
 }
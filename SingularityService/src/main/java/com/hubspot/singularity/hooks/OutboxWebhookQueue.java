@@ -0,0 +1,80 @@
+package com.hubspot.singularity.hooks;
+
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+
+import com.google.common.collect.Iterables;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.SingularityDeployUpdate;
+import com.hubspot.singularity.SingularityRequestHistory;
+import com.hubspot.singularity.SingularityTaskWebhook;
+import com.hubspot.singularity.SingularityWebhook;
+import com.hubspot.singularity.WebhookType;
+import com.hubspot.singularity.data.WebhookManager;
+import com.hubspot.singularity.event.SingularityEventSender;
+
+/**
+ * Only the leader delivers from its outbox, so updates produced on other instances are saved to zk
+ * and moved into the leader's outbox by {@link SingularityOutboxWebhookSender}.
+ */
+@Singleton
+public class OutboxWebhookQueue implements SingularityEventSender {
+  private final WebhookOutbox webhookOutbox;
+  private final WebhookManager webhookManager;
+  private final LeaderLatch leaderLatch;
+
+  @Inject
+  public OutboxWebhookQueue(WebhookOutbox webhookOutbox, WebhookManager webhookManager, LeaderLatch leaderLatch) {
+    this.webhookOutbox = webhookOutbox;
+    this.webhookManager = webhookManager;
+    this.leaderLatch = leaderLatch;
+  }
+
+  @Override
+  public void requestHistoryEvent(SingularityRequestHistory requestUpdate) {
+    if (!hasWebhooks(WebhookType.REQUEST)) {
+      return;
+    }
+    if (leaderLatch.hasLeadership()) {
+      append(WebhookType.REQUEST, requestUpdate);
+    } else {
+      webhookManager.saveRequestUpdateForRetry(requestUpdate);
+    }
+  }
+
+  @Override
+  public void taskWebhookEvent(SingularityTaskWebhook taskWebhook) {
+    if (!hasWebhooks(WebhookType.TASK)) {
+      return;
+    }
+    if (leaderLatch.hasLeadership()) {
+      // The full task travels with the update, so delivery never has to look it up again
+      append(WebhookType.TASK, taskWebhook);
+    } else {
+      webhookManager.saveTaskUpdateForRetry(taskWebhook.getTaskUpdate());
+    }
+  }
+
+  @Override
+  public void deployHistoryEvent(SingularityDeployUpdate deployUpdate) {
+    if (!hasWebhooks(WebhookType.DEPLOY)) {
+      return;
+    }
+    if (leaderLatch.hasLeadership()) {
+      append(WebhookType.DEPLOY, deployUpdate);
+    } else {
+      webhookManager.saveDeployUpdateForRetry(deployUpdate);
+    }
+  }
+
+  private boolean hasWebhooks(WebhookType type) {
+    return !Iterables.isEmpty(webhookManager.getActiveWebhooksByType(type));
+  }
+
+  void append(WebhookType type, Object update) {
+    for (SingularityWebhook webhook : webhookManager.getActiveWebhooksByType(type)) {
+      webhookOutbox.register(type, webhook.getId());
+    }
+    webhookOutbox.append(type, update);
+  }
+}
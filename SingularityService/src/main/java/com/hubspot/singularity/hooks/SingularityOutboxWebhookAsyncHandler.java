@@ -0,0 +1,24 @@
+package com.hubspot.singularity.hooks;
+
+import java.util.List;
+
+import com.hubspot.singularity.SingularityWebhook;
+
+public class SingularityOutboxWebhookAsyncHandler extends AbstractSingularityWebhookAsyncHandler<List<Object>> {
+
+  private volatile boolean acknowledged;
+
+  public SingularityOutboxWebhookAsyncHandler(SingularityWebhook webhook, List<Object> updates, boolean shouldDeleteUpdateDueToQueueAboveCapacity) {
+    super(webhook, updates, shouldDeleteUpdateDueToQueueAboveCapacity);
+  }
+
+  // Outbox updates are only released once every batch read for the webhook has been acknowledged
+  @Override
+  public void deleteWebhookUpdate() {
+    acknowledged = true;
+  }
+
+  public boolean isAcknowledged() {
+    return acknowledged;
+  }
+}
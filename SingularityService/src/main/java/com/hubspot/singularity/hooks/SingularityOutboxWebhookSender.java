@@ -0,0 +1,262 @@
+package com.hubspot.singularity.hooks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.mesos.JavaUtils;
+import com.hubspot.singularity.Singularity;
+import com.hubspot.singularity.SingularityDeployUpdate;
+import com.hubspot.singularity.SingularityManagedScheduledExecutorServiceFactory;
+import com.hubspot.singularity.SingularityRequestHistory;
+import com.hubspot.singularity.SingularityTask;
+import com.hubspot.singularity.SingularityTaskHistoryUpdate;
+import com.hubspot.singularity.SingularityTaskWebhook;
+import com.hubspot.singularity.SingularityWebhook;
+import com.hubspot.singularity.WebhookType;
+import com.hubspot.singularity.async.AsyncSemaphore;
+import com.hubspot.singularity.async.CompletableFutures;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.WebhookManager;
+import com.hubspot.singularity.data.history.TaskHistoryHelper;
+import com.hubspot.singularity.hooks.WebhookOutbox.OutboxBatch;
+import com.hubspot.singularity.hooks.WebhookOutbox.OutboxRecord;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
+import com.ning.http.client.Response;
+
+/**
+ * Delivers updates from the local {@link WebhookOutbox}, posting a json array of up to
+ * outboxBatchSize updates per concrete webhook uri instead of one request per update. Updates
+ * that other instances saved to zk are moved into the outbox first.
+ */
+@Singleton
+public class SingularityOutboxWebhookSender extends AbstractWebhookChecker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SingularityOutboxWebhookSender.class);
+
+  private final SingularityConfiguration configuration;
+  private final AsyncHttpClient http;
+  private final WebhookManager webhookManager;
+  private final WebhookOutbox webhookOutbox;
+  private final OutboxWebhookQueue outboxWebhookQueue;
+  private final TaskHistoryHelper taskHistoryHelper;
+  private final ObjectMapper objectMapper;
+
+  private final AsyncSemaphore<Response> webhookSemaphore;
+  private final Set<String> inFlightWebhooks;
+
+  private final Histogram deliveryLag;
+  private final Meter deliveredUpdates;
+
+  @Inject
+  public SingularityOutboxWebhookSender(SingularityConfiguration configuration,
+                                        AsyncHttpClient http,
+                                        @Singularity ObjectMapper objectMapper,
+                                        WebhookManager webhookManager,
+                                        WebhookOutbox webhookOutbox,
+                                        OutboxWebhookQueue outboxWebhookQueue,
+                                        TaskHistoryHelper taskHistoryHelper,
+                                        MetricRegistry metricRegistry,
+                                        SingularityManagedScheduledExecutorServiceFactory executorServiceFactory) {
+    this.configuration = configuration;
+    this.http = http;
+    this.webhookManager = webhookManager;
+    this.webhookOutbox = webhookOutbox;
+    this.outboxWebhookQueue = outboxWebhookQueue;
+    this.taskHistoryHelper = taskHistoryHelper;
+    this.objectMapper = objectMapper;
+
+    this.webhookSemaphore = AsyncSemaphore.newBuilder(configuration::getMaxConcurrentWebhooks, executorServiceFactory.get("webhook-semaphore", 1)).build();
+    this.inFlightWebhooks = ConcurrentHashMap.newKeySet();
+
+    this.deliveryLag = metricRegistry.histogram("webhooks.outbox.lag");
+    this.deliveredUpdates = metricRegistry.meter("webhooks.outbox.delivered");
+  }
+
+  public void checkWebhooks() {
+    final long start = System.currentTimeMillis();
+    final int batchSize = configuration.getWebhookQueueConfiguration().getOutboxBatchSize();
+
+    claimOutbox();
+    appendForwardedUpdates();
+
+    int updates = 0;
+    int batches = 0;
+    Set<String> activeWebhookIds = new HashSet<>();
+
+    for (WebhookType type : WebhookType.values()) {
+      for (SingularityWebhook webhook : webhookManager.getActiveWebhooksByType(type)) {
+        activeWebhookIds.add(webhook.getId());
+        webhookOutbox.register(type, webhook.getId());
+
+        if (!inFlightWebhooks.add(webhook.getId())) {
+          LOG.trace("Previous batch for webhook {} is still in flight", webhook.getId());
+          continue;
+        }
+
+        OutboxBatch batch = webhookOutbox.read(webhook.getId(), type, batchSize);
+        if (batch.getRecords().isEmpty()) {
+          if (batch.getEndOffset() > batch.getStartOffset()) {
+            webhookOutbox.commit(webhook.getId(), batch);
+          }
+          inFlightWebhooks.remove(webhook.getId());
+          continue;
+        }
+
+        updates += batch.getRecords().size();
+        batches += sendBatch(webhook, batch);
+      }
+    }
+
+    webhookOutbox.prune(activeWebhookIds);
+
+    LOG.info("Sent {} outbox updates in {} batches in {}", updates, batches, JavaUtils.duration(start));
+  }
+
+  /**
+   * Records in zk which outbox the leader delivers from. Updates still queued in this outbox after
+   * another one was in use are delivered late rather than dropped, receivers already have to handle
+   * seeing an update more than once.
+   */
+  private void claimOutbox() {
+    String outboxId = webhookOutbox.getOutboxId();
+    Optional<String> owner = webhookManager.getOutboxOwner();
+    if (owner.isPresent() && owner.get().equals(outboxId)) {
+      return;
+    }
+
+    if (owner.isPresent()) {
+      LOG.warn("Outbox {} was in use since outbox {} last delivered, replaying the updates still queued here", owner.get(), outboxId);
+    }
+    webhookManager.setOutboxOwner(outboxId);
+  }
+
+  private void appendForwardedUpdates() {
+    for (SingularityTaskHistoryUpdate taskHistoryUpdate : webhookManager.getTaskUpdatesToRetry()) {
+      Optional<SingularityTask> task = taskHistoryHelper.getTask(taskHistoryUpdate.getTaskId());
+      if (task.isPresent()) {
+        outboxWebhookQueue.append(WebhookType.TASK, new SingularityTaskWebhook(task.get(), taskHistoryUpdate));
+      }
+      webhookManager.deleteTaskUpdateForRetry(taskHistoryUpdate);
+    }
+    for (SingularityDeployUpdate deployUpdate : webhookManager.getDeployUpdatesToRetry()) {
+      outboxWebhookQueue.append(WebhookType.DEPLOY, deployUpdate);
+      webhookManager.deleteDeployUpdateForRetry(deployUpdate);
+    }
+    for (SingularityRequestHistory requestHistory : webhookManager.getRequestUpdatesToRetry()) {
+      outboxWebhookQueue.append(WebhookType.REQUEST, requestHistory);
+      webhookManager.deleteRequestUpdateForRetry(requestHistory);
+    }
+  }
+
+  private int sendBatch(SingularityWebhook webhook, OutboxBatch batch) {
+    Map<String, List<Object>> updatesByUri = new LinkedHashMap<>();
+    for (OutboxRecord record : batch.getRecords()) {
+      try {
+        switch (record.getType()) {
+          case TASK:
+            SingularityTaskWebhook taskWebhook = objectMapper.readValue(record.getPayload(), SingularityTaskWebhook.class);
+            updatesByUri.computeIfAbsent(applyPlaceholders(webhook.getUri(), taskWebhook.getTaskUpdate()), (uri) -> new ArrayList<>()).add(taskWebhook);
+            break;
+          case REQUEST:
+            SingularityRequestHistory requestUpdate = objectMapper.readValue(record.getPayload(), SingularityRequestHistory.class);
+            updatesByUri.computeIfAbsent(applyPlaceholders(webhook.getUri(), requestUpdate), (uri) -> new ArrayList<>()).add(requestUpdate);
+            break;
+          case DEPLOY:
+            SingularityDeployUpdate deployUpdate = objectMapper.readValue(record.getPayload(), SingularityDeployUpdate.class);
+            updatesByUri.computeIfAbsent(applyPlaceholders(webhook.getUri(), deployUpdate), (uri) -> new ArrayList<>()).add(deployUpdate);
+            break;
+          default:
+            break;
+        }
+      } catch (IOException e) {
+        LOG.warn("Skipping unreadable outbox update at offset {} for webhook {}", record.getOffset(), webhook.getId(), e);
+      }
+    }
+
+    final boolean shouldDeleteUpdateOnFailure = shouldDeleteUpdateOnFailure(webhook, batch);
+
+    List<SingularityOutboxWebhookAsyncHandler> handlers = new ArrayList<>(updatesByUri.size());
+    List<CompletableFuture<Response>> webhookFutures = new ArrayList<>(updatesByUri.size());
+    for (Map.Entry<String, List<Object>> entry : updatesByUri.entrySet()) {
+      SingularityOutboxWebhookAsyncHandler handler = new SingularityOutboxWebhookAsyncHandler(webhook, entry.getValue(), shouldDeleteUpdateOnFailure);
+      handlers.add(handler);
+      webhookFutures.add(webhookSemaphore.call(() -> executeWebhookAsync(entry.getKey(), entry.getValue(), handler)));
+    }
+
+    CompletableFutures.allOf(webhookFutures)
+        .whenComplete((ignored, t) -> {
+          try {
+            if (t != null) {
+              LOG.debug("Exception in outbox webhook {}", webhook.getId(), t);
+            }
+            if (handlers.stream().allMatch(SingularityOutboxWebhookAsyncHandler::isAcknowledged)) {
+              webhookOutbox.commit(webhook.getId(), batch);
+              long now = System.currentTimeMillis();
+              batch.getRecords().forEach((record) -> deliveryLag.update(now - record.getAppendedAt()));
+              deliveredUpdates.mark(batch.getRecords().size());
+            }
+          } finally {
+            inFlightWebhooks.remove(webhook.getId());
+          }
+        });
+
+    return updatesByUri.size();
+  }
+
+  private boolean shouldDeleteUpdateOnFailure(SingularityWebhook webhook, OutboxBatch batch) {
+    if (configuration.getMaxQueuedUpdatesPerWebhook() > 0 && webhookOutbox.getPending(webhook.getId(), batch.getType()) > configuration.getMaxQueuedUpdatesPerWebhook()) {
+      return true;
+    }
+    final long oldestUpdateAge = System.currentTimeMillis() - batch.getRecords().get(0).getAppendedAt();
+    return configuration.getDeleteUndeliverableWebhooksAfterHours() > 0
+        && oldestUpdateAge > TimeUnit.HOURS.toMillis(configuration.getDeleteUndeliverableWebhooksAfterHours());
+  }
+
+  private CompletableFuture<Response> executeWebhookAsync(String uri, List<Object> payload, SingularityOutboxWebhookAsyncHandler handler) {
+    LOG.trace("Sending {} updates to {}", payload.size(), uri);
+    BoundRequestBuilder postRequest = http.preparePost(uri);
+    postRequest.setHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+
+    try {
+      postRequest.setBody(objectMapper.writeValueAsBytes(payload));
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException(e);
+    }
+
+    CompletableFuture<Response> webhookFuture = new CompletableFuture<>();
+    try {
+      handler.setCompletableFuture(webhookFuture);
+      postRequest.execute(handler);
+    } catch (Throwable t) {
+      LOG.warn("Couldn't execute webhook to {}", uri, t);
+
+      if (handler.shouldDeleteUpdateDueToQueueAboveCapacity()) {
+        handler.deleteWebhookUpdate();
+      }
+      webhookFuture.completeExceptionally(t);
+    }
+    return webhookFuture;
+  }
+}
@@ -171,25 +171,6 @@ public class SingularityWebhookSender extends AbstractWebhookChecker {
     return taskUpdates.size();
   }
 
-  private String applyPlaceholders(String uri, SingularityRequestHistory requestHistory) {
-    return uri
-        .replaceAll("\\$REQUEST_ID", requestHistory.getRequest().getId());
-  }
-
-  private String applyPlaceholders(String uri, SingularityDeployUpdate deployUpdate) {
-    return uri
-        .replaceAll("\\$REQUEST_ID", deployUpdate.getDeployMarker().getRequestId())
-        .replaceAll("\\$DEPLOY_ID", deployUpdate.getDeployMarker().getDeployId());
-  }
-
-  private String applyPlaceholders(String uri, SingularityTaskHistoryUpdate taskUpdate) {
-    return uri
-        .replaceAll("\\$REQUEST_ID", taskUpdate.getTaskId().getRequestId())
-        .replaceAll("\\$DEPLOY_ID", taskUpdate.getTaskId().getDeployId())
-        .replaceAll("\\$TASK_ID", taskUpdate.getTaskId().getId());
-
-  }
-
   // TODO handle retries, errors.
   private <T> CompletableFuture<Response> executeWebhookAsync(String uri, Object payload, AbstractSingularityWebhookAsyncHandler<T> handler) {
     LOG.trace("Sending {} to {}", payload, uri);
@@ -0,0 +1,494 @@
+package com.hubspot.singularity.hooks;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.Singularity;
+import com.hubspot.singularity.WebhookType;
+import com.hubspot.singularity.config.SingularityConfiguration;
+
+/**
+ * Append-only, segment-rotated local logs of webhook updates, one per webhook type. Every update
+ * is assigned a monotonically increasing offset within its type's log, and each webhook keeps a
+ * replay offset of the first update it has not yet acknowledged. Segments are removed once every
+ * webhook of that type has moved past them.
+ */
+@Singleton
+public class WebhookOutbox {
+  private static final Logger LOG = LoggerFactory.getLogger(WebhookOutbox.class);
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final String OFFSETS_FILE = "offsets.json";
+  private static final String OUTBOX_ID_FILE = "outbox.id";
+
+  // payload length, appendedAt
+  private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+  private final Map<WebhookType, OutboxLog> logs = new EnumMap<>(WebhookType.class);
+  private final long segmentSizeBytes;
+  private final ObjectMapper objectMapper;
+  private final String outboxId;
+
+  @Inject
+  public WebhookOutbox(SingularityConfiguration configuration, @Singularity ObjectMapper objectMapper, MetricRegistry metricRegistry) {
+    Path directory = Paths.get(configuration.getWebhookQueueConfiguration().getOutboxDirectory());
+    this.segmentSizeBytes = configuration.getWebhookQueueConfiguration().getOutboxSegmentSizeBytes();
+    this.objectMapper = objectMapper;
+
+    try {
+      this.outboxId = readOrCreateOutboxId(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(String.format("Could not read webhook outbox id in %s", directory), e);
+    }
+
+    for (WebhookType type : WebhookType.values()) {
+      Path logDirectory = directory.resolve(type.name().toLowerCase());
+      try {
+        logs.put(type, new OutboxLog(type, logDirectory));
+      } catch (IOException e) {
+        throw new UncheckedIOException(String.format("Could not open webhook outbox in %s", logDirectory), e);
+      }
+    }
+
+    metricRegistry.register("webhooks.outbox.pending", (Gauge<Long>) this::getMaxPending);
+    metricRegistry.register("webhooks.outbox.segments", (Gauge<Integer>) () -> logs.values().stream().mapToInt((log) -> log.segments.size()).sum());
+  }
+
+  public static class OutboxRecord {
+    private final long offset;
+    private final WebhookType type;
+    private final long appendedAt;
+    private final byte[] payload;
+
+    OutboxRecord(long offset, WebhookType type, long appendedAt, byte[] payload) {
+      this.offset = offset;
+      this.type = type;
+      this.appendedAt = appendedAt;
+      this.payload = payload;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public WebhookType getType() {
+      return type;
+    }
+
+    public long getAppendedAt() {
+      return appendedAt;
+    }
+
+    public byte[] getPayload() {
+      return payload;
+    }
+  }
+
+  public static class OutboxBatch {
+    private final WebhookType type;
+    private final List<OutboxRecord> records;
+    private final long startOffset;
+    private final OutboxPosition end;
+
+    OutboxBatch(WebhookType type, List<OutboxRecord> records, long startOffset, OutboxPosition end) {
+      this.type = type;
+      this.records = records;
+      this.startOffset = startOffset;
+      this.end = end;
+    }
+
+    public WebhookType getType() {
+      return type;
+    }
+
+    public List<OutboxRecord> getRecords() {
+      return records;
+    }
+
+    public long getStartOffset() {
+      return startOffset;
+    }
+
+    public long getEndOffset() {
+      return end.offset;
+    }
+  }
+
+  private static class OutboxPosition {
+    private final long offset;
+    private final long segmentStart;
+    private final long bytePosition;
+
+    OutboxPosition(long offset, long segmentStart, long bytePosition) {
+      this.offset = offset;
+      this.segmentStart = segmentStart;
+      this.bytePosition = bytePosition;
+    }
+  }
+
+  /**
+   * Identifies the logs on this disk, so a leader can tell whether another outbox was in use since
+   * it last delivered from this one.
+   */
+  public String getOutboxId() {
+    return outboxId;
+  }
+
+  /**
+   * Makes sure the webhook has a replay offset, starting new webhooks at the head of their type's log.
+   */
+  public void register(WebhookType type, String webhookId) {
+    logs.get(type).register(webhookId);
+  }
+
+  public long append(WebhookType type, Object payload) {
+    return logs.get(type).append(payload);
+  }
+
+  /**
+   * Reads up to {@code limit} updates of the given type from the webhook's replay offset.
+   */
+  public OutboxBatch read(String webhookId, WebhookType type, int limit) {
+    return logs.get(type).read(webhookId, limit);
+  }
+
+  /**
+   * Moves the webhook's replay offset past the batch and persists the offsets.
+   */
+  public void commit(String webhookId, OutboxBatch batch) {
+    OutboxLog log = logs.get(batch.getType());
+    log.offsets.merge(webhookId, batch.getEndOffset(), Math::max);
+    log.positions.put(webhookId, batch.end);
+    log.persistOffsets();
+  }
+
+  public long getPending(String webhookId, WebhookType type) {
+    OutboxLog log = logs.get(type);
+    return log.nextOffset - log.offsets.getOrDefault(webhookId, log.nextOffset);
+  }
+
+  private long getMaxPending() {
+    long maxPending = 0;
+    for (OutboxLog log : logs.values()) {
+      long minOffset = log.offsets.values().stream().mapToLong(Long::longValue).min().orElse(log.nextOffset);
+      maxPending = Math.max(maxPending, log.nextOffset - minOffset);
+    }
+    return maxPending;
+  }
+
+  /**
+   * Forgets offsets for webhooks which are no longer active and removes every segment that all
+   * remaining webhooks of its type have already moved past.
+   */
+  public void prune(Set<String> activeWebhookIds) {
+    logs.values().forEach((log) -> log.prune(activeWebhookIds));
+  }
+
+  private class OutboxLog {
+    private final WebhookType type;
+    private final Path directory;
+
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+    private final Map<String, OutboxPosition> positions = new ConcurrentHashMap<>();
+
+    private FileChannel activeSegment;
+    private long activeSegmentBytes;
+    private volatile long nextOffset;
+
+    OutboxLog(WebhookType type, Path directory) throws IOException {
+      this.type = type;
+      this.directory = directory;
+      recover();
+    }
+
+    private void recover() throws IOException {
+      Files.createDirectories(directory);
+
+      try (Stream<Path> files = Files.list(directory)) {
+        files.filter((p) -> p.getFileName().toString().startsWith(SEGMENT_PREFIX) && p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+            .forEach((p) -> segments.put(parseSegmentStart(p), p));
+      }
+
+      Path offsetsFile = directory.resolve(OFFSETS_FILE);
+      if (Files.exists(offsetsFile)) {
+        Map<String, Long> persisted = objectMapper.readValue(offsetsFile.toFile(), new TypeReference<Map<String, Long>>() {});
+        offsets.putAll(persisted);
+      }
+
+      if (segments.isEmpty()) {
+        openSegment(0);
+        return;
+      }
+
+      // The tail of the last segment may hold a partially written record if we crashed mid-append
+      Entry<Long, Path> last = segments.lastEntry();
+      long records = 0;
+      long validBytes = 0;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(last.getValue())))) {
+        long fileSize = Files.size(last.getValue());
+        while (validBytes + HEADER_BYTES <= fileSize) {
+          int length = in.readInt();
+          if (validBytes + HEADER_BYTES + length > fileSize) {
+            break;
+          }
+          skipFully(in, Long.BYTES + length);
+          validBytes += HEADER_BYTES + length;
+          records++;
+        }
+      }
+
+      activeSegment = FileChannel.open(last.getValue(), StandardOpenOption.WRITE);
+      activeSegment.truncate(validBytes);
+      activeSegment.position(validBytes);
+      activeSegmentBytes = validBytes;
+      nextOffset = last.getKey() + records;
+
+      // Offsets are only persisted after the records they cover were forced to disk, so this only
+      // happens if the log was damaged or replaced underneath us
+      for (Entry<String, Long> offset : offsets.entrySet()) {
+        if (offset.getValue() > nextOffset) {
+          LOG.warn("Webhook {} replay offset {} is past the {} outbox head {}, resetting it to the head", offset.getKey(), offset.getValue(), type, nextOffset);
+          offset.setValue(nextOffset);
+        }
+      }
+
+      LOG.info("Recovered {} webhook outbox with {} segments, next offset {}", type, segments.size(), nextOffset);
+    }
+
+    private void openSegment(long startOffset) throws IOException {
+      Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, startOffset, SEGMENT_SUFFIX));
+      activeSegment = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      fsyncDirectory(directory);
+      activeSegmentBytes = 0;
+      nextOffset = startOffset;
+      segments.put(startOffset, segment);
+    }
+
+    void register(String webhookId) {
+      if (offsets.containsKey(webhookId)) {
+        return;
+      }
+      synchronized (this) {
+        // Persisted right away, so that updates queued for it before a restart are still delivered
+        if (offsets.putIfAbsent(webhookId, nextOffset) == null) {
+          persistOffsets();
+        }
+      }
+    }
+
+    synchronized long append(Object payload) {
+      try {
+        byte[] bytes = objectMapper.writeValueAsBytes(payload);
+
+        if (activeSegmentBytes > 0 && activeSegmentBytes + HEADER_BYTES + bytes.length > segmentSizeBytes) {
+          activeSegment.close();
+          openSegment(nextOffset);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bytes.length);
+        buffer.putInt(bytes.length);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.put(bytes);
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+          activeSegment.write(buffer);
+        }
+        activeSegment.force(true);
+
+        activeSegmentBytes += HEADER_BYTES + bytes.length;
+        return nextOffset++;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    OutboxBatch read(String webhookId, int limit) {
+      final long head = nextOffset;
+      long start = Math.max(offsets.getOrDefault(webhookId, head), segments.firstKey());
+
+      OutboxPosition cached = positions.get(webhookId);
+      if (cached != null && (cached.offset != start || !segments.containsKey(cached.segmentStart))) {
+        cached = null;
+      }
+
+      List<OutboxRecord> records = new ArrayList<>();
+      long offset = start;
+      long segmentStart = start;
+      long bytePosition = 0;
+
+      try {
+        for (Entry<Long, Path> segment : segments.tailMap(segments.floorKey(start), true).entrySet()) {
+          if (offset >= head || records.size() >= limit) {
+            break;
+          }
+
+          segmentStart = segment.getKey();
+          long current = segmentStart;
+          bytePosition = 0;
+
+          try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+            if (cached != null && cached.segmentStart == segmentStart) {
+              channel.position(cached.bytePosition);
+              current = cached.offset;
+              bytePosition = cached.bytePosition;
+            }
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (current < head && records.size() < limit) {
+              int length;
+              try {
+                length = in.readInt();
+              } catch (EOFException eof) {
+                break;
+              }
+              long appendedAt = in.readLong();
+
+              if (current < start) {
+                skipFully(in, length);
+              } else {
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                records.add(new OutboxRecord(current, type, appendedAt, payload));
+              }
+
+              bytePosition += HEADER_BYTES + length;
+              current++;
+            }
+          }
+
+          offset = current;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      return new OutboxBatch(type, records, start, new OutboxPosition(Math.max(offset, start), segmentStart, bytePosition));
+    }
+
+    synchronized void prune(Set<String> activeWebhookIds) {
+      if (offsets.keySet().retainAll(activeWebhookIds)) {
+        positions.keySet().retainAll(activeWebhookIds);
+        persistOffsets();
+      }
+
+      long minOffset = offsets.values().stream().mapToLong(Long::longValue).min().orElse(nextOffset);
+      long activeStart = segments.lastKey();
+
+      for (Entry<Long, Path> segment : segments.headMap(activeStart, false).entrySet()) {
+        Long nextSegmentStart = segments.higherKey(segment.getKey());
+        if (nextSegmentStart == null || nextSegmentStart > minOffset) {
+          break;
+        }
+        try {
+          Files.deleteIfExists(segment.getValue());
+          segments.remove(segment.getKey());
+          LOG.debug("Removed fully delivered webhook outbox segment {}", segment.getValue());
+        } catch (IOException e) {
+          LOG.warn("Couldn't remove webhook outbox segment {}", segment.getValue(), e);
+          break;
+        }
+      }
+    }
+
+    synchronized void persistOffsets() {
+      Path offsetsFile = directory.resolve(OFFSETS_FILE);
+      Path tmp = directory.resolve(OFFSETS_FILE + ".tmp");
+      try {
+        ByteBuffer buffer = ByteBuffer.wrap(objectMapper.writeValueAsBytes(Collections.unmodifiableMap(offsets)));
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          channel.force(true);
+        }
+        Files.move(tmp, offsetsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        fsyncDirectory(directory);
+      } catch (IOException e) {
+        LOG.error("Couldn't persist webhook outbox offsets to {}", offsetsFile, e);
+      }
+    }
+  }
+
+  private static String readOrCreateOutboxId(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Path idFile = directory.resolve(OUTBOX_ID_FILE);
+    if (Files.exists(idFile)) {
+      return new String(Files.readAllBytes(idFile), StandardCharsets.UTF_8).trim();
+    }
+
+    String id = UUID.randomUUID().toString();
+    Path tmp = directory.resolve(OUTBOX_ID_FILE + ".tmp");
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(true);
+    }
+    Files.move(tmp, idFile, StandardCopyOption.ATOMIC_MOVE);
+    fsyncDirectory(directory);
+    return id;
+  }
+
+  private static long parseSegmentStart(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Makes newly created or renamed entries in the directory survive a crash.
+   */
+  private static void fsyncDirectory(Path directory) throws IOException {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    }
+  }
+
+  private static void skipFully(InputStream in, long bytes) throws IOException {
+    long remaining = bytes;
+    while (remaining > 0) {
+      long skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        throw new EOFException();
+      }
+      remaining -= skipped;
+    }
+  }
+}
@@ -1,5 +1,5 @@
 package com.hubspot.singularity.hooks;
 
 public enum WebhookQueueType {
-  ZOOKEEPER, SNS
+  ZOOKEEPER, SNS, OUTBOX
 }
@@ -1,6 +1,7 @@
 package com.hubspot.singularity.jersey;
 
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseFilter;
 
 import com.google.inject.Binder;
 import com.google.inject.binder.LinkedBindingBuilder;
@@ -21,4 +22,10 @@ public final class JerseyBinder
     Multibinder<ContainerRequestFilter> requestFilterBinder = Multibinder.newSetBinder(binder, ContainerRequestFilter.class);
     return requestFilterBinder.addBinding();
   }
+
+  public static LinkedBindingBuilder<ContainerResponseFilter> bindContainerResponseFilter(Binder binder)
+  {
+    Multibinder<ContainerResponseFilter> responseFilterBinder = Multibinder.newSetBinder(binder, ContainerResponseFilter.class);
+    return responseFilterBinder.addBinding();
+  }
 }
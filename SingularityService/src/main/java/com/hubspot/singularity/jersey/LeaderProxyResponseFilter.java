@@ -0,0 +1,34 @@
+package com.hubspot.singularity.jersey;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Response;
+
+/**
+ * Sends the leader's response to a proxied request in place of whatever the endpoint returned. Endpoints which return
+ * an entity rather than a {@link Response} have no other way of passing it on.
+ */
+public class LeaderProxyResponseFilter implements ContainerResponseFilter {
+
+  public static final String LEADER_RESPONSE_PROPERTY = LeaderProxyResponseFilter.class.getName() + ".leaderResponse";
+
+  @Inject
+  public LeaderProxyResponseFilter()
+  {}
+
+  @Override
+  public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+    Object property = request.getProperty(LEADER_RESPONSE_PROPERTY);
+    if (!(property instanceof Response)) {
+      return;
+    }
+
+    Response leaderResponse = (Response) property;
+    response.setStatus(leaderResponse.getStatus());
+    response.getHeaders().clear();
+    response.getHeaders().putAll(leaderResponse.getHeaders());
+    response.setEntity(leaderResponse.getEntity());
+  }
+}
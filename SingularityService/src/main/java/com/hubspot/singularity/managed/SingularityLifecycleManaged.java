@@ -2,11 +2,14 @@ package com.hubspot.singularity.managed;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.Participant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +19,10 @@ import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.SingularityLeaderController;
 import com.hubspot.singularity.SingularityManagedCachedThreadPoolFactory;
 import com.hubspot.singularity.SingularityManagedScheduledExecutorServiceFactory;
+import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.data.ExecutorIdGenerator;
+import com.hubspot.singularity.data.SingularityWebCacheWatcher;
+import com.hubspot.singularity.hooks.WebhookQueueType;
 import com.hubspot.singularity.mesos.SingularityMesosExecutorInfoSupport;
 import com.hubspot.singularity.metrics.SingularityGraphiteReporter;
 import com.hubspot.singularity.scheduler.SingularityLeaderOnlyPoller;
@@ -41,7 +47,9 @@ public class SingularityLifecycleManaged implements Managed {
   private final SingularityMesosExecutorInfoSupport executorInfoSupport;
   private final SingularityGraphiteReporter graphiteReporter;
   private final ExecutorIdGenerator executorIdGenerator;
+  private final SingularityWebCacheWatcher webCacheWatcher;
   private final Set<SingularityLeaderOnlyPoller> leaderOnlyPollers;
+  private final SingularityConfiguration configuration;
 
   private final CuratorFramework curatorFramework;
   private final AtomicBoolean started = new AtomicBoolean(false);
@@ -57,7 +65,9 @@ public class SingularityLifecycleManaged implements Managed {
                                      SingularityMesosExecutorInfoSupport executorInfoSupport,
                                      SingularityGraphiteReporter graphiteReporter,
                                      ExecutorIdGenerator executorIdGenerator,
-                                     Set<SingularityLeaderOnlyPoller> leaderOnlyPollers) {
+                                     SingularityWebCacheWatcher webCacheWatcher,
+                                     Set<SingularityLeaderOnlyPoller> leaderOnlyPollers,
+                                     SingularityConfiguration configuration) {
     this.cachedThreadPoolFactory = cachedThreadPoolFactory;
     this.scheduledExecutorServiceFactory = scheduledExecutorServiceFactory;
     this.asyncHttpClient = asyncHttpClient;
@@ -67,17 +77,21 @@ public class SingularityLifecycleManaged implements Managed {
     this.executorInfoSupport = executorInfoSupport;
     this.graphiteReporter = graphiteReporter;
     this.executorIdGenerator = executorIdGenerator;
+    this.webCacheWatcher = webCacheWatcher;
     this.leaderOnlyPollers = leaderOnlyPollers;
+    this.configuration = configuration;
   }
 
   @Override
   public void start() throws Exception {
     if (!started.getAndSet(true)) {
       startCurator();
+      checkWebhookOutboxIsExclusive();
       leaderLatch.start();
       leaderController.start(); // start the state poller
       graphiteReporter.start();
       executorIdGenerator.start();
+      webCacheWatcher.start();
       if (startLeaderPollers()) {
         leaderOnlyPollers.forEach(SingularityLeaderOnlyPoller::start);
       }
@@ -97,6 +111,7 @@ public class SingularityLifecycleManaged implements Managed {
       stopHttpClients(); // Stops any additional async callbacks in healthcheck/new task check
       stopExecutors(); // Shuts down the executors for pollers and async semaphores
       stopLeaderLatch(); // let go of leadership
+      stopWebCacheWatcher();
       stopCurator(); // disconnect from zk
       stopGraphiteReporter();
     } else {
@@ -169,6 +184,15 @@ public class SingularityLifecycleManaged implements Managed {
     }
   }
 
+  private void stopWebCacheWatcher() {
+    try {
+      LOG.info("Stopping web cache watcher");
+      webCacheWatcher.stop();
+    } catch (Throwable t) {
+      LOG.warn("Could not stop web cache watcher ({})", t.getMessage());
+    }
+  }
+
   private void startCurator() {
     curatorFramework.start();
 
@@ -183,6 +207,20 @@ public class SingularityLifecycleManaged implements Managed {
     LOG.info("Connected to ZK after {}", JavaUtils.duration(start));
   }
 
+  /*
+   * The OUTBOX webhook queue keeps queued updates on the leader's local disk, where no other
+   * instance could deliver them after a leadership change
+   */
+  private void checkWebhookOutboxIsExclusive() throws Exception {
+    if (configuration.getWebhookQueueConfiguration().getQueueType() != WebhookQueueType.OUTBOX) {
+      return;
+    }
+
+    Collection<Participant> participants = leaderLatch.getParticipants();
+    checkState(participants.isEmpty(), "The OUTBOX webhook queue only supports a single scheduler instance, but other instances are already running: %s",
+        participants.stream().map(Participant::getId).collect(Collectors.toList()));
+  }
+
   private void stopCurator() {
     try {
       LOG.info("Stopping curator");
@@ -3,6 +3,7 @@ package com.hubspot.singularity.mesos;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,6 +31,7 @@ import com.google.inject.name.Named;
 import com.hubspot.mesos.JavaUtils;
 import com.hubspot.mesos.Resources;
 import com.hubspot.mesos.json.MesosSlaveMetricsSnapshotObject;
+import com.hubspot.singularity.OfferScoringStrategy;
 import com.hubspot.singularity.RequestType;
 import com.hubspot.singularity.RequestUtilization;
 import com.hubspot.singularity.SingularityAction;
@@ -52,10 +54,12 @@ import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.data.DeployManager;
 import com.hubspot.singularity.data.DisasterManager;
 import com.hubspot.singularity.data.TaskManager;
+import com.hubspot.singularity.data.TaskManager.QueuedTaskCreation;
 import com.hubspot.singularity.data.usage.UsageManager;
 import com.hubspot.singularity.helpers.MesosUtils;
 import com.hubspot.singularity.helpers.SingularityMesosTaskHolder;
 import com.hubspot.singularity.mesos.SingularityOfferCache.CachedOffer;
+import com.hubspot.singularity.mesos.SingularityOfferScoreIndex.ScoredOffer;
 import com.hubspot.singularity.mesos.SingularitySlaveAndRackManager.CheckResult;
 import com.hubspot.singularity.mesos.SingularitySlaveUsageWithCalculatedScores.MaxProbableUsage;
 import com.hubspot.singularity.scheduler.SingularityLeaderCache;
@@ -348,7 +352,6 @@ public class SingularityMesosOfferScheduler {
 
     final AtomicInteger tasksScheduled = new AtomicInteger(0);
     Map<String, RequestUtilization> requestUtilizations = usageManager.getRequestUtilizations(false);
-    List<SingularityTaskId> activeTaskIds = taskManager.getActiveTaskIds();
 
     Map<String, SingularitySlaveUsageWithId> currentSlaveUsages = usageManager.getAllCurrentSlaveUsage();
 
@@ -359,8 +362,8 @@ public class SingularityMesosOfferScheduler {
         Optional<SingularitySlaveUsageWithId> maybeSlaveUsage = Optional.ofNullable(currentSlaveUsages.get(slaveId));
 
         if (configuration.isReCheckMetricsForLargeNewTaskCount() && maybeSlaveUsage.isPresent()) {
-          long newTaskCount = taskManager.getActiveTaskIds().stream()
-              .filter((t) -> t.getStartedAt() > maybeSlaveUsage.get().getTimestamp() && t.getSanitizedHost().equals(offerHolder.getSanitizedHost()))
+          long newTaskCount = taskManager.getActiveTaskIdsForHost(offerHolder.getSanitizedHost()).stream()
+              .filter((t) -> t.getStartedAt() > maybeSlaveUsage.get().getTimestamp())
               .count();
           if (newTaskCount >= maybeSlaveUsage.get().getNumTasks() / 2) {
             try {
@@ -393,7 +396,7 @@ public class SingularityMesosOfferScheduler {
                 new SingularitySlaveUsageWithCalculatedScores(
                     usage,
                     mesosConfiguration.getScoreUsingSystemLoad(),
-                    getMaxProbableUsageForSlave(activeTaskIds, requestUtilizations, offerHolders.get(usage.getSlaveId()).getSanitizedHost()),
+                    getMaxProbableUsageForSlave(requestUtilizations, offerHolders.get(usage.getSlaveId()).getSanitizedHost()),
                     mesosConfiguration.getLoad5OverloadedThreshold(),
                     mesosConfiguration.getLoad1OverloadedThreshold(),
                     usage.getTimestamp()))
@@ -405,6 +408,26 @@ public class SingularityMesosOfferScheduler {
 
     LOG.trace("Found slave usages {}", currentSlaveUsagesBySlaveId);
 
+    // Task writes are queued as tasks are accepted so that they share batches, and all have to land before any is launched
+    List<QueuedTaskCreation> queuedTaskCreations = new ArrayList<>();
+    if (mesosConfiguration.getOfferScoringStrategy() == OfferScoringStrategy.INDEXED) {
+      checkOffersWithScoreIndex(sortedTaskRequestHolders, offerHolders, requestUtilizations, currentSlaveUsagesBySlaveId, tasksScheduled, queuedTaskCreations);
+    } else {
+      checkOffersConcurrently(sortedTaskRequestHolders, offerHolders, requestUtilizations, currentSlaveUsagesBySlaveId, tasksScheduled, queuedTaskCreations);
+    }
+    queuedTaskCreations.forEach(taskManager::awaitTaskCreated);
+
+    LOG.info("{} tasks scheduled, {} tasks remaining after examining {} offers", tasksScheduled, numDueTasks - tasksScheduled.get(), offers.size());
+
+    return offerHolders.values();
+  }
+
+  private void checkOffersConcurrently(List<SingularityTaskRequestHolder> sortedTaskRequestHolders,
+                                       Map<String, SingularityOfferHolder> offerHolders,
+                                       Map<String, RequestUtilization> requestUtilizations,
+                                       Map<String, SingularitySlaveUsageWithCalculatedScores> currentSlaveUsagesBySlaveId,
+                                       AtomicInteger tasksScheduled,
+                                       List<QueuedTaskCreation> queuedTaskCreations) {
     Map<String, Integer> tasksPerOfferHost = new ConcurrentHashMap<>();
 
     for (SingularityTaskRequestHolder taskRequestHolder : sortedTaskRequestHolders) {
@@ -430,17 +453,57 @@ public class SingularityMesosOfferScheduler {
         if (!scorePerOffer.isEmpty()) {
           SingularityOfferHolder bestOffer = offerHolders.get(Collections.max(scorePerOffer.entrySet(), Map.Entry.comparingByValue()).getKey());
           LOG.info("Best offer {}/1 is on {}", scorePerOffer.get(bestOffer.getSlaveId()), bestOffer.getSanitizedHost());
-          SingularityMesosTaskHolder taskHolder = acceptTask(bestOffer, tasksPerOfferHost, taskRequestHolder);
+          SingularityMesosTaskHolder taskHolder = acceptTask(bestOffer, tasksPerOfferHost, taskRequestHolder, queuedTaskCreations);
           tasksScheduled.getAndIncrement();
           bestOffer.addMatchedTask(taskHolder);
           updateSlaveUsageScores(taskRequestHolder, currentSlaveUsagesBySlaveId, bestOffer.getSlaveId(), requestUtilizations);
         }
       }, taskRequestHolder.getTaskRequest().getRequest().getId(), String.format("%s#%s", getClass().getSimpleName(), "checkOffers"));
     }
+  }
 
-    LOG.info("{} tasks scheduled, {} tasks remaining after examining {} offers", tasksScheduled, numDueTasks - tasksScheduled.get(), offers.size());
+  private void checkOffersWithScoreIndex(List<SingularityTaskRequestHolder> sortedTaskRequestHolders,
+                                         Map<String, SingularityOfferHolder> offerHolders,
+                                         Map<String, RequestUtilization> requestUtilizations,
+                                         Map<String, SingularitySlaveUsageWithCalculatedScores> currentSlaveUsagesBySlaveId,
+                                         AtomicInteger tasksScheduled,
+                                         List<QueuedTaskCreation> queuedTaskCreations) {
+    Map<String, Integer> tasksPerOfferHost = new HashMap<>();
+    SingularityOfferScoreIndex scoreIndex = new SingularityOfferScoreIndex(offerHolders.values(),
+        (offerHolder) -> score(offerHolder.getHostname(), Optional.ofNullable(currentSlaveUsagesBySlaveId.get(offerHolder.getSlaveId()))));
 
-    return offerHolders.values();
+    for (SingularityTaskRequestHolder taskRequestHolder : sortedTaskRequestHolders) {
+      if (scoreIndex.isEmpty()) {
+        LOG.debug("All offers are full, not checking remaining task requests");
+        break;
+      }
+      final String requestId = taskRequestHolder.getTaskRequest().getRequest().getId();
+      lock.runWithRequestLock(() -> {
+        List<SingularityTaskId> activeTaskIdsForRequest = leaderCache.getActiveTaskIdsForRequest(requestId);
+        if (isTooManyInstancesForRequest(taskRequestHolder.getTaskRequest(), activeTaskIdsForRequest)) {
+          LOG.debug("Skipping pending task {}, too many instances already running", taskRequestHolder.getTaskRequest().getPendingTask().getPendingTaskId());
+          return;
+        }
+
+        RequestUtilization requestUtilization = requestUtilizations.get(requestId);
+        Optional<ScoredOffer> maybeBestOffer = scoreIndex.findBest((offerHolder) ->
+            isOfferEligible(offerHolder, tasksPerOfferHost, taskRequestHolder, Optional.ofNullable(currentSlaveUsagesBySlaveId.get(offerHolder.getSlaveId())), activeTaskIdsForRequest, requestUtilization));
+
+        if (maybeBestOffer.isPresent()) {
+          SingularityOfferHolder bestOffer = maybeBestOffer.get().getOfferHolder();
+          LOG.info("Best offer {}/1 is on {}", maybeBestOffer.get().getScore(), bestOffer.getSanitizedHost());
+          SingularityMesosTaskHolder taskHolder = acceptTask(bestOffer, tasksPerOfferHost, taskRequestHolder, queuedTaskCreations);
+          tasksScheduled.getAndIncrement();
+          bestOffer.addMatchedTask(taskHolder);
+          updateSlaveUsageScores(taskRequestHolder, currentSlaveUsagesBySlaveId, bestOffer.getSlaveId(), requestUtilizations);
+          if (isOfferFull(bestOffer)) {
+            scoreIndex.remove(bestOffer);
+          } else {
+            scoreIndex.invalidate(bestOffer);
+          }
+        }
+      }, requestId, String.format("%s#%s", getClass().getSimpleName(), "checkOffersWithScoreIndex"));
+    }
   }
 
   private CompletableFuture<Void> runAsync(Runnable runnable) {
@@ -472,32 +535,48 @@ public class SingularityMesosOfferScheduler {
     }
   }
 
-  private MaxProbableUsage getMaxProbableUsageForSlave(List<SingularityTaskId> activeTaskIds, Map<String, RequestUtilization> requestUtilizations, String sanitizedHostname) {
+  private MaxProbableUsage getMaxProbableUsageForSlave(Map<String, RequestUtilization> requestUtilizations, String sanitizedHostname) {
     double cpu = 0;
     double memBytes = 0;
     double diskBytes = 0;
-    for (SingularityTaskId taskId : activeTaskIds) {
-      if (taskId.getSanitizedHost().equals(sanitizedHostname)) {
-        if (requestUtilizations.containsKey(taskId.getRequestId())) {
-          RequestUtilization utilization = requestUtilizations.get(taskId.getRequestId());
-          cpu += getEstimatedCpuUsageForRequest(utilization);
-          memBytes += utilization.getMaxMemBytesUsed();
-          diskBytes += utilization.getMaxDiskBytesUsed();
-        } else {
-          Optional<SingularityTask> maybeTask = taskManager.getTask(taskId);
-          if (maybeTask.isPresent()) {
-            Resources resources = maybeTask.get().getTaskRequest().getPendingTask().getResources()
-                .orElse(maybeTask.get().getTaskRequest().getDeploy().getResources().orElse(defaultResources));
-            cpu += resources.getCpus();
-            memBytes += resources.getMemoryMb() * SingularitySlaveUsage.BYTES_PER_MEGABYTE;
-            diskBytes += resources.getDiskMb() * SingularitySlaveUsage.BYTES_PER_MEGABYTE;
-          }
+    for (SingularityTaskId taskId : taskManager.getActiveTaskIdsForHost(sanitizedHostname)) {
+      if (requestUtilizations.containsKey(taskId.getRequestId())) {
+        RequestUtilization utilization = requestUtilizations.get(taskId.getRequestId());
+        cpu += getEstimatedCpuUsageForRequest(utilization);
+        memBytes += utilization.getMaxMemBytesUsed();
+        diskBytes += utilization.getMaxDiskBytesUsed();
+      } else {
+        Optional<Resources> maybeResources = getRequestedResources(taskId);
+        if (maybeResources.isPresent()) {
+          cpu += maybeResources.get().getCpus();
+          memBytes += maybeResources.get().getMemoryMb() * SingularitySlaveUsage.BYTES_PER_MEGABYTE;
+          diskBytes += maybeResources.get().getDiskMb() * SingularitySlaveUsage.BYTES_PER_MEGABYTE;
         }
       }
     }
     return new MaxProbableUsage(cpu, memBytes, diskBytes);
   }
 
+  private Optional<Resources> getRequestedResources(SingularityTaskId taskId) {
+    Optional<Resources> maybeCachedResources = leaderCache.getActiveTaskResources(taskId);
+    if (maybeCachedResources.isPresent()) {
+      return maybeCachedResources;
+    }
+
+    Optional<SingularityTask> maybeTask = taskManager.getTask(taskId);
+    if (!maybeTask.isPresent()) {
+      return Optional.empty();
+    }
+    Resources resources = getRequestedResources(maybeTask.get());
+    leaderCache.putActiveTaskResources(taskId, resources);
+    return Optional.of(resources);
+  }
+
+  private Resources getRequestedResources(SingularityTask task) {
+    return task.getTaskRequest().getPendingTask().getResources()
+        .orElse(task.getTaskRequest().getDeploy().getResources().orElse(defaultResources));
+  }
+
   private boolean isOfferFull(SingularityOfferHolder offerHolder) {
     return configuration.getMaxTasksPerOffer() > 0 && offerHolder.getAcceptedTasks().size() >= configuration.getMaxTasksPerOffer();
   }
@@ -556,16 +635,29 @@ public class SingularityMesosOfferScheduler {
                        RequestUtilization requestUtilization) {
 
     final SingularityTaskRequest taskRequest = taskRequestHolder.getTaskRequest();
-    final SingularityPendingTaskId pendingTaskId = taskRequest.getPendingTask().getPendingTaskId();
 
-    if (tooManyTasksPerOfferHostForRequest(tasksPerOffer, offerHolder.getHostname(), taskRequestHolder.getTaskRequest())) {
-      LOG.debug("Skipping task request for request id {}, too many tasks already scheduled using offer {}", taskRequest.getRequest().getId(), offerHolder.getHostname());
+    if (isTooManyInstancesForRequest(taskRequest, activeTaskIdsForRequest)) {
+      LOG.debug("Skipping pending task {}, too many instances already running", taskRequest.getPendingTask().getPendingTaskId());
       return 0;
     }
 
-    if (isTooManyInstancesForRequest(taskRequest, activeTaskIdsForRequest)) {
-      LOG.debug("Skipping pending task {}, too many instances already running", pendingTaskId);
-      return 0;
+    if (isOfferEligible(offerHolder, tasksPerOffer, taskRequestHolder, maybeSlaveUsage, activeTaskIdsForRequest, requestUtilization)) {
+      return score(offerHolder.getHostname(), maybeSlaveUsage);
+    }
+
+    return 0;
+  }
+
+  private boolean isOfferEligible(SingularityOfferHolder offerHolder, Map<String, Integer> tasksPerOffer, SingularityTaskRequestHolder taskRequestHolder,
+                                  Optional<SingularitySlaveUsageWithCalculatedScores> maybeSlaveUsage, List<SingularityTaskId> activeTaskIdsForRequest,
+                                  RequestUtilization requestUtilization) {
+
+    final SingularityTaskRequest taskRequest = taskRequestHolder.getTaskRequest();
+    final SingularityPendingTaskId pendingTaskId = taskRequest.getPendingTask().getPendingTaskId();
+
+    if (tooManyTasksPerOfferHostForRequest(tasksPerOffer, offerHolder.getHostname(), taskRequestHolder.getTaskRequest())) {
+      LOG.debug("Skipping task request for request id {}, too many tasks already scheduled using offer {}", taskRequest.getRequest().getId(), offerHolder.getHostname());
+      return false;
     }
 
     double estimatedCpusToAdd = taskRequestHolder.getTotalResources().getCpus();
@@ -579,7 +671,7 @@ public class SingularityMesosOfferScheduler {
           maybeSlaveUsage.get().getSlaveUsage().getSystemLoad1Min(), maybeSlaveUsage.get().getSlaveUsage().getSystemCpusTotal(),
           estimatedCpusToAdd,
           maybeSlaveUsage.get().getEstimatedAddedCpusUsage());
-      return 0;
+      return false;
     }
 
     if (LOG.isTraceEnabled()) {
@@ -591,18 +683,18 @@ public class SingularityMesosOfferScheduler {
     final boolean matchesResources = MesosUtils.doesOfferMatchResources(taskRequest.getRequest().getRequiredRole(),
         taskRequestHolder.getTotalResources(), offerHolder.getCurrentResources(), taskRequestHolder.getRequestedPorts());
     if (!matchesResources) {
-      return 0;
+      return false;
     }
     final SlaveMatchState slaveMatchState = slaveAndRackManager.doesOfferMatch(offerHolder, taskRequest, activeTaskIdsForRequest, isPreemptibleTask(taskRequest));
 
     if (slaveMatchState.isMatchAllowed()) {
-      return score(offerHolder.getHostname(), maybeSlaveUsage);
+      return true;
     } else if (LOG.isTraceEnabled()) {
       LOG.trace("Ignoring offer on host {} with roles {} on {} for task {}; matched resources: {}, slave match state: {}", offerHolder.getHostname(),
           offerHolder.getRoles(), offerHolder.getHostname(), pendingTaskId, matchesResources, slaveMatchState);
     }
 
-    return 0;
+    return false;
   }
 
   private boolean isPreemptibleTask(SingularityTaskRequest taskRequest) {
@@ -653,7 +745,8 @@ public class SingularityMesosOfferScheduler {
     return score;
   }
 
-  private SingularityMesosTaskHolder acceptTask(SingularityOfferHolder offerHolder, Map<String, Integer> tasksPerOffer, SingularityTaskRequestHolder taskRequestHolder) {
+  private SingularityMesosTaskHolder acceptTask(SingularityOfferHolder offerHolder, Map<String, Integer> tasksPerOffer, SingularityTaskRequestHolder taskRequestHolder,
+                                                List<QueuedTaskCreation> queuedTaskCreations) {
     final SingularityTaskRequest taskRequest = taskRequestHolder.getTaskRequest();
     final SingularityMesosTaskHolder taskHolder = mesosTaskBuilder.buildTask(offerHolder, offerHolder.getCurrentResources(), taskRequest, taskRequestHolder.getTaskResources(), taskRequestHolder.getExecutorResources());
 
@@ -662,7 +755,8 @@ public class SingularityMesosOfferScheduler {
     LOG.trace("Accepted and built task {}", zkTask);
     LOG.info("Launching task {} slot on slave {} ({})", taskHolder.getTask().getTaskId(), offerHolder.getSlaveId(), offerHolder.getHostname());
 
-    taskManager.createTaskAndDeletePendingTask(zkTask);
+    queuedTaskCreations.add(taskManager.createTaskAndDeletePendingTaskAsync(zkTask));
+    leaderCache.putActiveTaskResources(zkTask.getTaskId(), getRequestedResources(zkTask));
 
     addRequestToMapByOfferHost(tasksPerOffer, offerHolder.getHostname(), taskRequest.getRequest().getId());
 
@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multiset;
@@ -84,6 +85,7 @@ public class SingularityMesosStatusUpdateHandler {
 
   private final ExecutorService statusUpdatesExecutor;
   private final AsyncSemaphore<StatusUpdateResult> statusUpdatesSemaphore;
+  private final Optional<SingularityStatusUpdateLanes> statusUpdateLanes;
 
   @Inject
   public SingularityMesosStatusUpdateHandler(TaskManager taskManager,
@@ -105,7 +107,8 @@ public class SingularityMesosStatusUpdateHandler {
                                              SingularityManagedCachedThreadPoolFactory cachedThreadPoolFactory,
                                              @Named(SingularityMesosModule.TASK_LOST_REASONS_COUNTER) Multiset<Protos.TaskStatus.Reason> taskLostReasons,
                                              @Named(SingularityMainModule.LOST_TASKS_METER) Meter lostTasksMeter,
-                                             @Named(SingularityMainModule.STATUS_UPDATE_DELTAS) ConcurrentHashMap<Long, Long> statusUpdateDeltas) {
+                                             @Named(SingularityMainModule.STATUS_UPDATE_DELTAS) ConcurrentHashMap<Long, Long> statusUpdateDeltas,
+                                             MetricRegistry metricRegistry) {
     this.taskManager = taskManager;
     this.deployManager = deployManager;
     this.requestManager = requestManager;
@@ -129,6 +132,18 @@ public class SingularityMesosStatusUpdateHandler {
         .newBuilder(() -> configuration.getMesosConfiguration().getStatusUpdateConcurrencyLimit(), executorServiceFactory.get("status-update-semaphore", 5))
         .withQueueSize(configuration.getMesosConfiguration().getMaxStatusUpdateQueueSize())
         .build();
+
+    if (configuration.getMesosConfiguration().getStatusUpdateLanes() > 0) {
+      this.statusUpdateLanes = Optional.of(new SingularityStatusUpdateLanes(
+          configuration.getMesosConfiguration().getStatusUpdateLanes(),
+          configuration.getMesosConfiguration().getMaxStatusUpdateQueueSize(),
+          statusUpdatesExecutor,
+          metricRegistry,
+          this::processStatusUpdate
+      ));
+    } else {
+      this.statusUpdateLanes = Optional.empty();
+    }
   }
 
   private boolean isRecoveryStatusUpdate(Optional<SingularityTaskStatusHolder> previousTaskStatusHolder, Reason reason, ExtendedTaskState taskState, final SingularityTaskStatusHolder newTaskStatusHolder) {
@@ -356,20 +371,24 @@ public class SingularityMesosStatusUpdateHandler {
   }
 
   public CompletableFuture<StatusUpdateResult> processStatusUpdateAsync(Protos.TaskStatus status) {
-    return statusUpdatesSemaphore.call(() -> CompletableFuture.supplyAsync(() -> {
-        final String taskId = status.getTaskId().getValue();
-        final Optional<SingularityTaskId> maybeTaskId = getTaskId(taskId);
+    if (statusUpdateLanes.isPresent()) {
+      return statusUpdateLanes.get().submit(status);
+    }
+    return statusUpdatesSemaphore.call(() -> CompletableFuture.supplyAsync(() -> processStatusUpdate(status), statusUpdatesExecutor));
+  }
 
-        if (!maybeTaskId.isPresent()) {
-          return StatusUpdateResult.INVALID_TASK_ID;
-        }
+  private StatusUpdateResult processStatusUpdate(Protos.TaskStatus status) {
+    final String taskId = status.getTaskId().getValue();
+    final Optional<SingularityTaskId> maybeTaskId = getTaskId(taskId);
 
-        return schedulerLock.runWithRequestLockAndReturn(
-            () -> unsafeProcessStatusUpdate(status, maybeTaskId.get()),
-            maybeTaskId.get().getRequestId(),
-            getClass().getSimpleName()
-        );
-      }, statusUpdatesExecutor)
+    if (!maybeTaskId.isPresent()) {
+      return StatusUpdateResult.INVALID_TASK_ID;
+    }
+
+    return schedulerLock.runWithRequestLockAndReturn(
+        () -> unsafeProcessStatusUpdate(status, maybeTaskId.get()),
+        maybeTaskId.get().getRequestId(),
+        getClass().getSimpleName()
     );
   }
 }
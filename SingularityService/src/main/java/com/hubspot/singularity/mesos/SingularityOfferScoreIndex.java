@@ -0,0 +1,99 @@
+package com.hubspot.singularity.mesos;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Offer holders ordered by their slave usage score, highest first. The usage score of a slave only changes when it
+ * accepts a task, so callers invalidate that one slave after each accepted task instead of re-scoring every offer.
+ *
+ * Not thread safe, meant to be used from a single offer check loop.
+ */
+class SingularityOfferScoreIndex {
+  private static final Comparator<ScoredOffer> BEST_SCORE_FIRST = Comparator.comparingDouble((ScoredOffer scoredOffer) -> scoredOffer.score)
+      .reversed()
+      .thenComparing((scoredOffer) -> scoredOffer.offerHolder.getSlaveId());
+
+  private final ToDoubleFunction<SingularityOfferHolder> scoreFunction;
+  private final TreeSet<ScoredOffer> sortedOffers;
+  private final Map<String, ScoredOffer> offersBySlaveId;
+
+  SingularityOfferScoreIndex(Collection<SingularityOfferHolder> offerHolders, ToDoubleFunction<SingularityOfferHolder> scoreFunction) {
+    this.scoreFunction = scoreFunction;
+    this.sortedOffers = new TreeSet<>(BEST_SCORE_FIRST);
+    this.offersBySlaveId = new HashMap<>(offerHolders.size());
+    for (SingularityOfferHolder offerHolder : offerHolders) {
+      add(offerHolder);
+    }
+  }
+
+  /**
+   * @return the highest scoring offer that passes the eligibility check, skipping offers whose usage score is 0
+   */
+  Optional<ScoredOffer> findBest(Predicate<SingularityOfferHolder> isEligible) {
+    for (ScoredOffer scoredOffer : sortedOffers) {
+      if (scoredOffer.score == 0) {
+        // Everything after this point in the set also scores 0
+        return Optional.empty();
+      }
+      if (isEligible.test(scoredOffer.offerHolder)) {
+        return Optional.of(scoredOffer);
+      }
+    }
+    return Optional.empty();
+  }
+
+  void invalidate(SingularityOfferHolder offerHolder) {
+    remove(offerHolder);
+    add(offerHolder);
+  }
+
+  void remove(SingularityOfferHolder offerHolder) {
+    ScoredOffer existing = offersBySlaveId.remove(offerHolder.getSlaveId());
+    if (existing != null) {
+      sortedOffers.remove(existing);
+    }
+  }
+
+  boolean isEmpty() {
+    return offersBySlaveId.isEmpty();
+  }
+
+  private void add(SingularityOfferHolder offerHolder) {
+    ScoredOffer scoredOffer = new ScoredOffer(offerHolder, scoreFunction.applyAsDouble(offerHolder));
+    offersBySlaveId.put(offerHolder.getSlaveId(), scoredOffer);
+    sortedOffers.add(scoredOffer);
+  }
+
+  static class ScoredOffer {
+    private final SingularityOfferHolder offerHolder;
+    private final double score;
+
+    ScoredOffer(SingularityOfferHolder offerHolder, double score) {
+      this.offerHolder = offerHolder;
+      this.score = score;
+    }
+
+    SingularityOfferHolder getOfferHolder() {
+      return offerHolder;
+    }
+
+    double getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return "ScoredOffer{" +
+          "slaveId=" + offerHolder.getSlaveId() +
+          ", score=" + score +
+          '}';
+    }
+  }
+}
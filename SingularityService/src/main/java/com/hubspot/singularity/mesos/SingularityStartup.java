@@ -35,6 +35,7 @@ import com.hubspot.singularity.data.DeployManager;
 import com.hubspot.singularity.data.DisasterManager;
 import com.hubspot.singularity.data.RequestManager;
 import com.hubspot.singularity.data.TaskManager;
+import com.hubspot.singularity.data.zkmigrations.BinaryZkDataFormatRewriter;
 import com.hubspot.singularity.data.zkmigrations.ZkDataMigrationRunner;
 import com.hubspot.singularity.helpers.MesosUtils;
 import com.hubspot.singularity.scheduler.SingularityHealthchecker;
@@ -56,13 +57,15 @@ class SingularityStartup {
   private final SingularityNewTaskChecker newTaskChecker;
   private final SingularityTaskReconciliation taskReconciliation;
   private final ZkDataMigrationRunner zkDataMigrationRunner;
+  private final BinaryZkDataFormatRewriter binaryZkDataFormatRewriter;
 
   @Inject
   SingularityStartup(MesosClient mesosClient, SingularityHealthchecker healthchecker, SingularityNewTaskChecker newTaskChecker,
       SingularitySlaveAndRackManager slaveAndRackManager, TaskManager taskManager, RequestManager requestManager, DeployManager deployManager, DisasterManager disasterManager,
-      SingularityTaskReconciliation taskReconciliation, ZkDataMigrationRunner zkDataMigrationRunner) {
+      SingularityTaskReconciliation taskReconciliation, ZkDataMigrationRunner zkDataMigrationRunner, BinaryZkDataFormatRewriter binaryZkDataFormatRewriter) {
     this.mesosClient = mesosClient;
     this.zkDataMigrationRunner = zkDataMigrationRunner;
+    this.binaryZkDataFormatRewriter = binaryZkDataFormatRewriter;
     this.slaveAndRackManager = slaveAndRackManager;
     this.deployManager = deployManager;
     this.disasterManager = disasterManager;
@@ -75,6 +78,7 @@ class SingularityStartup {
 
   public void checkMigrations() {
     zkDataMigrationRunner.checkMigrations();
+    binaryZkDataFormatRewriter.checkDataFormat();
   }
 
   public void startup(MasterInfo masterInfo) {
@@ -0,0 +1,199 @@
+package com.hubspot.singularity.mesos;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.mesos.v1.Protos.TaskState;
+import org.apache.mesos.v1.Protos.TaskStatus.Reason;
+import org.apache.mesos.v1.Protos.TaskStatus;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.hubspot.singularity.ExtendedTaskState;
+import com.hubspot.singularity.helpers.MesosUtils;
+
+/**
+ * Hashes status updates by task id into a fixed number of lanes. Each lane processes its updates one at a time and in the
+ * order they arrived, so updates for the same task stay ordered while updates for different tasks run in parallel.
+ *
+ * An update is skipped (IGNORED) if the same task already has a terminal update waiting in its lane, since processing it
+ * after that update would be a no-op. TASK_LOST and TASK_UNREACHABLE don't count, because the agent can come back and
+ * report the task again, and updates sent when an agent reregisters are never skipped since they may recover the task.
+ * An update with the same state and reason as the one waiting for its task replaces it, so that the newest status and
+ * timestamp are the ones saved, and the older one is IGNORED instead.
+ */
+class SingularityStatusUpdateLanes {
+  private final Lane[] lanes;
+  private final int maxQueueSize;
+  private final ExecutorService executor;
+  private final Function<TaskStatus, StatusUpdateResult> processor;
+
+  private final AtomicInteger totalQueued = new AtomicInteger();
+  private final Histogram deltaHistogram;
+  private final Histogram queueTimeHistogram;
+  private final Meter coalescedMeter;
+
+  SingularityStatusUpdateLanes(int numLanes, int maxQueueSize, ExecutorService executor, MetricRegistry registry, Function<TaskStatus, StatusUpdateResult> processor) {
+    this.lanes = new Lane[numLanes];
+    this.maxQueueSize = maxQueueSize;
+    this.executor = executor;
+    this.processor = processor;
+
+    this.deltaHistogram = registry.histogram("status.updates.delta");
+    this.queueTimeHistogram = registry.histogram("status.updates.queue.time");
+    this.coalescedMeter = registry.meter("status.updates.coalesced");
+
+    for (int i = 0; i < numLanes; i++) {
+      Lane lane = new Lane();
+      lanes[i] = lane;
+      registry.register(String.format("status.updates.lanes.%s.depth", i), (Gauge<Integer>) lane::getDepth);
+    }
+  }
+
+  CompletableFuture<StatusUpdateResult> submit(TaskStatus status) {
+    String taskId = status.getTaskId().getValue();
+    Lane lane = lanes[Math.floorMod(taskId.hashCode(), lanes.length)];
+    return lane.enqueue(new QueuedUpdate(taskId, status));
+  }
+
+  private class Lane {
+    private final Queue<QueuedUpdate> queue = new ArrayDeque<>();
+    private final Map<String, QueuedUpdate> latestQueuedByTaskId = new HashMap<>();
+    private boolean running = false;
+
+    synchronized int getDepth() {
+      return queue.size();
+    }
+
+    CompletableFuture<StatusUpdateResult> enqueue(QueuedUpdate update) {
+      boolean startDraining = false;
+
+      synchronized (this) {
+        QueuedUpdate latestQueued = latestQueuedByTaskId.get(update.taskId);
+        if (latestQueued != null && latestQueued.isDuplicateOf(update)) {
+          // it's the latest update for its task, so nothing for the same task is queued between it and this one
+          coalescedMeter.mark();
+          queue.remove(latestQueued);
+          totalQueued.decrementAndGet();
+          latestQueued.result.complete(StatusUpdateResult.IGNORED);
+        } else if (latestQueued != null && latestQueued.supersedes(update)) {
+          coalescedMeter.mark();
+          update.result.complete(StatusUpdateResult.IGNORED);
+          return update.result;
+        }
+
+        if (totalQueued.incrementAndGet() > maxQueueSize) {
+          totalQueued.decrementAndGet();
+          update.result.completeExceptionally(new RejectedExecutionException("Could not queue status update for processing."));
+          return update.result;
+        }
+
+        queue.add(update);
+        latestQueuedByTaskId.put(update.taskId, update);
+
+        if (!running) {
+          running = true;
+          startDraining = true;
+        }
+      }
+
+      if (startDraining) {
+        try {
+          executor.execute(this::drain);
+        } catch (RejectedExecutionException ree) {
+          synchronized (this) {
+            running = false;
+          }
+          failAll(ree);
+        }
+      }
+
+      return update.result;
+    }
+
+    private void drain() {
+      while (true) {
+        QueuedUpdate next;
+        synchronized (this) {
+          next = queue.poll();
+          if (next == null) {
+            running = false;
+            return;
+          }
+          latestQueuedByTaskId.remove(next.taskId, next);
+        }
+        totalQueued.decrementAndGet();
+        process(next);
+      }
+    }
+
+    private void process(QueuedUpdate update) {
+      queueTimeHistogram.update(System.currentTimeMillis() - update.queuedAt);
+
+      try {
+        update.result.complete(processor.apply(update.status));
+      } catch (Throwable t) {
+        update.result.completeExceptionally(t);
+      }
+
+      if (update.status.hasTimestamp()) {
+        deltaHistogram.update(System.currentTimeMillis() - (long) (update.status.getTimestamp() * 1000));
+      }
+    }
+
+    private void failAll(Throwable t) {
+      QueuedUpdate next;
+      while (true) {
+        synchronized (this) {
+          next = queue.poll();
+          if (next == null) {
+            return;
+          }
+          latestQueuedByTaskId.remove(next.taskId, next);
+        }
+        totalQueued.decrementAndGet();
+        next.result.completeExceptionally(t);
+      }
+    }
+  }
+
+  private static class QueuedUpdate {
+    private final String taskId;
+    private final TaskStatus status;
+    private final long queuedAt;
+    private final CompletableFuture<StatusUpdateResult> result = new CompletableFuture<>();
+
+    QueuedUpdate(String taskId, TaskStatus status) {
+      this.taskId = taskId;
+      this.status = status;
+      this.queuedAt = System.currentTimeMillis();
+    }
+
+    boolean isDuplicateOf(QueuedUpdate later) {
+      return status.getState() == later.status.getState() && status.getReason() == later.status.getReason();
+    }
+
+    boolean supersedes(QueuedUpdate later) {
+      if (later.status.getReason() == Reason.REASON_AGENT_REREGISTERED) {
+        return false;
+      }
+
+      TaskState state = status.getState();
+      if (state == TaskState.TASK_LOST || state == TaskState.TASK_UNREACHABLE) {
+        return false;
+      }
+
+      ExtendedTaskState extendedTaskState = MesosUtils.fromTaskState(state);
+      return extendedTaskState.isDone();
+    }
+  }
+}
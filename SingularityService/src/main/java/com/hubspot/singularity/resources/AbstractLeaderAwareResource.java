@@ -1,24 +1,32 @@
 package com.hubspot.singularity.resources;
 
-import java.io.IOException;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import java.util.Enumeration;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 
 import org.apache.curator.framework.recipes.leader.LeaderLatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.base.Charsets;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.hubspot.singularity.SingularityMainModule;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.jersey.LeaderProxyResponseFilter;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.AsyncHttpClient.BoundRequestBuilder;
 import com.ning.http.client.Request;
-import com.ning.http.client.Response;
 
 public class AbstractLeaderAwareResource {
   private static final Logger LOG = LoggerFactory.getLogger(AbstractLeaderAwareResource.class);
@@ -27,16 +35,34 @@ public class AbstractLeaderAwareResource {
   protected final LeaderLatch leaderLatch;
   protected final ObjectMapper objectMapper;
 
+  private AsyncHttpClient leaderProxyHttpClient;
+  private Timer leaderProxyTimer;
+  private long leaderProxyTimeoutMillis;
+
   public AbstractLeaderAwareResource(AsyncHttpClient httpClient, LeaderLatch leaderLatch, ObjectMapper objectMapper) {
     this.httpClient = httpClient;
     this.leaderLatch = leaderLatch;
     this.objectMapper = objectMapper;
   }
 
+  @Inject
+  void injectLeaderProxyDependencies(@Named(SingularityMainModule.LEADER_PROXY_HTTP_CLIENT) AsyncHttpClient leaderProxyHttpClient,
+                                     MetricRegistry metricRegistry,
+                                     SingularityConfiguration configuration) {
+    this.leaderProxyHttpClient = checkNotNull(leaderProxyHttpClient, "leaderProxyHttpClient is null");
+    this.leaderProxyTimer = metricRegistry.timer("leader.proxy.time");
+    this.leaderProxyTimeoutMillis = configuration.getLeaderProxyTimeoutMillis();
+  }
+
   protected boolean isLeader() {
     return leaderLatch.hasLeadership();
   }
 
+  /**
+   * Runs the request here when leading, and otherwise streams the leader's response for it to the caller. Endpoints
+   * returning a {@link javax.ws.rs.core.Response} get the leader's, any others get null and the leader's response is
+   * sent by {@link LeaderProxyResponseFilter} instead.
+   */
   protected <T, Q> T maybeProxyToLeader(HttpServletRequest request, Class<T> clazz, Q body, Supplier<T> runnable) {
     if (leaderLatch.hasLeadership()) {
       return runnable.get();
@@ -60,13 +86,13 @@ public class AbstractLeaderAwareResource {
     BoundRequestBuilder requestBuilder;
     switch (request.getMethod().toUpperCase()) {
       case "POST":
-        requestBuilder = httpClient.preparePost(url);
+        requestBuilder = leaderProxyHttpClient.preparePost(url);
         break;
       case "PUT":
-        requestBuilder = httpClient.preparePut(url);
+        requestBuilder = leaderProxyHttpClient.preparePut(url);
         break;
       case "DELETE":
-        requestBuilder = httpClient.prepareDelete(url);
+        requestBuilder = leaderProxyHttpClient.prepareDelete(url);
         break;
       default:
         throw new WebApplicationException(String.format("Not meant to proxy request of method %s", request.getMethod()), 400);
@@ -85,32 +111,26 @@ public class AbstractLeaderAwareResource {
     copyHeadersAndParams(requestBuilder, request);
     Request httpRequest = requestBuilder.build();
 
-    Response response;
+    LeaderProxyResponseHandler responseHandler = new LeaderProxyResponseHandler(leaderProxyTimer.time(), leaderProxyTimeoutMillis);
+    javax.ws.rs.core.Response leaderResponse;
     try {
       LOG.trace("Sending request to leader: {}", httpRequest);
-      response = httpClient.executeRequest(httpRequest).get();
+      leaderProxyHttpClient.executeRequest(httpRequest, responseHandler);
+      leaderResponse = responseHandler.awaitResponse();
+    } catch (TimeoutException te) {
+      LOG.error("Timed out proxying request {} to leader", url, te);
+      throw new WebApplicationException(te, 504);
     } catch (ExecutionException|InterruptedException e) {
-      LOG.error("Could not proxy request {} to leader", e);
-      throw new WebApplicationException(e, 500);
+      LOG.error("Could not proxy request {} to leader", url, e);
+      throw new WebApplicationException(e, e.getCause() instanceof TimeoutException ? 504 : 500);
     }
 
-    try {
-      if (clazz.isAssignableFrom(javax.ws.rs.core.Response.class)) {
-        return (T) javax.ws.rs.core.Response.status(response.getStatusCode())
-            .entity(response.getResponseBody())
-            .build();
-      }
-
-      if (response.getStatusCode() > 399) {
-        throw new WebApplicationException(response.getResponseBody(Charsets.UTF_8.toString()), response.getStatusCode());
-      } else {
-        return objectMapper.readValue(response.getResponseBodyAsStream(), clazz);
-      }
-    } catch (IOException ioe) {
-      String message = String.format("Request to leader succeeded with status %s, but could not interpret response", response.getStatusCode());
-      LOG.error(message, ioe);
-      throw new WebApplicationException(message, ioe, 500);
+    if (clazz.isAssignableFrom(javax.ws.rs.core.Response.class)) {
+      return (T) leaderResponse;
     }
+    // The leader's response is sent to the caller as is rather than being read back into clazz and written again
+    request.setAttribute(LeaderProxyResponseFilter.LEADER_RESPONSE_PROPERTY, leaderResponse);
+    return null;
   }
 
   private void copyHeadersAndParams(BoundRequestBuilder requestBuilder, HttpServletRequest request) {
@@ -118,6 +138,10 @@ public class AbstractLeaderAwareResource {
     if (headerNames != null) {
       while (headerNames.hasMoreElements()) {
         String headerName = headerNames.nextElement();
+        if (headerName.equalsIgnoreCase(HttpHeaders.ACCEPT_ENCODING)) {
+          // Leave compression of the passed through response to this instance
+          continue;
+        }
         requestBuilder.addHeader(headerName, request.getHeader(headerName));
         LOG.trace("Copied header {}:{}", headerName, request.getHeader(headerName));
       }
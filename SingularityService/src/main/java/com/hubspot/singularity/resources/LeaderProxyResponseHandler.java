@@ -0,0 +1,114 @@
+package com.hubspot.singularity.resources;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableSet;
+import com.ning.http.client.AsyncHandler;
+import com.ning.http.client.HttpResponseBodyPart;
+import com.ning.http.client.HttpResponseHeaders;
+import com.ning.http.client.HttpResponseStatus;
+
+/**
+ * Hands the leader's status and headers over as soon as they arrive, and then streams its body to the caller as it is
+ * received rather than buffering all of it first. Body parts are queued rather than piped, so a slow caller never
+ * blocks the http client's io threads.
+ */
+class LeaderProxyResponseHandler implements AsyncHandler<Void>, StreamingOutput {
+  private static final Set<String> HOP_BY_HOP_HEADERS = ImmutableSet.of(
+      "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "content-length");
+
+  private static final Object END_OF_BODY = new Object();
+
+  private final Timer.Context timerContext;
+  private final long timeoutMillis;
+
+  private final CompletableFuture<ResponseBuilder> head = new CompletableFuture<>();
+  private final BlockingQueue<Object> bodyParts = new LinkedBlockingQueue<>();
+  private volatile int statusCode;
+
+  LeaderProxyResponseHandler(Timer.Context timerContext, long timeoutMillis) {
+    this.timerContext = timerContext;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  Response awaitResponse() throws InterruptedException, ExecutionException, TimeoutException {
+    return head.get(timeoutMillis, TimeUnit.MILLISECONDS).entity(this).build();
+  }
+
+  @Override
+  public STATE onStatusReceived(HttpResponseStatus responseStatus) {
+    statusCode = responseStatus.getStatusCode();
+    return STATE.CONTINUE;
+  }
+
+  @Override
+  public STATE onHeadersReceived(HttpResponseHeaders headers) {
+    if (!head.isDone()) {
+      ResponseBuilder builder = Response.status(statusCode);
+      headers.getHeaders().forEach((name, values) -> {
+        if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+          values.forEach((value) -> builder.header(name, value));
+        }
+      });
+      head.complete(builder);
+    }
+    return STATE.CONTINUE;
+  }
+
+  @Override
+  public STATE onBodyPartReceived(HttpResponseBodyPart bodyPart) {
+    bodyParts.add(bodyPart.getBodyPartBytes());
+    return STATE.CONTINUE;
+  }
+
+  @Override
+  public Void onCompleted() {
+    timerContext.stop();
+    bodyParts.add(END_OF_BODY);
+    return null;
+  }
+
+  @Override
+  public void onThrowable(Throwable t) {
+    timerContext.stop();
+    head.completeExceptionally(t);
+    bodyParts.add(t);
+  }
+
+  @Override
+  public void write(OutputStream output) throws IOException {
+    while (true) {
+      Object part;
+      try {
+        part = bodyParts.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while streaming the leader's response", ie);
+      }
+
+      if (part == null) {
+        throw new IOException(String.format("Timed out after %sms waiting for more of the leader's response", timeoutMillis));
+      } else if (part == END_OF_BODY) {
+        return;
+      } else if (part instanceof Throwable) {
+        throw new IOException("Could not read the rest of the leader's response", (Throwable) part);
+      }
+
+      output.write((byte[]) part);
+      output.flush();
+    }
+  }
+}
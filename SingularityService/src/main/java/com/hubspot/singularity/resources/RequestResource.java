@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -688,6 +689,15 @@ public class RequestResource extends AbstractRequestResource {
     return new SingularityRequestBatch(found, notFound);
   }
 
+  private Optional<Integer> checkPage(Integer limit, Integer page) {
+    if (page == null) {
+      return Optional.empty();
+    }
+    checkBadRequest(limit != null, "A page can only be requested along with a limit");
+    checkBadRequest(page >= 1, "Pages start at 1 (was %s)", page);
+    return Optional.of(page);
+  }
+
   @GET
   @PropertyFiltering
   @Path("/active")
@@ -698,10 +708,11 @@ public class RequestResource extends AbstractRequestResource {
       @Parameter(description = "Only include requests that the user has operated on or is in a group for") @QueryParam("filterRelevantForUser") Boolean filterRelevantForUser,
       @Parameter(description = "Return full data, including deploy data and active task ids") @QueryParam("includeFullRequestData") Boolean includeFullRequestData,
       @Parameter(description = "The maximum number of results to return") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Which page of results to return, pages are limit results long") @QueryParam("page") Integer page,
       @Parameter(description = "Only return requests of these types") @QueryParam("requestType") List<RequestType> requestTypes) {
     return requestHelper.fillDataForRequestsAndFilter(
         filterAutorized(Lists.newArrayList(requestManager.getActiveRequests(useWebCache(useWebCache))), SingularityAuthorizationScope.READ, user),
-        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), requestTypes);
+        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), checkPage(limit, page), requestTypes);
   }
 
   @GET
@@ -750,10 +761,11 @@ public class RequestResource extends AbstractRequestResource {
       @Parameter(description = "Only include requests that the user has operated on or is in a group for") @QueryParam("filterRelevantForUser") Boolean filterRelevantForUser,
       @Parameter(description = "Return full data, including deploy data and active task ids") @QueryParam("includeFullRequestData") Boolean includeFullRequestData,
       @Parameter(description = "The maximum number of results to return") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Which page of results to return, pages are limit results long") @QueryParam("page") Integer page,
       @Parameter(description = "Only return requests of these types") @QueryParam("requestType") List<RequestType> requestTypes) {
     return requestHelper.fillDataForRequestsAndFilter(
         filterAutorized(Lists.newArrayList(requestManager.getPausedRequests(useWebCache(useWebCache))), SingularityAuthorizationScope.READ, user),
-        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), requestTypes);
+        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), checkPage(limit, page), requestTypes);
   }
 
   @GET
@@ -766,10 +778,11 @@ public class RequestResource extends AbstractRequestResource {
       @Parameter(description = "Only include requests that the user has operated on or is in a group for") @QueryParam("filterRelevantForUser") Boolean filterRelevantForUser,
       @Parameter(description = "Return full data, including deploy data and active task ids") @QueryParam("includeFullRequestData") Boolean includeFullRequestData,
       @Parameter(description = "The maximum number of results to return") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Which page of results to return, pages are limit results long") @QueryParam("page") Integer page,
       @Parameter(description = "Only return requests of these types") @QueryParam("requestType") List<RequestType> requestTypes) {
     return requestHelper.fillDataForRequestsAndFilter(
         filterAutorized(Lists.newArrayList(requestManager.getCooldownRequests(useWebCache(useWebCache))), SingularityAuthorizationScope.READ, user),
-        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), requestTypes);
+        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), checkPage(limit, page), requestTypes);
   }
 
   @GET
@@ -782,10 +795,11 @@ public class RequestResource extends AbstractRequestResource {
                                                             @QueryParam("filterRelevantForUser") Boolean filterRelevantForUser,
                                                             @QueryParam("includeFullRequestData") Boolean includeFullRequestData,
                                                             @QueryParam("limit") Integer limit,
+                                                            @QueryParam("page") Integer page,
                                                             @QueryParam("requestType") List<RequestType> requestTypes) {
     return requestHelper.fillDataForRequestsAndFilter(
         filterAutorized(Lists.newArrayList(requestManager.getFinishedRequests(useWebCache(useWebCache))), SingularityAuthorizationScope.READ, user),
-        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), requestTypes);
+        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), checkPage(limit, page), requestTypes);
   }
 
   @GET
@@ -797,10 +811,40 @@ public class RequestResource extends AbstractRequestResource {
       @Parameter(description = "Only include requests that the user has operated on or is in a group for") @QueryParam("filterRelevantForUser") Boolean filterRelevantForUser,
       @Parameter(description = "Return full data, including deploy data and active task ids") @QueryParam("includeFullRequestData") Boolean includeFullRequestData,
       @Parameter(description = "The maximum number of results to return") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Which page of results to return, pages are limit results long") @QueryParam("page") Integer page,
       @Parameter(description = "Only return requests of these types") @QueryParam("requestType") List<RequestType> requestTypes) {
     return requestHelper.fillDataForRequestsAndFilter(
         filterAutorized(requestManager.getRequests(useWebCache(useWebCache)), SingularityAuthorizationScope.READ, user),
-        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), requestTypes);
+        user, valueOrFalse(filterRelevantForUser), valueOrFalse(includeFullRequestData), Optional.ofNullable(limit), checkPage(limit, page), requestTypes);
+  }
+
+  @GET
+  @Path("/stream")
+  @Operation(
+      summary = "Stream a page of requests, ordered by request id",
+      description = "Requests are returned without task or deploy history data. The id of the last request returned is sent in the X-Singularity-Next-Cursor header when more requests remain"
+  )
+  public Response streamRequests(
+      @Parameter(hidden = true) @Auth SingularityUser user,
+      @Parameter(description = "Fetched a cached version of this data to limit expensive operations") @QueryParam("useWebCache") Boolean useWebCache,
+      @Parameter(description = "Only return requests with a request id after this cursor") @QueryParam("cursor") String cursor,
+      @Parameter(description = "The maximum number of results to return (must be positive)") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Only return requests of these types") @QueryParam("requestType") List<RequestType> requestTypes,
+      @Parameter(description = "Only include these properties of each request, e.g. request.id and state") @QueryParam("property") List<String> properties) {
+    List<SingularityRequestWithState> requests = filterAutorized(requestManager.getRequests(useWebCache(useWebCache)), SingularityAuthorizationScope.READ, user).stream()
+        .filter((request) -> requestTypes == null || requestTypes.isEmpty() || requestTypes.contains(request.getRequest().getRequestType()))
+        .collect(Collectors.toList());
+
+    StreamingJsonList.Page<SingularityRequestWithState> page = StreamingJsonList.page(requests, (request) -> request.getRequest().getId(), Optional.ofNullable(cursor), Optional.ofNullable(limit));
+
+    Map<String, SingularityRequestDeployState> deployStates = deployManager.getRequestDeployStatesByRequestIds(
+        page.getItems().stream().map((request) -> request.getRequest().getId()).collect(Collectors.toList()));
+    List<SingularityRequestParent> requestParents = page.getItems().stream()
+        .map((request) -> new SingularityRequestParent(request.getRequest(), request.getState(), Optional.ofNullable(deployStates.get(request.getRequest().getId())),
+            Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()))
+        .collect(Collectors.toList());
+
+    return StreamingJsonList.toResponse(objectMapper, requestParents, page.getNextCursor(), properties);
   }
 
   private boolean valueOrFalse(Boolean input) {
@@ -15,10 +15,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -45,6 +43,7 @@ import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ListObjectsV2Result;
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
@@ -55,7 +54,6 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.hubspot.mesos.JavaUtils;
 import com.hubspot.singularity.Singularity;
@@ -86,6 +84,7 @@ import com.hubspot.singularity.data.TaskManager;
 import com.hubspot.singularity.data.history.HistoryManager;
 import com.hubspot.singularity.data.history.RequestHistoryHelper;
 import com.hubspot.singularity.helpers.S3ObjectSummaryHolder;
+import com.hubspot.singularity.helpers.SingularityS3LogFetcher;
 import com.hubspot.singularity.helpers.SingularityS3Service;
 import com.hubspot.singularity.helpers.SingularityS3Services;
 import com.ning.http.client.AsyncHttpClient;
@@ -116,6 +115,7 @@ public class S3LogResource extends AbstractHistoryResource {
   private final Optional<S3Configuration> configuration;
   private final RequestHistoryHelper requestHistoryHelper;
   private final RequestManager requestManager;
+  private final SingularityS3LogFetcher logFetcher;
 
   private static final Comparator<SingularityS3LogMetadata> LOG_COMPARATOR = new Comparator<SingularityS3LogMetadata>() {
 
@@ -128,12 +128,14 @@ public class S3LogResource extends AbstractHistoryResource {
 
   @Inject
   public S3LogResource(AsyncHttpClient httpClient, LeaderLatch leaderLatch, @Singularity ObjectMapper objectMapper, RequestManager requestManager, HistoryManager historyManager, RequestHistoryHelper requestHistoryHelper, TaskManager taskManager, DeployManager deployManager,
-                       Optional<S3Configuration> configuration, SingularityAuthorizationHelper authorizationHelper, SingularityS3Services s3Services) {
+                       Optional<S3Configuration> configuration, SingularityAuthorizationHelper authorizationHelper, SingularityS3Services s3Services,
+                       SingularityS3LogFetcher logFetcher) {
     super(httpClient, leaderLatch, objectMapper, historyManager, taskManager, deployManager, authorizationHelper);
     this.requestManager = requestManager;
     this.configuration = configuration;
     this.requestHistoryHelper = requestHistoryHelper;
     this.s3Services = s3Services;
+    this.logFetcher = logFetcher;
   }
 
   // Generation of prefixes
@@ -330,11 +332,105 @@ public class S3LogResource extends AbstractHistoryResource {
   }
 
   // Fetching logs
-  private List<SingularityS3LogMetadata> getS3LogsWithExecutorService(S3Configuration s3Configuration, ListeningExecutorService executorService, Map<SingularityS3Service, Set<String>> servicesToPrefixes, int totalPrefixCount, final SingularityS3SearchRequest search, final ConcurrentHashMap<String, ContinuationToken> continuationTokens, final boolean paginated) throws InterruptedException, ExecutionException, TimeoutException {
-    List<ListenableFuture<List<S3ObjectSummaryHolder>>> futures = Lists.newArrayListWithCapacity(totalPrefixCount);
+  private List<S3ObjectSummaryHolder> listPrefix(AmazonS3 s3Client, String s3Bucket, String group, String s3Prefix, String key, SingularityS3SearchRequest search,
+                                                 ConcurrentHashMap<String, ContinuationToken> continuationTokens, AtomicInteger resultCount, boolean paginated) {
+    ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(s3Bucket).withPrefix(s3Prefix);
+    if (paginated) {
+      Optional<ContinuationToken> token = Optional.empty();
+      if (search.getContinuationTokens().containsKey(key) && !Strings.isNullOrEmpty(search.getContinuationTokens().get(key).getValue())) {
+        request.setContinuationToken(search.getContinuationTokens().get(key).getValue());
+        token = Optional.of(search.getContinuationTokens().get(key));
+      }
+      int targetResultCount = search.getMaxPerPage().orElse(DEFAULT_TARGET_MAX_RESULTS);
+      request.setMaxKeys(targetResultCount);
+      if (resultCount.get() < targetResultCount) {
+        ListObjectsV2Result result = s3Client.listObjectsV2(request);
+        if (result.getObjectSummaries().isEmpty()) {
+          continuationTokens.putIfAbsent(key, new ContinuationToken(result.getNextContinuationToken(), true));
+          return Collections.emptyList();
+        } else {
+          boolean addToList = incrementIfLessThan(resultCount, result.getObjectSummaries().size(), targetResultCount);
+          if (addToList) {
+            continuationTokens.putIfAbsent(key, new ContinuationToken(result.getNextContinuationToken(), !result.isTruncated()));
+            List<S3ObjectSummaryHolder> objectSummaryHolders = new ArrayList<>();
+            for (S3ObjectSummary objectSummary : result.getObjectSummaries()) {
+              if (search.getFileNamePrefixWhitelist().isEmpty() || search.getFileNamePrefixWhitelist().stream().anyMatch(whitelistedPrefix -> objectSummary.getKey().startsWith(whitelistedPrefix))) {
+                objectSummaryHolders.add(new S3ObjectSummaryHolder(group, objectSummary));
+              }
+            }
+            return objectSummaryHolders;
+          } else {
+            continuationTokens.putIfAbsent(key, token.orElse(new ContinuationToken(null, false)));
+            return Collections.emptyList();
+          }
+        }
+      } else {
+        continuationTokens.putIfAbsent(key, token.orElse(new ContinuationToken(null, false)));
+        return Collections.emptyList();
+      }
+    } else {
+      ListObjectsV2Result result = s3Client.listObjectsV2(request);
+      List<S3ObjectSummaryHolder> objectSummaryHolders = new ArrayList<>();
+      for (S3ObjectSummary objectSummary : result.getObjectSummaries()) {
+        if (search.getFileNamePrefixWhitelist().isEmpty() || search.getFileNamePrefixWhitelist().stream().anyMatch(whitelistedPrefix -> objectSummary.getKey().startsWith(whitelistedPrefix))) {
+          objectSummaryHolders.add(new S3ObjectSummaryHolder(group, objectSummary));
+        }
+      }
+      while (result.isTruncated() && result.getContinuationToken() != null) {
+        result = s3Client.listObjectsV2(new ListObjectsV2Request().withBucketName(s3Bucket).withPrefix(s3Prefix).withContinuationToken(result.getContinuationToken()));
+        for (S3ObjectSummary objectSummary : result.getObjectSummaries()) {
+          objectSummaryHolders.add(new S3ObjectSummaryHolder(group, objectSummary));
+        }
+      }
+      return objectSummaryHolders;
+    }
+  }
+
+  private SingularityS3LogMetadata getLogMetadata(S3ObjectSummaryHolder s3ObjectHolder, SingularityS3SearchRequest search, Date expireAt) throws Exception {
+    final S3ObjectSummary s3Object = s3ObjectHolder.getObjectSummary();
+    final AmazonS3 s3Client = s3Services.getServiceByGroupAndBucketOrDefault(s3ObjectHolder.getGroup(), s3Object.getBucketName()).getS3Client();
+
+    SingularityS3LogMetadata metadata;
+    if (search.isExcludeMetadata()) {
+      metadata = new SingularityS3LogMetadata(s3Object.getKey(), s3Object.getLastModified().getTime(), s3Object.getSize(), Optional.empty(), Optional.empty());
+    } else {
+      metadata = logFetcher.getMetadata(s3Object, () -> {
+        GetObjectMetadataRequest metadataRequest = new GetObjectMetadataRequest(s3Object.getBucketName(), s3Object.getKey());
+        Map<String, String> objectMetadata = s3Client.getObjectMetadata(metadataRequest).getUserMetadata();
+        return new SingularityS3LogMetadata(s3Object.getKey(), s3Object.getLastModified().getTime(), s3Object.getSize(),
+            getMetadataAsLong(objectMetadata, SingularityS3Log.LOG_START_S3_ATTR), getMetadataAsLong(objectMetadata, SingularityS3Log.LOG_END_S3_ATTR));
+      });
+    }
+
+    if (search.isListOnly()) {
+      return metadata;
+    }
+
+    // Presigning is a local signature, it does not make a request to s3
+    GeneratePresignedUrlRequest getUrlRequest = new GeneratePresignedUrlRequest(s3Object.getBucketName(), s3Object.getKey())
+        .withMethod(HttpMethod.GET)
+        .withExpiration(expireAt);
+    String getUrl = s3Client.generatePresignedUrl(getUrlRequest).toString();
+
+    ResponseHeaderOverrides downloadHeaders = new ResponseHeaderOverrides();
+    downloadHeaders.setContentDisposition(CONTENT_DISPOSITION_DOWNLOAD_HEADER);
+    downloadHeaders.setContentEncoding(CONTENT_ENCODING_DOWNLOAD_HEADER);
+    GeneratePresignedUrlRequest downloadUrlRequest = new GeneratePresignedUrlRequest(s3Object.getBucketName(), s3Object.getKey())
+        .withMethod(HttpMethod.GET)
+        .withExpiration(expireAt)
+        .withResponseHeaders(downloadHeaders);
+    String downloadUrl = s3Client.generatePresignedUrl(downloadUrlRequest).toString();
+
+    return new SingularityS3Log(getUrl, s3Object.getKey(), s3Object.getLastModified().getTime(), s3Object.getSize(), downloadUrl, metadata.getStartTime(), metadata.getEndTime());
+  }
 
+  private List<SingularityS3LogMetadata> getS3LogsWithExecutorService(S3Configuration s3Configuration, Map<SingularityS3Service, Set<String>> servicesToPrefixes, int totalPrefixCount, final SingularityS3SearchRequest search, final ConcurrentHashMap<String, ContinuationToken> continuationTokens, final boolean paginated) throws InterruptedException, ExecutionException, TimeoutException {
+    final ListeningExecutorService executorService = logFetcher.getExecutorService();
+    final Date expireAt = new Date(System.currentTimeMillis() + s3Configuration.getExpireS3LinksAfterMillis());
     final AtomicInteger resultCount = new AtomicInteger();
 
+    List<ListenableFuture<List<SingularityS3LogMetadata>>> futures = Lists.newArrayListWithCapacity(totalPrefixCount);
+
     for (final Map.Entry<SingularityS3Service, Set<String>> entry : servicesToPrefixes.entrySet()) {
       final String s3Bucket = entry.getKey().getBucket();
       final String group = entry.getKey().getGroup();
@@ -347,122 +443,45 @@ public class S3LogResource extends AbstractHistoryResource {
           continuationTokens.putIfAbsent(key, search.getContinuationTokens().get(key));
           continue;
         }
-        futures.add(executorService.submit(new Callable<List<S3ObjectSummaryHolder>>() {
-
-          @Override
-          public List<S3ObjectSummaryHolder> call() throws Exception {
-            ListObjectsV2Request request = new ListObjectsV2Request().withBucketName(s3Bucket).withPrefix(s3Prefix);
-            if (paginated) {
-              Optional<ContinuationToken> token = Optional.empty();
-              if (search.getContinuationTokens().containsKey(key) && !Strings.isNullOrEmpty(search.getContinuationTokens().get(key).getValue())) {
-                request.setContinuationToken(search.getContinuationTokens().get(key).getValue());
-                token = Optional.of(search.getContinuationTokens().get(key));
-              }
-              int targetResultCount = search.getMaxPerPage().orElse(DEFAULT_TARGET_MAX_RESULTS);
-              request.setMaxKeys(targetResultCount);
-              if (resultCount.get() < targetResultCount) {
-                ListObjectsV2Result result = s3Client.listObjectsV2(request);
-                if (result.getObjectSummaries().isEmpty()) {
-                  continuationTokens.putIfAbsent(key, new ContinuationToken(result.getNextContinuationToken(), true));
-                  return Collections.emptyList();
-                } else {
-                  boolean addToList = incrementIfLessThan(resultCount, result.getObjectSummaries().size(), targetResultCount);
-                  if (addToList) {
-                    continuationTokens.putIfAbsent(key, new ContinuationToken(result.getNextContinuationToken(), !result.isTruncated()));
-                    List<S3ObjectSummaryHolder> objectSummaryHolders = new ArrayList<>();
-                    for (S3ObjectSummary objectSummary : result.getObjectSummaries()) {
-                      if (search.getFileNamePrefixWhitelist().isEmpty() || search.getFileNamePrefixWhitelist().stream().anyMatch(whitelistedPrefix -> objectSummary.getKey().startsWith(whitelistedPrefix))) {
-                        objectSummaryHolders.add(new S3ObjectSummaryHolder(group, objectSummary));
-                      }
-                    }
-                    return objectSummaryHolders;
-                  } else {
-                    continuationTokens.putIfAbsent(key, token.orElse(new ContinuationToken(null, false)));
-                    return Collections.emptyList();
-                  }
-                }
-              } else {
-                continuationTokens.putIfAbsent(key, token.orElse(new ContinuationToken(null, false)));
-                return Collections.emptyList();
-              }
-            } else {
-              ListObjectsV2Result result = s3Client.listObjectsV2(request);
-              List<S3ObjectSummaryHolder> objectSummaryHolders = new ArrayList<>();
-              for (S3ObjectSummary objectSummary : result.getObjectSummaries()) {
-                if (search.getFileNamePrefixWhitelist().isEmpty() || search.getFileNamePrefixWhitelist().stream().anyMatch(whitelistedPrefix -> objectSummary.getKey().startsWith(whitelistedPrefix))) {
-                  objectSummaryHolders.add(new S3ObjectSummaryHolder(group, objectSummary));
-                }
-              }
-              while (result.isTruncated() && result.getContinuationToken() != null) {
-                result = s3Client.listObjectsV2(new ListObjectsV2Request().withBucketName(s3Bucket).withPrefix(s3Prefix).withContinuationToken(result.getContinuationToken()));
-                for (S3ObjectSummary objectSummary : result.getObjectSummaries()) {
-                  objectSummaryHolders.add(new S3ObjectSummaryHolder(group, objectSummary));
-                }
-              }
-              return objectSummaryHolders;
-            }
-          }
-        }));
-      }
-    }
 
-    final long start = System.currentTimeMillis();
-    List<List<S3ObjectSummaryHolder>> results = Futures.allAsList(futures).get(s3Configuration.getWaitForS3ListSeconds(), TimeUnit.SECONDS);
+        final Timer.Context prefixTotal = logFetcher.getPrefixTotalTimer().time();
+        ListenableFuture<List<S3ObjectSummaryHolder>> listFuture = executorService.submit(() -> {
+          try (Timer.Context prefixList = logFetcher.getPrefixListTimer().time()) {
+            return listPrefix(s3Client, s3Bucket, group, s3Prefix, key, search, continuationTokens, resultCount, paginated);
+          }
+        });
 
-    List<S3ObjectSummaryHolder> objects = Lists.newArrayListWithExpectedSize(results.size() * 2);
+        // Start fetching metadata for each prefix as soon as its listing is done, rather than waiting on every prefix
+        ListenableFuture<List<SingularityS3LogMetadata>> prefixFuture = Futures.transformAsync(listFuture, (objects) -> {
+          List<ListenableFuture<SingularityS3LogMetadata>> logFutures = Lists.newArrayListWithCapacity(objects.size());
+          for (S3ObjectSummaryHolder s3ObjectHolder : objects) {
+            logFutures.add(executorService.submit(() -> getLogMetadata(s3ObjectHolder, search, expireAt)));
+          }
+          return Futures.allAsList(logFutures);
+        }, MoreExecutors.directExecutor());
+        prefixFuture.addListener(prefixTotal::stop, MoreExecutors.directExecutor());
 
-    for (List<S3ObjectSummaryHolder> s3ObjectSummaryHolders : results) {
-      for (final S3ObjectSummaryHolder s3ObjectHolder : s3ObjectSummaryHolders) {
-        objects.add(s3ObjectHolder);
+        futures.add(prefixFuture);
       }
     }
 
-    LOG.trace("Got {} objects from S3 after {}", objects.size(), JavaUtils.duration(start));
-
-    List<ListenableFuture<SingularityS3LogMetadata>> logFutures = Lists.newArrayListWithCapacity(objects.size());
-    final Date expireAt = new Date(System.currentTimeMillis() + s3Configuration.getExpireS3LinksAfterMillis());
+    final long start = System.currentTimeMillis();
+    ListenableFuture<List<List<SingularityS3LogMetadata>>> allFutures = Futures.allAsList(futures);
+    try {
+      List<List<SingularityS3LogMetadata>> results = allFutures.get(s3Configuration.getWaitForS3ListSeconds() + s3Configuration.getWaitForS3LinksSeconds(), TimeUnit.SECONDS);
 
-    for (final S3ObjectSummaryHolder s3ObjectHolder : objects) {
-      final S3ObjectSummary s3Object = s3ObjectHolder.getObjectSummary();
-      final AmazonS3 s3Client = s3Services.getServiceByGroupAndBucketOrDefault(s3ObjectHolder.getGroup(), s3Object.getBucketName()).getS3Client();
-
-      logFutures.add(executorService.submit(new Callable<SingularityS3LogMetadata>() {
-        @Override
-        public SingularityS3LogMetadata call() throws Exception {
-          Optional<Long> maybeStartTime = Optional.empty();
-          Optional<Long> maybeEndTime = Optional.empty();
-          if (!search.isExcludeMetadata()) {
-            GetObjectMetadataRequest metadataRequest = new GetObjectMetadataRequest(s3Object.getBucketName(), s3Object.getKey());
-            Map<String, String> objectMetadata = s3Client.getObjectMetadata(metadataRequest).getUserMetadata();
-            maybeStartTime = getMetadataAsLong(objectMetadata, SingularityS3Log.LOG_START_S3_ATTR);
-            maybeEndTime = getMetadataAsLong(objectMetadata, SingularityS3Log.LOG_END_S3_ATTR);
-          }
+      List<SingularityS3LogMetadata> logs = Lists.newArrayListWithExpectedSize(results.size() * 2);
+      for (List<SingularityS3LogMetadata> prefixLogs : results) {
+        logs.addAll(prefixLogs);
+      }
 
-          if (search.isListOnly()) {
-            return new SingularityS3LogMetadata(s3Object.getKey(), s3Object.getLastModified().getTime(), s3Object.getSize(), maybeStartTime, maybeEndTime);
-          } else {
-            GeneratePresignedUrlRequest getUrlRequest = new GeneratePresignedUrlRequest(s3Object.getBucketName(), s3Object.getKey())
-                .withMethod(HttpMethod.GET)
-                .withExpiration(expireAt);
-            String getUrl = s3Client.generatePresignedUrl(getUrlRequest).toString();
-
-            ResponseHeaderOverrides downloadHeaders = new ResponseHeaderOverrides();
-            downloadHeaders.setContentDisposition(CONTENT_DISPOSITION_DOWNLOAD_HEADER);
-            downloadHeaders.setContentEncoding(CONTENT_ENCODING_DOWNLOAD_HEADER);
-            GeneratePresignedUrlRequest downloadUrlRequest = new GeneratePresignedUrlRequest(s3Object.getBucketName(), s3Object.getKey())
-                .withMethod(HttpMethod.GET)
-                .withExpiration(expireAt)
-                .withResponseHeaders(downloadHeaders);
-            String downloadUrl = s3Client.generatePresignedUrl(downloadUrlRequest).toString();
-
-            return new SingularityS3Log(getUrl, s3Object.getKey(), s3Object.getLastModified().getTime(), s3Object.getSize(), downloadUrl, maybeStartTime, maybeEndTime);
-          }
-        }
+      LOG.trace("Got {} logs from S3 after {}", logs.size(), JavaUtils.duration(start));
 
-      }));
+      return logs;
+    } finally {
+      // The executor is shared, so make sure nothing keeps running for a search that timed out
+      allFutures.cancel(true);
     }
-
-    return Futures.allAsList(logFutures).get(s3Configuration.getWaitForS3LinksSeconds(), TimeUnit.SECONDS);
   }
 
   private boolean incrementIfLessThan(AtomicInteger count, int add, int threshold) {
@@ -500,17 +519,10 @@ public class S3LogResource extends AbstractHistoryResource {
       return SingularityS3SearchResult.empty();
     }
 
-    ListeningExecutorService executorService = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(Math.min(totalPrefixCount, s3Configuration.getMaxS3Threads()),
-        new ThreadFactoryBuilder().setNameFormat("S3LogFetcher-%d").build()));
-
-    try {
-      final ConcurrentHashMap<String, ContinuationToken> continuationTokens = new ConcurrentHashMap<>();
-      List<SingularityS3LogMetadata> logs = Lists.newArrayList(getS3LogsWithExecutorService(s3Configuration, executorService, servicesToPrefixes, totalPrefixCount, search, continuationTokens, paginated));
-      Collections.sort(logs, LOG_COMPARATOR);
-      return new SingularityS3SearchResult(continuationTokens, isFinalPageForAllPrefixes(continuationTokens.values()), logs);
-    } finally {
-      executorService.shutdownNow();
-    }
+    final ConcurrentHashMap<String, ContinuationToken> continuationTokens = new ConcurrentHashMap<>();
+    List<SingularityS3LogMetadata> logs = getS3LogsWithExecutorService(s3Configuration, servicesToPrefixes, totalPrefixCount, search, continuationTokens, paginated);
+    Collections.sort(logs, LOG_COMPARATOR);
+    return new SingularityS3SearchResult(continuationTokens, isFinalPageForAllPrefixes(continuationTokens.values()), logs);
   }
 
   private boolean isFinalPageForAllPrefixes(Collection<ContinuationToken> continuationTokens) {
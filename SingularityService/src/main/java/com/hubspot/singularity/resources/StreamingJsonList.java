@@ -0,0 +1,104 @@
+package com.hubspot.singularity.resources;
+
+import static com.hubspot.singularity.WebExceptions.checkBadRequest;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Splitter;
+import com.hubspot.jackson.jaxrs.PropertyFilter;
+
+/**
+ * Writes a page of a large list as a json array one element at a time, rather than building the whole response
+ * in memory. Pages are ordered by id and the id of the last element returned is sent back in the
+ * {@link #NEXT_CURSOR_HEADER} header when more results remain. Properties are filtered per element with the same
+ * semantics as the property query parameter on other endpoints.
+ */
+class StreamingJsonList {
+  static final String NEXT_CURSOR_HEADER = "X-Singularity-Next-Cursor";
+
+  private static final Splitter PROPERTY_SPLITTER = Splitter.on(',').omitEmptyStrings().trimResults();
+
+  static class Page<T> {
+    private final List<T> items;
+    private final Optional<String> nextCursor;
+
+    Page(List<T> items, Optional<String> nextCursor) {
+      this.items = items;
+      this.nextCursor = nextCursor;
+    }
+
+    List<T> getItems() {
+      return items;
+    }
+
+    Optional<String> getNextCursor() {
+      return nextCursor;
+    }
+  }
+
+  private StreamingJsonList() {}
+
+  static <T> Page<T> page(Collection<T> items, Function<T, String> idFunction, Optional<String> cursor, Optional<Integer> limit) {
+    // an empty page would carry no cursor, so a client paging through the results could never get past it
+    checkBadRequest(!limit.isPresent() || limit.get() > 0, "limit must be positive (was %s)", limit.orElse(null));
+
+    List<T> remaining = items.stream()
+        .filter((item) -> !cursor.isPresent() || idFunction.apply(item).compareTo(cursor.get()) > 0)
+        .sorted(Comparator.comparing(idFunction))
+        .collect(Collectors.toList());
+
+    if (!limit.isPresent() || remaining.size() <= limit.get()) {
+      return new Page<>(remaining, Optional.empty());
+    }
+
+    List<T> pageItems = remaining.subList(0, limit.get());
+    return new Page<>(pageItems, Optional.of(idFunction.apply(pageItems.get(pageItems.size() - 1))));
+  }
+
+  static Response toResponse(ObjectMapper objectMapper, List<?> items, Optional<String> nextCursor, List<String> properties) {
+    PropertyFilter propertyFilter = new PropertyFilter(splitProperties(properties));
+
+    StreamingOutput output = (outputStream) -> {
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartArray();
+        for (Object item : items) {
+          if (propertyFilter.hasFilters()) {
+            JsonNode node = objectMapper.valueToTree(item);
+            propertyFilter.filter(node);
+            generator.writeTree(node);
+          } else {
+            generator.writeObject(item);
+          }
+        }
+        generator.writeEndArray();
+      }
+    };
+
+    Response.ResponseBuilder builder = Response.ok(output, MediaType.APPLICATION_JSON_TYPE);
+    nextCursor.ifPresent((cursor) -> builder.header(NEXT_CURSOR_HEADER, cursor));
+    return builder.build();
+  }
+
+  private static List<String> splitProperties(List<String> properties) {
+    if (properties == null || properties.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return properties.stream()
+        .flatMap((property) -> PROPERTY_SPLITTER.splitToList(property).stream())
+        .collect(Collectors.toList());
+  }
+}
@@ -161,6 +161,30 @@ public class TaskResource extends AbstractLeaderAwareResource {
         taskManager.getPendingTasks(useWebCache(useWebCache)), SingularityTransformHelpers.PENDING_TASK_TO_REQUEST_ID, SingularityAuthorizationScope.READ)));
   }
 
+  @GET
+  @Path("/scheduled/stream")
+  @Operation(
+      summary = "Stream a page of scheduled tasks, ordered by pending task id",
+      description = "The id of the last task returned is sent in the X-Singularity-Next-Cursor header when more tasks remain"
+  )
+  public Response streamScheduledTasks(
+      @Parameter(hidden = true) @Auth SingularityUser user,
+      @Parameter(description = "Use the cached version of this data to limit expensive api calls") @QueryParam("useWebCache") Boolean useWebCache,
+      @Parameter(description = "Only return tasks with a pending task id after this cursor") @QueryParam("cursor") String cursor,
+      @Parameter(description = "The maximum number of results to return (must be positive)") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Only include these properties of each task") @QueryParam("property") List<String> properties) {
+    if (!authorizationHelper.hasAdminAuthorization(user) && disasterManager.isDisabled(SingularityAction.EXPENSIVE_API_CALLS)) {
+      LOG.trace("Short circuting streamScheduledTasks() to [] due to EXPENSIVE_API_CALLS disabled");
+      return StreamingJsonList.toResponse(objectMapper, Collections.emptyList(), Optional.empty(), properties);
+    }
+
+    StreamingJsonList.Page<SingularityPendingTask> page = StreamingJsonList.page(
+        authorizationHelper.filterByAuthorizedRequests(user, taskManager.getPendingTasks(useWebCache(useWebCache)), SingularityTransformHelpers.PENDING_TASK_TO_REQUEST_ID, SingularityAuthorizationScope.READ),
+        (pendingTask) -> pendingTask.getPendingTaskId().getId(), Optional.ofNullable(cursor), Optional.ofNullable(limit));
+
+    return StreamingJsonList.toResponse(objectMapper, taskRequestManager.getTaskRequests(page.getItems()), page.getNextCursor(), properties);
+  }
+
   @GET
   @PropertyFiltering
   @Path("/scheduled/ids")
@@ -325,6 +349,25 @@ public class TaskResource extends AbstractLeaderAwareResource {
     return authorizationHelper.filterByAuthorizedRequests(user, taskManager.getActiveTasks(useWebCache(useWebCache)), SingularityTransformHelpers.TASK_TO_REQUEST_ID, SingularityAuthorizationScope.READ);
   }
 
+  @GET
+  @Path("/active/stream")
+  @Operation(
+      summary = "Stream a page of active tasks for all requests, ordered by task id",
+      description = "The id of the last task returned is sent in the X-Singularity-Next-Cursor header when more tasks remain"
+  )
+  public Response streamActiveTasks(
+      @Parameter(hidden = true) @Auth SingularityUser user,
+      @Parameter(description = "Use the cached version of this data to limit expensive api calls") @QueryParam("useWebCache") Boolean useWebCache,
+      @Parameter(description = "Only return tasks with a task id after this cursor") @QueryParam("cursor") String cursor,
+      @Parameter(description = "The maximum number of results to return (must be positive)") @QueryParam("limit") Integer limit,
+      @Parameter(description = "Only include these properties of each task, e.g. taskId.id and taskId.host") @QueryParam("property") List<String> properties) {
+    StreamingJsonList.Page<SingularityTask> page = StreamingJsonList.page(
+        authorizationHelper.filterByAuthorizedRequests(user, taskManager.getActiveTasks(useWebCache(useWebCache)), SingularityTransformHelpers.TASK_TO_REQUEST_ID, SingularityAuthorizationScope.READ),
+        (task) -> task.getTaskId().getId(), Optional.ofNullable(cursor), Optional.ofNullable(limit));
+
+    return StreamingJsonList.toResponse(objectMapper, page.getItems(), page.getNextCursor(), properties);
+  }
+
   @GET
   @PropertyFiltering
   @Path("/active/ids")
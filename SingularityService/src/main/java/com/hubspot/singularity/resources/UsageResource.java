@@ -67,6 +67,23 @@ public class UsageResource {
     return usageManager.getTaskUsage(SingularityTaskId.valueOf(taskId));
   }
 
+  @GET
+  @Path("/tasks/{taskId}/history/hourly")
+  @Operation(
+      summary = "Retrieve one usage sample per hour for a particular task within a time range",
+      description = "Only kept when a database is configured and keepHourlyTaskUsageForDays is set. Each sample has the peak memory and disk for that hour and the cumulative cpu counters at the end of it"
+  )
+  public List<SingularityTaskUsage> getHourlyTaskUsageHistory(
+      @Parameter(hidden = true) @Auth SingularityUser user,
+      @Parameter(required = true, description = "The id of the task to retrieve usage history for") @PathParam("taskId") String taskId,
+      @Parameter(description = "Only include samples at or after this timestamp in milliseconds") @QueryParam("startTimestamp") Long startTimestamp,
+      @Parameter(description = "Only include samples at or before this timestamp in milliseconds") @QueryParam("endTimestamp") Long endTimestamp) {
+    authorizationHelper.checkForAuthorizationByTaskId(taskId, user, SingularityAuthorizationScope.READ);
+    return usageManager.getHourlyTaskUsage(SingularityTaskId.valueOf(taskId),
+        startTimestamp == null ? 0 : startTimestamp,
+        endTimestamp == null ? System.currentTimeMillis() : endTimestamp);
+  }
+
   @GET
   @Path("/cluster/utilization")
   @Operation(summary = "GET a summary of utilization for all slaves and requests in the mesos cluster")
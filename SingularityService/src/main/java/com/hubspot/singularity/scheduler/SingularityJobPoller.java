@@ -48,10 +48,12 @@ public class SingularityJobPoller extends SingularityLeaderOnlyPoller {
   private final SingularityMailer mailer;
   private final SingularityConfiguration configuration;
   private final SingularityExceptionNotifier exceptionNotifier;
+  private final SingularityScheduleCache scheduleCache;
 
   @Inject
   public SingularityJobPoller(SingularityExceptionNotifier exceptionNotifier, TaskManager taskManager,
-                              SingularityConfiguration configuration, RequestManager requestManager, DeployManager deployManager, SingularityMailer mailer) {
+                              SingularityConfiguration configuration, RequestManager requestManager, DeployManager deployManager, SingularityMailer mailer,
+                              SingularityScheduleCache scheduleCache) {
 
     super(configuration.getCheckJobsEveryMillis(), TimeUnit.MILLISECONDS);
 
@@ -61,6 +63,7 @@ public class SingularityJobPoller extends SingularityLeaderOnlyPoller {
     this.exceptionNotifier = exceptionNotifier;
     this.requestManager = requestManager;
     this.mailer = mailer;
+    this.scheduleCache = scheduleCache;
   }
 
   @Override
@@ -152,10 +155,10 @@ public class SingularityJobPoller extends SingularityLeaderOnlyPoller {
 
       try {
         if (request.getScheduleTypeSafe() == ScheduleType.RFC5545) {
-          final RFC5545Schedule rfc5545Schedule = new RFC5545Schedule(scheduleExpression);
+          final RFC5545Schedule rfc5545Schedule = scheduleCache.getRFC5545Schedule(scheduleExpression);
           nextRunAtDate = rfc5545Schedule.getNextValidTime();
         } else {
-          final CronExpression cronExpression = new CronExpression(scheduleExpression);
+          final CronExpression cronExpression = scheduleCache.getCronExpression(scheduleExpression, Optional.empty());
           final Date startDate = new Date(taskId.getStartedAt());
           nextRunAtDate = cronExpression.getNextValidTimeAfter(startDate);
         }
@@ -3,13 +3,18 @@ package com.hubspot.singularity.scheduler;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -18,19 +23,24 @@ import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.hubspot.mesos.Resources;
 import com.hubspot.singularity.ExtendedTaskState;
+import com.hubspot.singularity.MachineState;
+import com.hubspot.singularity.RequestState;
 import com.hubspot.singularity.RequestUtilization;
 import com.hubspot.singularity.SingularityKilledTaskIdRecord;
 import com.hubspot.singularity.SingularityPendingTask;
 import com.hubspot.singularity.SingularityPendingTaskId;
 import com.hubspot.singularity.SingularityRack;
 import com.hubspot.singularity.SingularityRequestDeployState;
+import com.hubspot.singularity.SingularityRequestHistory;
 import com.hubspot.singularity.SingularityRequestWithState;
 import com.hubspot.singularity.SingularitySlave;
 import com.hubspot.singularity.SingularitySlaveUsageWithId;
 import com.hubspot.singularity.SingularityTaskCleanup;
 import com.hubspot.singularity.SingularityTaskHistoryUpdate;
 import com.hubspot.singularity.SingularityTaskId;
+import com.hubspot.singularity.data.usage.TaskUsageWindow;
 
 @Singleton
 public class SingularityLeaderCache {
@@ -39,7 +49,16 @@ public class SingularityLeaderCache {
 
   private Map<SingularityPendingTaskId, SingularityPendingTask> pendingTaskIdToPendingTask;
   private Set<SingularityTaskId> activeTaskIds;
+  private Map<String, Set<SingularityTaskId>> activeTaskIdsByHost;
+  private Map<String, Set<SingularityTaskId>> activeTaskIdsByRequest;
+  private Map<SingularityTaskId, Resources> activeTaskResources;
+  // Writers of activeTaskIds and its indexes hold this lock, so concurrent puts and deletes of a task can't leave an
+  // index entry behind for a task that is no longer active. Reads stay lock-free. Tasks are added to activeTaskIds
+  // before they're indexed and unindexed before they're removed, so an index never holds a task that isn't active
+  private final ReentrantLock activeTasksWriteLock = new ReentrantLock();
+  private final AtomicLong activeTasksWriteContention = new AtomicLong();
   private Map<String, SingularityRequestWithState> requests;
+  private Map<String, Optional<SingularityRequestHistory>> mostRecentRequestHistories;
   private Map<SingularityTaskId, SingularityTaskCleanup> cleanupTasks;
   private Map<String, SingularityRequestDeployState> requestIdToDeployState;
   private Map<SingularityTaskId, SingularityKilledTaskIdRecord> killedTasks;
@@ -49,6 +68,37 @@ public class SingularityLeaderCache {
   private Set<SingularityPendingTaskId> pendingTaskIdsToDelete;
   private Map<String, RequestUtilization> requestUtilizations;
   private Map<String, SingularitySlaveUsageWithId> slaveUsages;
+  private final Map<SingularityTaskId, TaskUsageWindow> taskUsageWindows = new ConcurrentHashMap<>();
+
+  // Kept up to date as the collections above change so SingularityState can be built without scanning them. The
+  // indexes are built when their collection is cached, the counts are also rebuilt by recountState
+  private Map<String, Set<SingularityPendingTaskId>> pendingTaskIdsByRequest;
+  private NavigableSet<SingularityPendingTaskId> pendingTaskIdsByNextRunAt;
+  private Map<String, Set<SingularityTaskId>> cleanupTaskIdsByRequest;
+  private volatile Map<RequestState, Integer> requestCountsByState = new ConcurrentHashMap<>();
+  private volatile Map<MachineState, Integer> slaveCountsByState = new ConcurrentHashMap<>();
+  private volatile Map<MachineState, Integer> rackCountsByState = new ConcurrentHashMap<>();
+  private volatile Set<SingularityTaskId> runningActiveTaskIds = ConcurrentHashMap.newKeySet();
+  private final Map<String, Provisioning> requestProvisioning = new ConcurrentHashMap<>();
+
+  private enum Provisioning {
+    UNDER, OVER
+  }
+
+  // Task history updates and usages can be loaded after the cache is activated. Until they are, reads go to zk while
+  // writes and deletes are applied to the cache, and deletes are recorded so the loader does not bring back deleted data.
+  // The deleted states for a task are only touched inside historyUpdates.compute for that task
+  private volatile boolean historyUpdatesLoading;
+  private volatile boolean usagesLoading;
+  private final Map<SingularityTaskId, Set<ExtendedTaskState>> historyUpdatesDeletedWhileLoading = new ConcurrentHashMap<>();
+  private final Set<String> requestUtilizationsRemovedWhileLoading = ConcurrentHashMap.newKeySet();
+  private final Set<String> slaveUsagesRemovedWhileLoading = ConcurrentHashMap.newKeySet();
+
+  // Bumped every time the cache is stopped, so a background load started in an earlier leadership term can tell that
+  // its results no longer belong in the cache
+  private final AtomicLong generation = new AtomicLong();
+  // Bumped before any request history is removed, so a load that read zk before the removal doesn't cache what it read
+  private final AtomicLong requestHistoryDeletions = new AtomicLong();
 
   private volatile boolean active;
 
@@ -58,6 +108,7 @@ public class SingularityLeaderCache {
   }
 
   public void activate() {
+    recountState();
     active = true;
   }
 
@@ -69,9 +120,21 @@ public class SingularityLeaderCache {
     if (activeTaskIds != null) {
       activeTaskIds.clear();
     }
+    if (activeTaskIdsByHost != null) {
+      activeTaskIdsByHost.clear();
+    }
+    if (activeTaskIdsByRequest != null) {
+      activeTaskIdsByRequest.clear();
+    }
+    if (activeTaskResources != null) {
+      activeTaskResources.clear();
+    }
     if (requests != null) {
       requests.clear();
     }
+    if (mostRecentRequestHistories != null) {
+      mostRecentRequestHistories.clear();
+    }
     if (cleanupTasks != null) {
       cleanupTasks.clear();
     }
@@ -99,31 +162,65 @@ public class SingularityLeaderCache {
     if (slaveUsages != null) {
       slaveUsages.clear();
     }
+    taskUsageWindows.clear();
+    if (pendingTaskIdsByRequest != null) {
+      pendingTaskIdsByRequest.clear();
+    }
+    if (pendingTaskIdsByNextRunAt != null) {
+      pendingTaskIdsByNextRunAt.clear();
+    }
+    if (cleanupTaskIdsByRequest != null) {
+      cleanupTaskIdsByRequest.clear();
+    }
+    requestCountsByState.clear();
+    slaveCountsByState.clear();
+    rackCountsByState.clear();
+    runningActiveTaskIds.clear();
+    requestProvisioning.clear();
+    historyUpdatesDeletedWhileLoading.clear();
+    requestUtilizationsRemovedWhileLoading.clear();
+    slaveUsagesRemovedWhileLoading.clear();
   }
 
   public void cachePendingTasks(List<SingularityPendingTask> pendingTasks) {
     this.pendingTaskIdToPendingTask = new ConcurrentHashMap<>(pendingTasks.size());
     pendingTasks.forEach((t) -> pendingTaskIdToPendingTask.put(t.getPendingTaskId(), t));
+    this.pendingTaskIdsByRequest = new ConcurrentHashMap<>();
+    this.pendingTaskIdsByNextRunAt = new ConcurrentSkipListSet<>();
+    pendingTaskIdToPendingTask.keySet().forEach(this::indexPendingTaskId);
   }
 
   public void cachePendingTasksToDelete(List<SingularityPendingTaskId> pendingTaskIds) {
-    this.pendingTaskIdsToDelete = new HashSet<>(pendingTaskIds.size());
+    this.pendingTaskIdsToDelete = ConcurrentHashMap.newKeySet(pendingTaskIds.size());
     pendingTaskIdsToDelete.addAll(pendingTaskIds);
   }
 
   public void cacheActiveTaskIds(List<SingularityTaskId> activeTaskIds) {
-    this.activeTaskIds = Collections.synchronizedSet(new HashSet<SingularityTaskId>(activeTaskIds.size()));
-    activeTaskIds.forEach(this.activeTaskIds::add);
+    lockActiveTasks();
+    try {
+      this.activeTaskIds = ConcurrentHashMap.newKeySet(activeTaskIds.size());
+      activeTaskIds.forEach(this.activeTaskIds::add);
+      this.activeTaskIdsByHost = new ConcurrentHashMap<>();
+      this.activeTaskIdsByRequest = new ConcurrentHashMap<>();
+      activeTaskIds.forEach(this::indexActiveTaskId);
+      this.activeTaskResources = new ConcurrentHashMap<>(activeTaskIds.size());
+    } finally {
+      activeTasksWriteLock.unlock();
+    }
   }
 
   public void cacheRequests(List<SingularityRequestWithState> requestsWithState) {
     this.requests = new ConcurrentHashMap<>(requestsWithState.size());
     requestsWithState.forEach((r) -> requests.put(r.getRequest().getId(), r));
+    this.requestCountsByState = countByState(requests.values(), SingularityRequestWithState::getState);
+    this.mostRecentRequestHistories = new ConcurrentHashMap<>(requestsWithState.size());
   }
 
   public void cacheCleanupTasks(List<SingularityTaskCleanup> cleanups) {
     this.cleanupTasks = new ConcurrentHashMap<>(cleanups.size());
     cleanups.forEach((c) -> cleanupTasks.put(c.getTaskId(), c));
+    this.cleanupTaskIdsByRequest = new ConcurrentHashMap<>();
+    cleanupTasks.keySet().forEach((taskId) -> addToIndex(cleanupTaskIdsByRequest, taskId.getRequestId(), taskId));
   }
 
   public void cacheRequestDeployStates(Map<String, SingularityRequestDeployState> requestDeployStates) {
@@ -136,33 +233,98 @@ public class SingularityLeaderCache {
     killedTasks.forEach((k) -> this.killedTasks.put(k.getTaskId(), k));
   }
 
-  public void cacheTaskHistoryUpdates(Map<SingularityTaskId, List<SingularityTaskHistoryUpdate>> historyUpdates) {
-    this.historyUpdates = new ConcurrentHashMap<>(historyUpdates.size());
-    historyUpdates.entrySet().stream().forEach((e) ->
-        this.historyUpdates.put(
-            e.getKey(),
-            e.getValue().stream()
-                .collect(Collectors.toMap((u) -> u.getTaskState(), (u) -> u)))
-    );
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  public void startLoadingTaskHistoryUpdates() {
+    this.historyUpdates = new ConcurrentHashMap<>();
+    historyUpdatesDeletedWhileLoading.clear();
+    historyUpdatesLoading = true;
+  }
+
+  public void loadTaskHistoryUpdate(long loadGeneration, SingularityTaskHistoryUpdate taskHistoryUpdate) {
+    if (loadGeneration != generation.get()) {
+      return;
+    }
+    historyUpdates.compute(taskHistoryUpdate.getTaskId(), (taskId, updates) -> {
+      Set<ExtendedTaskState> deletedStates = historyUpdatesDeletedWhileLoading.get(taskId);
+      if (deletedStates != null && deletedStates.contains(taskHistoryUpdate.getTaskState())) {
+        return updates;
+      }
+      Map<ExtendedTaskState, SingularityTaskHistoryUpdate> updatesForTask = updates == null ? new ConcurrentHashMap<>() : updates;
+      // Anything already in the cache was written after the loader started and is newer than what was read from zk
+      updatesForTask.putIfAbsent(taskHistoryUpdate.getTaskState(), taskHistoryUpdate);
+      return updatesForTask;
+    });
+  }
+
+  public void finishLoadingTaskHistoryUpdates(long loadGeneration) {
+    if (loadGeneration != generation.get()) {
+      LOG.info("Ignoring task history updates loaded for an earlier leader cache");
+      return;
+    }
+    if (activeTaskIds != null) {
+      runningActiveTaskIds = countRunningActiveTaskIds();
+    }
+    historyUpdatesLoading = false;
+    historyUpdatesDeletedWhileLoading.clear();
+  }
+
+  public boolean historyUpdatesActive() {
+    return active && !historyUpdatesLoading;
   }
 
   public void cacheSlaves(List<SingularitySlave> slaves) {
     this.slaves = slaves.stream().collect(Collectors.toConcurrentMap(SingularitySlave::getId, Function.identity()));
+    this.slaveCountsByState = countByState(this.slaves.values(), (slave) -> slave.getCurrentState().getState());
   }
 
   public void cacheRacks(List<SingularityRack> racks) {
     this.racks = racks.stream().collect(Collectors.toConcurrentMap(SingularityRack::getId, Function.identity()));
+    this.rackCountsByState = countByState(this.racks.values(), (rack) -> rack.getCurrentState().getState());
   }
   public void stop() {
     active = false;
+    generation.incrementAndGet();
+  }
+
+  public void startLoadingUsages() {
+    this.requestUtilizations = new ConcurrentHashMap<>();
+    this.slaveUsages = new ConcurrentHashMap<>();
+    requestUtilizationsRemovedWhileLoading.clear();
+    slaveUsagesRemovedWhileLoading.clear();
+    usagesLoading = true;
+  }
+
+  public void loadRequestUtilization(long loadGeneration, RequestUtilization requestUtilization) {
+    if (loadGeneration != generation.get()) {
+      return;
+    }
+    requestUtilizations.compute(requestUtilization.getRequestId(), (requestId, existing) ->
+        existing != null || requestUtilizationsRemovedWhileLoading.contains(requestId) ? existing : requestUtilization);
+  }
+
+  public void loadSlaveUsage(long loadGeneration, SingularitySlaveUsageWithId slaveUsage) {
+    if (loadGeneration != generation.get()) {
+      return;
+    }
+    slaveUsages.compute(slaveUsage.getSlaveId(), (slaveId, existing) ->
+        existing != null || slaveUsagesRemovedWhileLoading.contains(slaveId) ? existing : slaveUsage);
   }
 
-  public void cacheRequestUtilizations(Map<String, RequestUtilization> requestUtilizations) {
-    this.requestUtilizations = new ConcurrentHashMap<>(requestUtilizations);
+  public void finishLoadingUsages(long loadGeneration) {
+    if (loadGeneration != generation.get()) {
+      LOG.info("Ignoring usages loaded for an earlier leader cache");
+      return;
+    }
+    usagesLoading = false;
+    requestUtilizationsRemovedWhileLoading.clear();
+    slaveUsagesRemovedWhileLoading.clear();
   }
 
-  public void cacheSlaveUsages(Map<String, SingularitySlaveUsageWithId> slaveUsages) {
-    this.slaveUsages = new ConcurrentHashMap<>(slaveUsages);
+  public boolean usagesActive() {
+    return active && !usagesLoading;
   }
 
   public boolean active() {
@@ -178,16 +340,11 @@ public class SingularityLeaderCache {
   }
 
   public List<SingularityPendingTaskId> getPendingTaskIdsForRequest(String requestId) {
-    Set<SingularityPendingTaskId> allPendingTaskIds = new HashSet<>(pendingTaskIdToPendingTask.keySet());
-    return allPendingTaskIds.stream()
-        .filter(t -> t.getRequestId().equals(requestId))
-        .collect(Collectors.toList());
+    return getFromIndex(pendingTaskIdsByRequest, requestId);
   }
 
   public List<SingularityPendingTaskId> getPendingTaskIdsToDelete() {
-    synchronized (pendingTaskIdsToDelete) {
-      return new ArrayList<>(pendingTaskIdsToDelete);
-    }
+    return new ArrayList<>(pendingTaskIdsToDelete);
   }
 
   public void markPendingTaskForDeletion(SingularityPendingTaskId taskId) {
@@ -202,7 +359,11 @@ public class SingularityLeaderCache {
     if (pendingTaskIdsToDelete.contains(pendingTaskId)) {
       pendingTaskIdsToDelete.remove(pendingTaskId);
     }
-    pendingTaskIdToPendingTask.remove(pendingTaskId);
+    if (pendingTaskIdToPendingTask.remove(pendingTaskId) != null) {
+      removeFromIndex(pendingTaskIdsByRequest, pendingTaskId.getRequestId(), pendingTaskId);
+      pendingTaskIdsByNextRunAt.remove(pendingTaskId);
+      updateProvisioning(pendingTaskId.getRequestId());
+    }
   }
 
   public Optional<SingularityPendingTask> getPendingTask(SingularityPendingTaskId pendingTaskId) {
@@ -215,7 +376,29 @@ public class SingularityLeaderCache {
       return;
     }
 
-    pendingTaskIdToPendingTask.put(pendingTask.getPendingTaskId(), pendingTask);
+    if (pendingTaskIdToPendingTask.put(pendingTask.getPendingTaskId(), pendingTask) == null) {
+      indexPendingTaskId(pendingTask.getPendingTaskId());
+      updateProvisioning(pendingTask.getPendingTaskId().getRequestId());
+    }
+  }
+
+  private void indexPendingTaskId(SingularityPendingTaskId pendingTaskId) {
+    addToIndex(pendingTaskIdsByRequest, pendingTaskId.getRequestId(), pendingTaskId);
+    pendingTaskIdsByNextRunAt.add(pendingTaskId);
+  }
+
+  /**
+   * Pending tasks due to run before the given time, oldest first
+   */
+  public List<SingularityPendingTaskId> getPendingTaskIdsDueBefore(long timestamp) {
+    List<SingularityPendingTaskId> dueTaskIds = new ArrayList<>();
+    for (SingularityPendingTaskId pendingTaskId : pendingTaskIdsByNextRunAt) {
+      if (pendingTaskId.getNextRunAt() >= timestamp) {
+        break;
+      }
+      dueTaskIds.add(pendingTaskId);
+    }
+    return dueTaskIds;
   }
 
   public void deleteActiveTaskId(SingularityTaskId taskId) {
@@ -224,7 +407,18 @@ public class SingularityLeaderCache {
       return;
     }
 
-    activeTaskIds.remove(taskId);
+    lockActiveTasks();
+    try {
+      removeFromIndex(activeTaskIdsByHost, taskId.getSanitizedHost(), taskId);
+      removeFromIndex(activeTaskIdsByRequest, taskId.getRequestId(), taskId);
+      activeTaskIds.remove(taskId);
+      activeTaskResources.remove(taskId);
+    } finally {
+      activeTasksWriteLock.unlock();
+    }
+    taskUsageWindows.remove(taskId);
+    runningActiveTaskIds.remove(taskId);
+    updateProvisioning(taskId.getRequestId());
   }
 
   public List<SingularityTaskId> exists(List<SingularityTaskId> taskIds) {
@@ -242,13 +436,27 @@ public class SingularityLeaderCache {
   }
 
   public List<SingularityTaskId> getActiveTaskIdsForRequest(String requestId) {
-    Set<SingularityTaskId> allActiveTaskIds;
-    synchronized (activeTaskIds) {
-      allActiveTaskIds = new HashSet<>(activeTaskIds);
+    return getFromIndex(activeTaskIdsByRequest, requestId);
+  }
+
+  public List<SingularityTaskId> getActiveTaskIdsForHost(String sanitizedHost) {
+    return getFromIndex(activeTaskIdsByHost, sanitizedHost);
+  }
+
+  public Optional<Resources> getActiveTaskResources(SingularityTaskId taskId) {
+    return Optional.ofNullable(activeTaskResources.get(taskId));
+  }
+
+  public void putActiveTaskResources(SingularityTaskId taskId, Resources resources) {
+    if (!active) {
+      LOG.warn("putActiveTaskResources {}, but not active", taskId);
+      return;
     }
-    return allActiveTaskIds.stream()
-        .filter(t -> t.getRequestId().equals(requestId))
-        .collect(Collectors.toList());
+
+    // Only track resources for tasks that are still active, so a late put can't leak an entry for a finished task. The
+    // check happens inside compute, and deleteActiveTaskId drops the task id before its resources, so a delete racing
+    // this put either sees the entry and removes it or leaves this put nothing to add to
+    activeTaskResources.compute(taskId, (id, current) -> activeTaskIds.contains(id) ? resources : current);
   }
 
   public List<String> getActiveTaskIdsAsStrings() {
@@ -288,7 +496,72 @@ public class SingularityLeaderCache {
       return;
     }
 
-    activeTaskIds.add(taskId);
+    lockActiveTasks();
+    try {
+      activeTaskIds.add(taskId);
+      indexActiveTaskId(taskId);
+    } finally {
+      activeTasksWriteLock.unlock();
+    }
+    if (hasRunningUpdate(taskId)) {
+      runningActiveTaskIds.add(taskId);
+    }
+    updateProvisioning(taskId.getRequestId());
+  }
+
+  /**
+   * Active tasks which have not reported TASK_RUNNING yet. Only meaningful once history updates are loaded
+   */
+  public int getNumLaunchingTasks() {
+    return Math.max(activeTaskIds.size() - runningActiveTaskIds.size(), 0);
+  }
+
+  private void lockActiveTasks() {
+    if (!activeTasksWriteLock.tryLock()) {
+      activeTasksWriteContention.incrementAndGet();
+      activeTasksWriteLock.lock();
+    }
+  }
+
+  /**
+   * How many times a write to the active tasks had to wait for another one to finish
+   */
+  public long getActiveTasksWriteContention() {
+    return activeTasksWriteContention.get();
+  }
+
+  private boolean hasRunningUpdate(SingularityTaskId taskId) {
+    Map<ExtendedTaskState, SingularityTaskHistoryUpdate> updates = historyUpdates == null ? null : historyUpdates.get(taskId);
+    return updates != null && updates.containsKey(ExtendedTaskState.TASK_RUNNING);
+  }
+
+  private void indexActiveTaskId(SingularityTaskId taskId) {
+    addToIndex(activeTaskIdsByHost, taskId.getSanitizedHost(), taskId);
+    addToIndex(activeTaskIdsByRequest, taskId.getRequestId(), taskId);
+  }
+
+  // Sets are only created and dropped inside compute so that a concurrent add can never land in a set that was just removed
+  private static <T> void addToIndex(Map<String, Set<T>> index, String key, T taskId) {
+    index.compute(key, (k, taskIds) -> {
+      Set<T> updated = taskIds == null ? ConcurrentHashMap.newKeySet() : taskIds;
+      updated.add(taskId);
+      return updated;
+    });
+  }
+
+  private static <T> void removeFromIndex(Map<String, Set<T>> index, String key, T taskId) {
+    index.computeIfPresent(key, (k, taskIds) -> {
+      taskIds.remove(taskId);
+      return taskIds.isEmpty() ? null : taskIds;
+    });
+  }
+
+  private static <T> List<T> getFromIndex(Map<String, Set<T>> index, String key) {
+    Set<T> taskIds = index.get(key);
+    if (taskIds == null) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(taskIds);
   }
 
   public List<SingularityRequestWithState> getRequests() {
@@ -305,7 +578,12 @@ public class SingularityLeaderCache {
       return;
     }
 
-    requests.put(requestWithState.getRequest().getId(), requestWithState);
+    SingularityRequestWithState previous = requests.put(requestWithState.getRequest().getId(), requestWithState);
+    if (previous != null) {
+      adjustCount(requestCountsByState, previous.getState(), -1);
+    }
+    adjustCount(requestCountsByState, requestWithState.getState(), 1);
+    updateProvisioning(requestWithState.getRequest().getId());
   }
 
   public void deleteRequest(String reqeustId) {
@@ -314,7 +592,81 @@ public class SingularityLeaderCache {
       return;
     }
 
-    requests.remove(reqeustId);
+    SingularityRequestWithState previous = requests.remove(reqeustId);
+    if (previous != null) {
+      adjustCount(requestCountsByState, previous.getState(), -1);
+    }
+    updateProvisioning(reqeustId);
+  }
+
+  /**
+   * The most recent history of each request is loaded from zk on first use and kept up to date as history is saved. The
+   * load happens outside of the map so that it doesn't block other requests, and whichever of the loaded history and
+   * one saved in the meantime is newer wins. Deletes are passed on after they reached zk, so if any history was deleted
+   * (or leadership changed) while zk was being read, what was read may already be gone and is returned without being
+   * cached. A load that finished before the delete was passed on is evicted by it
+   */
+  public Optional<SingularityRequestHistory> getMostRecentRequestHistory(String requestId, Function<String, Optional<SingularityRequestHistory>> loader) {
+    Optional<SingularityRequestHistory> cached = mostRecentRequestHistories.get(requestId);
+    if (cached != null) {
+      return cached;
+    }
+
+    final long loadGeneration = generation.get();
+    final long deletions = requestHistoryDeletions.get();
+    final Optional<SingularityRequestHistory> loaded = loader.apply(requestId);
+
+    Optional<SingularityRequestHistory> mostRecent = mostRecentRequestHistories.compute(requestId, (id, current) -> {
+      if (loadGeneration != generation.get() || deletions != requestHistoryDeletions.get()) {
+        return current;
+      }
+      return current == null ? loaded : newerRequestHistory(current, loaded);
+    });
+
+    return mostRecent != null ? mostRecent : loaded;
+  }
+
+  private Optional<SingularityRequestHistory> newerRequestHistory(Optional<SingularityRequestHistory> current, Optional<SingularityRequestHistory> other) {
+    if (!other.isPresent() || (current.isPresent() && current.get().getCreatedAt() >= other.get().getCreatedAt())) {
+      return current;
+    }
+    return other;
+  }
+
+  public void putRequestHistory(SingularityRequestHistory requestHistory) {
+    if (!active) {
+      LOG.warn("putRequestHistory {}, but not active", requestHistory.getRequest().getId());
+      return;
+    }
+
+    // Also cached when not loaded yet, so that a load still reading zk can't replace it with an older history
+    mostRecentRequestHistories.merge(requestHistory.getRequest().getId(), Optional.of(requestHistory), this::newerRequestHistory);
+  }
+
+  public void deleteRequestHistory(SingularityRequestHistory requestHistory) {
+    if (!active) {
+      LOG.warn("deleteRequestHistory {}, but not active", requestHistory.getRequest().getId());
+      return;
+    }
+
+    // Reloaded from zk on next use
+    requestHistoryDeletions.incrementAndGet();
+    mostRecentRequestHistories.computeIfPresent(requestHistory.getRequest().getId(), (requestId, mostRecent) -> {
+      if (mostRecent.isPresent() && mostRecent.get().getCreatedAt() == requestHistory.getCreatedAt()) {
+        return null;
+      }
+      return mostRecent;
+    });
+  }
+
+  public void deleteRequestHistories(String requestId) {
+    if (!active) {
+      LOG.warn("deleteRequestHistories {}, but not active", requestId);
+      return;
+    }
+
+    requestHistoryDeletions.incrementAndGet();
+    mostRecentRequestHistories.remove(requestId);
   }
 
   public List<SingularityTaskCleanup> getCleanupTasks() {
@@ -335,7 +687,10 @@ public class SingularityLeaderCache {
       return;
     }
 
-    cleanupTasks.remove(taskId);
+    if (cleanupTasks.remove(taskId) != null) {
+      removeFromIndex(cleanupTaskIdsByRequest, taskId.getRequestId(), taskId);
+      updateProvisioning(taskId.getRequestId());
+    }
   }
 
   public void saveTaskCleanup(SingularityTaskCleanup cleanup) {
@@ -344,7 +699,10 @@ public class SingularityLeaderCache {
       return;
     }
 
-    cleanupTasks.put(cleanup.getTaskId(), cleanup);
+    if (cleanupTasks.put(cleanup.getTaskId(), cleanup) == null) {
+      addToIndex(cleanupTaskIdsByRequest, cleanup.getTaskId().getRequestId(), cleanup.getTaskId());
+      updateProvisioning(cleanup.getTaskId().getRequestId());
+    }
   }
 
   public void createTaskCleanupIfNotExists(SingularityTaskCleanup cleanup) {
@@ -353,7 +711,10 @@ public class SingularityLeaderCache {
       return;
     }
 
-    cleanupTasks.putIfAbsent(cleanup.getTaskId(), cleanup);
+    if (cleanupTasks.putIfAbsent(cleanup.getTaskId(), cleanup) == null) {
+      addToIndex(cleanupTaskIdsByRequest, cleanup.getTaskId().getRequestId(), cleanup.getTaskId());
+      updateProvisioning(cleanup.getTaskId().getRequestId());
+    }
   }
 
   public Optional<SingularityRequestDeployState> getRequestDeployState(String requestId) {
@@ -365,11 +726,14 @@ public class SingularityLeaderCache {
   }
 
   public Map<String, SingularityRequestDeployState> getRequestDeployStateByRequestId(Collection<String> requestIds) {
-    Map<String, SingularityRequestDeployState> allDeployStates = new HashMap<>(requestIdToDeployState);
-    return allDeployStates.entrySet().stream()
-        .filter((e) -> requestIds.contains(e.getKey()))
-        .collect(Collectors.toMap((e) -> e.getKey(), (e) -> e.getValue())
-    );
+    Map<String, SingularityRequestDeployState> deployStates = new HashMap<>(requestIds.size());
+    for (String requestId : requestIds) {
+      SingularityRequestDeployState deployState = requestIdToDeployState.get(requestId);
+      if (deployState != null) {
+        deployStates.put(requestId, deployState);
+      }
+    }
+    return deployStates;
   }
 
   public void deleteRequestDeployState(String requestId) {
@@ -379,6 +743,7 @@ public class SingularityLeaderCache {
     }
 
     requestIdToDeployState.remove(requestId);
+    updateProvisioning(requestId);
   }
 
   public void putRequestDeployState(SingularityRequestDeployState requestDeployState) {
@@ -388,6 +753,7 @@ public class SingularityLeaderCache {
     }
 
     requestIdToDeployState.put(requestDeployState.getRequestId(), requestDeployState);
+    updateProvisioning(requestDeployState.getRequestId());
   }
 
   public List<SingularityKilledTaskIdRecord> getKilledTasks() {
@@ -416,12 +782,20 @@ public class SingularityLeaderCache {
     return updates;
   }
 
+  public Optional<SingularityTaskHistoryUpdate> getTaskHistoryUpdate(SingularityTaskId taskId, ExtendedTaskState taskState) {
+    Map<ExtendedTaskState, SingularityTaskHistoryUpdate> updates = historyUpdates.get(taskId);
+    return updates == null ? Optional.empty() : Optional.ofNullable(updates.get(taskState));
+  }
+
   public Map<SingularityTaskId, List<SingularityTaskHistoryUpdate>> getTaskHistoryUpdates(Collection<SingularityTaskId> taskIds) {
-    Map<SingularityTaskId, Map<ExtendedTaskState, SingularityTaskHistoryUpdate>> allHistoryUpdates = new HashMap<>(historyUpdates);
-    return allHistoryUpdates.entrySet().stream()
-        .filter((e) -> taskIds.contains(e.getKey()))
-        .collect(Collectors.toMap(Map.Entry::getKey, (e) -> new ArrayList<>(e.getValue().values()))
-    );
+    Map<SingularityTaskId, List<SingularityTaskHistoryUpdate>> updatesByTaskId = new HashMap<>(taskIds.size());
+    for (SingularityTaskId taskId : taskIds) {
+      Map<ExtendedTaskState, SingularityTaskHistoryUpdate> updates = historyUpdates.get(taskId);
+      if (updates != null) {
+        updatesByTaskId.put(taskId, new ArrayList<>(updates.values()));
+      }
+    }
+    return updatesByTaskId;
   }
 
   public void saveTaskHistoryUpdate(SingularityTaskHistoryUpdate taskHistoryUpdate, boolean overwrite) {
@@ -435,6 +809,9 @@ public class SingularityLeaderCache {
     } else {
       historyUpdates.get(taskHistoryUpdate.getTaskId()).putIfAbsent(taskHistoryUpdate.getTaskState(), taskHistoryUpdate);
     }
+    if (taskHistoryUpdate.getTaskState() == ExtendedTaskState.TASK_RUNNING && activeTaskIds != null && activeTaskIds.contains(taskHistoryUpdate.getTaskId())) {
+      runningActiveTaskIds.add(taskHistoryUpdate.getTaskId());
+    }
   }
 
   public void deleteTaskHistoryUpdate(SingularityTaskId taskId, ExtendedTaskState state) {
@@ -442,7 +819,18 @@ public class SingularityLeaderCache {
       LOG.warn("deleteTaskHistoryUpdate {}, but not active", taskId);
       return;
     }
-    historyUpdates.getOrDefault(taskId, new HashMap<>()).remove(state);
+    historyUpdates.compute(taskId, (id, updates) -> {
+      if (historyUpdatesLoading) {
+        historyUpdatesDeletedWhileLoading.computeIfAbsent(id, (i) -> EnumSet.noneOf(ExtendedTaskState.class)).add(state);
+      }
+      if (updates != null) {
+        updates.remove(state);
+      }
+      return updates;
+    });
+    if (state == ExtendedTaskState.TASK_RUNNING) {
+      runningActiveTaskIds.remove(taskId);
+    }
   }
 
   public void deleteTaskHistory(SingularityTaskId taskId) {
@@ -450,7 +838,13 @@ public class SingularityLeaderCache {
       LOG.warn("deleteTaskHistory {}, but not active", taskId);
       return;
     }
-    historyUpdates.remove(taskId);
+    historyUpdates.compute(taskId, (id, updates) -> {
+      if (historyUpdatesLoading) {
+        historyUpdatesDeletedWhileLoading.put(id, EnumSet.allOf(ExtendedTaskState.class));
+      }
+      return null;
+    });
+    runningActiveTaskIds.remove(taskId);
   }
 
   public List<SingularitySlave> getSlaves() {
@@ -466,7 +860,11 @@ public class SingularityLeaderCache {
       LOG.warn("putSlave {}, but not active", slave);
     }
 
-    slaves.put(slave.getId(), slave);
+    SingularitySlave previous = slaves.put(slave.getId(), slave);
+    if (previous != null) {
+      adjustCount(slaveCountsByState, previous.getCurrentState().getState(), -1);
+    }
+    adjustCount(slaveCountsByState, slave.getCurrentState().getState(), 1);
   }
 
   public void removeSlave(String slaveId) {
@@ -474,7 +872,10 @@ public class SingularityLeaderCache {
       LOG.warn("remove slave {}, but not active", slaveId);
       return;
     }
-    slaves.remove(slaveId);
+    SingularitySlave previous = slaves.remove(slaveId);
+    if (previous != null) {
+      adjustCount(slaveCountsByState, previous.getCurrentState().getState(), -1);
+    }
   }
 
   public List<SingularityRack> getRacks() {
@@ -490,7 +891,11 @@ public class SingularityLeaderCache {
       LOG.warn("putSlave {}, but not active", rack);
     }
 
-    racks.put(rack.getId(), rack);
+    SingularityRack previous = racks.put(rack.getId(), rack);
+    if (previous != null) {
+      adjustCount(rackCountsByState, previous.getCurrentState().getState(), -1);
+    }
+    adjustCount(rackCountsByState, rack.getCurrentState().getState(), 1);
   }
 
   public void removeRack(String rackId) {
@@ -498,7 +903,10 @@ public class SingularityLeaderCache {
       LOG.warn("remove rack {}, but not active", rackId);
       return;
     }
-    racks.remove(rackId);
+    SingularityRack previous = racks.remove(rackId);
+    if (previous != null) {
+      adjustCount(rackCountsByState, previous.getCurrentState().getState(), -1);
+    }
   }
 
   public void putRequestUtilization(RequestUtilization requestUtilization) {
@@ -514,7 +922,12 @@ public class SingularityLeaderCache {
       LOG.warn("removeRequestUtilization {}, but not active", requestId);
       return;
     }
-    requestUtilizations.remove(requestId);
+    requestUtilizations.compute(requestId, (id, existing) -> {
+      if (usagesLoading) {
+        requestUtilizationsRemovedWhileLoading.add(id);
+      }
+      return null;
+    });
   }
 
   public Map<String, RequestUtilization> getRequestUtilizations() {
@@ -534,7 +947,22 @@ public class SingularityLeaderCache {
       LOG.warn("removeSlaveUsage {}, but not active", slaveId);
       return;
     }
-    slaveUsages.remove(slaveId);
+    slaveUsages.compute(slaveId, (id, existing) -> {
+      if (usagesLoading) {
+        slaveUsagesRemovedWhileLoading.add(id);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Usage windows are only kept for active tasks, and are dropped along with the active task id
+   */
+  public TaskUsageWindow getTaskUsageWindow(SingularityTaskId taskId, Function<SingularityTaskId, TaskUsageWindow> loader) {
+    if (!active || !activeTaskIds.contains(taskId)) {
+      return loader.apply(taskId);
+    }
+    return taskUsageWindows.computeIfAbsent(taskId, loader);
   }
 
   public Map<String, SingularitySlaveUsageWithId> getSlaveUsages() {
@@ -544,4 +972,119 @@ public class SingularityLeaderCache {
   public Optional<SingularitySlaveUsageWithId> getSlaveUsage(String slaveId) {
     return Optional.ofNullable(slaveUsages.get(slaveId));
   }
+
+  public Map<RequestState, Integer> getRequestCountsByState() {
+    return copyCounts(RequestState.class, requestCountsByState);
+  }
+
+  public Map<MachineState, Integer> getSlaveCountsByState() {
+    return copyCounts(MachineState.class, slaveCountsByState);
+  }
+
+  public Map<MachineState, Integer> getRackCountsByState() {
+    return copyCounts(MachineState.class, rackCountsByState);
+  }
+
+  public List<String> getOverProvisionedRequestIds() {
+    return getRequestIdsWithProvisioning(Provisioning.OVER);
+  }
+
+  /**
+   * Requests with fewer instances than expected, before excluding requests that are waiting in the pending queue
+   */
+  public List<String> getPossiblyUnderProvisionedRequestIds() {
+    return getRequestIdsWithProvisioning(Provisioning.UNDER);
+  }
+
+  private List<String> getRequestIdsWithProvisioning(Provisioning provisioning) {
+    return requestProvisioning.entrySet().stream()
+        .filter((entry) -> entry.getValue() == provisioning)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Rebuilds the counts and provisioning kept for SingularityState from the cached collections, correcting any drift
+   * from concurrent updates. Updates made while the counts are rebuilt may be missed until the next recount
+   */
+  public void recountState() {
+    if (requests != null) {
+      requestCountsByState = countByState(requests.values(), SingularityRequestWithState::getState);
+    }
+    if (slaves != null) {
+      slaveCountsByState = countByState(slaves.values(), (slave) -> slave.getCurrentState().getState());
+    }
+    if (racks != null) {
+      rackCountsByState = countByState(racks.values(), (rack) -> rack.getCurrentState().getState());
+    }
+    if (activeTaskIds != null && historyUpdates != null && !historyUpdatesLoading) {
+      runningActiveTaskIds = countRunningActiveTaskIds();
+    }
+    if (requests != null) {
+      requestProvisioning.keySet().removeIf((requestId) -> !requests.containsKey(requestId));
+      requests.keySet().forEach(this::updateProvisioning);
+    }
+  }
+
+  private Set<SingularityTaskId> countRunningActiveTaskIds() {
+    Set<SingularityTaskId> running = ConcurrentHashMap.newKeySet();
+    for (SingularityTaskId taskId : activeTaskIds) {
+      if (hasRunningUpdate(taskId)) {
+        running.add(taskId);
+      }
+    }
+    return running;
+  }
+
+  private static <T, S> Map<S, Integer> countByState(Collection<T> values, Function<T, S> state) {
+    Map<S, Integer> counts = new ConcurrentHashMap<>();
+    values.forEach((value) -> adjustCount(counts, state.apply(value), 1));
+    return counts;
+  }
+
+  private static <S extends Enum<S>> Map<S, Integer> copyCounts(Class<S> stateClass, Map<S, Integer> counts) {
+    Map<S, Integer> copy = new EnumMap<>(stateClass);
+    copy.putAll(counts);
+    return copy;
+  }
+
+  private static <S> void adjustCount(Map<S, Integer> counts, S state, int delta) {
+    counts.merge(state, delta, (a, b) -> a + b == 0 ? null : a + b);
+  }
+
+  /**
+   * Evaluated the same way as a full scan in StateManager. Evaluations for a request are serialized by compute, and each
+   * one reads the collections after the change that triggered it, so the last evaluation always sees the latest data
+   */
+  private void updateProvisioning(String requestId) {
+    if (requests == null || activeTaskIdsByRequest == null || pendingTaskIdsByRequest == null || cleanupTaskIdsByRequest == null || requestIdToDeployState == null) {
+      return;
+    }
+    requestProvisioning.compute(requestId, (id, previous) -> getProvisioning(id));
+  }
+
+  private Provisioning getProvisioning(String requestId) {
+    SingularityRequestWithState requestWithState = requests.get(requestId);
+    if (requestWithState == null || !requestWithState.getState().isRunnable() || !requestWithState.getRequest().isAlwaysRunning()) {
+      return null;
+    }
+
+    long numInstances = indexSize(activeTaskIdsByRequest, requestId) + indexSize(pendingTaskIdsByRequest, requestId);
+    if (!requestWithState.getRequest().isScheduled()) {
+      numInstances -= indexSize(cleanupTaskIdsByRequest, requestId);
+    }
+
+    int expectedInstances = requestWithState.getRequest().getInstancesSafe();
+    if (numInstances < expectedInstances) {
+      SingularityRequestDeployState deployState = requestIdToDeployState.get(requestId);
+      boolean hasDeploy = deployState != null && (deployState.getActiveDeploy().isPresent() || deployState.getPendingDeploy().isPresent());
+      return hasDeploy ? Provisioning.UNDER : null;
+    }
+    return numInstances > expectedInstances ? Provisioning.OVER : null;
+  }
+
+  private static <T> int indexSize(Map<String, Set<T>> index, String key) {
+    Set<T> values = index.get(key);
+    return values == null ? 0 : values.size();
+  }
 }
@@ -1,7 +1,20 @@
 package com.hubspot.singularity.scheduler;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.hubspot.mesos.JavaUtils;
+import com.hubspot.singularity.SingularityManagedCachedThreadPoolFactory;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.CuratorManager;
 import com.hubspot.singularity.data.DeployManager;
 import com.hubspot.singularity.data.RackManager;
 import com.hubspot.singularity.data.RequestManager;
@@ -9,8 +22,14 @@ import com.hubspot.singularity.data.SlaveManager;
 import com.hubspot.singularity.data.TaskManager;
 import com.hubspot.singularity.data.usage.UsageManager;
 
+/**
+ * Loads each leader cache collection on its own thread. The cache is activated once the collections needed for scheduling
+ * are loaded. Task history updates and usages are either loaded before activation as well, or, with
+ * deferLeaderCacheHistoryAndUsageLoad, in the background afterwards.
+ */
 @Singleton
 public class SingularityLeaderCacheCoordinator {
+  private static final Logger LOG = LoggerFactory.getLogger(SingularityLeaderCacheCoordinator.class);
 
   private final TaskManager taskManager;
   private final DeployManager deployManager;
@@ -19,6 +38,9 @@ public class SingularityLeaderCacheCoordinator {
   private final RackManager rackManager;
   private final UsageManager usageManager;
   private final SingularityLeaderCache leaderCache;
+  private final SingularityConfiguration configuration;
+  private final MetricRegistry metricRegistry;
+  private final ExecutorService loaderExecutor;
 
   @Inject
   public SingularityLeaderCacheCoordinator(TaskManager taskManager,
@@ -27,7 +49,10 @@ public class SingularityLeaderCacheCoordinator {
                                            SlaveManager slaveManager,
                                            RackManager rackManager,
                                            UsageManager usageManager,
-                                           SingularityLeaderCache leaderCache) {
+                                           SingularityLeaderCache leaderCache,
+                                           SingularityConfiguration configuration,
+                                           MetricRegistry metricRegistry,
+                                           SingularityManagedCachedThreadPoolFactory threadPoolFactory) {
     this.taskManager = taskManager;
     this.deployManager = deployManager;
     this.requestManager = requestManager;
@@ -35,16 +60,67 @@ public class SingularityLeaderCacheCoordinator {
     this.rackManager = rackManager;
     this.usageManager = usageManager;
     this.leaderCache = leaderCache;
+    this.configuration = configuration;
+    this.metricRegistry = metricRegistry;
+    this.loaderExecutor = threadPoolFactory.get("leader-cache-loader");
+
+    metricRegistry.register("leader.cache.activeTasks.writeContention", (Gauge<Long>) leaderCache::getActiveTasksWriteContention);
   }
 
   public void activateLeaderCache() {
-    taskManager.activateLeaderCache();
-    deployManager.activateLeaderCache();
-    requestManager.activateLeaderCache();
-    slaveManager.activateLeaderCache();
-    rackManager.activateLeaderCache();
-    usageManager.activateLeaderCache();
-    leaderCache.activate();
+    final long start = System.currentTimeMillis();
+
+    CompletableFuture.allOf(
+        load("pendingTasks", taskManager::cachePendingTasks),
+        load("activeTaskIds", taskManager::cacheActiveTaskIds),
+        load("cleanupTasks", taskManager::cacheCleanupAndKilledTasks),
+        load("requestDeployStates", deployManager::activateLeaderCache),
+        load("requests", requestManager::activateLeaderCache),
+        load("slaves", slaveManager::activateLeaderCache),
+        load("racks", rackManager::activateLeaderCache)
+    ).join();
+
+    // a background load that outlives this leadership term must not overwrite the cache of the next one
+    final long generation = leaderCache.getGeneration();
+    leaderCache.startLoadingTaskHistoryUpdates();
+    leaderCache.startLoadingUsages();
+
+    if (configuration.isDeferLeaderCacheHistoryAndUsageLoad()) {
+      leaderCache.activate();
+      LOG.info("Activated leader cache in {}, loading task history updates and usages in the background", JavaUtils.duration(start));
+
+      loadHistoryUpdatesAndUsages(generation).whenComplete((result, t) -> {
+        if (generation != leaderCache.getGeneration()) {
+          LOG.info("Dropped task history updates and usages loaded for a leader cache that was stopped since");
+        } else if (t != null) {
+          LOG.error("Failed to load task history updates and usages into the leader cache, they will continue to be read from zk", t);
+        } else {
+          LOG.info("Finished loading the leader cache in {}", JavaUtils.duration(start));
+        }
+      });
+    } else {
+      loadHistoryUpdatesAndUsages(generation).join();
+      leaderCache.activate();
+      LOG.info("Activated leader cache in {}", JavaUtils.duration(start));
+    }
+  }
+
+  private CompletableFuture<Void> loadHistoryUpdatesAndUsages(long generation) {
+    return CompletableFuture.allOf(
+        load("taskHistoryUpdates", () -> taskManager.loadTaskHistoryUpdatesIntoLeaderCache(generation)),
+        load("usages", () -> usageManager.loadUsagesIntoLeaderCache(generation))
+    );
+  }
+
+  private CompletableFuture<Void> load(String name, Runnable loader) {
+    return CompletableFuture.runAsync(() -> {
+      final long start = System.currentTimeMillis();
+      long bytes = CuratorManager.countBytesRead(loader);
+
+      metricRegistry.timer(String.format("leader.cache.load.%s", name)).update(System.currentTimeMillis() - start, TimeUnit.MILLISECONDS);
+      metricRegistry.counter(String.format("leader.cache.load.%s.bytes", name)).inc(bytes);
+      LOG.info("Loaded {} ({} bytes) into the leader cache in {}", name, bytes, JavaUtils.duration(start));
+    }, loaderExecutor);
   }
 
   public void stopLeaderCache() {
@@ -0,0 +1,59 @@
+package com.hubspot.singularity.scheduler;
+
+import java.text.ParseException;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+
+import org.dmfs.rfc5545.recur.InvalidRecurrenceRuleException;
+import org.quartz.CronExpression;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubspot.singularity.helpers.RFC5545Schedule;
+
+/**
+ * Keeps parsed schedules around so rescheduling a request does not parse its schedule again. Cached rfc5545 schedules
+ * continue from their last occurrence, see {@link RFC5545Schedule#getNextValidTime(long)}. Cached cron expressions
+ * already have their time zone set and must not be modified.
+ */
+@Singleton
+public class SingularityScheduleCache {
+  private static final int MAX_CACHED_SCHEDULES = 10000;
+
+  private final Cache<String, RFC5545Schedule> rfc5545Schedules;
+  private final Cache<String, CronExpression> cronExpressions;
+
+  @Inject
+  public SingularityScheduleCache() {
+    this.rfc5545Schedules = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCHEDULES).build();
+    this.cronExpressions = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SCHEDULES).build();
+  }
+
+  public RFC5545Schedule getRFC5545Schedule(String schedule) throws InvalidRecurrenceRuleException {
+    try {
+      return rfc5545Schedules.get(schedule, () -> new RFC5545Schedule(schedule));
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), InvalidRecurrenceRuleException.class);
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  public CronExpression getCronExpression(String schedule, Optional<String> timeZone) throws ParseException {
+    try {
+      return cronExpressions.get(String.format("%s|%s", schedule, timeZone.orElse("")), () -> {
+        CronExpression cronExpression = new CronExpression(schedule);
+        if (timeZone.isPresent()) {
+          cronExpression.setTimeZone(TimeZone.getTimeZone(timeZone.get()));
+        }
+        return cronExpression;
+      });
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), ParseException.class);
+      throw new RuntimeException(e.getCause());
+    }
+  }
+}
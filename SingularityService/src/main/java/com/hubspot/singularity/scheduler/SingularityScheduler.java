@@ -96,12 +96,13 @@ public class SingularityScheduler {
   private final SingularityMailer mailer;
   private final SingularityLeaderCache leaderCache;
   private final SingularitySchedulerLock lock;
+  private final SingularityScheduleCache scheduleCache;
 
   @Inject
   public SingularityScheduler(TaskRequestManager taskRequestManager, SingularityConfiguration configuration, SingularityCooldown cooldown, DeployManager deployManager,
                               TaskManager taskManager, RequestManager requestManager, SlaveManager slaveManager, RebalancingHelper rebalancingHelper,
                               RackManager rackManager, SingularityMailer mailer,
-                              SingularityLeaderCache leaderCache, SingularitySchedulerLock lock) {
+                              SingularityLeaderCache leaderCache, SingularitySchedulerLock lock, SingularityScheduleCache scheduleCache) {
     this.taskRequestManager = taskRequestManager;
     this.configuration = configuration;
     this.deployManager = deployManager;
@@ -114,6 +115,7 @@ public class SingularityScheduler {
     this.cooldown = cooldown;
     this.leaderCache = leaderCache;
     this.lock = lock;
+    this.scheduleCache = scheduleCache;
   }
 
   private void cleanupTaskDueToDecomission(final Map<String, Optional<String>> requestIdsToUserToReschedule, final Set<SingularityTaskId> matchingTaskIds, SingularityTask task,
@@ -877,15 +879,12 @@ public class SingularityScheduler {
           Date scheduleFrom = null;
 
           if (request.getScheduleTypeSafe() == ScheduleType.RFC5545) {
-            final RFC5545Schedule rfc5545Schedule = new RFC5545Schedule(request.getSchedule().get());
-            nextRunAtDate = rfc5545Schedule.getNextValidTime();
+            final RFC5545Schedule rfc5545Schedule = scheduleCache.getRFC5545Schedule(request.getSchedule().get());
+            nextRunAtDate = rfc5545Schedule.getNextValidTime(now);
             scheduleFrom = new Date(rfc5545Schedule.getStartDateTime().getMillis());
           } else {
             scheduleFrom = new Date(now);
-            final CronExpression cronExpression = new CronExpression(request.getQuartzScheduleSafe());
-            if (request.getScheduleTimeZone().isPresent()) {
-              cronExpression.setTimeZone(TimeZone.getTimeZone(request.getScheduleTimeZone().get()));
-            }
+            final CronExpression cronExpression = scheduleCache.getCronExpression(request.getQuartzScheduleSafe(), request.getScheduleTimeZone());
             nextRunAtDate = cronExpression.getNextValidTimeAfter(scheduleFrom);
           }
 
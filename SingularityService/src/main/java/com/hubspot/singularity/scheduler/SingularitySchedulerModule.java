@@ -25,6 +25,7 @@ public class SingularitySchedulerModule extends AbstractModule {
     bind(SingularityTaskShellCommandDispatchPoller.class).in(Scopes.SINGLETON);
     bind(SingularityTaskReconciliationPoller.class).in(Scopes.SINGLETON);
     bind(SingularityScheduler.class).in(Scopes.SINGLETON);
+    bind(SingularityScheduleCache.class).in(Scopes.SINGLETON);
     bind(SingularityCooldownChecker.class).in(Scopes.SINGLETON);
     bind(SingularityDeployChecker.class).in(Scopes.SINGLETON);
     bind(SingularityCleaner.class).in(Scopes.SINGLETON);
@@ -2,10 +2,13 @@ package com.hubspot.singularity.scheduler;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
@@ -34,10 +37,12 @@ import com.hubspot.singularity.SingularityTaskHistoryUpdate;
 import com.hubspot.singularity.SingularityTaskId;
 import com.hubspot.singularity.SingularityTaskUsage;
 import com.hubspot.singularity.TaskCleanupType;
+import com.hubspot.singularity.async.CompletableFutures;
 import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.data.RequestManager;
 import com.hubspot.singularity.data.SlaveManager;
 import com.hubspot.singularity.data.TaskManager;
+import com.hubspot.singularity.data.usage.TaskUsageWindow;
 import com.hubspot.singularity.data.usage.UsageManager;
 import com.hubspot.singularity.sentry.SingularityExceptionNotifier;
 
@@ -53,8 +58,10 @@ public class SingularityUsageHelper {
   private final SlaveManager slaveManager;
   private final TaskManager taskManager;
   private final UsageManager usageManager;
+  private final SingularityLeaderCache leaderCache;
 
   private final ConcurrentHashMap<String, ReentrantLock> requestLocks;
+  private final AtomicLong storeOps;
 
   @Inject
   public SingularityUsageHelper(
@@ -64,7 +71,8 @@ public class SingularityUsageHelper {
       RequestManager requestManager,
       SlaveManager slaveManager,
       TaskManager taskManager,
-      UsageManager usageManager) {
+      UsageManager usageManager,
+      SingularityLeaderCache leaderCache) {
     this.mesosClient = mesosClient;
     this.configuration = configuration;
     this.exceptionNotifier = exceptionNotifier;
@@ -72,8 +80,10 @@ public class SingularityUsageHelper {
     this.slaveManager = slaveManager;
     this.taskManager = taskManager;
     this.usageManager = usageManager;
+    this.leaderCache = leaderCache;
 
     this.requestLocks = new ConcurrentHashMap<>();
+    this.storeOps = new AtomicLong();
   }
 
   public List<SingularitySlave> getSlavesToTrackUsageFor() {
@@ -95,7 +105,12 @@ public class SingularityUsageHelper {
     return mesosClient.getSlaveMetricsSnapshot(host, true);
   }
 
-  public void collectSlaveUsage(
+  /**
+   * Fetches task statistics and the metrics snapshot from an agent concurrently, then processes them on {@code executor}
+   * once both have arrived. No thread is held while waiting on the agent, and a slow agent is given up on after
+   * slaveUsageCollectionTimeoutMillis.
+   */
+  public CompletableFuture<Void> collectSlaveUsage(
       SingularitySlave slave,
       long now,
       Map<String, RequestUtilization> utilizationPerRequestId,
@@ -107,7 +122,39 @@ public class SingularityUsageHelper {
       AtomicDouble totalCpuAvailable,
       AtomicLong totalDiskBytesUsed,
       AtomicLong totalDiskBytesAvailable,
-      boolean useShortTimeout) {
+      boolean useShortTimeout,
+      ExecutorService executor) {
+    CompletableFuture<List<MesosTaskMonitorObject>> taskUsageFuture = mesosClient.getSlaveResourceUsageAsync(slave.getHost(), useShortTimeout);
+    CompletableFuture<MesosSlaveMetricsSnapshotObject> metricsSnapshotFuture = mesosClient.getSlaveMetricsSnapshotAsync(slave.getHost(), useShortTimeout);
+
+    return CompletableFutures.enforceTimeout(CompletableFuture.allOf(taskUsageFuture, metricsSnapshotFuture), configuration.getSlaveUsageCollectionTimeoutMillis(), TimeUnit.MILLISECONDS)
+        .handleAsync((ignored, throwable) -> {
+          if (throwable != null) {
+            String message = String.format("Could not get slave usage for host %s", slave.getHost());
+            LOG.error(message, throwable);
+            exceptionNotifier.notify(message, throwable);
+          } else {
+            processSlaveUsage(slave, taskUsageFuture.join(), metricsSnapshotFuture.join(), now, utilizationPerRequestId, previousUtilizations, overLoadedHosts,
+                totalMemBytesUsed, totalMemBytesAvailable, totalCpuUsed, totalCpuAvailable, totalDiskBytesUsed, totalDiskBytesAvailable);
+          }
+          return null;
+        }, executor);
+  }
+
+  private void processSlaveUsage(
+      SingularitySlave slave,
+      List<MesosTaskMonitorObject> allTaskUsage,
+      MesosSlaveMetricsSnapshotObject slaveMetricsSnapshot,
+      long now,
+      Map<String, RequestUtilization> utilizationPerRequestId,
+      Map<String, RequestUtilization> previousUtilizations,
+      Map<SingularitySlaveUsage, List<TaskIdWithUsage>> overLoadedHosts,
+      AtomicLong totalMemBytesUsed,
+      AtomicLong totalMemBytesAvailable,
+      AtomicDouble totalCpuUsed,
+      AtomicDouble totalCpuAvailable,
+      AtomicLong totalDiskBytesUsed,
+      AtomicLong totalDiskBytesAvailable) {
     Optional<Long> memoryMbTotal = Optional.empty();
     Optional<Double> cpusTotal = Optional.empty();
     Optional<Long> diskMbTotal = Optional.empty();
@@ -121,8 +168,6 @@ public class SingularityUsageHelper {
     long diskMbUsedOnSlave = 0;
 
     try {
-      List<MesosTaskMonitorObject> allTaskUsage = mesosClient.getSlaveResourceUsage(slave.getHost(), useShortTimeout);
-      MesosSlaveMetricsSnapshotObject slaveMetricsSnapshot = mesosClient.getSlaveMetricsSnapshot(slave.getHost());
       double systemMemTotalBytes = 0;
       double systemMemFreeBytes = 0;
       double systemLoad1Min = 0;
@@ -159,6 +204,7 @@ public class SingularityUsageHelper {
       boolean slaveOverloadedForCpu = systemCpusTotal > 0 && systemLoad / systemCpusTotal > 1.0;
       boolean slaveExperiencingHighMemUsage = ((systemMemTotalBytes - systemMemFreeBytes) / systemMemTotalBytes) > configuration.getShuffleTasksWhenSlaveMemoryUtilizationPercentageExceeds();
       List<TaskIdWithUsage> possibleTasksToShuffle = new ArrayList<>();
+      Map<SingularityTaskId, SingularityTaskUsage> usagesToSave = new HashMap<>();
 
       for (MesosTaskMonitorObject taskUsage : allTaskUsage) {
         if (!taskUsage.getFrameworkId().equals(configuration.getMesosConfiguration().getFrameworkId())) {
@@ -175,34 +221,38 @@ public class SingularityUsageHelper {
         }
 
         SingularityTaskUsage latestUsage = getUsage(taskUsage);
-        List<SingularityTaskUsage> pastTaskUsages = usageManager.getTaskUsage(task);
-        usageManager.saveSpecificTaskUsage(task, latestUsage);
-
-        Optional<SingularityTask> maybeTask = taskManager.getTask(task);
-        Optional<Resources> maybeResources = Optional.empty();
-        if (maybeTask.isPresent()) {
-          maybeResources = maybeTask.get().getTaskRequest().getPendingTask().getResources().isPresent() ?
-              maybeTask.get().getTaskRequest().getPendingTask().getResources() :
-              maybeTask.get().getTaskRequest().getDeploy().getResources();
-          if (maybeResources.isPresent()) {
-            Resources taskResources = maybeResources.get();
-            double memoryMbReservedForTask = taskResources.getMemoryMb();
-            double cpuReservedForTask = taskResources.getCpus();
-            double diskMbReservedForTask = taskResources.getDiskMb();
-
-            memoryMbReservedOnSlave += memoryMbReservedForTask;
-            cpuReservedOnSlave += cpuReservedForTask;
-            diskMbReservedOnSlave += diskMbReservedForTask;
-
-            updateRequestUtilization(utilizationPerRequestId, previousUtilizations.get(maybeTask.get().getTaskRequest().getRequest().getId()), pastTaskUsages, latestUsage, task, memoryMbReservedForTask, cpuReservedForTask, diskMbReservedForTask);
+        List<SingularityTaskUsage> pastTaskUsages;
+        if (leaderCache.active()) {
+          TaskUsageWindow usageWindow = leaderCache.getTaskUsageWindow(task, this::loadTaskUsageWindow);
+          pastTaskUsages = usageWindow.getUsages();
+          usageWindow.add(latestUsage);
+          if (usageWindow.checkpointIfDue(latestUsage.getTimestamp(), configuration.getCheckpointTaskUsageEveryMillis())) {
+            usagesToSave.put(task, latestUsage);
           }
+        } else {
+          pastTaskUsages = getStoredTaskUsage(task);
+          usagesToSave.put(task, latestUsage);
+        }
+
+        Optional<Resources> maybeResources = getRequestedResources(task);
+        if (maybeResources.isPresent()) {
+          Resources taskResources = maybeResources.get();
+          double memoryMbReservedForTask = taskResources.getMemoryMb();
+          double cpuReservedForTask = taskResources.getCpus();
+          double diskMbReservedForTask = taskResources.getDiskMb();
+
+          memoryMbReservedOnSlave += memoryMbReservedForTask;
+          cpuReservedOnSlave += cpuReservedForTask;
+          diskMbReservedOnSlave += diskMbReservedForTask;
+
+          updateRequestUtilization(utilizationPerRequestId, previousUtilizations.get(task.getRequestId()), pastTaskUsages, latestUsage, task, memoryMbReservedForTask, cpuReservedForTask, diskMbReservedForTask);
         }
         memoryBytesUsedOnSlave += latestUsage.getMemoryTotalBytes();
         diskMbUsedOnSlave += latestUsage.getDiskTotalBytes();
 
         SingularityTaskCurrentUsage currentUsage = null;
         if (pastTaskUsages.isEmpty()) {
-          Optional<SingularityTaskHistoryUpdate> maybeStartingUpdate = taskManager.getTaskHistoryUpdate(task, ExtendedTaskState.TASK_STARTING);
+          Optional<SingularityTaskHistoryUpdate> maybeStartingUpdate = getTaskHistoryUpdate(task, ExtendedTaskState.TASK_STARTING);
           if (maybeStartingUpdate.isPresent()) {
             long startTimestampSeconds = TimeUnit.MILLISECONDS.toSeconds(maybeStartingUpdate.get().getTimestamp());
             double usedCpusSinceStart = latestUsage.getCpuSeconds() / TimeUnit.MILLISECONDS.toSeconds(latestUsage.getTimestamp() - startTimestampSeconds);
@@ -221,7 +271,7 @@ public class SingularityUsageHelper {
 
         if (currentUsage != null && currentUsage.getCpusUsed() > 0) {
           if (isEligibleForShuffle(task)) {
-            Optional<SingularityTaskHistoryUpdate> maybeCleanupUpdate = taskManager.getTaskHistoryUpdate(task, ExtendedTaskState.TASK_CLEANING);
+            Optional<SingularityTaskHistoryUpdate> maybeCleanupUpdate = getTaskHistoryUpdate(task, ExtendedTaskState.TASK_CLEANING);
             if (maybeCleanupUpdate.isPresent() && isTaskAlreadyCleanedUpForShuffle(maybeCleanupUpdate.get())) {
               LOG.trace("Task {} already being cleaned up to spread cpu or mem usage, skipping", taskId);
             } else {
@@ -233,6 +283,8 @@ public class SingularityUsageHelper {
         }
       }
 
+      saveTaskUsages(usagesToSave);
+
       if (!slave.getResources().isPresent() ||
           !slave.getResources().get().getMemoryMegaBytes().isPresent() ||
           !slave.getResources().get().getNumCpus().isPresent()) {
@@ -270,6 +322,65 @@ public class SingularityUsageHelper {
     }
   }
 
+  private TaskUsageWindow loadTaskUsageWindow(SingularityTaskId taskId) {
+    TaskUsageWindow usageWindow = new TaskUsageWindow(configuration.getNumUsageToKeep());
+    List<SingularityTaskUsage> storedUsages = getStoredTaskUsage(taskId);
+    usageWindow.addAll(storedUsages);
+    if (!storedUsages.isEmpty()) {
+      usageWindow.markCheckpointed(storedUsages.get(storedUsages.size() - 1).getTimestamp());
+    }
+    return usageWindow;
+  }
+
+  private List<SingularityTaskUsage> getStoredTaskUsage(SingularityTaskId taskId) {
+    storeOps.incrementAndGet();
+    return usageManager.getTaskUsage(taskId);
+  }
+
+  private void saveTaskUsages(Map<SingularityTaskId, SingularityTaskUsage> usages) {
+    if (usages.isEmpty()) {
+      return;
+    }
+    storeOps.incrementAndGet();
+    usageManager.saveTaskUsages(usages);
+  }
+
+  private Optional<Resources> getRequestedResources(SingularityTaskId taskId) {
+    if (leaderCache.active()) {
+      Optional<Resources> maybeCachedResources = leaderCache.getActiveTaskResources(taskId);
+      if (maybeCachedResources.isPresent()) {
+        return maybeCachedResources;
+      }
+    }
+
+    storeOps.incrementAndGet();
+    Optional<SingularityTask> maybeTask = taskManager.getTask(taskId);
+    if (!maybeTask.isPresent()) {
+      return Optional.empty();
+    }
+    Optional<Resources> maybeResources = maybeTask.get().getTaskRequest().getPendingTask().getResources().isPresent() ?
+        maybeTask.get().getTaskRequest().getPendingTask().getResources() :
+        maybeTask.get().getTaskRequest().getDeploy().getResources();
+    if (maybeResources.isPresent() && leaderCache.active()) {
+      leaderCache.putActiveTaskResources(taskId, maybeResources.get());
+    }
+    return maybeResources;
+  }
+
+  private Optional<SingularityTaskHistoryUpdate> getTaskHistoryUpdate(SingularityTaskId taskId, ExtendedTaskState taskState) {
+    if (!leaderCache.historyUpdatesActive()) {
+      storeOps.incrementAndGet();
+    }
+    return taskManager.getTaskHistoryUpdate(taskId, taskState);
+  }
+
+  /**
+   * @return the number of task usage, task and task history update reads and writes which were not served from the leader cache since the last call
+   */
+  public long getAndResetStoreOps() {
+    return storeOps.getAndSet(0);
+  }
+
   private SingularityTaskUsage getUsage(MesosTaskMonitorObject taskUsage) {
     double timestampMillis = taskUsage.getStatistics().getTimestamp() * 1000;
     return new SingularityTaskUsage(
@@ -293,7 +404,7 @@ public class SingularityUsageHelper {
 
 
   private boolean isEligibleForShuffle(SingularityTaskId task) {
-    Optional<SingularityTaskHistoryUpdate> taskRunning = taskManager.getTaskHistoryUpdate(task, ExtendedTaskState.TASK_RUNNING);
+    Optional<SingularityTaskHistoryUpdate> taskRunning = getTaskHistoryUpdate(task, ExtendedTaskState.TASK_RUNNING);
 
     return (
         !configuration.getDoNotShuffleRequests().contains(task.getRequestId())
@@ -16,6 +16,9 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.AtomicDouble;
 import com.google.inject.Inject;
 import com.hubspot.singularity.RequestUtilization;
@@ -56,6 +59,9 @@ public class SingularityUsagePoller extends SingularityLeaderOnlyPoller {
   private final AsyncSemaphore<Void> usageCollectionSemaphore;
   private final ExecutorService usageExecutor;
 
+  private final Timer pollTimer;
+  private final Histogram pollStoreOps;
+
   @Inject
   SingularityUsagePoller(SingularityConfiguration configuration,
                          SingularityUsageHelper usageHelper,
@@ -65,7 +71,8 @@ public class SingularityUsagePoller extends SingularityLeaderOnlyPoller {
                          TaskManager taskManager,
                          DisasterManager disasterManager,
                          SingularityManagedScheduledExecutorServiceFactory executorServiceFactory,
-                         SingularityManagedCachedThreadPoolFactory cachedThreadPoolFactory) {
+                         SingularityManagedCachedThreadPoolFactory cachedThreadPoolFactory,
+                         MetricRegistry metricRegistry) {
     super(configuration.getCheckUsageEveryMillis(), TimeUnit.MILLISECONDS);
 
     this.configuration = configuration;
@@ -78,10 +85,19 @@ public class SingularityUsagePoller extends SingularityLeaderOnlyPoller {
 
     this.usageCollectionSemaphore = AsyncSemaphore.newBuilder(configuration::getMaxConcurrentUsageCollections, executorServiceFactory.get("usage-semaphore", 5)).build();
     this.usageExecutor = cachedThreadPoolFactory.get("usage-collection");
+
+    this.pollTimer = metricRegistry.timer("usage.poll.time");
+    this.pollStoreOps = metricRegistry.histogram("usage.poll.store.ops");
   }
 
   @Override
   public void runActionOnPoll() {
+    try (Timer.Context context = pollTimer.time()) {
+      collectUsage();
+    }
+  }
+
+  private void collectUsage() {
     Map<String, RequestUtilization> utilizationPerRequestId = new ConcurrentHashMap<>();
     Map<String, RequestUtilization> previousUtilizations = usageManager.getRequestUtilizations(false);
     final long now = System.currentTimeMillis();
@@ -99,15 +115,17 @@ public class SingularityUsagePoller extends SingularityLeaderOnlyPoller {
 
     usageHelper.getSlavesToTrackUsageFor().forEach((slave) -> {
       usageFutures.add(usageCollectionSemaphore.call(() ->
-          CompletableFuture.runAsync(() -> {
-            usageHelper.collectSlaveUsage(slave, now, utilizationPerRequestId, previousUtilizations, overLoadedHosts, totalMemBytesUsed, totalMemBytesAvailable,
-                totalCpuUsed, totalCpuAvailable, totalDiskBytesUsed, totalDiskBytesAvailable, false);
-          }, usageExecutor)
+          usageHelper.collectSlaveUsage(slave, now, utilizationPerRequestId, previousUtilizations, overLoadedHosts, totalMemBytesUsed, totalMemBytesAvailable,
+              totalCpuUsed, totalCpuAvailable, totalDiskBytesUsed, totalDiskBytesAvailable, false, usageExecutor)
       ));
     });
 
     CompletableFutures.allOf(usageFutures).join();
 
+    long storeOps = usageHelper.getAndResetStoreOps();
+    pollStoreOps.update(storeOps);
+    LOG.debug("Collected usage for {} slaves with {} store operations", usageFutures.size(), storeOps);
+
     usageManager.saveClusterUtilization(
         getClusterUtilization(
             utilizationPerRequestId, totalMemBytesUsed.get(), totalMemBytesAvailable.get(),
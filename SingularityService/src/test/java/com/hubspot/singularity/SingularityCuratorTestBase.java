@@ -98,7 +98,7 @@ public class SingularityCuratorTestBase {
       // clear db
       if (useDBTests) {
         Handle handle = dbiProvider.get().open();
-        handle.execute("DELETE FROM taskHistory;DELETE FROM requestHistory;DELETE FROM deployHistory;");
+        handle.execute("DELETE FROM taskHistory;DELETE FROM requestHistory;DELETE FROM deployHistory;DELETE FROM taskUsage;DELETE FROM taskUsageBlocks;");
         handle.close();
       }
     } catch (Exception e) {
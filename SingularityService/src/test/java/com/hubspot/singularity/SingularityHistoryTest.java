@@ -5,10 +5,13 @@ import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -35,6 +38,7 @@ import com.hubspot.singularity.data.history.SingularityRequestHistoryPersister;
 import com.hubspot.singularity.data.history.SingularityTaskHistoryPersister;
 import com.hubspot.singularity.data.history.TaskHistoryHelper;
 import com.hubspot.singularity.data.transcoders.Transcoder;
+import com.hubspot.singularity.data.usage.UsageManager;
 import com.hubspot.singularity.mesos.SingularitySchedulerLock;
 import com.hubspot.singularity.scheduler.SingularitySchedulerTestBase;
 
@@ -73,6 +77,9 @@ public class SingularityHistoryTest extends SingularitySchedulerTestBase {
   @Inject
   protected SingularitySchedulerLock lock;
 
+  @Inject
+  protected UsageManager usageManager;
+
   public SingularityHistoryTest() {
     super(true);
   }
@@ -209,6 +216,38 @@ public class SingularityHistoryTest extends SingularitySchedulerTestBase {
     Assertions.assertTrue(parent.getPendingRequest().getRunId().isPresent());
   }
 
+  @Test
+  public void testPersistsTaskHistoriesInBatches() {
+    try {
+      configuration.getZooKeeperConfiguration().setBatchTaskWrites(true);
+      configuration.setTaskHistoryPersisterBatchSize(2);
+
+      initRequest();
+      initFirstDeploy();
+
+      List<SingularityTaskId> taskIds = new ArrayList<>();
+      for (int i = 1; i <= 5; i++) {
+        SingularityTask task = launchTask(request, firstDeploy, i, i, TaskState.TASK_RUNNING);
+        statusUpdate(task, TaskState.TASK_FINISHED);
+        taskIds.add(task.getTaskId());
+      }
+
+      // Already persisted tasks are skipped by the batch insert
+      historyManager.saveTaskHistory(taskManager.getTaskHistory(taskIds.get(0)).get());
+
+      taskHistoryPersister.runActionOnPoll();
+
+      Assertions.assertEquals(5, getTaskHistoryForRequest(requestId, 0, 10).size());
+      for (SingularityTaskId taskId : taskIds) {
+        Assertions.assertTrue(historyManager.getTaskHistory(taskId.getId()).isPresent());
+        Assertions.assertFalse(taskManager.getTaskHistory(taskId).isPresent());
+      }
+    } finally {
+      configuration.getZooKeeperConfiguration().setBatchTaskWrites(false);
+      configuration.setTaskHistoryPersisterBatchSize(100);
+    }
+  }
+
   @Test
   public void testPersisterRaceCondition() {
     final TaskManager taskManagerSpy = spy(taskManager);
@@ -549,4 +588,54 @@ public class SingularityHistoryTest extends SingularitySchedulerTestBase {
       configuration.setSqlFallBackToBytesFields(false);
     }
   }
+
+  @Test
+  public void testTaskUsageIsRolledUpHourly() {
+    long hourStart = TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(3)) * TimeUnit.HOURS.toMillis(1);
+    SingularityTaskId taskId = new SingularityTaskId("request", "deploy", hourStart, 1, "host", "rack");
+    SingularityTaskId otherTaskId = new SingularityTaskId("request", "deploy", hourStart, 2, "host", "rack");
+
+    try {
+      configuration.setKeepHourlyTaskUsageForDays(7);
+      configuration.setNumUsageToKeep(2);
+
+      for (int i = 0; i < 3; i++) {
+        Map<SingularityTaskId, SingularityTaskUsage> usages = new HashMap<>();
+        long timestamp = hourStart + TimeUnit.MINUTES.toMillis(10 * i);
+        usages.put(taskId, new SingularityTaskUsage(100 + (i % 2) * 50, timestamp, 10 * i, 1000, i, 0, 0.5 * i));
+        usages.put(otherTaskId, new SingularityTaskUsage(100, timestamp, 10 * i, 1000, i, 0, 0));
+        usageManager.saveTaskUsages(usages);
+      }
+      for (int i = 0; i < 2; i++) {
+        long timestamp = hourStart + TimeUnit.MINUTES.toMillis(70 + 10 * i);
+        usageManager.saveSpecificTaskUsage(taskId, new SingularityTaskUsage(120, timestamp, 40 + 10 * i, 2000, 4 + i, 1, 2));
+      }
+
+      // The three oldest samples fall in the first hour and are rolled up into one
+      usageManager.cleanOldUsages(Collections.singletonList(taskId));
+      Assertions.assertEquals(2, usageManager.getTaskUsage(taskId).size());
+      Assertions.assertTrue(usageManager.getTaskUsage(otherTaskId).isEmpty());
+
+      List<SingularityTaskUsage> hourly = usageManager.getHourlyTaskUsage(taskId, 0, Long.MAX_VALUE);
+      Assertions.assertEquals(1, hourly.size());
+      Assertions.assertEquals(150, hourly.get(0).getMemoryTotalBytes());
+      Assertions.assertEquals(hourStart + TimeUnit.MINUTES.toMillis(20), hourly.get(0).getTimestamp());
+      Assertions.assertEquals(20, hourly.get(0).getCpuSeconds(), 0.000001);
+      Assertions.assertEquals(1.0, hourly.get(0).getCpusThrottledTimeSecs(), 0.000001);
+      Assertions.assertEquals(1, usageManager.getHourlyTaskUsage(otherTaskId, 0, Long.MAX_VALUE).size());
+
+      // Once the task is no longer active the rest of its samples are rolled up as well
+      usageManager.cleanOldUsages(Collections.emptyList());
+      Assertions.assertTrue(usageManager.getTaskUsage(taskId).isEmpty());
+      Assertions.assertEquals(2, usageManager.getHourlyTaskUsage(taskId, 0, Long.MAX_VALUE).size());
+
+      List<SingularityTaskUsage> secondHour = usageManager.getHourlyTaskUsage(taskId, hourStart + TimeUnit.HOURS.toMillis(1), Long.MAX_VALUE);
+      Assertions.assertEquals(1, secondHour.size());
+      Assertions.assertEquals(2000, secondHour.get(0).getDiskTotalBytes());
+      Assertions.assertEquals(50, secondHour.get(0).getCpuSeconds(), 0.000001);
+    } finally {
+      configuration.setKeepHourlyTaskUsageForDays(0);
+      configuration.setNumUsageToKeep(15);
+    }
+  }
 }
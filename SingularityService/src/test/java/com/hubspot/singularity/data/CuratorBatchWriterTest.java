@@ -0,0 +1,102 @@
+package com.hubspot.singularity.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.mesos.v1.Protos.TaskState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Inject;
+import com.hubspot.singularity.ExtendedTaskState;
+import com.hubspot.singularity.SingularityTask;
+import com.hubspot.singularity.SingularityTaskId;
+import com.hubspot.singularity.data.CuratorBatchWriter.BatchOperation;
+import com.hubspot.singularity.scheduler.SingularitySchedulerTestBase;
+
+public class CuratorBatchWriterTest extends SingularitySchedulerTestBase {
+
+  @Inject
+  private CuratorBatchWriter batchWriter;
+
+  @Inject
+  private MetricRegistry metricRegistry;
+
+  public CuratorBatchWriterTest() {
+    super(false, (configuration) -> {
+      configuration.getZooKeeperConfiguration().setBatchTaskWrites(true);
+      return null;
+    });
+  }
+
+  @Test
+  public void itLaunchesTasksWithBatchedWrites() {
+    initRequest();
+    initFirstDeploy();
+
+    saveAndSchedule(request.toBuilder().setInstances(Optional.of(3)));
+    resourceOffers();
+
+    Assertions.assertEquals(3, taskManager.getActiveTaskIds().size());
+    Assertions.assertTrue(taskManager.getPendingTaskIds().isEmpty());
+
+    for (SingularityTask task : taskManager.getActiveTasks()) {
+      Assertions.assertTrue(taskManager.getTaskHistoryUpdate(task.getTaskId(), ExtendedTaskState.TASK_LAUNCHED).isPresent());
+      statusUpdate(task, TaskState.TASK_RUNNING);
+      Assertions.assertTrue(taskManager.getTaskHistoryUpdate(task.getTaskId(), ExtendedTaskState.TASK_RUNNING).isPresent());
+    }
+  }
+
+  @Test
+  public void itWritesTheLaunchesOfOneOfferCycleTogether() {
+    initRequest();
+    initFirstDeploy();
+
+    // The first launch of a request creates the parent nodes the regular way
+    saveAndSchedule(request.toBuilder().setInstances(Optional.of(1)));
+    resourceOffers();
+    Assertions.assertEquals(1, taskManager.getActiveTaskIds().size());
+
+    try {
+      configuration.getZooKeeperConfiguration().setBatchWriteMaxDelayMillis(500);
+
+      saveAndSchedule(request.toBuilder().setInstances(Optional.of(5)));
+      long batchesBefore = metricRegistry.timer("zk.write_batch").getCount();
+      long operationsBefore = metricRegistry.meter("zk.items.write_batch").getCount();
+      resourceOffers();
+      long batches = metricRegistry.timer("zk.write_batch").getCount() - batchesBefore;
+      long operations = metricRegistry.meter("zk.items.write_batch").getCount() - operationsBefore;
+
+      // All four launches go out as a single multi-op instead of one per launch
+      Assertions.assertEquals(1, batches);
+      Assertions.assertTrue(operations >= 4);
+
+      Assertions.assertEquals(5, taskManager.getActiveTaskIds().size());
+      Assertions.assertTrue(taskManager.getPendingTaskIds().isEmpty());
+      for (SingularityTaskId taskId : taskManager.getActiveTaskIds()) {
+        Assertions.assertTrue(taskManager.getTaskHistoryUpdate(taskId, ExtendedTaskState.TASK_LAUNCHED).isPresent());
+      }
+    } finally {
+      configuration.getZooKeeperConfiguration().setBatchWriteMaxDelayMillis(5);
+    }
+  }
+
+  @Test
+  public void itIsolatesFailedGroupsWithinABatch() throws Exception {
+    batchWriter.write(Collections.singletonList(BatchOperation.create("/requests")));
+    batchWriter.write(Collections.singletonList(BatchOperation.create("/requests/existing")));
+
+    CompletableFuture<Void> first = batchWriter.submit(Arrays.asList(BatchOperation.create("/requests/first"), BatchOperation.create("/requests/first/child")));
+    CompletableFuture<Void> failed = batchWriter.submit(Collections.singletonList(BatchOperation.create("/requests/existing")));
+    CompletableFuture<Void> last = batchWriter.submit(Collections.singletonList(BatchOperation.set("/requests/first", "updated".getBytes())));
+
+    first.get();
+    last.get();
+    Assertions.assertTrue(failed.isCompletedExceptionally());
+    Assertions.assertEquals("updated", new String(cf.getData().forPath("/requests/first")));
+    Assertions.assertNotNull(cf.checkExists().forPath("/requests/first/child"));
+  }
+}
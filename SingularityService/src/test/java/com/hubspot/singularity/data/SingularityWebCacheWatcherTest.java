@@ -0,0 +1,83 @@
+package com.hubspot.singularity.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.mesos.v1.Protos.TaskState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.Inject;
+import com.hubspot.singularity.SingularityTask;
+import com.hubspot.singularity.scheduler.SingularitySchedulerTestBase;
+import com.jayway.awaitility.Awaitility;
+
+public class SingularityWebCacheWatcherTest extends SingularitySchedulerTestBase {
+
+  @Inject
+  private SingularityWebCache webCache;
+
+  @Inject
+  private SingularityWebCacheWatcher webCacheWatcher;
+
+  @Inject
+  private LeaderLatch leaderLatch;
+
+  public SingularityWebCacheWatcherTest() {
+    super(false, (configuration) -> {
+      configuration.setWatchZkForWebCache(true);
+      configuration.setCacheForWebForMillis(0);
+      return null;
+    });
+  }
+
+  @AfterEach
+  public void resumeLeading() {
+    webCacheWatcher.isLeader();
+  }
+
+  @Test
+  public void itKeepsWebCacheUpToDateFromWatches() {
+    // This instance leads, and the leader doesn't watch. Act as a follower instead
+    Awaitility.await("leadership").atMost(5, TimeUnit.SECONDS).until(leaderLatch::hasLeadership);
+    Assertions.assertFalse(webCache.useCachedRequests());
+    webCacheWatcher.notLeader();
+
+    Awaitility.await("watches initialized").atMost(5, TimeUnit.SECONDS).until(() -> webCache.useCachedRequests() && webCache.useCachedActiveTasks() && webCache.useCachedPendingTasks());
+
+    initRequest();
+    initFirstDeploy();
+    Awaitility.await("request watched").atMost(5, TimeUnit.SECONDS).until(() -> webCache.getRequest(requestId).isPresent());
+
+    SingularityTask task = launchTask(request, firstDeploy, 1, TaskState.TASK_RUNNING);
+    Awaitility.await("task watched").atMost(5, TimeUnit.SECONDS).until(() -> webCache.getActiveTaskIds().contains(task.getTaskId()));
+    Assertions.assertEquals(task, webCache.getActiveTasks().get(0));
+
+    taskManager.deleteLastActiveTaskStatus(task.getTaskId());
+    Awaitility.await("task removed").atMost(5, TimeUnit.SECONDS).until(() -> webCache.getActiveTaskIds().isEmpty());
+
+    webCacheWatcher.isLeader();
+    Assertions.assertFalse(webCache.useCachedRequests() || webCache.useCachedActiveTasks() || webCache.useCachedPendingTasks());
+  }
+
+  @Test
+  public void itForgetsItemsRemovedWhileLeading() {
+    Awaitility.await("leadership").atMost(5, TimeUnit.SECONDS).until(leaderLatch::hasLeadership);
+    webCacheWatcher.notLeader();
+
+    initRequest();
+    initFirstDeploy();
+    SingularityTask task = launchTask(request, firstDeploy, 1, TaskState.TASK_RUNNING);
+    Awaitility.await("task watched").atMost(5, TimeUnit.SECONDS).until(() -> webCache.useCachedActiveTasks() && webCache.getActiveTaskIds().contains(task.getTaskId()));
+
+    // Nothing is watched while leading, so a follower would never see this removal
+    webCacheWatcher.isLeader();
+    taskManager.deleteLastActiveTaskStatus(task.getTaskId());
+
+    webCacheWatcher.notLeader();
+    Awaitility.await("watches initialized").atMost(5, TimeUnit.SECONDS).until(webCache::useCachedActiveTasks);
+    Assertions.assertFalse(webCache.getActiveTaskIds().contains(task.getTaskId()));
+    Assertions.assertTrue(webCache.getRequest(requestId).isPresent());
+  }
+}
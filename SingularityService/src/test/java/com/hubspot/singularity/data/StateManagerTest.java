@@ -61,6 +61,34 @@ public class StateManagerTest extends SingularitySchedulerTestBase{
     Assertions.assertEquals(1, stateManager.getState(true, false).getOverProvisionedRequests());
   }
 
+  @Test
+  public void itKeepsLeaderCacheCountsInLineWithAFullRecount() {
+    initRequest();
+    initFirstDeploy();
+
+    SingularityRequest request = requestResource.getRequest(requestId, singularityUser).getRequest();
+    saveAndSchedule(request.toBuilder().setInstances(Optional.of(3)));
+    resourceOffers();
+
+    SingularityTask task = taskManager.getActiveTasks().get(0);
+    statusUpdate(task, TaskState.TASK_KILLED);
+    scheduler.drainPendingQueue();
+    taskManager.createTaskCleanup(new SingularityTaskCleanup(Optional.empty(), TaskCleanupType.BOUNCING, 1L, task.getTaskId(), Optional.empty(), Optional.empty(), Optional.empty()));
+    launchTask(request, firstDeploy, 4, TaskState.TASK_STARTING);
+
+    SingularityState state = stateManager.generateState(true);
+    SingularityState fullState = stateManager.generateFullState(true);
+
+    Assertions.assertEquals(fullState.getActiveTasks(), state.getActiveTasks());
+    Assertions.assertEquals(fullState.getLaunchingTasks(), state.getLaunchingTasks());
+    Assertions.assertEquals(fullState.getActiveRequests(), state.getActiveRequests());
+    Assertions.assertEquals(fullState.getActiveSlaves(), state.getActiveSlaves());
+    Assertions.assertEquals(fullState.getActiveRacks(), state.getActiveRacks());
+    Assertions.assertEquals(fullState.getOverProvisionedRequestIds(), state.getOverProvisionedRequestIds());
+    Assertions.assertEquals(fullState.getUnderProvisionedRequestIds(), state.getUnderProvisionedRequestIds());
+    Assertions.assertEquals(fullState.getLateTasks(), state.getLateTasks());
+  }
+
   @Test
   public void itDoesntFlagPendingRequestsForUnderOrOverProvisioning() {
     initRequest();
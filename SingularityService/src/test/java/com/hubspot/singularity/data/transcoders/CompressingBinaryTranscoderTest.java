@@ -0,0 +1,126 @@
+package com.hubspot.singularity.data.transcoders;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.hubspot.mesos.JavaUtils;
+import com.hubspot.singularity.SingularityDeploy;
+import com.hubspot.singularity.config.SingularityConfiguration;
+
+public class CompressingBinaryTranscoderTest {
+  private static final ObjectMapper OBJECT_MAPPER = JavaUtils.newObjectMapper();
+  private static final ObjectMapper BINARY_OBJECT_MAPPER = JavaUtils.newObjectMapper(new CBORFactory());
+
+  @Test
+  public void itRoundTripsInEachFormat() {
+    SingularityDeploy deploy = deploy();
+
+    for (boolean compress : Arrays.asList(true, false)) {
+      CompressingBinaryTranscoder<SingularityDeploy> transcoder = transcoder(true, compress);
+      byte[] data = transcoder.toBytes(deploy);
+
+      Assertions.assertTrue(CompressingBinaryTranscoder.isBinaryFormat(data));
+      Assertions.assertEquals(compress ? CompressingBinaryTranscoder.FORMAT_CBOR_SNAPPY : CompressingBinaryTranscoder.FORMAT_CBOR, data[1]);
+      Assertions.assertEquals(deploy, transcoder.fromBytes(data));
+    }
+  }
+
+  @Test
+  public void itReadsExistingJsonData() {
+    SingularityDeploy deploy = deploy();
+
+    for (boolean compress : Arrays.asList(true, false)) {
+      CompressingBinaryTranscoder<SingularityDeploy> binaryTranscoder = transcoder(true, compress);
+      byte[] json = new CompressingJsonTranscoder<>(configuration(false, compress), OBJECT_MAPPER, SingularityDeploy.class).toBytes(deploy);
+
+      Assertions.assertFalse(CompressingBinaryTranscoder.isBinaryFormat(json));
+      Assertions.assertEquals(deploy, binaryTranscoder.fromBytes(json));
+    }
+  }
+
+  @Test
+  public void itStillReadsBinaryDataWhenDisabled() {
+    SingularityDeploy deploy = deploy();
+    byte[] binary = transcoder(true, true).toBytes(deploy);
+
+    CompressingBinaryTranscoder<SingularityDeploy> disabled = transcoder(false, true);
+    Assertions.assertFalse(CompressingBinaryTranscoder.isBinaryFormat(disabled.toBytes(deploy)));
+    Assertions.assertEquals(deploy, disabled.fromBytes(binary));
+  }
+
+  @Test
+  public void itRejectsUnknownFormats() {
+    Assertions.assertThrows(SingularityTranscoderException.class, () -> transcoder(true, true).fromBytes(new byte[] {CompressingBinaryTranscoder.HEADER_MARKER, 9, 1, 2}));
+  }
+
+  @Test
+  public void itIsSmallerThanJson() {
+    SingularityDeploy deploy = deploy();
+
+    Assertions.assertTrue(transcoder(true, false).toBytes(deploy).length < new JsonTranscoder<>(OBJECT_MAPPER, SingularityDeploy.class).toBytes(deploy).length);
+  }
+
+  //@Test
+  public void testTranscoderPerformance() {
+    SingularityDeploy deploy = deploy();
+    int iterations = 200000;
+
+    runTranscoderPerformanceTest("json", new JsonTranscoder<>(OBJECT_MAPPER, SingularityDeploy.class), deploy, iterations);
+    runTranscoderPerformanceTest("json+snappy", new CompressingJsonTranscoder<>(configuration(false, true), OBJECT_MAPPER, SingularityDeploy.class), deploy, iterations);
+    runTranscoderPerformanceTest("cbor", transcoder(true, false), deploy, iterations);
+    runTranscoderPerformanceTest("cbor+snappy", transcoder(true, true), deploy, iterations);
+  }
+
+  private void runTranscoderPerformanceTest(String name, Transcoder<SingularityDeploy> transcoder, SingularityDeploy deploy, int iterations) {
+    // warm up
+    for (int i = 0; i < iterations / 10; i++) {
+      transcoder.fromBytes(transcoder.toBytes(deploy));
+    }
+
+    byte[] data = null;
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      data = transcoder.toBytes(deploy);
+    }
+    long encodeNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      transcoder.fromBytes(data);
+    }
+    long decodeNanos = System.nanoTime() - start;
+
+    System.out.println(String.format("%s: %s bytes, encode %s ns/op, decode %s ns/op", name, data.length, encodeNanos / iterations, decodeNanos / iterations));
+  }
+
+  private static CompressingBinaryTranscoder<SingularityDeploy> transcoder(boolean binary, boolean compress) {
+    return new CompressingBinaryTranscoder<>(configuration(binary, compress), OBJECT_MAPPER, BINARY_OBJECT_MAPPER, SingularityDeploy.class);
+  }
+
+  private static SingularityConfiguration configuration(boolean binary, boolean compress) {
+    SingularityConfiguration configuration = new SingularityConfiguration();
+    configuration.setBinaryZkDataFormat(binary);
+    configuration.setCompressLargeDataObjects(compress);
+    return configuration;
+  }
+
+  private static SingularityDeploy deploy() {
+    Map<String, String> env = new HashMap<>();
+    for (int i = 0; i < 20; i++) {
+      env.put("ENV_VARIABLE_" + i, "some-value-for-the-environment-variable-" + i);
+    }
+
+    return SingularityDeploy.newBuilder("test-request", "deploy1")
+        .setCommand(Optional.of("java -jar service.jar server config.yaml"))
+        .setArguments(Optional.of(Arrays.asList("--port", "8080")))
+        .setEnv(Optional.of(env))
+        .build();
+  }
+}
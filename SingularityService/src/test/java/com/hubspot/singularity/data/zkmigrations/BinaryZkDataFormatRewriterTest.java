@@ -0,0 +1,78 @@
+package com.hubspot.singularity.data.zkmigrations;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.utils.ZKPaths;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.hubspot.singularity.Singularity;
+import com.hubspot.singularity.SingularityDeploy;
+import com.hubspot.singularity.SingularityDeployKey;
+import com.hubspot.singularity.SingularityTask;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.MetadataManager;
+import com.hubspot.singularity.data.transcoders.CompressingBinaryTranscoder;
+import com.hubspot.singularity.data.transcoders.Transcoder;
+import com.hubspot.singularity.scheduler.SingularitySchedulerTestBase;
+
+public class BinaryZkDataFormatRewriterTest extends SingularitySchedulerTestBase {
+
+  @Inject
+  private BinaryZkDataFormatRewriter rewriter;
+  @Inject
+  private MetadataManager metadataManager;
+  @Inject
+  private CuratorFramework curator;
+  @Inject
+  @Singularity
+  private ObjectMapper objectMapper;
+  @Inject
+  private Transcoder<SingularityTask> taskTranscoder;
+  @Inject
+  private Transcoder<SingularityDeploy> deployTranscoder;
+
+  public BinaryZkDataFormatRewriterTest() {
+    super(false, (configuration) -> {
+      configuration.setBinaryZkDataFormat(true);
+      // so the json below is written the way it would have been
+      configuration.setCompressLargeDataObjects(false);
+      return null;
+    });
+  }
+
+  @Test
+  public void itRewritesJsonOnceEnabledAndAgainAfterBeingDisabled() throws Exception {
+    initRequest();
+    initFirstDeploy();
+    String deployPath = ZKPaths.makePath("/deploys/requests", requestId, "ids", new SingularityDeployKey(requestId, firstDeployId).getId(), "DEPLOY");
+    BinaryZkDataFormatRewriter disabledRewriter = new BinaryZkDataFormatRewriter(curator, metadataManager, new SingularityConfiguration(), taskTranscoder, deployTranscoder);
+
+    // written before the flag was turned on
+    curator.setData().forPath(deployPath, objectMapper.writeValueAsBytes(firstDeploy));
+    disabledRewriter.checkDataFormat();
+    Assertions.assertFalse(isBinary(deployPath));
+    Assertions.assertFalse(metadataManager.isBinaryZkDataFormatRewritten());
+
+    rewriter.checkDataFormat();
+    Assertions.assertTrue(isBinary(deployPath));
+    Assertions.assertTrue(metadataManager.isBinaryZkDataFormatRewritten());
+    Assertions.assertEquals(firstDeploy, deployTranscoder.fromBytes(curator.getData().forPath(deployPath)));
+
+    // later leaders don't scan everything again
+    curator.setData().forPath(deployPath, objectMapper.writeValueAsBytes(firstDeploy));
+    rewriter.checkDataFormat();
+    Assertions.assertFalse(isBinary(deployPath));
+
+    // but do once the flag was off in between
+    disabledRewriter.checkDataFormat();
+    Assertions.assertFalse(metadataManager.isBinaryZkDataFormatRewritten());
+    rewriter.checkDataFormat();
+    Assertions.assertTrue(isBinary(deployPath));
+  }
+
+  private boolean isBinary(String path) throws Exception {
+    return CompressingBinaryTranscoder.isBinaryFormat(curator.getData().forPath(path));
+  }
+}
@@ -27,4 +27,18 @@ public class RFC5545ScheduleTest {
     String schedule = "FREQ=YEARLY;INTERVAL=4;BYMONTH=11;BYDAY=TU;BYMONTHDAY=2,3,4,5,6,7,8;COUNT=1";
     Assertions.assertEquals(new RFC5545Schedule(schedule).getNextValidTime(), null);
   }
+
+  @Test
+  public void testResumesFromLastOccurrence() throws Exception {
+    String schedule = "DTSTART=20150101T000000\nRRULE:FREQ=MINUTELY;INTERVAL=7";
+    RFC5545Schedule reused = new RFC5545Schedule(schedule);
+
+    long now = System.currentTimeMillis();
+    for (long offset : new long[] {0, 1, TimeUnit.MINUTES.toMillis(3), TimeUnit.MINUTES.toMillis(7), TimeUnit.HOURS.toMillis(5)}) {
+      Assertions.assertEquals(new RFC5545Schedule(schedule).getNextValidTime(now + offset), reused.getNextValidTime(now + offset));
+    }
+
+    // Going back in time starts over from DTSTART
+    Assertions.assertEquals(new RFC5545Schedule(schedule).getNextValidTime(now), reused.getNextValidTime(now));
+  }
 }
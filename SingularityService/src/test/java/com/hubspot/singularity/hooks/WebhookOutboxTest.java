@@ -0,0 +1,139 @@
+package com.hubspot.singularity.hooks;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubspot.singularity.WebhookType;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.hooks.WebhookOutbox.OutboxBatch;
+
+public class WebhookOutboxTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @TempDir
+  Path directory;
+
+  private WebhookOutbox newOutbox(long segmentSizeBytes) {
+    SingularityConfiguration configuration = new SingularityConfiguration();
+    configuration.getWebhookQueueConfiguration().setOutboxDirectory(directory.toString());
+    configuration.getWebhookQueueConfiguration().setOutboxSegmentSizeBytes(segmentSizeBytes);
+    return new WebhookOutbox(configuration, objectMapper, new MetricRegistry());
+  }
+
+  @Test
+  public void testKeepsEachTypeInItsOwnLog() throws Exception {
+    WebhookOutbox outbox = newOutbox(1024 * 1024);
+    outbox.register(WebhookType.TASK, "task-hook");
+    outbox.register(WebhookType.REQUEST, "request-hook");
+
+    outbox.append(WebhookType.TASK, "task-1");
+    outbox.append(WebhookType.REQUEST, "request-1");
+    outbox.append(WebhookType.TASK, "task-2");
+    outbox.append(WebhookType.TASK, "task-3");
+
+    // Updates of other types don't count against a webhook
+    Assertions.assertEquals(3, outbox.getPending("task-hook", WebhookType.TASK));
+    Assertions.assertEquals(1, outbox.getPending("request-hook", WebhookType.REQUEST));
+
+    OutboxBatch batch = outbox.read("task-hook", WebhookType.TASK, 2);
+    Assertions.assertEquals(2, batch.getRecords().size());
+    Assertions.assertEquals("task-2", objectMapper.readValue(batch.getRecords().get(1).getPayload(), String.class));
+    Assertions.assertEquals(2, batch.getEndOffset());
+
+    // Nothing moves until the batch is committed
+    Assertions.assertEquals(0, outbox.read("task-hook", WebhookType.TASK, 2).getStartOffset());
+
+    outbox.commit("task-hook", batch);
+    Assertions.assertEquals(1, outbox.getPending("task-hook", WebhookType.TASK));
+    OutboxBatch next = outbox.read("task-hook", WebhookType.TASK, 2);
+    Assertions.assertEquals(1, next.getRecords().size());
+    Assertions.assertEquals("task-3", objectMapper.readValue(next.getRecords().get(0).getPayload(), String.class));
+
+    outbox.commit("task-hook", next);
+    Assertions.assertEquals(0, outbox.getPending("task-hook", WebhookType.TASK));
+    Assertions.assertEquals(1, outbox.getPending("request-hook", WebhookType.REQUEST));
+  }
+
+  @Test
+  public void testRotatesPrunesAndRecoversOffsets() throws Exception {
+    WebhookOutbox outbox = newOutbox(64);
+    outbox.register(WebhookType.REQUEST, "request-hook");
+
+    for (int i = 0; i < 10; i++) {
+      outbox.append(WebhookType.REQUEST, "request-update-" + i);
+    }
+    Assertions.assertTrue(countSegments() > 1);
+
+    OutboxBatch batch = outbox.read("request-hook", WebhookType.REQUEST, 8);
+    Assertions.assertEquals(8, batch.getRecords().size());
+    outbox.commit("request-hook", batch);
+    outbox.prune(Collections.singleton("request-hook"));
+
+    // Reopening the outbox picks up the persisted offset and the remaining segments
+    WebhookOutbox reopened = newOutbox(64);
+    Assertions.assertEquals(2, reopened.getPending("request-hook", WebhookType.REQUEST));
+    OutboxBatch remaining = reopened.read("request-hook", WebhookType.REQUEST, 8);
+    Assertions.assertEquals(2, remaining.getRecords().size());
+    Assertions.assertEquals("request-update-8", objectMapper.readValue(remaining.getRecords().get(0).getPayload(), String.class));
+
+    reopened.commit("request-hook", remaining);
+    reopened.prune(Collections.singleton("request-hook"));
+    Assertions.assertEquals(1, countSegments());
+  }
+
+  @Test
+  public void testClampsOffsetsPastARecoveredTornTail() throws Exception {
+    WebhookOutbox outbox = newOutbox(1024 * 1024);
+    outbox.register(WebhookType.DEPLOY, "deploy-hook");
+    outbox.append(WebhookType.DEPLOY, "deploy-1");
+    outbox.append(WebhookType.DEPLOY, "deploy-2");
+    OutboxBatch batch = outbox.read("deploy-hook", WebhookType.DEPLOY, 2);
+    outbox.commit("deploy-hook", batch);
+
+    // Lose the second record's payload, as if the tail never reached the disk
+    Path segment;
+    try (Stream<Path> files = Files.list(directory.resolve("deploy"))) {
+      segment = files.filter((p) -> p.getFileName().toString().endsWith(".log")).findFirst().get();
+    }
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 2);
+    }
+
+    WebhookOutbox reopened = newOutbox(1024 * 1024);
+    Assertions.assertEquals(0, reopened.getPending("deploy-hook", WebhookType.DEPLOY));
+    reopened.append(WebhookType.DEPLOY, "deploy-3");
+
+    OutboxBatch next = reopened.read("deploy-hook", WebhookType.DEPLOY, 2);
+    Assertions.assertEquals(1, next.getRecords().size());
+    Assertions.assertEquals("deploy-3", objectMapper.readValue(next.getRecords().get(0).getPayload(), String.class));
+  }
+
+  @Test
+  public void testKeepsItsIdAndQueuedUpdatesAcrossRestarts() throws Exception {
+    WebhookOutbox outbox = newOutbox(1024 * 1024);
+    outbox.register(WebhookType.TASK, "task-hook");
+    outbox.append(WebhookType.TASK, "task-1");
+    outbox.append(WebhookType.TASK, "task-2");
+
+    WebhookOutbox reopened = newOutbox(1024 * 1024);
+    Assertions.assertEquals(outbox.getOutboxId(), reopened.getOutboxId());
+    Assertions.assertEquals(2, reopened.getPending("task-hook", WebhookType.TASK));
+  }
+
+  private long countSegments() throws Exception {
+    try (Stream<Path> files = Files.list(directory.resolve("request"))) {
+      return files.filter((p) -> p.getFileName().toString().endsWith(".log")).collect(Collectors.counting());
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package com.hubspot.singularity.managed;
+
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.Participant;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.hubspot.singularity.SingularityLeaderController;
+import com.hubspot.singularity.SingularityManagedCachedThreadPoolFactory;
+import com.hubspot.singularity.SingularityManagedScheduledExecutorServiceFactory;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.data.ExecutorIdGenerator;
+import com.hubspot.singularity.data.SingularityWebCacheWatcher;
+import com.hubspot.singularity.hooks.WebhookQueueType;
+import com.hubspot.singularity.mesos.SingularityMesosExecutorInfoSupport;
+import com.hubspot.singularity.metrics.SingularityGraphiteReporter;
+import com.ning.http.client.AsyncHttpClient;
+
+public class SingularityLifecycleManagedStartupTest {
+  private LeaderLatch leaderLatch;
+  private SingularityConfiguration configuration;
+  private SingularityLifecycleManaged lifecycle;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    CuratorFramework curatorFramework = mock(CuratorFramework.class, RETURNS_DEEP_STUBS);
+    when(curatorFramework.getZookeeperClient().blockUntilConnectedOrTimedOut()).thenReturn(true);
+
+    leaderLatch = mock(LeaderLatch.class);
+    configuration = new SingularityConfiguration();
+    lifecycle = new SingularityLifecycleManaged(mock(SingularityManagedCachedThreadPoolFactory.class), mock(SingularityManagedScheduledExecutorServiceFactory.class),
+        mock(AsyncHttpClient.class), curatorFramework, mock(SingularityLeaderController.class), leaderLatch, mock(SingularityMesosExecutorInfoSupport.class),
+        mock(SingularityGraphiteReporter.class), mock(ExecutorIdGenerator.class), mock(SingularityWebCacheWatcher.class), Collections.emptySet(), configuration);
+  }
+
+  @Test
+  public void itRefusesToStartAnOutboxNextToAnotherInstance() throws Exception {
+    configuration.getWebhookQueueConfiguration().setQueueType(WebhookQueueType.OUTBOX);
+    when(leaderLatch.getParticipants()).thenReturn(Collections.singletonList(new Participant("other:7099", true)));
+
+    IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, lifecycle::start);
+    Assertions.assertTrue(e.getMessage().contains("other:7099"));
+    verify(leaderLatch, never()).start();
+  }
+
+  @Test
+  public void itStartsTheOnlyOutboxInstance() throws Exception {
+    configuration.getWebhookQueueConfiguration().setQueueType(WebhookQueueType.OUTBOX);
+    when(leaderLatch.getParticipants()).thenReturn(Collections.emptyList());
+
+    lifecycle.start();
+    verify(leaderLatch).start();
+  }
+
+  @Test
+  public void itStartsNextToOtherInstancesWithAZookeeperQueue() throws Exception {
+    when(leaderLatch.getParticipants()).thenReturn(Collections.singletonList(new Participant("other:7099", true)));
+
+    lifecycle.start();
+    verify(leaderLatch).start();
+  }
+}
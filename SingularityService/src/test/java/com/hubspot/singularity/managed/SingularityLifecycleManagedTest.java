@@ -9,7 +9,9 @@ import com.google.inject.Inject;
 import com.hubspot.singularity.SingularityLeaderController;
 import com.hubspot.singularity.SingularityManagedCachedThreadPoolFactory;
 import com.hubspot.singularity.SingularityManagedScheduledExecutorServiceFactory;
+import com.hubspot.singularity.config.SingularityConfiguration;
 import com.hubspot.singularity.data.ExecutorIdGenerator;
+import com.hubspot.singularity.data.SingularityWebCacheWatcher;
 import com.hubspot.singularity.mesos.SingularityMesosExecutorInfoSupport;
 import com.hubspot.singularity.metrics.SingularityGraphiteReporter;
 import com.hubspot.singularity.scheduler.SingularityLeaderOnlyPoller;
@@ -27,8 +29,10 @@ public class SingularityLifecycleManagedTest extends SingularityLifecycleManaged
                                      SingularityMesosExecutorInfoSupport executorInfoSupport,
                                      SingularityGraphiteReporter graphiteReporter,
                                      ExecutorIdGenerator executorIdGenerator,
-                                     Set<SingularityLeaderOnlyPoller> leaderOnlyPollers) {
-    super(cachedThreadPoolFactory, scheduledExecutorServiceFactory, asyncHttpClient, curatorFramework, leaderController, leaderLatch, executorInfoSupport, graphiteReporter, executorIdGenerator, leaderOnlyPollers);
+                                     SingularityWebCacheWatcher webCacheWatcher,
+                                     Set<SingularityLeaderOnlyPoller> leaderOnlyPollers,
+                                     SingularityConfiguration configuration) {
+    super(cachedThreadPoolFactory, scheduledExecutorServiceFactory, asyncHttpClient, curatorFramework, leaderController, leaderLatch, executorInfoSupport, graphiteReporter, executorIdGenerator, webCacheWatcher, leaderOnlyPollers, configuration);
   }
 
   @Override
@@ -14,6 +14,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.hubspot.mesos.json.MesosTaskMonitorObject;
 import com.hubspot.singularity.MachineLoadMetric;
+import com.hubspot.singularity.OfferScoringStrategy;
 import com.hubspot.singularity.RequestType;
 import com.hubspot.singularity.SingularityDeploy;
 import com.hubspot.singularity.SingularityDeployStatistics;
@@ -231,6 +232,42 @@ public class SingularityMesosOfferSchedulerTest extends SingularitySchedulerTest
     }
   }
 
+  @Test
+  public void itRescoresSlavesWhenUsingIndexedOfferScoring() {
+    configuration.getMesosConfiguration().setOfferScoringStrategy(OfferScoringStrategy.INDEXED);
+    try {
+      initRequest();
+      initFirstDeployWithResources(2, 1000);
+      saveAndSchedule(requestManager.getRequest(requestId).get().getRequest().toBuilder().setInstances(Optional.of(3)));
+
+      SingularitySlaveUsage smallUsage = new SingularitySlaveUsage(0.1, 0.1, Optional.of(10.0), 1, 1, Optional.of(30L), 1, 1, Optional.of(1024L), 1, System.currentTimeMillis(), 1, 30000, 10, 0, 0, 0, 0, 107374182);
+      usageManager.saveCurrentSlaveUsage(new SingularitySlaveUsageWithId(smallUsage, "host1"));
+      usageManager.saveCurrentSlaveUsage(new SingularitySlaveUsageWithId(smallUsage, "host2"));
+      usageManager.saveCurrentSlaveUsage(new SingularitySlaveUsageWithId(smallUsage, "host3"));
+
+      Offer host1Offer = createOffer(6, 30000, 107374182, "host1", "host1");
+      slaveAndRackManager.checkOffer(host1Offer);
+      Offer host2Offer = createOffer(6, 30000, 107374182, "host2", "host2");
+      slaveAndRackManager.checkOffer(host2Offer);
+      Offer host3Offer = createOffer(6, 30000, 107374182, "host3", "host3");
+      slaveAndRackManager.checkOffer(host3Offer);
+
+      singularityScheduler.drainPendingQueue();
+      Collection<SingularityOfferHolder> offerHolders = offerScheduler.checkOffers(ImmutableMap.of(
+          host1Offer.getId().getValue(), host1Offer,
+          host2Offer.getId().getValue(), host2Offer,
+          host3Offer.getId().getValue(), host3Offer));
+      Assertions.assertEquals(3, offerHolders.size());
+
+      // Each accepted task lowers the score of only that slave, so the next task should land on a different one
+      for (SingularityOfferHolder offerHolder : offerHolders) {
+        Assertions.assertEquals(1, offerHolder.getAcceptedTasks().size());
+      }
+    } finally {
+      configuration.getMesosConfiguration().setOfferScoringStrategy(OfferScoringStrategy.CONCURRENT);
+    }
+  }
+
   private void assertValueIs(double expectedValue, double actualValue) {
     actualValue = Math.round(actualValue * 1000.0) / 1000.0;
     Assertions.assertEquals(actualValue, expectedValue, String.format("Expected %f but found %f", expectedValue, actualValue));
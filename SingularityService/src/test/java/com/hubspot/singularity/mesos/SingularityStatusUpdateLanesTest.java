@@ -0,0 +1,124 @@
+package com.hubspot.singularity.mesos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.mesos.v1.Protos.TaskID;
+import org.apache.mesos.v1.Protos.TaskState;
+import org.apache.mesos.v1.Protos.TaskStatus;
+import org.apache.mesos.v1.Protos.TaskStatus.Reason;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class SingularityStatusUpdateLanesTest {
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void itKeepsUpdatesForATaskInOrderAndSkipsSupersededOnes() throws Exception {
+    CountDownLatch blockFirst = new CountDownLatch(1);
+    List<String> processed = Collections.synchronizedList(new ArrayList<>());
+
+    SingularityStatusUpdateLanes lanes = new SingularityStatusUpdateLanes(1, 100, executor, new MetricRegistry(), (status) -> {
+      try {
+        blockFirst.await();
+      } catch (InterruptedException ie) {
+        throw new RuntimeException(ie);
+      }
+      processed.add(String.format("%s-%s", status.getTaskId().getValue(), status.getState()));
+      return StatusUpdateResult.DONE;
+    });
+
+    CompletableFuture<StatusUpdateResult> starting = lanes.submit(status("task1", TaskState.TASK_STARTING));
+    CompletableFuture<StatusUpdateResult> running = lanes.submit(status("task1", TaskState.TASK_RUNNING));
+    CompletableFuture<StatusUpdateResult> duplicateRunning = lanes.submit(status("task1", TaskState.TASK_RUNNING));
+    CompletableFuture<StatusUpdateResult> otherTask = lanes.submit(status("task2", TaskState.TASK_RUNNING));
+    CompletableFuture<StatusUpdateResult> finished = lanes.submit(status("task1", TaskState.TASK_FINISHED));
+    CompletableFuture<StatusUpdateResult> afterFinished = lanes.submit(status("task1", TaskState.TASK_RUNNING));
+
+    blockFirst.countDown();
+    CompletableFuture.allOf(starting, running, duplicateRunning, otherTask, finished, afterFinished).join();
+
+    Assertions.assertEquals(StatusUpdateResult.IGNORED, running.join());
+    Assertions.assertEquals(StatusUpdateResult.DONE, duplicateRunning.join());
+    Assertions.assertEquals(StatusUpdateResult.IGNORED, afterFinished.join());
+    Assertions.assertEquals(StatusUpdateResult.DONE, finished.join());
+    Assertions.assertEquals(
+        Arrays.asList("task1-TASK_STARTING", "task1-TASK_RUNNING", "task2-TASK_RUNNING", "task1-TASK_FINISHED"),
+        processed
+    );
+  }
+
+  @Test
+  public void itNeverSkipsUpdatesAfterLostOrFromAReregisteredAgent() throws Exception {
+    CountDownLatch blockFirst = new CountDownLatch(1);
+    List<String> processed = Collections.synchronizedList(new ArrayList<>());
+
+    SingularityStatusUpdateLanes lanes = new SingularityStatusUpdateLanes(1, 100, executor, new MetricRegistry(), (status) -> {
+      try {
+        blockFirst.await();
+      } catch (InterruptedException ie) {
+        throw new RuntimeException(ie);
+      }
+      processed.add(String.format("%s-%s", status.getTaskId().getValue(), status.getState()));
+      return StatusUpdateResult.DONE;
+    });
+
+    CompletableFuture<StatusUpdateResult> running = lanes.submit(status("task1", TaskState.TASK_RUNNING));
+    CompletableFuture<StatusUpdateResult> lost = lanes.submit(status("task1", TaskState.TASK_LOST));
+    CompletableFuture<StatusUpdateResult> recovered = lanes.submit(status("task1", TaskState.TASK_RUNNING).toBuilder().setReason(Reason.REASON_AGENT_REREGISTERED).build());
+    CompletableFuture<StatusUpdateResult> killed = lanes.submit(status("task2", TaskState.TASK_KILLED));
+    CompletableFuture<StatusUpdateResult> reregisteredAfterKilled = lanes.submit(status("task2", TaskState.TASK_RUNNING).toBuilder().setReason(Reason.REASON_AGENT_REREGISTERED).build());
+
+    blockFirst.countDown();
+    CompletableFuture.allOf(running, lost, recovered, killed, reregisteredAfterKilled).join();
+
+    Assertions.assertEquals(StatusUpdateResult.DONE, recovered.join());
+    Assertions.assertEquals(StatusUpdateResult.DONE, reregisteredAfterKilled.join());
+    Assertions.assertEquals(
+        Arrays.asList("task1-TASK_RUNNING", "task1-TASK_LOST", "task1-TASK_RUNNING", "task2-TASK_KILLED", "task2-TASK_RUNNING"),
+        processed
+    );
+  }
+
+  @Test
+  public void itRejectsUpdatesOverTheQueueLimit() {
+    CountDownLatch block = new CountDownLatch(1);
+    SingularityStatusUpdateLanes lanes = new SingularityStatusUpdateLanes(1, 1, executor, new MetricRegistry(), (status) -> {
+      try {
+        block.await();
+      } catch (InterruptedException ie) {
+        throw new RuntimeException(ie);
+      }
+      return StatusUpdateResult.DONE;
+    });
+
+    CompletableFuture<StatusUpdateResult> first = lanes.submit(status("task1", TaskState.TASK_RUNNING));
+    CompletableFuture<StatusUpdateResult> second = lanes.submit(status("task2", TaskState.TASK_RUNNING));
+    CompletableFuture<StatusUpdateResult> third = lanes.submit(status("task3", TaskState.TASK_RUNNING));
+
+    block.countDown();
+    first.join();
+    Assertions.assertTrue(second.isCompletedExceptionally() || third.isCompletedExceptionally());
+  }
+
+  private static TaskStatus status(String taskId, TaskState state) {
+    return TaskStatus.newBuilder()
+        .setTaskId(TaskID.newBuilder().setValue(taskId))
+        .setState(state)
+        .build();
+  }
+}
@@ -0,0 +1,170 @@
+package com.hubspot.singularity.resources;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.curator.framework.recipes.leader.LeaderLatch;
+import org.apache.curator.framework.recipes.leader.Participant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+import com.hubspot.singularity.SingularityRequestParent;
+import com.hubspot.singularity.config.SingularityConfiguration;
+import com.hubspot.singularity.jersey.LeaderProxyResponseFilter;
+import com.ning.http.client.AsyncHttpClient;
+import com.squarespace.jersey2.guice.JerseyGuiceUtils;
+import com.sun.net.httpserver.HttpServer;
+
+public class AbstractLeaderAwareResourceTest {
+  private static final byte[] LEADER_BODY = "{\"from\":\"leader\"}".getBytes(StandardCharsets.UTF_8);
+
+  private final AtomicReference<String> receivedBody = new AtomicReference<>();
+  private final AtomicReference<String> receivedHeader = new AtomicReference<>();
+
+  private HttpServer leader;
+  private AsyncHttpClient leaderProxyHttpClient;
+  private LeaderLatch leaderLatch;
+  private AbstractLeaderAwareResource resource;
+  private int leaderStatus;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    // Lets jersey build responses outside of a running server
+    JerseyGuiceUtils.reset();
+
+    leaderStatus = 201;
+    leader = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    leader.createContext("/", (exchange) -> {
+      receivedBody.set(new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8));
+      receivedHeader.set(exchange.getRequestHeaders().getFirst("X-Caller"));
+      exchange.getResponseHeaders().add("X-Leader", "yes");
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(leaderStatus, LEADER_BODY.length);
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        outputStream.write(LEADER_BODY);
+      }
+    });
+    leader.start();
+
+    leaderLatch = mock(LeaderLatch.class);
+    when(leaderLatch.hasLeadership()).thenReturn(false);
+    when(leaderLatch.getId()).thenReturn("localhost:1");
+    when(leaderLatch.getLeader()).thenReturn(new Participant("localhost:" + leader.getAddress().getPort(), true));
+
+    leaderProxyHttpClient = new AsyncHttpClient();
+    resource = new AbstractLeaderAwareResource(leaderProxyHttpClient, leaderLatch, new ObjectMapper());
+    resource.injectLeaderProxyDependencies(leaderProxyHttpClient, new MetricRegistry(), new SingularityConfiguration());
+  }
+
+  @AfterEach
+  public void teardown() {
+    leaderProxyHttpClient.close();
+    leader.stop(0);
+  }
+
+  private static byte[] readEntity(Object entity) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) entity).write(output);
+    return output.toByteArray();
+  }
+
+  private HttpServletRequest request() {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("POST");
+    when(request.getContextPath()).thenReturn("/singularity");
+    when(request.getPathInfo()).thenReturn("/api/requests");
+    when(request.getHeaderNames()).thenReturn(Collections.enumeration(Collections.singletonList("X-Caller")));
+    when(request.getHeader("X-Caller")).thenReturn("test");
+    when(request.getParameterNames()).thenReturn(Collections.emptyEnumeration());
+    return request;
+  }
+
+  @Test
+  public void itPassesTheLeaderResponseThrough() throws Exception {
+    Response response = resource.maybeProxyToLeader(request(), Response.class, Collections.singletonMap("id", "request"), () -> {
+      throw new AssertionError("Should have been proxied");
+    });
+
+    Assertions.assertEquals("{\"id\":\"request\"}", receivedBody.get());
+    Assertions.assertEquals("test", receivedHeader.get());
+
+    Assertions.assertEquals(201, response.getStatus());
+    Assertions.assertEquals("yes", response.getHeaderString("X-Leader"));
+    Assertions.assertEquals("application/json", response.getHeaderString("Content-Type"));
+    Assertions.assertNull(response.getHeaderString("Content-Length"));
+    Assertions.assertArrayEquals(LEADER_BODY, readEntity(response.getEntity()));
+  }
+
+  @Test
+  public void itPassesTheLeaderResponseThroughForEntityEndpoints() throws Exception {
+    leaderStatus = 409;
+    HttpServletRequest request = request();
+
+    Assertions.assertNull(resource.maybeProxyToLeader(request, SingularityRequestParent.class, null, () -> {
+      throw new AssertionError("Should have been proxied");
+    }));
+    ArgumentCaptor<Object> leaderResponse = ArgumentCaptor.forClass(Object.class);
+    verify(request).setAttribute(eq(LeaderProxyResponseFilter.LEADER_RESPONSE_PROPERTY), leaderResponse.capture());
+
+    // What the endpoint returned is replaced once the response is filtered
+    ContainerRequestContext requestContext = mock(ContainerRequestContext.class);
+    when(requestContext.getProperty(LeaderProxyResponseFilter.LEADER_RESPONSE_PROPERTY)).thenReturn(leaderResponse.getValue());
+    ContainerResponseContext responseContext = mock(ContainerResponseContext.class);
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    headers.putSingle("X-Endpoint", "yes");
+    when(responseContext.getHeaders()).thenReturn(headers);
+    new LeaderProxyResponseFilter().filter(requestContext, responseContext);
+
+    verify(responseContext).setStatus(409);
+    // the leader's header names keep the case its server sent them in
+    Assertions.assertEquals(Collections.singletonList("yes"), headers.get("X-leader"));
+    Assertions.assertFalse(headers.containsKey("X-Endpoint"));
+    ArgumentCaptor<Object> entity = ArgumentCaptor.forClass(Object.class);
+    verify(responseContext).setEntity(entity.capture());
+    Assertions.assertArrayEquals(LEADER_BODY, readEntity(entity.getValue()));
+  }
+
+  @Test
+  public void itFailsWhenTheLeaderCannotBeReached() {
+    leader.stop(0);
+
+    WebApplicationException e = Assertions.assertThrows(WebApplicationException.class, () -> resource.maybeProxyToLeader(request(), Response.class, null, () -> {
+      throw new AssertionError("Should have been proxied");
+    }));
+    Assertions.assertEquals(500, e.getResponse().getStatus());
+  }
+
+  @Test
+  public void itRunsLocallyWhenLeader() {
+    when(leaderLatch.hasLeadership()).thenReturn(true);
+
+    Response response = resource.maybeProxyToLeader(request(), Response.class, null, () -> Response.ok().build());
+
+    Assertions.assertEquals(200, response.getStatus());
+    Assertions.assertNull(receivedBody.get());
+  }
+}
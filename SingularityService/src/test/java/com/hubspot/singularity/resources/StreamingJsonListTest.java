@@ -0,0 +1,41 @@
+package com.hubspot.singularity.resources;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.squarespace.jersey2.guice.JerseyGuiceUtils;
+
+public class StreamingJsonListTest {
+  private static final List<String> IDS = Arrays.asList("c", "a", "d", "b");
+
+  static {
+    JerseyGuiceUtils.install((s, serviceLocator) -> null);
+  }
+
+  @Test
+  public void itPagesThroughEveryItemInIdOrder() {
+    StreamingJsonList.Page<String> page = StreamingJsonList.page(IDS, Function.identity(), Optional.empty(), Optional.of(3));
+    Assertions.assertEquals(Arrays.asList("a", "b", "c"), page.getItems());
+    Assertions.assertEquals(Optional.of("c"), page.getNextCursor());
+
+    page = StreamingJsonList.page(IDS, Function.identity(), page.getNextCursor(), Optional.of(3));
+    Assertions.assertEquals(Arrays.asList("d"), page.getItems());
+    Assertions.assertEquals(Optional.empty(), page.getNextCursor());
+  }
+
+  @Test
+  public void itRejectsLimitsThatCouldNeverAdvance() {
+    for (int limit : new int[] {0, -1}) {
+      WebApplicationException e = Assertions.assertThrows(WebApplicationException.class,
+          () -> StreamingJsonList.page(IDS, Function.identity(), Optional.empty(), Optional.of(limit)));
+      Assertions.assertEquals(400, e.getResponse().getStatus());
+    }
+  }
+}
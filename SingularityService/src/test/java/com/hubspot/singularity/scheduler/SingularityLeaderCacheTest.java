@@ -0,0 +1,290 @@
+package com.hubspot.singularity.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.hubspot.mesos.Resources;
+import com.hubspot.singularity.ExtendedTaskState;
+import com.hubspot.singularity.RequestType;
+import com.hubspot.singularity.RequestUtilization;
+import com.hubspot.singularity.SingularityRequestBuilder;
+import com.hubspot.singularity.SingularityRequestHistory;
+import com.hubspot.singularity.SingularityRequestHistory.RequestHistoryType;
+import com.hubspot.singularity.SingularityTaskHistoryUpdate;
+import com.hubspot.singularity.SingularityTaskId;
+
+public class SingularityLeaderCacheTest {
+
+  @Test
+  public void itDoesNotOverwriteOrResurrectUpdatesWhileLoadingHistory() {
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    leaderCache.startLoadingTaskHistoryUpdates();
+    leaderCache.activate();
+
+    SingularityTaskId runningTask = new SingularityTaskId("r", "d", 1L, 1, "h", "r");
+    SingularityTaskId deletedTask = new SingularityTaskId("r", "d", 1L, 2, "h", "r");
+
+    Assertions.assertFalse(leaderCache.historyUpdatesActive());
+
+    // Written after the loader read these nodes from zk
+    leaderCache.saveTaskHistoryUpdate(update(runningTask, 2L, ExtendedTaskState.TASK_RUNNING), true);
+    leaderCache.deleteTaskHistory(deletedTask);
+    leaderCache.deleteTaskHistoryUpdate(runningTask, ExtendedTaskState.TASK_STARTING);
+
+    long generation = leaderCache.getGeneration();
+    leaderCache.loadTaskHistoryUpdate(generation, update(runningTask, 0L, ExtendedTaskState.TASK_LAUNCHED));
+    leaderCache.loadTaskHistoryUpdate(generation, update(runningTask, 1L, ExtendedTaskState.TASK_STARTING));
+    leaderCache.loadTaskHistoryUpdate(generation, update(runningTask, 1L, ExtendedTaskState.TASK_RUNNING));
+    leaderCache.loadTaskHistoryUpdate(generation, update(deletedTask, 0L, ExtendedTaskState.TASK_LAUNCHED));
+    leaderCache.finishLoadingTaskHistoryUpdates(generation);
+
+    Assertions.assertTrue(leaderCache.historyUpdatesActive());
+    Assertions.assertTrue(leaderCache.getTaskHistoryUpdates(deletedTask).isEmpty());
+    Assertions.assertEquals(2, leaderCache.getTaskHistoryUpdates(runningTask).size());
+    Assertions.assertEquals(ExtendedTaskState.TASK_LAUNCHED, leaderCache.getTaskHistoryUpdates(runningTask).get(0).getTaskState());
+    Assertions.assertEquals(2L, leaderCache.getTaskHistoryUpdates(runningTask).get(1).getTimestamp());
+  }
+
+  @Test
+  public void itDropsALoadFromAnEarlierLeadershipTerm() {
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    long staleGeneration = leaderCache.getGeneration();
+    leaderCache.startLoadingTaskHistoryUpdates();
+    leaderCache.startLoadingUsages();
+    leaderCache.activate();
+
+    // Leadership is lost and regained while the first term's loader is still running
+    leaderCache.stop();
+    leaderCache.startLoadingTaskHistoryUpdates();
+    leaderCache.startLoadingUsages();
+    leaderCache.activate();
+
+    SingularityTaskId taskId = new SingularityTaskId("r", "d", 1L, 1, "h", "r");
+    leaderCache.loadTaskHistoryUpdate(staleGeneration, update(taskId, 0L, ExtendedTaskState.TASK_LAUNCHED));
+    leaderCache.finishLoadingTaskHistoryUpdates(staleGeneration);
+    leaderCache.loadRequestUtilization(staleGeneration, new RequestUtilization("r", "d"));
+    leaderCache.finishLoadingUsages(staleGeneration);
+
+    Assertions.assertFalse(leaderCache.historyUpdatesActive());
+    Assertions.assertFalse(leaderCache.usagesActive());
+
+    long generation = leaderCache.getGeneration();
+    leaderCache.finishLoadingTaskHistoryUpdates(generation);
+    leaderCache.finishLoadingUsages(generation);
+
+    Assertions.assertTrue(leaderCache.getTaskHistoryUpdates(taskId).isEmpty());
+    Assertions.assertTrue(leaderCache.getRequestUtilizations().isEmpty());
+  }
+
+  @Test
+  public void itDoesNotCacheARequestHistoryDeletedWhileLoading() {
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    leaderCache.cacheRequests(Collections.emptyList());
+    leaderCache.activate();
+
+    // The request is deleted after the loader read its history from zk
+    SingularityRequestHistory deletedRequest = requestHistory("deleted", 1L);
+    Optional<SingularityRequestHistory> loaded = leaderCache.getMostRecentRequestHistory("deleted", (requestId) -> {
+      leaderCache.deleteRequestHistories(requestId);
+      return Optional.of(deletedRequest);
+    });
+    Assertions.assertEquals(Optional.of(deletedRequest), loaded);
+    Assertions.assertEquals(Optional.empty(), leaderCache.getMostRecentRequestHistory("deleted", (requestId) -> Optional.empty()));
+
+    // Same for a single history deleted mid-load
+    SingularityRequestHistory deletedHistory = requestHistory("trimmed", 1L);
+    loaded = leaderCache.getMostRecentRequestHistory("trimmed", (requestId) -> {
+      leaderCache.deleteRequestHistory(deletedHistory);
+      return Optional.of(deletedHistory);
+    });
+    Assertions.assertEquals(Optional.of(deletedHistory), loaded);
+    Assertions.assertEquals(Optional.empty(), leaderCache.getMostRecentRequestHistory("trimmed", (requestId) -> Optional.empty()));
+
+    // A history saved after the delete wins over what the load read
+    SingularityRequestHistory saved = requestHistory("recreated", 2L);
+    loaded = leaderCache.getMostRecentRequestHistory("recreated", (requestId) -> {
+      leaderCache.deleteRequestHistories(requestId);
+      leaderCache.putRequestHistory(saved);
+      return Optional.of(requestHistory(requestId, 1L));
+    });
+    Assertions.assertEquals(Optional.of(saved), loaded);
+    Assertions.assertEquals(Optional.of(saved), leaderCache.getMostRecentRequestHistory("recreated", (requestId) -> Optional.empty()));
+
+    // Loads that don't overlap a delete are cached
+    SingularityRequestHistory untouched = requestHistory("untouched", 1L);
+    Assertions.assertEquals(Optional.of(untouched), leaderCache.getMostRecentRequestHistory("untouched", (requestId) -> Optional.of(untouched)));
+    Assertions.assertEquals(Optional.of(untouched), leaderCache.getMostRecentRequestHistory("untouched", (requestId) -> Optional.empty()));
+  }
+
+  @Test
+  public void itDoesNotKeepARequestHistoryLoadedWhileItWasBeingDeleted() {
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    leaderCache.cacheRequests(Collections.emptyList());
+    leaderCache.activate();
+
+    SingularityRequestHistory history = requestHistory("r", 1L);
+    Map<String, SingularityRequestHistory> zk = new HashMap<>();
+
+    // Deletes go to zk before the cache, the way RequestManager passes them on. In between, the load reads zk and caches
+    // the history that is about to be deleted
+    zk.put("r", history);
+    Optional<SingularityRequestHistory> loaded = leaderCache.getMostRecentRequestHistory("r", (requestId) -> {
+      Optional<SingularityRequestHistory> read = Optional.ofNullable(zk.get(requestId));
+      zk.remove(requestId);
+      return read;
+    });
+    Assertions.assertEquals(Optional.of(history), loaded);
+    leaderCache.deleteRequestHistory(history);
+    Assertions.assertEquals(Optional.empty(), leaderCache.getMostRecentRequestHistory("r", (requestId) -> Optional.ofNullable(zk.get(requestId))));
+
+    // Same when every history of the request goes, and the load only finishes after the delete was passed on
+    SingularityRequestHistory removed = requestHistory("removed", 1L);
+    zk.put("removed", removed);
+    loaded = leaderCache.getMostRecentRequestHistory("removed", (requestId) -> {
+      Optional<SingularityRequestHistory> read = Optional.ofNullable(zk.get(requestId));
+      zk.remove(requestId);
+      leaderCache.deleteRequestHistories(requestId);
+      return read;
+    });
+    Assertions.assertEquals(Optional.of(removed), loaded);
+    Assertions.assertEquals(Optional.empty(), leaderCache.getMostRecentRequestHistory("removed", (requestId) -> Optional.ofNullable(zk.get(requestId))));
+  }
+
+  @Test
+  public void itMaintainsActiveTaskIndexesAsTasksComeAndGo() {
+    SingularityTaskId loaded = new SingularityTaskId("r1", "d", 1L, 1, "h1", "r");
+    SingularityTaskId sameRequest = new SingularityTaskId("r1", "d", 1L, 2, "h2", "r");
+    SingularityTaskId sameHost = new SingularityTaskId("r2", "d", 1L, 1, "h1", "r");
+    List<SingularityTaskId> taskIds = Arrays.asList(loaded, sameRequest, sameHost);
+
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    leaderCache.cacheActiveTaskIds(Collections.singletonList(loaded));
+    leaderCache.activate();
+    assertIndexesMatchActiveTasks(leaderCache, taskIds);
+    Assertions.assertEquals(Collections.singletonList(loaded), leaderCache.getActiveTaskIdsForRequest("r1"));
+
+    leaderCache.putActiveTask(sameRequest);
+    leaderCache.putActiveTask(sameHost);
+    // Putting a task again doesn't index it twice
+    leaderCache.putActiveTask(sameRequest);
+    assertIndexesMatchActiveTasks(leaderCache, taskIds);
+    Assertions.assertEquals(new HashSet<>(Arrays.asList(loaded, sameRequest)), new HashSet<>(leaderCache.getActiveTaskIdsForRequest("r1")));
+    Assertions.assertEquals(2, leaderCache.getActiveTaskIdsForRequest("r1").size());
+    Assertions.assertEquals(new HashSet<>(Arrays.asList(loaded, sameHost)), new HashSet<>(leaderCache.getActiveTaskIdsForHost("h1")));
+
+    leaderCache.deleteActiveTaskId(loaded);
+    assertIndexesMatchActiveTasks(leaderCache, taskIds);
+    Assertions.assertEquals(Collections.singletonList(sameRequest), leaderCache.getActiveTaskIdsForRequest("r1"));
+    Assertions.assertEquals(Collections.singletonList(sameHost), leaderCache.getActiveTaskIdsForHost("h1"));
+
+    // Deleting a task that isn't active changes nothing
+    leaderCache.deleteActiveTaskId(loaded);
+    leaderCache.deleteActiveTaskId(sameRequest);
+    leaderCache.deleteActiveTaskId(sameHost);
+    assertIndexesMatchActiveTasks(leaderCache, taskIds);
+    Assertions.assertTrue(leaderCache.getActiveTaskIdsForRequest("r1").isEmpty());
+    Assertions.assertTrue(leaderCache.getActiveTaskIdsForHost("h1").isEmpty());
+  }
+
+  @Test
+  public void itOnlyKeepsResourcesForActiveTasks() {
+    SingularityTaskId taskId = new SingularityTaskId("r", "d", 1L, 1, "h", "r");
+    Resources small = new Resources(1, 128, 0);
+    Resources large = new Resources(2, 256, 0);
+
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    leaderCache.cacheActiveTaskIds(Collections.emptyList());
+    leaderCache.activate();
+
+    leaderCache.putActiveTaskResources(taskId, small);
+    Assertions.assertFalse(leaderCache.getActiveTaskResources(taskId).isPresent());
+
+    leaderCache.putActiveTask(taskId);
+    leaderCache.putActiveTaskResources(taskId, small);
+    Assertions.assertEquals(Optional.of(small), leaderCache.getActiveTaskResources(taskId));
+
+    leaderCache.putActiveTaskResources(taskId, large);
+    Assertions.assertEquals(Optional.of(large), leaderCache.getActiveTaskResources(taskId));
+
+    leaderCache.deleteActiveTaskId(taskId);
+    Assertions.assertFalse(leaderCache.getActiveTaskResources(taskId).isPresent());
+
+    // A put that arrives after the task finished doesn't bring it back
+    leaderCache.putActiveTaskResources(taskId, small);
+    Assertions.assertFalse(leaderCache.getActiveTaskResources(taskId).isPresent());
+  }
+
+  @Test
+  public void itKeepsActiveTaskIndexesConsistentUnderConcurrentWrites() throws Exception {
+    SingularityLeaderCache leaderCache = new SingularityLeaderCache();
+    leaderCache.cacheActiveTaskIds(Collections.emptyList());
+    leaderCache.activate();
+
+    List<SingularityTaskId> taskIds = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      taskIds.add(new SingularityTaskId("r" + (i % 4), "d", 1L, i, "h" + (i % 3), "r"));
+    }
+
+    // Every thread puts and deletes the same tasks, so puts and deletes of one task race each other
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> writers = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        final int seed = thread;
+        writers.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          for (int i = 0; i < 50000; i++) {
+            SingularityTaskId taskId = taskIds.get(random.nextInt(taskIds.size()));
+            if (random.nextBoolean()) {
+              leaderCache.putActiveTask(taskId);
+            } else {
+              leaderCache.deleteActiveTaskId(taskId);
+            }
+          }
+        }));
+      }
+      for (Future<?> writer : writers) {
+        writer.get(1, TimeUnit.MINUTES);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertIndexesMatchActiveTasks(leaderCache, taskIds);
+  }
+
+  private static void assertIndexesMatchActiveTasks(SingularityLeaderCache leaderCache, List<SingularityTaskId> taskIds) {
+    Set<SingularityTaskId> active = new HashSet<>(leaderCache.getActiveTaskIds());
+    for (SingularityTaskId taskId : taskIds) {
+      Assertions.assertEquals(active.contains(taskId), leaderCache.isActiveTask(taskId));
+      Assertions.assertEquals(active.contains(taskId), leaderCache.getActiveTaskIdsForRequest(taskId.getRequestId()).contains(taskId), taskId.getId());
+      Assertions.assertEquals(active.contains(taskId), leaderCache.getActiveTaskIdsForHost(taskId.getSanitizedHost()).contains(taskId), taskId.getId());
+    }
+    for (SingularityTaskId taskId : active) {
+      Assertions.assertTrue(taskIds.contains(taskId));
+    }
+  }
+
+  private static SingularityRequestHistory requestHistory(String requestId, long createdAt) {
+    return new SingularityRequestHistory(createdAt, Optional.empty(), RequestHistoryType.CREATED, new SingularityRequestBuilder(requestId, RequestType.WORKER).build(), Optional.empty());
+  }
+
+  private static SingularityTaskHistoryUpdate update(SingularityTaskId taskId, long timestamp, ExtendedTaskState state) {
+    return new SingularityTaskHistoryUpdate(taskId, timestamp, state, Optional.empty(), Optional.empty());
+  }
+}
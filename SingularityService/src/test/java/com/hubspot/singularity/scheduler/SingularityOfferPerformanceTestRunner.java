@@ -14,6 +14,7 @@ import org.apache.mesos.v1.Protos.Offer;
 import org.apache.mesos.v1.Protos.TaskState;
 
 import com.hubspot.mesos.JavaUtils;
+import com.hubspot.singularity.OfferScoringStrategy;
 import com.hubspot.singularity.RequestType;
 import com.hubspot.singularity.SingularityRequest;
 import com.hubspot.singularity.SingularityRequestBuilder;
@@ -28,6 +29,17 @@ public class SingularityOfferPerformanceTestRunner extends SingularitySchedulerT
 
   //@Test
   public void testSchedulerPerformance() {
+    runSchedulerPerformanceTest(OfferScoringStrategy.CONCURRENT);
+  }
+
+  //@Test
+  public void testIndexedSchedulerPerformance() {
+    runSchedulerPerformanceTest(OfferScoringStrategy.INDEXED);
+  }
+
+  private void runSchedulerPerformanceTest(OfferScoringStrategy offerScoringStrategy) {
+    configuration.getMesosConfiguration().setOfferScoringStrategy(offerScoringStrategy);
+
     long start = System.currentTimeMillis();
 
     int numRequests = 4500;
@@ -64,7 +76,7 @@ public class SingularityOfferPerformanceTestRunner extends SingularitySchedulerT
 
     int activeTasks = taskManager.getActiveTaskIds().size();
 
-    System.out.println(String.format("Launched %s tasks on %s offers in %s", activeTasks, numOffers, JavaUtils.durationFromMillis(duration)));
+    System.out.println(String.format("Launched %s tasks on %s offers in %s using %s offer scoring", activeTasks, numOffers, JavaUtils.durationFromMillis(duration), offerScoringStrategy));
 
     start = System.currentTimeMillis();
 
@@ -97,6 +109,4 @@ public class SingularityOfferPerformanceTestRunner extends SingularitySchedulerT
 
     System.out.println(String.format("Ran %s status updates in %s", activeTasks * 5, JavaUtils.durationFromMillis(System.currentTimeMillis() - start)));
   }
-
-
 }
@@ -0,0 +1,71 @@
+package com.hubspot.singularity.scheduler;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+
+import com.hubspot.singularity.helpers.RFC5545Schedule;
+
+public class SingularityScheduleCacheTest {
+
+  @Test
+  public void itReusesParsedSchedulesPerTimeZone() throws Exception {
+    SingularityScheduleCache scheduleCache = new SingularityScheduleCache();
+
+    CronExpression utc = scheduleCache.getCronExpression("0 0 12 * * ?", Optional.of("UTC"));
+    CronExpression newYork = scheduleCache.getCronExpression("0 0 12 * * ?", Optional.of("America/New_York"));
+
+    Assertions.assertSame(utc, scheduleCache.getCronExpression("0 0 12 * * ?", Optional.of("UTC")));
+    Assertions.assertNotSame(utc, newYork);
+    Assertions.assertEquals(TimeZone.getTimeZone("America/New_York"), newYork.getTimeZone());
+
+    String rfc5545 = "DTSTART=20150101T000000\nRRULE:FREQ=MINUTELY;INTERVAL=5";
+    Assertions.assertSame(scheduleCache.getRFC5545Schedule(rfc5545), scheduleCache.getRFC5545Schedule(rfc5545));
+  }
+
+  //@Test
+  public void testSchedulePerformance() throws Exception {
+    List<String> cronSchedules = Arrays.asList("0 * * * * ?", "0 */5 * * * ?", "0 15 2 ? * MON-FRI", "0 0 0/6 * * ?");
+    List<String> rfc5545Schedules = Arrays.asList(
+        "DTSTART=20150101T000000\nRRULE:FREQ=MINUTELY;INTERVAL=1",
+        "DTSTART=20150101T000000\nRRULE:FREQ=MINUTELY;INTERVAL=5",
+        "DTSTART=20150101T000000\nRRULE:FREQ=DAILY;BYDAY=MO,TU,WE,TH,FR;BYHOUR=2;BYMINUTE=15",
+        "FREQ=HOURLY;INTERVAL=6");
+    int iterations = 2000;
+    SingularityScheduleCache scheduleCache = new SingularityScheduleCache();
+
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      long now = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(i);
+      for (String schedule : cronSchedules) {
+        new CronExpression(schedule).getNextValidTimeAfter(new Date(now));
+      }
+      for (String schedule : rfc5545Schedules) {
+        new RFC5545Schedule(schedule).getNextValidTime(now);
+      }
+    }
+    long uncachedNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      long now = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(i);
+      for (String schedule : cronSchedules) {
+        scheduleCache.getCronExpression(schedule, Optional.empty()).getNextValidTimeAfter(new Date(now));
+      }
+      for (String schedule : rfc5545Schedules) {
+        scheduleCache.getRFC5545Schedule(schedule).getNextValidTime(now);
+      }
+    }
+    long cachedNanos = System.nanoTime() - start;
+
+    int calls = iterations * (cronSchedules.size() + rfc5545Schedules.size());
+    System.out.println(String.format("uncached: %s us/op, cached: %s us/op", TimeUnit.NANOSECONDS.toMicros(uncachedNanos) / calls, TimeUnit.NANOSECONDS.toMicros(cachedNanos) / calls));
+  }
+}
@@ -1,5 +1,6 @@
 package com.hubspot.singularity.scheduler;
 
+import java.io.ByteArrayOutputStream;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -13,6 +14,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.mesos.v1.Protos.AgentID;
 import org.apache.mesos.v1.Protos.Offer;
@@ -25,6 +28,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
@@ -66,6 +71,7 @@ import com.hubspot.singularity.SingularityRequestCleanup;
 import com.hubspot.singularity.SingularityRequestHistory;
 import com.hubspot.singularity.SingularityRequestHistory.RequestHistoryType;
 import com.hubspot.singularity.SingularityRequestLbCleanup;
+import com.hubspot.singularity.SingularityRequestParent;
 import com.hubspot.singularity.SingularityRunNowRequestBuilder;
 import com.hubspot.singularity.SingularityShellCommand;
 import com.hubspot.singularity.SingularityTask;
@@ -392,6 +398,43 @@ public class SingularitySchedulerTest extends SingularitySchedulerTestBase {
     Assertions.assertTrue(taskManager.getCleanupTasks().isEmpty());
   }
 
+  @Test
+  public void testActiveTasksCanBeStreamedInPages() throws Exception {
+    initRequest();
+    initFirstDeploy();
+
+    requestResource.postRequest(request.toBuilder().setInstances(Optional.of(3)).build(), singularityUser);
+    scheduler.drainPendingQueue();
+    sms.resourceOffers(Arrays.asList(createOffer(12, 1024, 5000)));
+
+    List<String> taskIds = taskManager.getActiveTaskIds().stream()
+        .map(SingularityTaskId::getId)
+        .sorted()
+        .collect(Collectors.toList());
+    Assertions.assertEquals(3, taskIds.size());
+
+    Response firstPage = taskResource.streamActiveTasks(singularityUser, false, null, 2, Collections.singletonList("taskId.id,taskId.host"));
+    JsonNode firstTasks = readStreamedJson(firstPage);
+    Assertions.assertEquals(2, firstTasks.size());
+    Assertions.assertEquals(taskIds.get(0), firstTasks.get(0).get("taskId").get("id").asText());
+    Assertions.assertTrue(firstTasks.get(0).get("taskId").has("host"));
+    Assertions.assertFalse(firstTasks.get(0).has("taskRequest"));
+    Assertions.assertEquals(taskIds.get(1), firstPage.getHeaderString("X-Singularity-Next-Cursor"));
+
+    Response lastPage = taskResource.streamActiveTasks(singularityUser, false, taskIds.get(1), 2, Collections.emptyList());
+    JsonNode lastTasks = readStreamedJson(lastPage);
+    Assertions.assertEquals(1, lastTasks.size());
+    Assertions.assertEquals(taskIds.get(2), lastTasks.get(0).get("taskId").get("id").asText());
+    Assertions.assertTrue(lastTasks.get(0).has("taskRequest"));
+    Assertions.assertNull(lastPage.getHeaderString("X-Singularity-Next-Cursor"));
+  }
+
+  private JsonNode readStreamedJson(Response response) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(outputStream);
+    return new ObjectMapper().readTree(outputStream.toByteArray());
+  }
+
   @Test
   public void testSchedulerCanBatchOnOffers() {
     initRequest();
@@ -443,6 +486,29 @@ public class SingularitySchedulerTest extends SingularitySchedulerTestBase {
     Assertions.assertEquals(2, offerIds.size());
   }
 
+  @Test
+  public void testFullRequestDataForRequestList() {
+    initRequest();
+    initFirstDeploy();
+
+    requestResource.scale(requestId, new SingularityScaleRequest(Optional.of(2), Optional.of(TimeUnit.HOURS.toMillis(1)), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty()), singularityUser);
+    SingularityTask task = launchTask(request, firstDeploy, 1, TaskState.TASK_RUNNING);
+
+    List<SingularityRequestParent> requestParents = requestResource.getActiveRequests(singularityUser, false, false, true, 10, null, Collections.emptyList());
+
+    Assertions.assertEquals(1, requestParents.size());
+    Assertions.assertTrue(requestParents.get(0).getExpiringScale().isPresent());
+    Assertions.assertTrue(requestParents.get(0).getTaskIds().get().getHealthy().contains(task.getTaskId()));
+    Assertions.assertEquals(RequestHistoryType.SCALED, requestManager.getMostRecentRequestHistory(requestId).get().getEventType());
+
+    // The cached most recent history follows later updates
+    requestManager.bounce(request, System.currentTimeMillis() + 1000, Optional.empty(), Optional.empty());
+    Assertions.assertEquals(RequestHistoryType.BOUNCED, requestManager.getMostRecentRequestHistory(requestId).get().getEventType());
+
+    Assertions.assertEquals(1, requestResource.getActiveRequests(singularityUser, false, false, true, 1, 1, Collections.emptyList()).size());
+    Assertions.assertTrue(requestResource.getActiveRequests(singularityUser, false, false, true, 1, 2, Collections.emptyList()).isEmpty());
+  }
+
   @Test
   public void testSchedulerHandlesFinishedTasks() {
     initScheduledRequest();
@@ -454,7 +520,7 @@ public class SingularitySchedulerTest extends SingularitySchedulerTestBase {
     requestResource.postRequest(request.toBuilder().setQuartzSchedule(Optional.of(schedule)).build(), singularityUser);
     scheduler.drainPendingQueue();
 
-    Assertions.assertTrue(requestResource.getActiveRequests(singularityUser, false, false, false, 10, Collections.emptyList()).isEmpty());
+    Assertions.assertTrue(requestResource.getActiveRequests(singularityUser, false, false, false, 10, null, Collections.emptyList()).isEmpty());
     Assertions.assertTrue(requestManager.getRequest(requestId).get().getState() == RequestState.FINISHED);
     Assertions.assertTrue(taskManager.getPendingTaskIds().isEmpty());
 
@@ -462,7 +528,7 @@ public class SingularitySchedulerTest extends SingularitySchedulerTestBase {
     requestResource.postRequest(request.toBuilder().setQuartzSchedule(Optional.of(schedule)).build(), singularityUser);
     scheduler.drainPendingQueue();
 
-    Assertions.assertTrue(!requestResource.getActiveRequests(singularityUser, false, false, false, 10, Collections.emptyList()).isEmpty());
+    Assertions.assertTrue(!requestResource.getActiveRequests(singularityUser, false, false, false, 10, null, Collections.emptyList()).isEmpty());
     Assertions.assertTrue(requestManager.getRequest(requestId).get().getState() == RequestState.ACTIVE);
 
     Assertions.assertTrue(!taskManager.getPendingTaskIds().isEmpty());
@@ -507,7 +573,7 @@ public class SingularitySchedulerTest extends SingularitySchedulerTestBase {
     requestResource.postRequest(request.toBuilder().setQuartzSchedule(Optional.of(schedule)).build(), singularityUser);
     scheduler.drainPendingQueue();
 
-    Assertions.assertTrue(requestResource.getActiveRequests(singularityUser, false, false, false, 10, Collections.emptyList()).isEmpty());
+    Assertions.assertTrue(requestResource.getActiveRequests(singularityUser, false, false, false, 10, null, Collections.emptyList()).isEmpty());
     Assertions.assertTrue(requestManager.getRequest(requestId).get().getState() == RequestState.FINISHED);
 
     SingularityDeployBuilder db = new SingularityDeployBuilder(requestId, secondDeployId);
@@ -14,6 +14,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import org.apache.mesos.v1.Protos.Address;
@@ -103,6 +104,9 @@ import com.ning.http.client.AsyncHttpClient;
 
 public class SingularitySchedulerTestBase extends SingularityCuratorTestBase {
 
+  // offers sent together are collected by id, so two random ids colliding would fail the whole batch
+  private static final AtomicInteger OFFER_IDS = new AtomicInteger();
+
   @Inject
   protected SingularityLeaderCache leaderCache;
   @Inject
@@ -255,8 +259,6 @@ public class SingularitySchedulerTestBase extends SingularityCuratorTestBase {
     AgentID slaveId = AgentID.newBuilder().setValue(slave).build();
     FrameworkID frameworkId = FrameworkID.newBuilder().setValue("framework1").build();
 
-    Random r = new Random();
-
     List<Attribute> attributesList = new ArrayList<>();
     for (Map.Entry<String, String> entry : attributes.entrySet()) {
       attributesList.add(Attribute.newBuilder()
@@ -276,7 +278,7 @@ public class SingularitySchedulerTestBase extends SingularityCuratorTestBase {
     }
 
     return Offer.newBuilder()
-        .setId(OfferID.newBuilder().setValue("offer" + r.nextInt(1000)).build())
+        .setId(OfferID.newBuilder().setValue("offer" + OFFER_IDS.incrementAndGet()).build())
         .setFrameworkId(frameworkId)
         .setAgentId(slaveId)
         .setHostname(host)
@@ -228,6 +228,37 @@ public class SingularityUsageTest extends SingularitySchedulerTestBase {
     Assertions.assertEquals(requestId, utilization.getMaxUnderUtilizedMemBytesRequestId());
   }
 
+  @Test
+  public void itOnlyCheckpointsTaskUsageOnInterval() {
+    try {
+      configuration.setCheckpointTaskUsageEveryMillis(TimeUnit.MINUTES.toMillis(1));
+      initRequest();
+      initFirstDeployWithResources(10, .001);
+      saveAndSchedule(request.toBuilder().setInstances(Optional.of(1)));
+      resourceOffers(1);
+
+      SingularityTaskId taskId = taskManager.getActiveTaskIds().get(0);
+      String host = slaveManager.getObjects().get(0).getHost();
+
+      mesosClient.setSlaveResourceUsage(host, Collections.singletonList(getTaskMonitor(taskId.getId(), 40, getTimestampSeconds(taskId, 5), 800)));
+      usagePoller.runActionOnPoll();
+      mesosClient.setSlaveResourceUsage(host, Collections.singletonList(getTaskMonitor(taskId.getId(), 80, getTimestampSeconds(taskId, 10), 850)));
+      usagePoller.runActionOnPoll();
+      mesosClient.setSlaveResourceUsage(host, Collections.singletonList(getTaskMonitor(taskId.getId(), 120, getTimestampSeconds(taskId, 15), 850)));
+      usagePoller.runActionOnPoll();
+
+      // Only the first sample is written, the rest are kept in the leader's usage window
+      Assertions.assertEquals(1, usageManager.getTaskUsage(taskId).size());
+      Assertions.assertEquals(0, usageHelper.getAndResetStoreOps());
+
+      RequestUtilization utilization = usageManager.getRequestUtilizations().get(requestId);
+      Assertions.assertNotNull(utilization);
+      Assertions.assertEquals(8, utilization.getMaxCpuUsed(), 0.01);
+    } finally {
+      configuration.setCheckpointTaskUsageEveryMillis(0);
+    }
+  }
+
   @Test
   public void itDoesntIncludePerfectlyUtilizedRequestsInClusterUtilization() {
     initRequest();
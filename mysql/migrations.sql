@@ -178,3 +178,13 @@ ALTER TABLE `deployHistory`
   MODIFY COLUMN `message` varchar(280) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci DEFAULT NULL,
   MODIFY COLUMN `deployState` ENUM ('SUCCEEDED', 'FAILED_INTERNAL_STATE', 'CANCELING', 'WAITING', 'OVERDUE', 'FAILED', 'CANCELED') NOT NULL,
   ADD COLUMN `json` JSON DEFAULT NULL;
+
+--changeset ssalinas:22 dbms:mysql
+CREATE TABLE `taskUsageBlocks` (
+  `requestId` varchar(100) CHARACTER SET ascii COLLATE ascii_bin NOT NULL,
+  `taskId` varchar(200) CHARACTER SET ascii COLLATE ascii_bin NOT NULL,
+  `blockStart` BIGINT UNSIGNED NOT NULL,
+  `bytes` BLOB NOT NULL,
+  PRIMARY KEY (`taskId`, `blockStart`),
+  KEY `blockStart` (`blockStart`)
+) ENGINE=InnoDB DEFAULT CHARSET=ascii;
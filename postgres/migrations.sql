@@ -88,3 +88,13 @@ ALTER TABLE deployHistory
   MODIFY COLUMN message varchar(280) CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci DEFAULT NULL,
   MODIFY COLUMN deployState ENUM ('SUCCEEDED', 'FAILED_INTERNAL_STATE', 'CANCELING', 'WAITING', 'OVERDUE', 'FAILED', 'CANCELED') NOT NULL,
   ADD COLUMN json JSON DEFAULT NULL;
+
+--changeset ssalinas:6 dbms:postgresql
+CREATE TABLE taskUsageBlocks (
+  requestId varchar(100) NOT NULL,
+  taskId varchar(200) NOT NULL,
+  blockStart BIGINT NOT NULL,
+  bytes bytea NOT NULL,
+  PRIMARY KEY (taskId, blockStart)
+);
+CREATE INDEX idx_usage_block_start ON taskUsageBlocks(blockStart);